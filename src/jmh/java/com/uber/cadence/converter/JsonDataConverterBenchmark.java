@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the default String based {@link JsonDataConverter} with its streaming mode, which
+ * writes JSON straight to UTF-8 bytes and parses it without an intermediate String.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDataConverterBenchmark {
+
+  /** Approximate size of the serialized payload in bytes. */
+  @Param({"100", "10000", "100000", "2000000"})
+  public int payloadSize;
+
+  private final DataConverter converter = JsonDataConverter.getInstance();
+  private final DataConverter streamingConverter = JsonDataConverter.getStreamingInstance();
+  private Payload payload;
+  private byte[] serialized;
+
+  @Setup
+  public void setUp() {
+    payload = Payload.ofSize(payloadSize);
+    serialized = converter.toData(payload);
+  }
+
+  @Benchmark
+  public byte[] toDataStreaming() {
+    return streamingConverter.toData(payload);
+  }
+
+  @Benchmark
+  public byte[] toDataString() {
+    return converter.toData(payload);
+  }
+
+  @Benchmark
+  public Payload fromDataStreaming() {
+    return streamingConverter.fromData(serialized, Payload.class, Payload.class);
+  }
+
+  @Benchmark
+  public Payload fromDataString() {
+    return converter.fromData(serialized, Payload.class, Payload.class);
+  }
+
+  public static final class Payload {
+    public String id;
+    public List<Item> items = new ArrayList<>();
+
+    static Payload ofSize(int size) {
+      Payload result = new Payload();
+      result.id = "payload-" + size;
+      // Each item serializes to roughly 80 bytes.
+      int count = Math.max(1, size / 80);
+      for (int i = 0; i < count; i++) {
+        Item item = new Item();
+        item.name = "item-" + i;
+        item.description = "description of the item number " + i;
+        item.quantity = i;
+        item.price = i * 1.5;
+        result.items.add(item);
+      }
+      return result;
+    }
+  }
+
+  public static final class Item {
+    public String name;
+    public String description;
+    public int quantity;
+    public double price;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.metrics;
+
+import com.uber.m3.tally.NullStatsReporter;
+import com.uber.m3.tally.RootScopeBuilder;
+import com.uber.m3.tally.ScopeCloseException;
+import com.uber.m3.util.Duration;
+import com.uber.m3.util.ImmutableMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the metrics overhead of a single activity task: tagging the worker scope with the
+ * activity and workflow types, incrementing a counter and recording two latencies. Compares a scope
+ * tagged for every task with one taken from {@link TaggedScopeCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TaggedScopeBenchmark {
+
+  /** Number of distinct activity types the tasks are spread across. */
+  @Param({"1", "100"})
+  public int typeCount;
+
+  private com.uber.m3.tally.Scope scope;
+  private TaggedScopeCache cache;
+  private String[] activityTypes;
+  private final Duration latency = Duration.ofMillis(5);
+
+  @Setup
+  public void setUp() {
+    scope =
+        new RootScopeBuilder()
+            .reporter(new NullStatsReporter())
+            .reportEvery(Duration.ofSeconds(1))
+            .tagged(ImmutableMap.of(MetricsTag.DOMAIN, "domain", MetricsTag.TASK_LIST, "list"));
+    cache = new TaggedScopeCache(scope, MetricsTag.ACTIVITY_TYPE, MetricsTag.WORKFLOW_TYPE);
+    activityTypes = new String[typeCount];
+    for (int i = 0; i < typeCount; i++) {
+      activityTypes[i] = "Activity::type" + i;
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws ScopeCloseException {
+    scope.close();
+  }
+
+  @Benchmark
+  public void taggedPerTask() {
+    com.uber.m3.tally.Scope metricsScope =
+        scope.tagged(
+            ImmutableMap.of(
+                MetricsTag.ACTIVITY_TYPE,
+                nextActivityType(),
+                MetricsTag.WORKFLOW_TYPE,
+                "Workflow"));
+    emit(metricsScope);
+  }
+
+  @Benchmark
+  public void cached() {
+    emit(cache.get(nextActivityType(), "Workflow"));
+  }
+
+  private String nextActivityType() {
+    return activityTypes[ThreadLocalRandom.current().nextInt(activityTypes.length)];
+  }
+
+  private void emit(com.uber.m3.tally.Scope metricsScope) {
+    metricsScope.counter(MetricsType.ACTIVITY_POLL_SUCCEED_COUNTER).inc(1);
+    MetricsEmit.emitLatency(
+        metricsScope,
+        MetricsType.ACTIVITY_SCHEDULED_TO_START_LATENCY,
+        latency,
+        HistogramBuckets.HIGH_1MS_24H);
+    MetricsEmit.emitLatency(
+        metricsScope, MetricsType.ACTIVITY_EXEC_LATENCY, latency, HistogramBuckets.HIGH_1MS_24H);
+  }
+}
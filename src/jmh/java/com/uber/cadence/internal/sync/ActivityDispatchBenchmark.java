@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of looking up a registered activity method by type name and calling it, as done by {@link
+ * POJOActivityTaskHandler} on every task. Compares the previous dispatch through a synchronized map
+ * and {@link Method#invoke} with an immutable map and {@link MethodInvoker}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ActivityDispatchBenchmark {
+
+  public interface TestActivities {
+    String activity1(String input, int count);
+
+    long activity2(long a, long b);
+
+    void activity3();
+  }
+
+  public static class TestActivitiesImpl implements TestActivities {
+    @Override
+    public String activity1(String input, int count) {
+      return input;
+    }
+
+    @Override
+    public long activity2(long a, long b) {
+      return a + b;
+    }
+
+    @Override
+    public void activity3() {}
+  }
+
+  private static final String[] TYPES = {"activity1", "activity2", "activity3"};
+  private static final Object[][] ARGS = {{"input", 1}, {1L, 2L}, {}};
+
+  private final Object activity = new TestActivitiesImpl();
+  private final Map<String, Method> reflective = Collections.synchronizedMap(new HashMap<>());
+  private Map<String, MethodInvoker> precompiled;
+
+  @Setup
+  public void setUp() {
+    Map<String, MethodInvoker> invokers = new HashMap<>();
+    for (Method method : TestActivities.class.getMethods()) {
+      reflective.put(method.getName(), method);
+      invokers.put(method.getName(), MethodInvoker.of(method));
+    }
+    precompiled = Collections.unmodifiableMap(invokers);
+  }
+
+  @Benchmark
+  public Object reflective() throws Exception {
+    int i = ThreadLocalRandom.current().nextInt(TYPES.length);
+    return reflective.get(TYPES[i]).invoke(activity, ARGS[i]);
+  }
+
+  @Benchmark
+  public Object precompiled() throws Exception {
+    int i = ThreadLocalRandom.current().nextInt(TYPES.length);
+    return precompiled.get(TYPES[i]).invoke(activity, ARGS[i]);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import com.uber.cadence.client.BulkWorkflowRequest;
+import com.uber.cadence.client.BulkWorkflowResult;
+import com.uber.cadence.client.WorkflowClient;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.client.WorkflowStub;
+import com.uber.cadence.testing.TestWorkflowEnvironment;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to start {@code requestCount} workflows through {@link BulkRequestIterator}
+ * compared with calling {@link WorkflowStub#startAsync(Object...)} and waiting for each result in
+ * turn. Requests go through the client of a {@link TestWorkflowEnvironment}, so no worker is needed
+ * to start the workflows. The in-memory service has no network round trip, so the difference shows
+ * the client overhead and the concurrency of the service rather than the latency hidden when
+ * talking to a real cluster. A new environment is created for each iteration to keep the number of
+ * stored workflows bounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkWorkflowRequestBenchmark {
+
+  private static final String TASK_LIST = "bulk-benchmark";
+  private static final String WORKFLOW_TYPE = "BulkBenchmarkWorkflow";
+
+  @Param({"1", "16", "64"})
+  public int maxConcurrentRequests;
+
+  @Param({"256"})
+  public int requestCount;
+
+  private final AtomicLong workflowIds = new AtomicLong();
+  private TestWorkflowEnvironment testEnv;
+  private WorkflowClient client;
+  private WorkflowOptions workflowOptions;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    testEnv = TestWorkflowEnvironment.newInstance();
+    client = testEnv.newWorkflowClient();
+    workflowOptions =
+        new WorkflowOptions.Builder()
+            .setTaskList(TASK_LIST)
+            .setExecutionStartToCloseTimeout(Duration.ofHours(1))
+            .build();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    testEnv.close();
+  }
+
+  @Benchmark
+  public int bulk() {
+    Iterator<BulkWorkflowRequest> requests =
+        IntStream.range(0, requestCount)
+            .mapToObj(i -> BulkWorkflowRequest.start(newStub()))
+            .iterator();
+    BulkRequestIterator results = new BulkRequestIterator(requests, maxConcurrentRequests);
+    int succeeded = 0;
+    while (results.hasNext()) {
+      BulkWorkflowResult result = results.next();
+      if (result.isSuccessful()) {
+        succeeded++;
+      }
+    }
+    return succeeded;
+  }
+
+  @Benchmark
+  public int sequential() {
+    int succeeded = 0;
+    for (int i = 0; i < requestCount; i++) {
+      if (newStub().startAsync().join() != null) {
+        succeeded++;
+      }
+    }
+    return succeeded;
+  }
+
+  private WorkflowStub newStub() {
+    WorkflowOptions options =
+        new WorkflowOptions.Builder(workflowOptions)
+            .setWorkflowId("bulk-benchmark-" + workflowIds.incrementAndGet())
+            .build();
+    return client.newUntypedWorkflowStub(WORKFLOW_TYPE, options);
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.QueryTaskCompletedType;
+import com.uber.cadence.converter.JsonDataConverter;
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.cadence.internal.replay.DeciderCache;
+import com.uber.cadence.internal.replay.ReplayDecisionTaskHandler;
+import com.uber.cadence.internal.testservice.TestWorkflowService;
+import com.uber.cadence.internal.worker.DecisionTaskHandler;
+import com.uber.cadence.internal.worker.SingleWorkerOptions;
+import com.uber.cadence.worker.WorkflowImplementationOptions;
+import io.opentracing.noop.NoopTracerFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decision task processing through {@link ReplayDecisionTaskHandler} for histories produced by
+ * {@link ReplayHistoryGenerator}:
+ *
+ * <ul>
+ *   <li>{@code fullReplay} - a non sticky task with the whole history, every decision is replayed.
+ *   <li>{@code stickyIncremental} - a sticky task with only the new events, applied to a cached
+ *       workflow. The cache is primed before every invocation outside of the measurement.
+ *   <li>{@code queryCachedWorkflow} - a query task answered by a cached workflow.
+ * </ul>
+ *
+ * <p>The {@code events} counter reports the replayed history events per second. Run with {@code
+ * -prof gc} (the default for {@code ./gradlew jmh}) to get the allocation rate, {@code
+ * gc.alloc.rate.norm} divided by the events of one operation gives the bytes allocated per event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecisionTaskReplayBenchmark {
+
+  /** Number of workflow steps, each adds about 30 events to the history. */
+  @Param({"10", "100"})
+  public int steps;
+
+  private ReplayHistoryGenerator history;
+  private ThreadPoolExecutor workflowThreadPool;
+  private DeciderCache cache;
+  private DecisionTaskHandler replayHandler;
+  private DecisionTaskHandler stickyHandler;
+  private PollForDecisionTaskResponse fullHistoryTask;
+  private PollForDecisionTaskResponse prefixTask;
+  private PollForDecisionTaskResponse incrementalTask;
+  private PollForDecisionTaskResponse queryTask;
+
+  /** Counts replayed history events, reported by JMH as a rate next to the operations. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class EventCounter {
+    public long events;
+  }
+
+  /** Replaces the cached workflow with one that hasn't seen the incremental task yet. */
+  @State(Scope.Thread)
+  public static class PrimedCache {
+    @Setup(Level.Invocation)
+    public void prime(DecisionTaskReplayBenchmark benchmark) throws Exception {
+      checkCompleted(benchmark.stickyHandler.handleDecisionTask(benchmark.prefixTask));
+    }
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    history = ReplayHistoryGenerator.generate(steps);
+    fullHistoryTask = history.newFullHistoryTask();
+    prefixTask = history.newPrefixTask();
+    incrementalTask = history.newIncrementalTask();
+    queryTask = history.newQueryTask();
+
+    workflowThreadPool =
+        new ThreadPoolExecutor(0, 1000, 1, TimeUnit.SECONDS, new SynchronousQueue<>());
+    cache = new DeciderCache(10, NoopScope.getInstance());
+    SingleWorkerOptions options = SingleWorkerOptions.newBuilder().build();
+    POJOWorkflowImplementationFactory factory =
+        new POJOWorkflowImplementationFactory(
+            JsonDataConverter.getInstance(),
+            workflowThreadPool,
+            Function.identity(),
+            cache,
+            Collections.emptyList(),
+            NoopTracerFactory.create());
+    factory.setWorkflowImplementationTypes(
+        new WorkflowImplementationOptions.Builder().build(),
+        new Class<?>[] {ReplayHistoryGenerator.GeneratedWorkflowImpl.class});
+    // History is never fetched from the service as every full history task starts at event 1.
+    TestWorkflowService service = new TestWorkflowService();
+    replayHandler =
+        new ReplayDecisionTaskHandler(
+            "domain", factory, cache, options, null, Duration.ofSeconds(5), service, null);
+    stickyHandler =
+        new ReplayDecisionTaskHandler(
+            "domain", factory, cache, options, "sticky", Duration.ofSeconds(5), service, null);
+
+    // Fail fast if the generated history doesn't replay.
+    checkCompleted(replayHandler.handleDecisionTask(fullHistoryTask));
+    checkCompleted(stickyHandler.handleDecisionTask(prefixTask));
+    checkQueryCompleted(stickyHandler.handleDecisionTask(queryTask));
+  }
+
+  @TearDown
+  public void tearDown() {
+    cache.invalidateAll();
+    workflowThreadPool.shutdownNow();
+  }
+
+  @Benchmark
+  public DecisionTaskHandler.Result fullReplay(EventCounter counter) throws Exception {
+    DecisionTaskHandler.Result result = replayHandler.handleDecisionTask(fullHistoryTask);
+    counter.events += fullHistoryTask.getHistory().getEvents().size();
+    return checkCompleted(result);
+  }
+
+  @Benchmark
+  public DecisionTaskHandler.Result stickyIncremental(PrimedCache primed, EventCounter counter)
+      throws Exception {
+    DecisionTaskHandler.Result result = stickyHandler.handleDecisionTask(incrementalTask);
+    counter.events += incrementalTask.getHistory().getEvents().size();
+    return checkCompleted(result);
+  }
+
+  @Benchmark
+  public DecisionTaskHandler.Result queryCachedWorkflow() throws Exception {
+    return checkQueryCompleted(stickyHandler.handleDecisionTask(queryTask));
+  }
+
+  private static DecisionTaskHandler.Result checkCompleted(DecisionTaskHandler.Result result) {
+    if (result.getTaskCompleted() == null) {
+      byte[] details = result.getTaskFailed() == null ? null : result.getTaskFailed().getDetails();
+      throw new IllegalStateException(
+          "Decision task failed: "
+              + (details == null ? "" : new String(details, StandardCharsets.UTF_8)));
+    }
+    return result;
+  }
+
+  private static DecisionTaskHandler.Result checkQueryCompleted(DecisionTaskHandler.Result result) {
+    if (result.getQueryCompleted() == null
+        || result.getQueryCompleted().getCompletedType() != QueryTaskCompletedType.COMPLETED) {
+      throw new IllegalStateException(
+          "Query failed: "
+              + (result.getQueryCompleted() == null
+                  ? ""
+                  : result.getQueryCompleted().getErrorMessage()));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import com.uber.cadence.EventType;
+import com.uber.cadence.GetWorkflowExecutionHistoryRequest;
+import com.uber.cadence.GetWorkflowExecutionHistoryResponse;
+import com.uber.cadence.History;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.WorkflowExecutionStartedEventAttributes;
+import com.uber.cadence.WorkflowQuery;
+import com.uber.cadence.activity.ActivityOptions;
+import com.uber.cadence.activity.LocalActivityOptions;
+import com.uber.cadence.client.WorkflowClient;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.client.WorkflowStub;
+import com.uber.cadence.testing.TestWorkflowEnvironment;
+import com.uber.cadence.worker.Worker;
+import com.uber.cadence.workflow.QueryMethod;
+import com.uber.cadence.workflow.SignalMethod;
+import com.uber.cadence.workflow.Workflow;
+import com.uber.cadence.workflow.WorkflowMethod;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds workflow histories of a configurable length for the replay benchmarks. The history is
+ * recorded by running {@link GeneratedWorkflow} against the in-memory test service, so it always
+ * matches the workflow code used to replay it. Every step of the workflow adds an activity, a
+ * timer, a local activity marker, a child workflow and a signal to the history.
+ */
+final class ReplayHistoryGenerator {
+
+  static final String WORKFLOW_TYPE = "ReplayBenchmarkWorkflow";
+  static final String QUERY_TYPE = "progress";
+
+  private static final String TASK_LIST = "replay-benchmark";
+  private static final byte[] TASK_TOKEN = TASK_LIST.getBytes(StandardCharsets.UTF_8);
+
+  public interface GeneratedWorkflow {
+    @WorkflowMethod(name = WORKFLOW_TYPE)
+    int execute(int steps);
+
+    @SignalMethod
+    void signal(int value);
+
+    @QueryMethod(name = QUERY_TYPE)
+    int getProgress();
+  }
+
+  public interface GeneratedChildWorkflow {
+    @WorkflowMethod(executionStartToCloseTimeoutSeconds = 3600)
+    int execute(int value);
+  }
+
+  public interface GeneratedActivities {
+    int increment(int value);
+  }
+
+  public static class GeneratedWorkflowImpl implements GeneratedWorkflow {
+
+    private final GeneratedActivities activities =
+        Workflow.newActivityStub(
+            GeneratedActivities.class,
+            new ActivityOptions.Builder().setScheduleToCloseTimeout(Duration.ofMinutes(1)).build());
+
+    private final GeneratedActivities localActivities =
+        Workflow.newLocalActivityStub(
+            GeneratedActivities.class,
+            new LocalActivityOptions.Builder()
+                .setScheduleToCloseTimeout(Duration.ofMinutes(1))
+                .build());
+
+    private int signals;
+    private int progress;
+
+    @Override
+    public int execute(int steps) {
+      int result = 0;
+      for (int i = 0; i < steps; i++) {
+        result += activities.increment(i);
+        Workflow.sleep(Duration.ofSeconds(1));
+        result += localActivities.increment(i);
+        result += Workflow.newChildWorkflowStub(GeneratedChildWorkflow.class).execute(i);
+        int step = i;
+        Workflow.await(() -> signals > step);
+        progress = i + 1;
+      }
+      return result;
+    }
+
+    @Override
+    public void signal(int value) {
+      signals++;
+    }
+
+    @Override
+    public int getProgress() {
+      return progress;
+    }
+  }
+
+  public static class GeneratedChildWorkflowImpl implements GeneratedChildWorkflow {
+    @Override
+    public int execute(int value) {
+      return value;
+    }
+  }
+
+  public static class GeneratedActivitiesImpl implements GeneratedActivities {
+    @Override
+    public int increment(int value) {
+      return value + 1;
+    }
+  }
+
+  private final WorkflowExecution execution;
+  private final List<HistoryEvent> events;
+  // Indexes of the DecisionTaskStarted events in the history.
+  private final List<Integer> decisionStartedIndexes = new ArrayList<>();
+
+  private ReplayHistoryGenerator(WorkflowExecution execution, List<HistoryEvent> events) {
+    this.execution = execution;
+    this.events = events;
+    for (int i = 0; i < events.size(); i++) {
+      if (events.get(i).getEventType() == EventType.DecisionTaskStarted) {
+        decisionStartedIndexes.add(i);
+      }
+    }
+    if (decisionStartedIndexes.size() < 3) {
+      throw new IllegalStateException("Generated history is too short: " + events.size());
+    }
+  }
+
+  /** Runs {@link GeneratedWorkflow} with {@code steps} steps and records its history. */
+  static ReplayHistoryGenerator generate(int steps) throws Exception {
+    TestWorkflowEnvironment testEnv = TestWorkflowEnvironment.newInstance();
+    try {
+      Worker worker = testEnv.newWorker(TASK_LIST);
+      worker.registerWorkflowImplementationTypes(
+          GeneratedWorkflowImpl.class, GeneratedChildWorkflowImpl.class);
+      worker.registerActivitiesImplementations(new GeneratedActivitiesImpl());
+      testEnv.start();
+
+      WorkflowClient client = testEnv.newWorkflowClient();
+      GeneratedWorkflow workflow =
+          client.newWorkflowStub(
+              GeneratedWorkflow.class,
+              new WorkflowOptions.Builder()
+                  .setTaskList(TASK_LIST)
+                  .setExecutionStartToCloseTimeout(Duration.ofHours(1))
+                  .build());
+      WorkflowExecution execution = WorkflowClient.start(workflow::execute, steps);
+      for (int i = 0; i < steps; i++) {
+        workflow.signal(i);
+      }
+      WorkflowStub.fromTyped(workflow).getResult(Integer.class);
+      return new ReplayHistoryGenerator(execution, getHistory(testEnv, execution));
+    } finally {
+      testEnv.close();
+    }
+  }
+
+  private static List<HistoryEvent> getHistory(
+      TestWorkflowEnvironment testEnv, WorkflowExecution execution) throws Exception {
+    List<HistoryEvent> result = new ArrayList<>();
+    byte[] nextPageToken = null;
+    do {
+      GetWorkflowExecutionHistoryResponse response =
+          testEnv
+              .getWorkflowService()
+              .GetWorkflowExecutionHistory(
+                  new GetWorkflowExecutionHistoryRequest()
+                      .setDomain(testEnv.getDomain())
+                      .setExecution(execution)
+                      .setNextPageToken(nextPageToken));
+      result.addAll(response.getHistory().getEvents());
+      nextPageToken = response.getNextPageToken();
+    } while (nextPageToken != null && nextPageToken.length > 0);
+    return result;
+  }
+
+  /** Total number of events in the generated history. */
+  int getEventCount() {
+    return events.size();
+  }
+
+  /**
+   * Decision task with the whole history up to the last decision, which completes the workflow.
+   * Every earlier decision is replayed.
+   */
+  PollForDecisionTaskResponse newFullHistoryTask() {
+    return newDecisionTask(0, lastDecisionStarted(1), lastDecisionStarted(2));
+  }
+
+  /** Decision task with the history up to the decision before the last one. */
+  PollForDecisionTaskResponse newPrefixTask() {
+    return newDecisionTask(0, lastDecisionStarted(2), lastDecisionStarted(3));
+  }
+
+  /**
+   * Sticky decision task with only the events that follow {@link #newPrefixTask()}, as sent to a
+   * worker that has the workflow cached.
+   */
+  PollForDecisionTaskResponse newIncrementalTask() {
+    int previous = lastDecisionStarted(2);
+    return newDecisionTask(previous + 1, lastDecisionStarted(1), previous);
+  }
+
+  /** Number of events in {@link #newIncrementalTask()}. */
+  int getIncrementalEventCount() {
+    return lastDecisionStarted(1) - lastDecisionStarted(2);
+  }
+
+  /** Sticky query task without new events, answered by a cached workflow. */
+  PollForDecisionTaskResponse newQueryTask() {
+    return new PollForDecisionTaskResponse()
+        .setTaskToken(TASK_TOKEN)
+        .setWorkflowExecution(execution)
+        .setWorkflowType(getStartedEventAttributes().getWorkflowType())
+        .setHistory(new History().setEvents(new ArrayList<>()))
+        .setQuery(new WorkflowQuery().setQueryType(QUERY_TYPE));
+  }
+
+  // Index of the n-th DecisionTaskStarted event from the end, -1 if there is no such event.
+  private int lastDecisionStarted(int n) {
+    int i = decisionStartedIndexes.size() - n;
+    return i < 0 ? -1 : decisionStartedIndexes.get(i);
+  }
+
+  private PollForDecisionTaskResponse newDecisionTask(int from, int started, int previousStarted) {
+    return new PollForDecisionTaskResponse()
+        .setTaskToken(TASK_TOKEN)
+        .setWorkflowExecution(execution)
+        .setWorkflowType(getStartedEventAttributes().getWorkflowType())
+        .setStartedEventId(events.get(started).getEventId())
+        .setPreviousStartedEventId(
+            previousStarted < 0 ? 0 : events.get(previousStarted).getEventId())
+        .setHistory(new History().setEvents(new ArrayList<>(events.subList(from, started + 1))));
+  }
+
+  private WorkflowExecutionStartedEventAttributes getStartedEventAttributes() {
+    return events.get(0).getWorkflowExecutionStartedEventAttributes();
+  }
+}
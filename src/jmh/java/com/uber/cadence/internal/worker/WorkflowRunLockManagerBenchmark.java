@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lock/unlock throughput of {@link WorkflowRunLockManager} under contention from many
+ * decision task executor threads, compared with the previous design that guarded a HashMap with a
+ * single global lock. Each operation locks a run picked at random from {@code runCount} runs, so a
+ * small run count also measures contention on the same run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class WorkflowRunLockManagerBenchmark {
+
+  @Param({"16", "10000"})
+  public int runCount;
+
+  private final WorkflowRunLockManager manager = new WorkflowRunLockManager();
+  private final GlobalLockRunLockManager globalLockManager = new GlobalLockRunLockManager();
+  private String[] runIds;
+
+  @Setup
+  public void setUp() {
+    runIds = new String[runCount];
+    for (int i = 0; i < runCount; i++) {
+      runIds[i] = "run-" + i;
+    }
+  }
+
+  @Benchmark
+  public void concurrentMap() {
+    String runId = runIds[ThreadLocalRandom.current().nextInt(runIds.length)];
+    manager.getLockForLocking(runId).lock();
+    manager.unlock(runId);
+  }
+
+  @Benchmark
+  public void globalLock() {
+    String runId = runIds[ThreadLocalRandom.current().nextInt(runIds.length)];
+    globalLockManager.getLockForLocking(runId).lock();
+    globalLockManager.unlock(runId);
+  }
+
+  /** The implementation WorkflowRunLockManager replaced, kept here as the baseline. */
+  private static final class GlobalLockRunLockManager {
+
+    private static final class CountableLock {
+      private final Lock lock = new ReentrantLock();
+      private int count = 1;
+    }
+
+    private final Lock mapLock = new ReentrantLock();
+    private final HashMap<String, CountableLock> perRunLock = new HashMap<>();
+
+    Lock getLockForLocking(String runId) {
+      mapLock.lock();
+      try {
+        CountableLock cl = perRunLock.get(runId);
+        if (cl == null) {
+          cl = new CountableLock();
+          perRunLock.put(runId, cl);
+        } else {
+          cl.count++;
+        }
+        return cl.lock;
+      } finally {
+        mapLock.unlock();
+      }
+    }
+
+    void unlock(String runId) {
+      mapLock.lock();
+      try {
+        CountableLock cl = perRunLock.get(runId);
+        cl.count--;
+        if (cl.count == 0) {
+          perRunLock.remove(runId);
+        }
+        cl.lock.unlock();
+      } finally {
+        mapLock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.testing;
+
+import com.uber.cadence.activity.ActivityOptions;
+import com.uber.cadence.client.WorkflowClient;
+import com.uber.cadence.client.WorkflowOptions;
+import com.uber.cadence.worker.Worker;
+import com.uber.cadence.workflow.Workflow;
+import com.uber.cadence.workflow.WorkflowMethod;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to run {@code workflowCount} concurrent workflows, each calling one activity,
+ * against {@link TestWorkflowEnvironment} with the in-memory service split into {@code shardCount}
+ * shards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestWorkflowServiceThroughputBenchmark {
+
+  private static final String TASK_LIST = "throughput-benchmark";
+
+  @Param({"1", "16"})
+  public int shardCount;
+
+  @Param({"1000", "5000"})
+  public int workflowCount;
+
+  public interface ThroughputWorkflow {
+    @WorkflowMethod
+    int execute(int value);
+  }
+
+  public interface ThroughputActivities {
+    int increment(int value);
+  }
+
+  public static class ThroughputWorkflowImpl implements ThroughputWorkflow {
+
+    private final ThroughputActivities activities =
+        Workflow.newActivityStub(
+            ThroughputActivities.class,
+            new ActivityOptions.Builder().setScheduleToCloseTimeout(Duration.ofMinutes(1)).build());
+
+    @Override
+    public int execute(int value) {
+      return activities.increment(value);
+    }
+  }
+
+  public static class ThroughputActivitiesImpl implements ThroughputActivities {
+    @Override
+    public int increment(int value) {
+      return value + 1;
+    }
+  }
+
+  private TestWorkflowEnvironment testEnv;
+  private WorkflowClient client;
+  private WorkflowOptions workflowOptions;
+
+  @Setup
+  public void setUp() {
+    testEnv =
+        TestWorkflowEnvironment.newInstance(
+            new TestEnvironmentOptions.Builder().setServiceShardCount(shardCount).build());
+    Worker worker = testEnv.newWorker(TASK_LIST);
+    worker.registerWorkflowImplementationTypes(ThroughputWorkflowImpl.class);
+    worker.registerActivitiesImplementations(new ThroughputActivitiesImpl());
+    testEnv.start();
+    client = testEnv.newWorkflowClient();
+    workflowOptions =
+        new WorkflowOptions.Builder()
+            .setTaskList(TASK_LIST)
+            .setExecutionStartToCloseTimeout(Duration.ofHours(1))
+            .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    testEnv.close();
+  }
+
+  @Benchmark
+  public int concurrentWorkflows() {
+    List<CompletableFuture<Integer>> results = new ArrayList<>(workflowCount);
+    for (int i = 0; i < workflowCount; i++) {
+      ThroughputWorkflow workflow =
+          client.newWorkflowStub(ThroughputWorkflow.class, workflowOptions);
+      results.add(WorkflowClient.execute(workflow::execute, i));
+    }
+    int sum = 0;
+    for (CompletableFuture<Integer> result : results) {
+      sum += result.join();
+    }
+    return sum;
+  }
+}
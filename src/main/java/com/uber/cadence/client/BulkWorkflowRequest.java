@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.client;
+
+import java.util.Objects;
+
+/**
+ * A single start or signal operation submitted through {@link WorkflowClient#executeBulk}.
+ *
+ * <pre>{@code
+ * Stream<BulkWorkflowRequest> requests =
+ *     ids.stream()
+ *         .map(
+ *             id ->
+ *                 BulkWorkflowRequest.start(
+ *                     client.newUntypedWorkflowStub(
+ *                         "MyWorkflow::run",
+ *                         new WorkflowOptions.Builder(options).setWorkflowId(id).build()),
+ *                     id));
+ * try (Stream<BulkWorkflowResult> results = client.executeBulk(requests, 100)) {
+ *   results.filter(r -> !r.isSuccessful()).forEach(r -> log.warn("failed", r.getFailure()));
+ * }
+ * }</pre>
+ */
+public final class BulkWorkflowRequest {
+
+  public enum Type {
+    START,
+    SIGNAL
+  }
+
+  /**
+   * @param stub untyped stub created through {@link WorkflowClient#newUntypedWorkflowStub(String,
+   *     WorkflowOptions)}
+   * @param args workflow arguments
+   */
+  public static BulkWorkflowRequest start(WorkflowStub stub, Object... args) {
+    return new BulkWorkflowRequest(Type.START, stub, null, args);
+  }
+
+  /**
+   * @param stub untyped stub of an existing workflow execution
+   * @param signalName name of the signal
+   * @param args signal arguments
+   */
+  public static BulkWorkflowRequest signal(WorkflowStub stub, String signalName, Object... args) {
+    return new BulkWorkflowRequest(Type.SIGNAL, stub, Objects.requireNonNull(signalName), args);
+  }
+
+  private final Type type;
+  private final WorkflowStub stub;
+  private final String signalName;
+  private final Object[] args;
+
+  private BulkWorkflowRequest(Type type, WorkflowStub stub, String signalName, Object[] args) {
+    this.type = type;
+    this.stub = Objects.requireNonNull(stub);
+    this.signalName = signalName;
+    this.args = args;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public WorkflowStub getStub() {
+    return stub;
+  }
+
+  /** @return signal name or null for start requests */
+  public String getSignalName() {
+    return signalName;
+  }
+
+  public Object[] getArgs() {
+    return args;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkWorkflowRequest{"
+        + "type="
+        + type
+        + ", workflowType="
+        + stub.getWorkflowType().orElse(null)
+        + ", signalName='"
+        + signalName
+        + '\''
+        + '}';
+  }
+}
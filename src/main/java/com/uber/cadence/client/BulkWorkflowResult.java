@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.client;
+
+import com.uber.cadence.WorkflowExecution;
+
+/** Outcome of a {@link BulkWorkflowRequest}. */
+public final class BulkWorkflowResult {
+
+  private final BulkWorkflowRequest request;
+  private final WorkflowExecution execution;
+  private final Throwable failure;
+
+  public BulkWorkflowResult(
+      BulkWorkflowRequest request, WorkflowExecution execution, Throwable failure) {
+    this.request = request;
+    this.execution = execution;
+    this.failure = failure;
+  }
+
+  public BulkWorkflowRequest getRequest() {
+    return request;
+  }
+
+  /**
+   * @return the started or signalled execution, null if a start request failed. Signalled
+   *     executions might not contain a runId.
+   */
+  public WorkflowExecution getExecution() {
+    return execution;
+  }
+
+  /** @return the request failure after all retries or null if the request succeeded */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  public boolean isSuccessful() {
+    return failure == null;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkWorkflowResult{"
+        + "request="
+        + request
+        + ", execution="
+        + execution
+        + ", failure="
+        + failure
+        + '}';
+  }
+}
@@ -36,6 +36,7 @@ import com.uber.cadence.workflow.Functions.Proc6;
 import com.uber.cadence.workflow.WorkflowMethod;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Client to the Cadence service used to start and query workflows by external processes. Also it
@@ -265,6 +266,24 @@ public interface WorkflowClient {
   void refreshWorkflowTasks(RefreshWorkflowTasksRequest refreshWorkflowTasksRequest)
       throws CadenceError;
 
+  /**
+   * Starts and signals many workflows keeping up to {@code maxConcurrentRequests} calls in flight.
+   * Requests are pulled from {@code requests} lazily as the returned stream is consumed, so
+   * arbitrarily large sources can be submitted without buffering them. Each call is retried by the
+   * same policy as {@link WorkflowStub#startAsync(Object...)} and {@link
+   * WorkflowStub#signalAsync(String, Object...)}. A failed request doesn't stop the others, its
+   * error is reported through {@link BulkWorkflowResult#getFailure()}.
+   *
+   * <p>Results are returned in completion order. Closing the returned stream closes {@code
+   * requests}; calls already in flight are not cancelled.
+   *
+   * @param requests start and signal requests
+   * @param maxConcurrentRequests maximum number of calls in flight
+   * @return one result per request
+   */
+  Stream<BulkWorkflowResult> executeBulk(
+      Stream<BulkWorkflowRequest> requests, int maxConcurrentRequests);
+
   /**
    * Executes zero argument workflow with void return type
    *
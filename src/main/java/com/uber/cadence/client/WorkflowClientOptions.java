@@ -62,6 +62,7 @@ public final class WorkflowClientOptions {
     private String identity = ManagementFactory.getRuntimeMXBean().getName();
     private List<ContextPropagator> contextPropagators = EMPTY_CONTEXT_PROPAGATORS;
     private QueryRejectCondition queryRejectCondition;
+    private int maxConcurrentResultPolls;
 
     private Builder() {}
 
@@ -73,6 +74,7 @@ public final class WorkflowClientOptions {
       identity = options.getIdentity();
       contextPropagators = options.getContextPropagators();
       queryRejectCondition = options.getQueryRejectCondition();
+      maxConcurrentResultPolls = options.getMaxConcurrentResultPolls();
     }
 
     public Builder setDomain(String domain) {
@@ -140,6 +142,20 @@ public final class WorkflowClientOptions {
       return this;
     }
 
+    /**
+     * When positive, callers waiting for workflow results through {@link WorkflowStub#getResult}
+     * and {@link WorkflowStub#getResultAsync} share one long poll per workflow execution, and at
+     * most this many result long polls are open at the same time. Executions beyond the limit are
+     * queued. Default is 0, which opens a long poll for each waiting caller.
+     */
+    public Builder setMaxConcurrentResultPolls(int maxConcurrentResultPolls) {
+      if (maxConcurrentResultPolls < 0) {
+        throw new IllegalArgumentException("Negative: " + maxConcurrentResultPolls);
+      }
+      this.maxConcurrentResultPolls = maxConcurrentResultPolls;
+      return this;
+    }
+
     public WorkflowClientOptions build() {
       metricsScope = metricsScope.tagged(ImmutableMap.of(MetricsTag.DOMAIN, domain));
       return new WorkflowClientOptions(
@@ -149,7 +165,8 @@ public final class WorkflowClientOptions {
           metricsScope,
           identity,
           contextPropagators,
-          queryRejectCondition);
+          queryRejectCondition,
+          maxConcurrentResultPolls);
     }
   }
 
@@ -160,6 +177,7 @@ public final class WorkflowClientOptions {
   private final String identity;
   private final List<ContextPropagator> contextPropagators;
   private final QueryRejectCondition queryRejectCondition;
+  private final int maxConcurrentResultPolls;
 
   private WorkflowClientOptions(
       String domain,
@@ -168,7 +186,8 @@ public final class WorkflowClientOptions {
       Scope metricsScope,
       String identity,
       List<ContextPropagator> contextPropagators,
-      QueryRejectCondition queryRejectCondition) {
+      QueryRejectCondition queryRejectCondition,
+      int maxConcurrentResultPolls) {
     this.domain = domain;
     this.dataConverter = dataConverter;
     this.interceptors = interceptors;
@@ -176,6 +195,7 @@ public final class WorkflowClientOptions {
     this.identity = identity;
     this.contextPropagators = contextPropagators;
     this.queryRejectCondition = queryRejectCondition;
+    this.maxConcurrentResultPolls = maxConcurrentResultPolls;
   }
 
   public String getDomain() {
@@ -206,6 +226,10 @@ public final class WorkflowClientOptions {
     return queryRejectCondition;
   }
 
+  public int getMaxConcurrentResultPolls() {
+    return maxConcurrentResultPolls;
+  }
+
   @Override
   public String toString() {
     return "WorkflowClientOptions{"
@@ -223,6 +247,8 @@ public final class WorkflowClientOptions {
         + contextPropagators
         + ", queryRejectCondition="
         + queryRejectCondition
+        + ", maxConcurrentResultPolls="
+        + maxConcurrentResultPolls
         + '}';
   }
 
@@ -236,7 +262,8 @@ public final class WorkflowClientOptions {
         && Arrays.equals(interceptors, that.interceptors)
         && com.google.common.base.Objects.equal(identity, that.identity)
         && com.google.common.base.Objects.equal(contextPropagators, that.contextPropagators)
-        && queryRejectCondition == that.queryRejectCondition;
+        && queryRejectCondition == that.queryRejectCondition
+        && maxConcurrentResultPolls == that.maxConcurrentResultPolls;
   }
 
   @Override
@@ -247,6 +274,7 @@ public final class WorkflowClientOptions {
         Arrays.hashCode(interceptors),
         identity,
         contextPropagators,
-        queryRejectCondition);
+        queryRejectCondition,
+        maxConcurrentResultPolls);
   }
 }
@@ -31,6 +31,8 @@ import com.google.gson.reflect.TypeToken;
 import com.uber.cadence.EventType;
 import com.uber.cadence.HistoryEvent;
 import com.uber.cadence.WorkflowExecution;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.util.Base64;
 import java.util.List;
@@ -45,6 +47,14 @@ public final class WorkflowExecutionHistory {
   }
 
   public static WorkflowExecutionHistory fromJson(String serialized) {
+    return fromJson(new StringReader(serialized));
+  }
+
+  /**
+   * Parses the events while reading them, so the serialized history is never held in memory as a
+   * whole.
+   */
+  public static WorkflowExecutionHistory fromJson(Reader serialized) {
     GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(byte[].class, new ByteArrayJsonDeserializer());
     Gson gson = gsonBuilder.create();
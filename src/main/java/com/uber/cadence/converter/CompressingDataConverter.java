@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.converter;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Wraps another {@link DataConverter} and deflate compresses payloads that are at least {@code
+ * thresholdBytes} long. Compressed payloads start with a magic header followed by the uncompressed
+ * length. Payloads without the header are passed to the wrapped converter as is, so data written
+ * before compression was enabled is still readable. A payload is left uncompressed when compression
+ * doesn't make it smaller.
+ *
+ * <pre>{@code
+ * DataConverter converter = new CompressingDataConverter(JsonDataConverter.getInstance());
+ * }</pre>
+ */
+public final class CompressingDataConverter implements DataConverter {
+
+  public static final int DEFAULT_THRESHOLD_BYTES = 1024;
+
+  // Neither JSON nor ProtobufDataConverter payloads start with this sequence.
+  private static final byte[] MAGIC = {0, 'C', 'Z', 1};
+  private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+  // Guards against allocating huge arrays for corrupted headers.
+  private static final int MAX_UNCOMPRESSED_SIZE = 256 * 1024 * 1024;
+
+  private final DataConverter delegate;
+  private final int thresholdBytes;
+  private final int compressionLevel;
+
+  public CompressingDataConverter(DataConverter delegate) {
+    this(delegate, DEFAULT_THRESHOLD_BYTES, Deflater.BEST_SPEED);
+  }
+
+  /**
+   * @param delegate converter that produces and consumes uncompressed payloads
+   * @param thresholdBytes payloads shorter than this are not compressed
+   * @param compressionLevel {@link Deflater} compression level from 0 to 9
+   */
+  public CompressingDataConverter(
+      DataConverter delegate, int thresholdBytes, int compressionLevel) {
+    if (thresholdBytes < 0) {
+      throw new IllegalArgumentException("Negative thresholdBytes: " + thresholdBytes);
+    }
+    if (compressionLevel < Deflater.NO_COMPRESSION
+        || compressionLevel > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compressionLevel: " + compressionLevel);
+    }
+    this.delegate = Objects.requireNonNull(delegate);
+    this.thresholdBytes = thresholdBytes;
+    this.compressionLevel = compressionLevel;
+  }
+
+  @Override
+  public byte[] toData(Object... values) throws DataConverterException {
+    byte[] data = delegate.toData(values);
+    if (data == null || data.length < thresholdBytes || data.length <= HEADER_SIZE) {
+      return data;
+    }
+    return compress(data);
+  }
+
+  @Override
+  public <T> T fromData(byte[] content, Class<T> valueClass, Type valueType)
+      throws DataConverterException {
+    return delegate.fromData(decompress(content), valueClass, valueType);
+  }
+
+  @Override
+  public Object[] fromDataArray(byte[] content, Type... valueTypes) throws DataConverterException {
+    return delegate.fromDataArray(decompress(content), valueTypes);
+  }
+
+  private byte[] compress(byte[] data) {
+    Deflater deflater = new Deflater(compressionLevel);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      // Output larger than the input is useless, so stop as soon as the buffer is full.
+      byte[] result = new byte[data.length];
+      System.arraycopy(MAGIC, 0, result, 0, MAGIC.length);
+      writeInt(result, MAGIC.length, data.length);
+      int length = HEADER_SIZE;
+      while (!deflater.finished() && length < result.length) {
+        length += deflater.deflate(result, length, result.length - length);
+      }
+      if (!deflater.finished()) {
+        return data;
+      }
+      return Arrays.copyOf(result, length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] decompress(byte[] content) {
+    if (!isCompressed(content)) {
+      return content;
+    }
+    int length = readInt(content, MAGIC.length);
+    if (length < 0 || length > MAX_UNCOMPRESSED_SIZE) {
+      throw new DataConverterException(
+          "Invalid uncompressed length " + length + " of compressed payload", null);
+    }
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(content, HEADER_SIZE, content.length - HEADER_SIZE);
+      byte[] result = new byte[length];
+      int read = 0;
+      while (read < length) {
+        int n = inflater.inflate(result, read, length - read);
+        if (n == 0
+            && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        read += n;
+      }
+      if (read != length || !inflater.finished()) {
+        throw new DataConverterException(
+            "Compressed payload is truncated or corrupted, expected "
+                + length
+                + " bytes, got "
+                + read,
+            null);
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new DataConverterException("Failed to decompress payload", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static boolean isCompressed(byte[] content) {
+    if (content == null || content.length < HEADER_SIZE) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (content[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeInt(byte[] buffer, int offset, int value) {
+    buffer[offset] = (byte) (value >>> 24);
+    buffer[offset + 1] = (byte) (value >>> 16);
+    buffer[offset + 2] = (byte) (value >>> 8);
+    buffer[offset + 3] = (byte) value;
+  }
+
+  private static int readInt(byte[] buffer, int offset) {
+    return ((buffer[offset] & 0xFF) << 24)
+        | ((buffer[offset + 1] & 0xFF) << 16)
+        | ((buffer[offset + 2] & 0xFF) << 8)
+        | (buffer[offset + 3] & 0xFF);
+  }
+}
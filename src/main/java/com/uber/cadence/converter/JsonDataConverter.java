@@ -29,31 +29,57 @@ import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import com.uber.m3.tally.Scope;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.function.Function;
 
 /**
  * Implements conversion through GSON JSON processor. To extend use {@link
  * #JsonDataConverter(Function)} constructor.
  *
+ * <p>By default a payload is converted to and from a String that is then encoded or decoded as
+ * UTF-8. The streaming mode, see {@link #getStreamingInstance()}, writes UTF-8 straight into a
+ * pooled byte buffer and parses from a Reader over the payload bytes, so no intermediate String is
+ * built. Both modes produce the same bytes.
+ *
  * @author fateev
  */
 public final class JsonDataConverter implements DataConverter {
 
   private static final DataConverter INSTANCE = new JsonDataConverter();
+  private static final DataConverter STREAMING_INSTANCE = new JsonDataConverter((b) -> b, true);
   private static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
   private static final String TYPE_FIELD_NAME = "type";
   private static final String JSON_CONVERTER_TYPE = "JSON";
   private static final String CLASS_NAME_FIELD_NAME = "className";
+  // Buffers that grew larger than this while serializing a big payload are not kept for reuse.
+  private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+  // Bounds the memory kept by idle buffers regardless of the number of serializing threads.
+  private static final int MAX_POOLED_BUFFERS = 8;
+  private static final BlockingQueue<Utf8PayloadWriter> buffers =
+      new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
   private static Scope metricsScope;
   private final Gson gson;
+  private final boolean streaming;
 
   public static DataConverter getInstance() {
     return INSTANCE;
   }
 
+  /** @return converter that serializes and parses payloads without intermediate Strings */
+  public static DataConverter getStreamingInstance() {
+    return STREAMING_INSTANCE;
+  }
+
   /**
    * Used to set the metrics scope for this class.
    *
@@ -73,6 +99,18 @@ public final class JsonDataConverter implements DataConverter {
    * @param builderInterceptor function that intercepts {@link GsonBuilder} construction.
    */
   public JsonDataConverter(Function<GsonBuilder, GsonBuilder> builderInterceptor) {
+    this(builderInterceptor, false);
+  }
+
+  /**
+   * Constructs an instance giving an ability to override {@link Gson} initialization.
+   *
+   * @param builderInterceptor function that intercepts {@link GsonBuilder} construction.
+   * @param streaming serialize and parse payloads without intermediate Strings
+   */
+  public JsonDataConverter(
+      Function<GsonBuilder, GsonBuilder> builderInterceptor, boolean streaming) {
+    this.streaming = streaming;
     GsonBuilder gsonBuilder =
         new GsonBuilder()
             .serializeNulls()
@@ -92,13 +130,11 @@ public final class JsonDataConverter implements DataConverter {
       return null;
     }
     try {
-      if (values.length == 1) {
-        Object value = values[0];
-        String json = gson.toJson(value);
-        return json.getBytes(StandardCharsets.UTF_8);
+      Object value = values.length == 1 ? values[0] : values;
+      if (streaming) {
+        return toJsonBytes(value);
       }
-      String json = gson.toJson(values);
-      return json.getBytes(StandardCharsets.UTF_8);
+      return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
     } catch (DataConverterException e) {
       throw e;
     } catch (Throwable e) {
@@ -113,7 +149,7 @@ public final class JsonDataConverter implements DataConverter {
       return null;
     }
     try {
-      return gson.fromJson(new String(content, StandardCharsets.UTF_8), valueType);
+      return gson.fromJson(newReader(content), valueType);
     } catch (Exception e) {
       throw new DataConverterException(content, new Type[] {valueType}, e);
     }
@@ -130,11 +166,11 @@ public final class JsonDataConverter implements DataConverter {
             "Content doesn't match expected arguments", content, valueTypes);
       }
       if (valueTypes.length == 1) {
-        Object result = gson.fromJson(new String(content, StandardCharsets.UTF_8), valueTypes[0]);
+        Object result = gson.fromJson(newReader(content), valueTypes[0]);
         return new Object[] {result};
       }
 
-      JsonElement element = JsonParser.parseString(new String(content, StandardCharsets.UTF_8));
+      JsonElement element = JsonParser.parseReader(newReader(content));
       JsonArray array;
       if (element instanceof JsonArray) {
         array = element.getAsJsonArray();
@@ -165,6 +201,150 @@ public final class JsonDataConverter implements DataConverter {
     }
   }
 
+  /**
+   * Serializes value as UTF-8 JSON directly into a pooled buffer, so the only copy made is the
+   * returned array. Building an intermediate String and encoding it afterwards copies every payload
+   * twice.
+   */
+  private byte[] toJsonBytes(Object value) {
+    // A buffer is owned by a single call while in use, so nested calls from type adapters are safe.
+    Utf8PayloadWriter buffer = buffers.poll();
+    if (buffer == null) {
+      buffer = new Utf8PayloadWriter();
+    }
+    try {
+      gson.toJson(value, buffer);
+      return buffer.toByteArray();
+    } finally {
+      if (buffer.capacity() <= MAX_RETAINED_BUFFER_SIZE) {
+        buffer.reset();
+        // Dropped when the pool is full.
+        buffers.offer(buffer);
+      }
+    }
+  }
+
+  private Reader newReader(byte[] content) {
+    if (streaming) {
+      return new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8);
+    }
+    return new StringReader(new String(content, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Writer that encodes characters as UTF-8 into its own growable byte array. Unlike an
+   * OutputStreamWriter it doesn't allocate an encoder with its own buffers, so it is cheap to reuse
+   * from the pool. Unpaired surrogates are replaced with '?' the same as {@link
+   * String#getBytes(java.nio.charset.Charset)} does.
+   */
+  private static final class Utf8PayloadWriter extends Writer {
+
+    private byte[] buf = new byte[1024];
+    private int count;
+    // High surrogate waiting for the low surrogate of its pair, 0 if none.
+    private char highSurrogate;
+
+    @Override
+    public void write(int c) {
+      ensureCapacity(4);
+      writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) {
+      ensureCapacity(len * 3L + 1);
+      for (int i = off; i < off + len; i++) {
+        char c = chars[i];
+        if (c < 0x80 && highSurrogate == 0) {
+          buf[count++] = (byte) c;
+        } else {
+          writeChar(c);
+        }
+      }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+      ensureCapacity(len * 3L + 1);
+      for (int i = off; i < off + len; i++) {
+        char c = str.charAt(i);
+        if (c < 0x80 && highSurrogate == 0) {
+          buf[count++] = (byte) c;
+        } else {
+          writeChar(c);
+        }
+      }
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+
+    byte[] toByteArray() {
+      if (highSurrogate != 0) {
+        ensureCapacity(1);
+        highSurrogate = 0;
+        buf[count++] = '?';
+      }
+      return Arrays.copyOf(buf, count);
+    }
+
+    void reset() {
+      count = 0;
+      highSurrogate = 0;
+    }
+
+    int capacity() {
+      return buf.length;
+    }
+
+    /** Callers ensure capacity for 3 bytes per char plus one for a pending surrogate. */
+    private void writeChar(char c) {
+      if (highSurrogate != 0) {
+        char high = highSurrogate;
+        highSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          int codePoint = Character.toCodePoint(high, c);
+          // The high surrogate didn't write anything, so the pair fits in its 3 + 3 bytes.
+          buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+          buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+          return;
+        }
+        buf[count++] = '?';
+      }
+      if (c < 0x80) {
+        buf[count++] = (byte) c;
+      } else if (c < 0x800) {
+        buf[count++] = (byte) (0xC0 | (c >> 6));
+        buf[count++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)) {
+        highSurrogate = c;
+      } else if (Character.isLowSurrogate(c)) {
+        buf[count++] = '?';
+      } else {
+        buf[count++] = (byte) (0xE0 | (c >> 12));
+        buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buf[count++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+
+    private void ensureCapacity(long additional) {
+      long required = count + additional;
+      if (required <= buf.length) {
+        return;
+      }
+      if (required > Integer.MAX_VALUE - 8) {
+        throw new OutOfMemoryError("Payload too large");
+      }
+      long doubled = Math.min(buf.length * 2L, Integer.MAX_VALUE - 8);
+      buf = Arrays.copyOf(buf, (int) Math.max(required, doubled));
+    }
+  }
+
   /**
    * Special handling of exception serialization and deserialization. Default JSON for stack traces
    * is very space consuming and not readable by humans. So convert it into single text field and
@@ -0,0 +1,193 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.converter;
+
+import com.google.common.base.Defaults;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Serializes protobuf messages in their binary wire format and everything else as JSON through
+ * {@link JsonDataConverter}. A single {@link Message} value is written as a short header followed
+ * by the message bytes. Messages that are nested in other objects or passed together with other
+ * arguments are written as protobuf JSON inside the regular JSON payload.
+ *
+ * <p>Payloads without the header are decoded as JSON, so data written by {@link JsonDataConverter}
+ * stays readable after switching to this converter.
+ */
+public final class ProtobufDataConverter implements DataConverter {
+
+  // JSON text never starts with a zero byte.
+  private static final byte[] PROTO_HEADER = {0, 'P', 'B'};
+
+  private static final DataConverter INSTANCE = new ProtobufDataConverter();
+
+  private static final ConcurrentHashMap<Class<?>, Message> defaultInstances =
+      new ConcurrentHashMap<>();
+
+  private final DataConverter jsonConverter;
+
+  public static DataConverter getInstance() {
+    return INSTANCE;
+  }
+
+  private ProtobufDataConverter() {
+    this((b) -> b);
+  }
+
+  /**
+   * Constructs an instance giving an ability to override {@link Gson} initialization of the JSON
+   * fallback.
+   *
+   * @param builderInterceptor function that intercepts {@link GsonBuilder} construction.
+   */
+  public ProtobufDataConverter(Function<GsonBuilder, GsonBuilder> builderInterceptor) {
+    jsonConverter =
+        new JsonDataConverter(
+            (b) ->
+                builderInterceptor.apply(
+                    b.registerTypeAdapterFactory(new MessageTypeAdapterFactory())));
+  }
+
+  @Override
+  public byte[] toData(Object... values) throws DataConverterException {
+    if (values != null && values.length == 1 && values[0] instanceof Message) {
+      byte[] message = ((Message) values[0]).toByteArray();
+      byte[] result = new byte[PROTO_HEADER.length + message.length];
+      System.arraycopy(PROTO_HEADER, 0, result, 0, PROTO_HEADER.length);
+      System.arraycopy(message, 0, result, PROTO_HEADER.length, message.length);
+      return result;
+    }
+    return jsonConverter.toData(values);
+  }
+
+  @Override
+  public <T> T fromData(byte[] content, Class<T> valueClass, Type valueType)
+      throws DataConverterException {
+    if (!isProtoPayload(content)) {
+      return jsonConverter.fromData(content, valueClass, valueType);
+    }
+    try {
+      return valueClass.cast(parseMessage(content, valueClass));
+    } catch (InvalidProtocolBufferException | RuntimeException e) {
+      throw new DataConverterException(content, new Type[] {valueType}, e);
+    }
+  }
+
+  @Override
+  public Object[] fromDataArray(byte[] content, Type... valueTypes) throws DataConverterException {
+    if (!isProtoPayload(content)) {
+      return jsonConverter.fromDataArray(content, valueTypes);
+    }
+    if (valueTypes.length == 0 || !(valueTypes[0] instanceof Class)) {
+      throw new DataConverterException(
+          "Protobuf payload doesn't match expected arguments", content, valueTypes);
+    }
+    Object[] result = new Object[valueTypes.length];
+    try {
+      result[0] = parseMessage(content, (Class<?>) valueTypes[0]);
+    } catch (InvalidProtocolBufferException | RuntimeException e) {
+      throw new DataConverterException(content, valueTypes, e);
+    }
+    // Missing arguments => defaults, same as JsonDataConverter.
+    for (int i = 1; i < valueTypes.length; i++) {
+      Type t = valueTypes[i];
+      result[i] = t instanceof Class ? Defaults.defaultValue((Class<?>) t) : null;
+    }
+    return result;
+  }
+
+  private static boolean isProtoPayload(byte[] content) {
+    if (content == null || content.length < PROTO_HEADER.length) {
+      return false;
+    }
+    for (int i = 0; i < PROTO_HEADER.length; i++) {
+      if (content[i] != PROTO_HEADER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Message parseMessage(byte[] content, Class<?> valueClass)
+      throws InvalidProtocolBufferException {
+    return getDefaultInstance(valueClass)
+        .getParserForType()
+        .parseFrom(content, PROTO_HEADER.length, content.length - PROTO_HEADER.length);
+  }
+
+  private static Message getDefaultInstance(Class<?> messageClass) {
+    if (!Message.class.isAssignableFrom(messageClass)) {
+      throw new IllegalArgumentException(
+          "Protobuf payload cannot be converted to " + messageClass.getName());
+    }
+    return defaultInstances.computeIfAbsent(
+        messageClass,
+        (c) -> {
+          try {
+            return (Message) c.getMethod("getDefaultInstance").invoke(null);
+          } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(
+                "Not a generated protobuf message: " + c.getName(), e);
+          }
+        });
+  }
+
+  /** Writes messages embedded in JSON payloads using the canonical protobuf JSON mapping. */
+  private static final class MessageTypeAdapterFactory implements TypeAdapterFactory {
+
+    private static final JsonFormat.Printer printer =
+        JsonFormat.printer().omittingInsignificantWhitespace();
+    private static final JsonFormat.Parser parser = JsonFormat.parser().ignoringUnknownFields();
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+      Class<? super T> rawType = typeToken.getRawType();
+      if (!Message.class.isAssignableFrom(rawType) || Message.class.equals(rawType)) {
+        return null;
+      }
+      return new TypeAdapter<T>() {
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+          out.jsonValue(printer.print((Message) value));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T read(JsonReader in) throws IOException {
+          Message.Builder builder = getDefaultInstance(rawType).newBuilderForType();
+          parser.merge(JsonParser.parseReader(in).toString(), builder);
+          return (T) builder.build();
+        }
+      }.nullSafe();
+    }
+  }
+}
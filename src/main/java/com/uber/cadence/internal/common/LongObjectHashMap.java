@@ -0,0 +1,176 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.common;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map with primitive long keys. Keeps keys and values in two parallel arrays,
+ * so unlike {@code HashMap<Long, V>} it allocates neither boxed keys nor entry objects. Used for
+ * the event id keyed state that cached workflows keep for their whole lifetime. Null values are
+ * allowed. Not thread safe.
+ */
+public final class LongObjectHashMap<V> {
+
+  private static final int MIN_CAPACITY = 4;
+  // Marks a slot that holds a null value, null in values means an empty slot.
+  private static final Object NULL_VALUE = new Object();
+
+  private long[] keys;
+  private Object[] values;
+  private int size;
+
+  public LongObjectHashMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /** @param expectedSize number of entries the map can hold without resizing */
+  public LongObjectHashMap(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("Negative expectedSize: " + expectedSize);
+    }
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3 / 4 < expectedSize) {
+      capacity <<= 1;
+    }
+    keys = new long[capacity];
+    values = new Object[capacity];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean containsKey(long key) {
+    return values[indexOf(key)] != null;
+  }
+
+  public V get(long key) {
+    return unmask(values[indexOf(key)]);
+  }
+
+  /** @return previous value or null if there was no mapping for the key */
+  public V put(long key, V value) {
+    int index = indexOf(key);
+    Object previous = values[index];
+    values[index] = value == null ? NULL_VALUE : value;
+    if (previous != null) {
+      return unmask(previous);
+    }
+    keys[index] = key;
+    if (++size > keys.length * 3 / 4) {
+      resize(keys.length << 1);
+    }
+    return null;
+  }
+
+  /** @return removed value or null if there was no mapping for the key */
+  public V remove(long key) {
+    int index = indexOf(key);
+    Object previous = values[index];
+    if (previous == null) {
+      return null;
+    }
+    size--;
+    shiftBack(index);
+    return unmask(previous);
+  }
+
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /** @return approximate number of bytes retained by the map excluding the values */
+  public long getEstimatedMemoryBytes() {
+    // Object and two array headers, 8 bytes per key and a compressed reference per value.
+    return 64 + keys.length * 12L;
+  }
+
+  /** @return index of the slot holding the key or of the empty slot where it would be inserted */
+  private int indexOf(long key) {
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    while (values[index] != null && keys[index] != key) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /** Closes the gap left by a removed entry, so lookups don't stop at it. */
+  private void shiftBack(int gap) {
+    int mask = keys.length - 1;
+    int index = gap;
+    while (true) {
+      index = (index + 1) & mask;
+      if (values[index] == null) {
+        break;
+      }
+      int home = hash(keys[index]) & mask;
+      // Move the entry unless its home slot lies cyclically in (gap, index].
+      if (((index - home) & mask) >= ((index - gap) & mask)) {
+        keys[gap] = keys[index];
+        values[gap] = values[index];
+        gap = index;
+      }
+    }
+    values[gap] = null;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        int index = indexOf(oldKeys[i]);
+        keys[index] = oldKeys[i];
+        values[index] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V unmask(Object value) {
+    return value == NULL_VALUE ? null : (V) value;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (int i = 0; i < keys.length; i++) {
+      if (values[i] != null) {
+        if (result.length() > 1) {
+          result.append(", ");
+        }
+        result.append(keys[i]).append('=').append((Object) unmask(values[i]));
+      }
+    }
+    return result.append('}').toString();
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.common;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to JDK 21+ virtual threads from code compiled against Java 8. All calls go through
+ * reflection so that the library still loads on older runtimes, where {@link #isSupported()}
+ * returns false.
+ */
+public final class VirtualThreads {
+
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_FACTORY;
+  private static final Method IS_VIRTUAL;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method isVirtual = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      isVirtual = Thread.class.getMethod("isVirtual");
+    } catch (ReflectiveOperationException e) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    IS_VIRTUAL = isVirtual;
+  }
+
+  /** @return true if the current JVM is able to create virtual threads. */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates a factory of virtual threads named {@code namePrefix} followed by a sequence number.
+   *
+   * @return empty if virtual threads are not supported by the current JVM.
+   */
+  public static Optional<ThreadFactory> newThreadFactory(String namePrefix) {
+    if (!isSupported()) {
+      return Optional.empty();
+    }
+    try {
+      Object builder = OF_VIRTUAL.invoke(null);
+      builder = BUILDER_NAME.invoke(builder, namePrefix, 1L);
+      return Optional.of((ThreadFactory) BUILDER_FACTORY.invoke(builder));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.warn("Failed to create virtual thread factory", e);
+      return Optional.empty();
+    }
+  }
+
+  /** @return true if the thread is a virtual thread. Always false before JDK 21. */
+  public static boolean isVirtual(Thread thread) {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (Boolean) IS_VIRTUAL.invoke(thread);
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+
+  private VirtualThreads() {}
+}
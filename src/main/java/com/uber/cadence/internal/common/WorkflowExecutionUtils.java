@@ -19,7 +19,6 @@ package com.uber.cadence.internal.common;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.google.common.io.CharStreams;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
@@ -123,7 +122,7 @@ public class WorkflowExecutionUtils {
             (closeEvent) -> getResultFromCloseEvent(workflowExecution, workflowType, closeEvent));
   }
 
-  private static byte[] getResultFromCloseEvent(
+  static byte[] getResultFromCloseEvent(
       WorkflowExecution workflowExecution, Optional<String> workflowType, HistoryEvent closeEvent) {
     if (closeEvent == null) {
       throw new IllegalStateException("Workflow is still running");
@@ -828,8 +827,7 @@ public class WorkflowExecutionUtils {
 
   public static WorkflowExecutionHistory readHistory(File historyFile) throws IOException {
     try (Reader reader = Files.newBufferedReader(historyFile.toPath(), UTF_8)) {
-      String jsonHistory = CharStreams.toString(reader);
-      return WorkflowExecutionHistory.fromJson(jsonHistory);
+      return WorkflowExecutionHistory.fromJson(reader);
     }
   }
 }
@@ -0,0 +1,366 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.common;
+
+import com.uber.cadence.CadenceError;
+import com.uber.cadence.EntityNotExistsError;
+import com.uber.cadence.EventType;
+import com.uber.cadence.GetWorkflowExecutionHistoryRequest;
+import com.uber.cadence.GetWorkflowExecutionHistoryResponse;
+import com.uber.cadence.History;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.HistoryEventFilterType;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Waits for workflow results with a bounded number of long polls. All callers waiting for the same
+ * execution share one close event long poll, which follows the continue as new chain once and
+ * completes every caller. At most {@code maxConcurrentPolls} polls are in flight, the remaining
+ * executions wait in a FIFO queue. An execution whose poll returned without the close event goes to
+ * the end of the queue when other executions are waiting.
+ *
+ * <p>Each caller has its own timeout. An execution is no longer polled or retried once all of its
+ * callers have timed out. Timeouts of all the watchers are scheduled on one shared daemon thread.
+ */
+public final class WorkflowResultWatcher {
+
+  private static final long POLL_TIMEOUT_MILLIS = 60_000;
+  private static final long ENTITY_NOT_EXIST_RETRY_WAIT_MILLIS = 500;
+
+  private static final ScheduledThreadPoolExecutor timer = newTimer();
+
+  private final IWorkflowService service;
+  private final String domain;
+  private final int maxConcurrentPolls;
+  private final ConcurrentHashMap<WorkflowExecution, Watch> watches = new ConcurrentHashMap<>();
+  // Guarded by this.
+  private final Queue<Watch> queued = new ArrayDeque<>();
+  private int activePolls;
+
+  public WorkflowResultWatcher(IWorkflowService service, String domain, int maxConcurrentPolls) {
+    if (maxConcurrentPolls <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + maxConcurrentPolls);
+    }
+    this.service = Objects.requireNonNull(service);
+    this.domain = domain;
+    this.maxConcurrentPolls = maxConcurrentPolls;
+  }
+
+  private static ScheduledThreadPoolExecutor newTimer() {
+    ScheduledThreadPoolExecutor result =
+        new ScheduledThreadPoolExecutor(
+            1,
+            (r) -> {
+              Thread thread = new Thread(r, "cadence-workflow-result-watcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // Most callers get their results before the timeout, so cancelled timeouts are dropped early.
+    result.setRemoveOnCancelPolicy(true);
+    return result;
+  }
+
+  /**
+   * Returns result of a workflow execution, following continue as new runs.
+   *
+   * @see WorkflowExecutionUtils#getWorkflowExecutionResult(IWorkflowService, String,
+   *     WorkflowExecution, Optional, long, TimeUnit)
+   */
+  public byte[] getResult(
+      WorkflowExecution execution, Optional<String> workflowType, long timeout, TimeUnit unit)
+      throws TimeoutException {
+    try {
+      return getResultAsync(execution, workflowType, timeout, unit).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw CheckedExceptionWrapper.wrap(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof TimeoutException) {
+        throw (TimeoutException) cause;
+      }
+      throw CheckedExceptionWrapper.wrap(cause);
+    }
+  }
+
+  /** @see #getResult(WorkflowExecution, Optional, long, TimeUnit) */
+  public CompletableFuture<byte[]> getResultAsync(
+      WorkflowExecution execution, Optional<String> workflowType, long timeout, TimeUnit unit) {
+    return getCloseEventAsync(execution, timeout, unit)
+        .thenApply(
+            (closeEvent) ->
+                WorkflowExecutionUtils.getResultFromCloseEvent(
+                    execution, workflowType, closeEvent));
+  }
+
+  /** Number of executions being polled or waiting for a poll. */
+  int getWatchedExecutionCount() {
+    return watches.size();
+  }
+
+  private CompletableFuture<HistoryEvent> getCloseEventAsync(
+      WorkflowExecution execution, long timeout, TimeUnit unit) {
+    WorkflowExecution key =
+        new WorkflowExecution()
+            .setWorkflowId(execution.getWorkflowId())
+            .setRunId(execution.getRunId());
+    boolean[] created = new boolean[1];
+    Watch watch =
+        watches.compute(
+            key,
+            (k, existing) -> {
+              if (existing != null) {
+                existing.waiters.incrementAndGet();
+                return existing;
+              }
+              created[0] = true;
+              return new Watch(k);
+            });
+    CompletableFuture<HistoryEvent> result = new CompletableFuture<>();
+    @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
+    CompletableFuture<HistoryEvent> ignored =
+        watch.closeEvent.whenComplete(
+            (event, e) -> {
+              if (e == null) {
+                result.complete(event);
+              } else {
+                result.completeExceptionally(e);
+              }
+            });
+    long timeoutMillis = unit.toMillis(timeout);
+    if (timeout != 0 && timeoutMillis < Long.MAX_VALUE) {
+      ScheduledFuture<?> timeoutFuture =
+          timer.schedule(
+              () -> {
+                TimeoutException e =
+                    new TimeoutException(
+                        "WorkflowId="
+                            + execution.getWorkflowId()
+                            + ", runId="
+                            + execution.getRunId()
+                            + ", timeout="
+                            + timeout
+                            + ", unit="
+                            + unit);
+                // Decremented before completing, so that a poll returning to a caller that gave up
+                // doesn't requeue the execution. The count doesn't matter anymore if the close
+                // event completed the result first, as the watch is already removed then.
+                watch.waiters.decrementAndGet();
+                result.completeExceptionally(e);
+              },
+              timeoutMillis,
+              TimeUnit.MILLISECONDS);
+      @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
+      CompletableFuture<HistoryEvent> cancelTimeout =
+          result.whenComplete((event, e) -> timeoutFuture.cancel(false));
+    }
+    if (created[0]) {
+      schedule(watch);
+    }
+    return result;
+  }
+
+  private void schedule(Watch watch) {
+    synchronized (this) {
+      queued.add(watch);
+    }
+    startPolls();
+  }
+
+  private void startPolls() {
+    while (true) {
+      Watch next;
+      synchronized (this) {
+        if (activePolls >= maxConcurrentPolls || queued.isEmpty()) {
+          return;
+        }
+        next = queued.poll();
+        activePolls++;
+      }
+      if (!abandon(next)) {
+        poll(next);
+      } else {
+        onPollDone();
+      }
+    }
+  }
+
+  private void onPollDone() {
+    synchronized (this) {
+      activePolls--;
+    }
+  }
+
+  /** Stops watching the execution if all its callers have timed out. */
+  private boolean abandon(Watch watch) {
+    // Removing under the map lock keeps callers from joining a watch that isn't polled anymore.
+    boolean[] removed = new boolean[1];
+    watches.computeIfPresent(
+        watch.key,
+        (k, existing) -> {
+          if (existing == watch && watch.waiters.get() <= 0) {
+            removed[0] = true;
+            return null;
+          }
+          return existing;
+        });
+    return removed[0];
+  }
+
+  private void poll(Watch watch) {
+    GetWorkflowExecutionHistoryRequest request = new GetWorkflowExecutionHistoryRequest();
+    request.setDomain(domain);
+    request.setExecution(watch.execution);
+    request.setHistoryEventFilterType(HistoryEventFilterType.CLOSE_EVENT);
+    request.setWaitForNewEvent(true);
+    request.setSkipArchival(true);
+    request.setNextPageToken(watch.pageToken);
+    CompletableFuture<GetWorkflowExecutionHistoryResponse> response =
+        RpcRetryer.retryWithResultAsync(
+            RpcRetryer.DEFAULT_RPC_RETRY_OPTIONS,
+            () -> {
+              if (abandon(watch)) {
+                // Completes the retries without a response.
+                return null;
+              }
+              CompletableFuture<GetWorkflowExecutionHistoryResponse> result =
+                  new CompletableFuture<>();
+              try {
+                service.GetWorkflowExecutionHistoryWithTimeout(
+                    request,
+                    new AsyncMethodCallback<GetWorkflowExecutionHistoryResponse>() {
+                      @Override
+                      public void onComplete(GetWorkflowExecutionHistoryResponse response) {
+                        result.complete(response);
+                      }
+
+                      @Override
+                      public void onError(Exception exception) {
+                        result.completeExceptionally(exception);
+                      }
+                    },
+                    POLL_TIMEOUT_MILLIS);
+              } catch (CadenceError e) {
+                result.completeExceptionally(e);
+              }
+              return result;
+            });
+    @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
+    CompletableFuture<GetWorkflowExecutionHistoryResponse> ignored =
+        response.whenComplete(
+            (r, e) -> {
+              onPollDone();
+              try {
+                if (e != null) {
+                  onPollFailed(watch, e);
+                } else if (r != null) {
+                  onPollCompleted(watch, r);
+                }
+                // Otherwise all the callers timed out and the watch is already removed.
+              } catch (RuntimeException ex) {
+                complete(watch, null, ex);
+              }
+              startPolls();
+            });
+  }
+
+  private void onPollCompleted(Watch watch, GetWorkflowExecutionHistoryResponse response) {
+    History history = response.getHistory();
+    if (history == null || history.getEvents() == null || history.getEvents().isEmpty()) {
+      // Empty poll returned
+      watch.pageToken = response.getNextPageToken();
+      requeue(watch);
+      return;
+    }
+    HistoryEvent event = history.getEvents().get(0);
+    if (!WorkflowExecutionUtils.isWorkflowExecutionCompletedEvent(event)) {
+      throw new RuntimeException("Last history event is not completion event: " + event);
+    }
+    // Workflow called continueAsNew. Start polling the new generation with new runId.
+    if (event.getEventType() == EventType.WorkflowExecutionContinuedAsNew) {
+      watch.execution =
+          new WorkflowExecution()
+              .setWorkflowId(watch.execution.getWorkflowId())
+              .setRunId(
+                  event.getWorkflowExecutionContinuedAsNewEventAttributes().getNewExecutionRunId());
+      watch.pageToken = null;
+      requeue(watch);
+      return;
+    }
+    complete(watch, event, null);
+  }
+
+  private void onPollFailed(Watch watch, Throwable failure) {
+    if (failure instanceof EntityNotExistsError) {
+      EntityNotExistsError e = (EntityNotExistsError) failure;
+      if (e.getActiveCluster() != null
+          && e.getCurrentCluster() != null
+          && !e.getActiveCluster().equals(e.getCurrentCluster())) {
+        // Current cluster is passive cluster. Execution might not exist because of replication
+        // lag. Callers give up on their own timeouts.
+        timer.schedule(
+            () -> requeue(watch), ENTITY_NOT_EXIST_RETRY_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        return;
+      }
+    }
+    complete(watch, null, failure);
+  }
+
+  private void requeue(Watch watch) {
+    if (!abandon(watch)) {
+      schedule(watch);
+    }
+  }
+
+  private void complete(Watch watch, HistoryEvent event, Throwable failure) {
+    watches.remove(watch.key, watch);
+    if (failure == null) {
+      watch.closeEvent.complete(event);
+    } else {
+      watch.closeEvent.completeExceptionally(failure);
+    }
+  }
+
+  private static final class Watch {
+    final WorkflowExecution key;
+    final CompletableFuture<HistoryEvent> closeEvent = new CompletableFuture<>();
+    final AtomicInteger waiters = new AtomicInteger(1);
+    // Only accessed by the poll chain of this watch, which runs one poll at a time.
+    volatile WorkflowExecution execution;
+    volatile byte[] pageToken;
+
+    Watch(WorkflowExecution key) {
+      this.key = key;
+      this.execution = key;
+    }
+  }
+}
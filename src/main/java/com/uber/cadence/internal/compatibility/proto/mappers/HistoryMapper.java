@@ -60,6 +60,16 @@ class HistoryMapper {
     return history;
   }
 
+  /** Same as {@link #history(com.uber.cadence.api.v1.History)} but maps events lazily on access. */
+  static com.uber.cadence.History lazyHistory(com.uber.cadence.api.v1.History t) {
+    if (t == null || t == com.uber.cadence.api.v1.History.getDefaultInstance()) {
+      return null;
+    }
+    com.uber.cadence.History history = new com.uber.cadence.History();
+    history.setEvents(new LazyHistoryEventList(t.getEventsList()));
+    return history;
+  }
+
   static List<com.uber.cadence.HistoryEvent> historyEventArray(
       List<com.uber.cadence.api.v1.HistoryEvent> t) {
     if (t == null) {
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.compatibility.proto.mappers;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read only view over proto history events that maps each event to its Thrift representation on
+ * access. Only the most recently mapped events are memoized, in a window of {@link #WINDOW_SIZE}
+ * slots indexed by position. Iterating the list keeps just the proto history and a bounded number
+ * of mapped events in memory instead of the whole history twice. An event that fell out of the
+ * window is mapped again when it is accessed again.
+ *
+ * <p>The proto events are kept for the lifetime of the list, as the history is read again after it
+ * was iterated: the started event by the replay and query handling and the whole list through
+ * {@link com.uber.cadence.common.WorkflowExecutionHistory}. An event that was mapped again is a
+ * different but equal instance. This is safe because the events are compared by value and are not
+ * modified by their readers.
+ */
+final class LazyHistoryEventList extends AbstractList<com.uber.cadence.HistoryEvent>
+    implements RandomAccess {
+
+  // Big enough for the look behind and look ahead of the history iterators, small enough to not
+  // matter next to the proto history.
+  static final int WINDOW_SIZE = 64;
+
+  private final Object[] events;
+  // Slot index % WINDOW_SIZE holds the event mapped last at one of those indexes.
+  private final AtomicReferenceArray<MappedEvent> window = new AtomicReferenceArray<>(WINDOW_SIZE);
+
+  LazyHistoryEventList(List<com.uber.cadence.api.v1.HistoryEvent> events) {
+    this.events = events.toArray();
+  }
+
+  @Override
+  public com.uber.cadence.HistoryEvent get(int index) {
+    com.uber.cadence.api.v1.HistoryEvent event =
+        (com.uber.cadence.api.v1.HistoryEvent) events[index];
+    int slot = index % WINDOW_SIZE;
+    MappedEvent mapped = window.get(slot);
+    if (mapped != null && mapped.index == index) {
+      return mapped.event;
+    }
+    MappedEvent result = new MappedEvent(index, HistoryMapper.historyEvent(event));
+    if (window.compareAndSet(slot, mapped, result)) {
+      return result.event;
+    }
+    // Mapped concurrently, the event that was stored first is returned to all the callers.
+    MappedEvent current = window.get(slot);
+    return current != null && current.index == index ? current.event : result.event;
+  }
+
+  @Override
+  public int size() {
+    return events.length;
+  }
+
+  private static final class MappedEvent {
+    final int index;
+    final com.uber.cadence.HistoryEvent event;
+
+    MappedEvent(int index, com.uber.cadence.HistoryEvent event) {
+      this.index = index;
+      this.event = event;
+    }
+  }
+}
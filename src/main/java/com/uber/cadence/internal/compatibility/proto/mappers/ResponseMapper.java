@@ -22,6 +22,7 @@ import static com.uber.cadence.internal.compatibility.proto.mappers.Helpers.dura
 import static com.uber.cadence.internal.compatibility.proto.mappers.Helpers.timeToUnixNano;
 import static com.uber.cadence.internal.compatibility.proto.mappers.Helpers.toInt64Value;
 import static com.uber.cadence.internal.compatibility.proto.mappers.HistoryMapper.history;
+import static com.uber.cadence.internal.compatibility.proto.mappers.HistoryMapper.lazyHistory;
 import static com.uber.cadence.internal.compatibility.proto.mappers.TypeMapper.activityLocalDispatchInfoMap;
 import static com.uber.cadence.internal.compatibility.proto.mappers.TypeMapper.activityType;
 import static com.uber.cadence.internal.compatibility.proto.mappers.TypeMapper.badBinaries;
@@ -147,12 +148,23 @@ public class ResponseMapper {
 
   public static com.uber.cadence.GetWorkflowExecutionHistoryResponse
       getWorkflowExecutionHistoryResponse(GetWorkflowExecutionHistoryResponse t) {
+    return getWorkflowExecutionHistoryResponse(t, false);
+  }
+
+  /**
+   * @param lazyHistoryMapping when true history events are mapped on access instead of being all
+   *     copied upfront.
+   */
+  public static com.uber.cadence.GetWorkflowExecutionHistoryResponse
+      getWorkflowExecutionHistoryResponse(
+          GetWorkflowExecutionHistoryResponse t, boolean lazyHistoryMapping) {
     if (t == null) {
       return null;
     }
     com.uber.cadence.GetWorkflowExecutionHistoryResponse getWorkflowExecutionHistoryResponse =
         new com.uber.cadence.GetWorkflowExecutionHistoryResponse();
-    getWorkflowExecutionHistoryResponse.setHistory(history(t.getHistory()));
+    getWorkflowExecutionHistoryResponse.setHistory(
+        lazyHistoryMapping ? lazyHistory(t.getHistory()) : history(t.getHistory()));
     getWorkflowExecutionHistoryResponse.setRawHistory(dataBlobArray(t.getRawHistoryList()));
     getWorkflowExecutionHistoryResponse.setNextPageToken(byteStringToArray(t.getNextPageToken()));
     getWorkflowExecutionHistoryResponse.setArchived(t.getArchived());
@@ -249,6 +261,15 @@ public class ResponseMapper {
 
   public static com.uber.cadence.PollForDecisionTaskResponse pollForDecisionTaskResponse(
       PollForDecisionTaskResponse t) {
+    return pollForDecisionTaskResponse(t, false);
+  }
+
+  /**
+   * @param lazyHistoryMapping when true history events are mapped on access instead of being all
+   *     copied upfront.
+   */
+  public static com.uber.cadence.PollForDecisionTaskResponse pollForDecisionTaskResponse(
+      PollForDecisionTaskResponse t, boolean lazyHistoryMapping) {
     if (t == null) {
       return null;
     }
@@ -261,7 +282,7 @@ public class ResponseMapper {
     res.setStartedEventId(t.getStartedEventId());
     res.setAttempt(t.getAttempt());
     res.setBacklogCountHint(t.getBacklogCountHint());
-    res.setHistory(history(t.getHistory()));
+    res.setHistory(lazyHistoryMapping ? lazyHistory(t.getHistory()) : history(t.getHistory()));
     res.setNextPageToken(byteStringToArray(t.getNextPageToken()));
     if (t.getQuery() != WorkflowQuery.getDefaultInstance()) {
       res.setQuery(workflowQuery(t.getQuery()));
@@ -0,0 +1,256 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.compatibility.proto.serviceclient;
+
+import com.google.common.collect.ImmutableMap;
+import com.uber.cadence.api.v1.WorkerAPIGrpc;
+import com.uber.cadence.internal.metrics.MetricsTag;
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.m3.tally.Gauge;
+import com.uber.m3.tally.Scope;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads calls over several channels, each with its own connections to the service. A call goes to
+ * the channel with the fewest calls in flight. Task list polls and calls with {@link
+ * IGrpcServiceStubs#LONG_POLL_CALL_OPTION}, which are held open by the service for up to a minute,
+ * use a separate set of long poll channels when there are any, so that they don't share HTTP/2
+ * connections and stream limits with short calls like task completions and heartbeats.
+ *
+ * <p>The number of calls in flight on each channel is reported as a gauge tagged with the channel
+ * name.
+ */
+final class GrpcChannelPool extends ManagedChannel {
+
+  private static final class PooledChannel {
+    final ManagedChannel channel;
+    final AtomicInteger inFlight = new AtomicInteger();
+    final Gauge inFlightGauge;
+
+    PooledChannel(ManagedChannel channel, String name, Scope metricsScope) {
+      this.channel = channel;
+      this.inFlightGauge =
+          metricsScope
+              .tagged(ImmutableMap.of(MetricsTag.GRPC_CHANNEL, name))
+              .gauge(MetricsType.GRPC_CHANNEL_IN_FLIGHT);
+    }
+
+    void callStarted() {
+      inFlightGauge.update(inFlight.incrementAndGet());
+    }
+
+    void callClosed() {
+      inFlightGauge.update(inFlight.decrementAndGet());
+    }
+  }
+
+  private final PooledChannel[] channels;
+  private final PooledChannel[] longPollChannels;
+  // Rotates the start of the least loaded channel search so that ties are spread evenly.
+  private final AtomicInteger nextChannel = new AtomicInteger();
+
+  /**
+   * @param channels channels for all calls except long polls
+   * @param longPollChannels channels for long polls, if empty long polls use {@code channels}
+   */
+  GrpcChannelPool(
+      List<ManagedChannel> channels, List<ManagedChannel> longPollChannels, Scope metricsScope) {
+    if (channels.isEmpty()) {
+      throw new IllegalArgumentException("No channels");
+    }
+    this.channels = new PooledChannel[channels.size()];
+    for (int i = 0; i < channels.size(); i++) {
+      this.channels[i] = new PooledChannel(channels.get(i), "rpc-" + i, metricsScope);
+    }
+    this.longPollChannels = new PooledChannel[longPollChannels.size()];
+    for (int i = 0; i < longPollChannels.size(); i++) {
+      this.longPollChannels[i] =
+          new PooledChannel(longPollChannels.get(i), "long-poll-" + i, metricsScope);
+    }
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+    PooledChannel channel =
+        isLongPoll(method, callOptions) && longPollChannels.length > 0
+            ? leastLoaded(longPollChannels)
+            : leastLoaded(channels);
+    return new CountingCall<>(channel, channel.channel.newCall(method, callOptions));
+  }
+
+  @Override
+  public String authority() {
+    return channels[0].channel.authority();
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    for (PooledChannel channel : channels) {
+      channel.channel.shutdown();
+    }
+    for (PooledChannel channel : longPollChannels) {
+      channel.channel.shutdown();
+    }
+    return this;
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    for (PooledChannel channel : channels) {
+      channel.channel.shutdownNow();
+    }
+    for (PooledChannel channel : longPollChannels) {
+      channel.channel.shutdownNow();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    for (PooledChannel channel : channels) {
+      if (!channel.channel.isShutdown()) {
+        return false;
+      }
+    }
+    for (PooledChannel channel : longPollChannels) {
+      if (!channel.channel.isShutdown()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    for (PooledChannel channel : channels) {
+      if (!channel.channel.isTerminated()) {
+        return false;
+      }
+    }
+    for (PooledChannel channel : longPollChannels) {
+      if (!channel.channel.isTerminated()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (PooledChannel channel : channels) {
+      if (!channel.channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    for (PooledChannel channel : longPollChannels) {
+      if (!channel.channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return number of calls in flight on each channel, long poll channels last */
+  int[] getInFlight() {
+    int[] result = new int[channels.length + longPollChannels.length];
+    for (int i = 0; i < channels.length; i++) {
+      result[i] = channels[i].inFlight.get();
+    }
+    for (int i = 0; i < longPollChannels.length; i++) {
+      result[channels.length + i] = longPollChannels[i].inFlight.get();
+    }
+    return result;
+  }
+
+  static boolean isLongPoll(MethodDescriptor<?, ?> method, CallOptions callOptions) {
+    return method == WorkerAPIGrpc.getPollForDecisionTaskMethod()
+        || method == WorkerAPIGrpc.getPollForActivityTaskMethod()
+        || callOptions.getOption(IGrpcServiceStubs.LONG_POLL_CALL_OPTION);
+  }
+
+  private PooledChannel leastLoaded(PooledChannel[] candidates) {
+    int length = candidates.length;
+    if (length == 1) {
+      return candidates[0];
+    }
+    int start = (nextChannel.getAndIncrement() & Integer.MAX_VALUE) % length;
+    PooledChannel result = candidates[start];
+    int min = result.inFlight.get();
+    for (int i = 1; i < length && min > 0; i++) {
+      PooledChannel candidate = candidates[(start + i) % length];
+      int inFlight = candidate.inFlight.get();
+      if (inFlight < min) {
+        min = inFlight;
+        result = candidate;
+      }
+    }
+    return result;
+  }
+
+  /** Counts the call as in flight on its channel from start until it is closed. */
+  private static final class CountingCall<ReqT, RespT>
+      extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+    private final PooledChannel channel;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    CountingCall(PooledChannel channel, ClientCall<ReqT, RespT> call) {
+      super(call);
+      this.channel = channel;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      channel.callStarted();
+      try {
+        super.start(
+            new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
+                responseListener) {
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                release();
+                super.onClose(status, trailers);
+              }
+            },
+            headers);
+      } catch (RuntimeException e) {
+        release();
+        throw e;
+      }
+    }
+
+    private void release() {
+      if (closed.compareAndSet(false, true)) {
+        channel.callClosed();
+      }
+    }
+  }
+}
@@ -45,8 +45,9 @@ import io.opentelemetry.context.propagation.TextMapSetter;
 import io.opentracing.Scope;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
@@ -102,12 +103,19 @@ final class GrpcServiceStubs implements IGrpcServiceStubs {
     if (options.getGRPCChannel() != null) {
       this.channel = options.getGRPCChannel();
       shutdownChannel = false;
+    } else if (options.getGrpcChannelCount() == 1 && options.getGrpcLongPollChannelCount() == 0) {
+      this.channel = newChannel(options);
+      shutdownChannel = true;
     } else {
-      this.channel =
-          ManagedChannelBuilder.forAddress(options.getHost(), options.getPort())
-              .defaultLoadBalancingPolicy("round_robin")
-              .usePlaintext()
-              .build();
+      List<ManagedChannel> channels = new ArrayList<>();
+      for (int i = 0; i < options.getGrpcChannelCount(); i++) {
+        channels.add(newChannel(options));
+      }
+      List<ManagedChannel> longPollChannels = new ArrayList<>();
+      for (int i = 0; i < options.getGrpcLongPollChannelCount(); i++) {
+        longPollChannels.add(newChannel(options));
+      }
+      this.channel = new GrpcChannelPool(channels, longPollChannels, options.getMetricsScope());
       shutdownChannel = true;
     }
     ClientInterceptor deadlineInterceptor = new GrpcDeadlineInterceptor(options);
@@ -153,6 +161,13 @@ final class GrpcServiceStubs implements IGrpcServiceStubs {
     this.scheduleFutureStub = ScheduleAPIGrpc.newFutureStub(interceptedChannel);
   }
 
+  private static ManagedChannel newChannel(ClientOptions options) {
+    return ManagedChannelBuilder.forAddress(options.getHost(), options.getPort())
+        .defaultLoadBalancingPolicy("round_robin")
+        .usePlaintext()
+        .build();
+  }
+
   private ClientInterceptor newAuthorizationInterceptor(IAuthorizationProvider provider) {
     return new ClientInterceptor() {
       @Override
@@ -163,9 +178,7 @@ final class GrpcServiceStubs implements IGrpcServiceStubs {
 
           @Override
           public void start(Listener<RespT> responseListener, Metadata headers) {
-            headers.put(
-                AUTHORIZATION_HEADER_KEY,
-                new String(provider.getAuthToken(), StandardCharsets.UTF_8));
+            headers.put(AUTHORIZATION_HEADER_KEY, provider.getAuthHeaderValue());
 
             Listener<RespT> listener =
                 new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(
@@ -23,12 +23,21 @@ import com.uber.cadence.api.v1.VisibilityAPIGrpc;
 import com.uber.cadence.api.v1.WorkerAPIGrpc;
 import com.uber.cadence.api.v1.WorkflowAPIGrpc;
 import com.uber.cadence.serviceclient.ClientOptions;
+import io.grpc.CallOptions;
 import java.util.concurrent.TimeUnit;
 
 public interface IGrpcServiceStubs {
 
   int DEFAULT_LOCAL_CADENCE_SERVER_GRPC_PORT = 7833;
 
+  /**
+   * Call option that sends a call over the long poll channels, the same as task list polls. Set it
+   * on calls the service holds open until something happens, like history requests that wait for
+   * new events.
+   */
+  CallOptions.Key<Boolean> LONG_POLL_CALL_OPTION =
+      CallOptions.Key.createWithDefault("cadence-long-poll", false);
+
   /** Returns gRPC stubs with default options domain service. */
   static IGrpcServiceStubs newInstance() {
     return new GrpcServiceStubs(
@@ -23,9 +23,11 @@ import com.uber.cadence.WorkflowExecutionAlreadyStartedError;
 import com.uber.cadence.internal.common.SignalWithStartWorkflowExecutionParameters;
 import com.uber.cadence.internal.common.StartWorkflowExecutionParameters;
 import com.uber.cadence.internal.common.TerminateWorkflowExecutionParameters;
+import com.uber.cadence.internal.common.WorkflowResultWatcher;
 import com.uber.cadence.internal.replay.QueryWorkflowParameters;
 import com.uber.cadence.internal.replay.SignalExternalWorkflowParameters;
 import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 public interface GenericWorkflowClientExternal {
@@ -70,4 +72,7 @@ public interface GenericWorkflowClientExternal {
   IWorkflowService getService();
 
   String getDomain();
+
+  /** @return the watcher shared by result waiters or empty if each waiter polls on its own */
+  Optional<WorkflowResultWatcher> getResultWatcher();
 }
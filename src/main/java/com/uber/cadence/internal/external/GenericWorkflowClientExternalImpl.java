@@ -32,6 +32,8 @@ import com.uber.m3.util.ImmutableMap;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -40,12 +42,22 @@ public final class GenericWorkflowClientExternalImpl implements GenericWorkflowC
   private final String domain;
   private final IWorkflowService service;
   private final Scope metricsScope;
+  private final Optional<WorkflowResultWatcher> resultWatcher;
 
   public GenericWorkflowClientExternalImpl(
       IWorkflowService service, String domain, Scope metricsScope) {
+    this(service, domain, metricsScope, Optional.empty());
+  }
+
+  public GenericWorkflowClientExternalImpl(
+      IWorkflowService service,
+      String domain,
+      Scope metricsScope,
+      Optional<WorkflowResultWatcher> resultWatcher) {
     this.service = service;
     this.domain = domain;
     this.metricsScope = metricsScope;
+    this.resultWatcher = Objects.requireNonNull(resultWatcher);
   }
 
   @Override
@@ -58,6 +70,11 @@ public final class GenericWorkflowClientExternalImpl implements GenericWorkflowC
     return service;
   }
 
+  @Override
+  public Optional<WorkflowResultWatcher> getResultWatcher() {
+    return resultWatcher;
+  }
+
   @Override
   public WorkflowExecution startWorkflow(StartWorkflowExecutionParameters startParameters)
       throws WorkflowExecutionAlreadyStartedError {
@@ -21,6 +21,7 @@ import com.uber.m3.tally.DurationBuckets;
 import com.uber.m3.tally.Scope;
 import com.uber.m3.tally.Stopwatch;
 import com.uber.m3.util.Duration;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Helper utilities for dual-emitting metrics during timer to histogram migration.
@@ -107,6 +108,22 @@ public final class MetricsEmit {
    */
   public static final String HISTOGRAM_SUFFIX = "_ns";
 
+  private static final int MAX_CACHED_HISTOGRAM_NAMES = 1000;
+
+  // Avoids concatenating the histogram name for every recorded latency.
+  private static final ConcurrentHashMap<String, String> histogramNames = new ConcurrentHashMap<>();
+
+  static String histogramName(String name) {
+    String result = histogramNames.get(name);
+    if (result == null) {
+      result = name + HISTOGRAM_SUFFIX;
+      if (histogramNames.size() < MAX_CACHED_HISTOGRAM_NAMES) {
+        histogramNames.putIfAbsent(name, result);
+      }
+    }
+    return result;
+  }
+
   /**
    * Records latency based on the current emit mode setting.
    *
@@ -133,10 +150,10 @@ public final class MetricsEmit {
         break;
       case EMIT_BOTH:
         scope.timer(name).record(latency);
-        scope.histogram(name + HISTOGRAM_SUFFIX, buckets).recordDuration(latency);
+        scope.histogram(histogramName(name), buckets).recordDuration(latency);
         break;
       case EMIT_HISTOGRAMS_ONLY:
-        scope.histogram(name + HISTOGRAM_SUFFIX, buckets).recordDuration(latency);
+        scope.histogram(histogramName(name), buckets).recordDuration(latency);
         break;
     }
   }
@@ -163,10 +180,10 @@ public final class MetricsEmit {
         break;
       case EMIT_BOTH:
         timerSW = scope.timer(name).start();
-        histogramSW = scope.histogram(name + HISTOGRAM_SUFFIX, buckets).start();
+        histogramSW = scope.histogram(histogramName(name), buckets).start();
         break;
       case EMIT_HISTOGRAMS_ONLY:
-        histogramSW = scope.histogram(name + HISTOGRAM_SUFFIX, buckets).start();
+        histogramSW = scope.histogram(histogramName(name), buckets).start();
         break;
     }
 
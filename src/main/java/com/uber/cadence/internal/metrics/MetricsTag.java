@@ -25,4 +25,5 @@ public class MetricsTag {
   public static final String REQUEST_TYPE = "RequestType";
   public static final String VERSION = "Version";
   public static final String CAUSE = "Cause";
+  public static final String GRPC_CHANNEL = "GrpcChannel";
 }
@@ -41,6 +41,14 @@ public class MetricsType {
       CADENCE_METRICS_PREFIX + "workflow-get-history-succeed";
   public static final String WORKFLOW_GET_HISTORY_LATENCY =
       CADENCE_METRICS_PREFIX + "workflow-get-history-latency";
+  // history page was already prefetched when replay reached it
+  public static final String WORKFLOW_GET_HISTORY_PREFETCH_HIT_COUNTER =
+      CADENCE_METRICS_PREFIX + "workflow-get-history-prefetch-hit";
+  // replay had to wait for a prefetched history page
+  public static final String WORKFLOW_GET_HISTORY_PREFETCH_STALL_COUNTER =
+      CADENCE_METRICS_PREFIX + "workflow-get-history-prefetch-stall";
+  public static final String WORKFLOW_GET_HISTORY_PREFETCH_STALL_LATENCY =
+      CADENCE_METRICS_PREFIX + "workflow-get-history-prefetch-stall-latency";
   public static final String WORKFLOW_SIGNAL_WITH_START_COUNTER =
       CADENCE_METRICS_PREFIX + "workflow-signal-with-start";
   public static final String WORKFLOW_SIGNAL_WITH_START_ASYNC_COUNTER =
@@ -71,6 +79,14 @@ public class MetricsType {
       CADENCE_METRICS_PREFIX + "decision-task-completed";
   public static final String DECISION_TASK_FORCE_COMPLETED =
       CADENCE_METRICS_PREFIX + "decision-task-force-completed";
+  public static final String DECISION_QUERY_CACHED_COUNTER =
+      CADENCE_METRICS_PREFIX + "decision-query-cached";
+  public static final String DECISION_QUERY_COALESCED_COUNTER =
+      CADENCE_METRICS_PREFIX + "decision-query-coalesced";
+  public static final String DECISION_QUERY_WAIT_LATENCY =
+      CADENCE_METRICS_PREFIX + "decision-query-wait-latency";
+  public static final String DECISION_REPLY_PENDING_RUNS =
+      CADENCE_METRICS_PREFIX + "decision-reply-pending-runs";
 
   public static final String ACTIVITY_POLL_COUNTER = CADENCE_METRICS_PREFIX + "activity-poll-total";
   public static final String ACTIVITY_POLL_FAILED_COUNTER =
@@ -129,17 +145,37 @@ public class MetricsType {
       CADENCE_METRICS_PREFIX + "local_activity_active_thread_count";
   public static final String ACTIVITY_ACTIVE_THREAD_COUNT =
       CADENCE_METRICS_PREFIX + "activity_active_thread_count";
+  public static final String ACTIVITY_HEARTBEAT_SENT_COUNTER =
+      CADENCE_METRICS_PREFIX + "activity-heartbeat-sent";
+  public static final String ACTIVITY_HEARTBEAT_COALESCED_COUNTER =
+      CADENCE_METRICS_PREFIX + "activity-heartbeat-coalesced";
+  public static final String ACTIVITY_HEARTBEAT_FAILED_COUNTER =
+      CADENCE_METRICS_PREFIX + "activity-heartbeat-failed";
 
   public static final String CORRUPTED_SIGNALS_COUNTER =
       CADENCE_METRICS_PREFIX + "corrupted-signals";
 
   public static final String WORKER_START_COUNTER = CADENCE_METRICS_PREFIX + "worker-start";
   public static final String POLLER_START_COUNTER = CADENCE_METRICS_PREFIX + "poller-start";
+  public static final String POLLER_AUTOSCALER_POLLER_COUNT =
+      CADENCE_METRICS_PREFIX + "poller-autoscaler-poller-count";
+  public static final String POLLER_AUTOSCALER_SCALE_UP_COUNTER =
+      CADENCE_METRICS_PREFIX + "poller-autoscaler-scale-up";
+  public static final String POLLER_AUTOSCALER_SCALE_DOWN_COUNTER =
+      CADENCE_METRICS_PREFIX + "poller-autoscaler-scale-down";
+  public static final String POLLER_AUTOSCALER_UTILIZATION_RATE =
+      CADENCE_METRICS_PREFIX + "poller-autoscaler-utilization-rate";
+  public static final String POLLER_AUTOSCALER_EXECUTOR_SATURATION_RATE =
+      CADENCE_METRICS_PREFIX + "poller-autoscaler-executor-saturation-rate";
+  public static final String POLLER_AUTOSCALER_BACKLOG_COUNT_HINT =
+      CADENCE_METRICS_PREFIX + "poller-autoscaler-backlog-count-hint";
 
   public static final String CADENCE_REQUEST = CADENCE_METRICS_PREFIX + "request";
   public static final String CADENCE_ERROR = CADENCE_METRICS_PREFIX + "error";
   public static final String CADENCE_LATENCY = CADENCE_METRICS_PREFIX + "latency";
   public static final String CADENCE_INVALID_REQUEST = CADENCE_METRICS_PREFIX + "invalid-request";
+  public static final String GRPC_CHANNEL_IN_FLIGHT =
+      CADENCE_METRICS_PREFIX + "grpc-channel-in-flight";
 
   public static final String STICKY_CACHE_HIT = CADENCE_METRICS_PREFIX + "sticky-cache-hit";
   public static final String STICKY_CACHE_MISS = CADENCE_METRICS_PREFIX + "sticky-cache-miss";
@@ -148,6 +184,9 @@ public class MetricsType {
   public static final String STICKY_CACHE_THREAD_FORCED_EVICTION =
       CADENCE_METRICS_PREFIX + "sticky-cache-thread-forced-eviction";
   public static final String STICKY_CACHE_SIZE = CADENCE_METRICS_PREFIX + "sticky-cache-size";
+  public static final String STICKY_CACHE_FULL = CADENCE_METRICS_PREFIX + "sticky-cache-full";
+  public static final String STICKY_CACHE_ESTIMATED_BYTES =
+      CADENCE_METRICS_PREFIX + "sticky-cache-estimated-bytes";
   public static final String WORKFLOW_ACTIVE_THREAD_COUNT =
       CADENCE_METRICS_PREFIX + "workflow_active_thread_count";
 
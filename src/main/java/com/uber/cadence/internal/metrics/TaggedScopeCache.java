@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.metrics;
+
+import com.uber.m3.tally.Scope;
+import com.uber.m3.util.ImmutableMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the subscopes of a scope tagged with one or two fixed tags, for example {@link
+ * MetricsTag#WORKFLOW_TYPE}, so that hot paths don't build a tag map and look up the tagged scope
+ * for every task. Tally caches the counters and histograms of each scope, so metrics taken from a
+ * cached scope are resolved with a single lookup by name.
+ *
+ * <p>The number of cached values of each tag is bounded. Values over the limit get an uncached
+ * tagged scope, which is correct but slower.
+ */
+public final class TaggedScopeCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  private final Scope scope;
+  private final String tagName;
+  private final String secondTagName;
+  private final int maxSize;
+  // Keyed by the value of tagName, then by the value of secondTagName if present.
+  private final ConcurrentHashMap<String, Object> scopes = new ConcurrentHashMap<>();
+
+  /** Creates a cache of the scopes tagged with a single tag. */
+  public TaggedScopeCache(Scope scope, String tagName) {
+    this(scope, tagName, null, DEFAULT_MAX_SIZE);
+  }
+
+  /** Creates a cache of the scopes tagged with two tags. */
+  public TaggedScopeCache(Scope scope, String tagName, String secondTagName) {
+    this(scope, tagName, secondTagName, DEFAULT_MAX_SIZE);
+  }
+
+  TaggedScopeCache(Scope scope, String tagName, String secondTagName, int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + maxSize);
+    }
+    this.scope = scope;
+    this.tagName = Objects.requireNonNull(tagName);
+    this.secondTagName = secondTagName;
+    this.maxSize = maxSize;
+  }
+
+  /** @return the scope tagged with {@code tagName: value} */
+  public Scope get(String value) {
+    if (secondTagName != null) {
+      throw new IllegalStateException("Expected values of two tags");
+    }
+    Object result = value == null ? null : scopes.get(value);
+    if (result == null) {
+      if (value == null || scopes.size() >= maxSize) {
+        return scope.tagged(ImmutableMap.of(tagName, value));
+      }
+      result = scopes.computeIfAbsent(value, (v) -> scope.tagged(ImmutableMap.of(tagName, v)));
+    }
+    return (Scope) result;
+  }
+
+  /** @return the scope tagged with {@code tagName: value, secondTagName: secondValue} */
+  @SuppressWarnings("unchecked")
+  public Scope get(String value, String secondValue) {
+    if (secondTagName == null) {
+      throw new IllegalStateException("Expected value of a single tag");
+    }
+    if (value == null || secondValue == null) {
+      return newScope(value, secondValue);
+    }
+    Map<String, Scope> byValue = (Map<String, Scope>) scopes.get(value);
+    if (byValue == null) {
+      if (scopes.size() >= maxSize) {
+        return newScope(value, secondValue);
+      }
+      byValue =
+          (Map<String, Scope>)
+              scopes.computeIfAbsent(value, (v) -> new ConcurrentHashMap<String, Scope>());
+    }
+    Scope result = byValue.get(secondValue);
+    if (result == null) {
+      if (byValue.size() >= maxSize) {
+        return newScope(value, secondValue);
+      }
+      result = byValue.computeIfAbsent(secondValue, (v) -> newScope(value, v));
+    }
+    return result;
+  }
+
+  private Scope newScope(String value, String secondValue) {
+    return scope.tagged(ImmutableMap.of(tagName, value, secondTagName, secondValue));
+  }
+}
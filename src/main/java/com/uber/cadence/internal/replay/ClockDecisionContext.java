@@ -28,6 +28,7 @@ import com.uber.cadence.TimerCanceledEventAttributes;
 import com.uber.cadence.TimerFiredEventAttributes;
 import com.uber.cadence.converter.DataConverter;
 import com.uber.cadence.internal.common.LocalActivityMarkerData;
+import com.uber.cadence.internal.common.LongObjectHashMap;
 import com.uber.cadence.internal.sync.WorkflowInternal;
 import com.uber.cadence.internal.worker.LocalActivityWorker;
 import com.uber.cadence.workflow.ActivityFailureException;
@@ -37,6 +38,7 @@ import com.uber.cadence.workflow.GetVersionOptions;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -60,6 +62,14 @@ public final class ClockDecisionContext {
 
   private static final Logger log = LoggerFactory.getLogger(ClockDecisionContext.class);
 
+  // Shallow sizes added up as described in Decider#getEstimatedMemoryBytes. An open timer is an
+  // OpenRequestInfo (24), its completion callback lambda (24), the boxed fire time (16) and the
+  // TimerCancellationHandler (24), rounded up.
+  private static final long OPEN_TIMER_BYTES = 96;
+  // A HashMap node (32), a String id of about 20 characters with its array (24 + 40) and a small
+  // value object (32), rounded up.
+  private static final long MAP_ENTRY_BYTES = 128;
+
   private final class TimerCancellationHandler implements Consumer<Exception> {
 
     private final long startEventId;
@@ -76,13 +86,15 @@ public final class ClockDecisionContext {
 
   private final DecisionsHelper decisions;
   // key is startedEventId
-  private final Map<Long, OpenRequestInfo<?, Long>> scheduledTimers = new HashMap<>();
+  private final LongObjectHashMap<OpenRequestInfo<?, Long>> scheduledTimers =
+      new LongObjectHashMap<>();
   private long replayCurrentTimeMilliseconds = -1;
   // Local time when replayCurrentTimeMilliseconds was updated.
   private long replayTimeUpdatedAtMillis = -1;
   private boolean replaying = true;
   // Key is side effect marker eventId
-  private final Map<Long, byte[]> sideEffectResults = new HashMap<>();
+  private final LongObjectHashMap<byte[]> sideEffectResults = new LongObjectHashMap<>();
+  private long sideEffectResultBytes;
   private final MarkerHandler mutableSideEffectHandler;
   private final MarkerHandler versionHandler;
   private final BiFunction<LocalActivityWorker.Task, Duration, Boolean> laTaskPoller;
@@ -257,7 +269,10 @@ public final class ClockDecisionContext {
     MarkerRecordedEventAttributes attributes = event.getMarkerRecordedEventAttributes();
     String name = attributes.getMarkerName();
     if (SIDE_EFFECT_MARKER_NAME.equals(name)) {
-      sideEffectResults.put(event.getEventId(), attributes.getDetails());
+      byte[] details = attributes.getDetails();
+      byte[] previous = sideEffectResults.put(event.getEventId(), details);
+      sideEffectResultBytes +=
+          (details == null ? 0 : details.length) - (previous == null ? 0 : previous.length);
     } else if (LOCAL_ACTIVITY_MARKER_NAME.equals(name)) {
       handleLocalActivityMarker(attributes);
     } else if (VERSION_MARKER_NAME.equals(name)) {
@@ -442,7 +457,9 @@ public final class ClockDecisionContext {
 
   boolean startUnstartedLaTasks(Duration maxWaitAllowed) {
     long startTime = System.currentTimeMillis();
-    for (ExecuteLocalActivityParameters params : unstartedLaTasks.values()) {
+    Iterator<ExecuteLocalActivityParameters> unstarted = unstartedLaTasks.values().iterator();
+    while (unstarted.hasNext()) {
+      ExecuteLocalActivityParameters params = unstarted.next();
       long currTime = System.currentTimeMillis();
       maxWaitAllowed = maxWaitAllowed.minus(Duration.ofMillis(currTime - startTime));
       boolean applied =
@@ -457,8 +474,9 @@ public final class ClockDecisionContext {
       if (!applied) {
         return false;
       }
+      // Tasks that were already dispatched must not be dispatched again by the next attempt.
+      unstarted.remove();
     }
-    unstartedLaTasks.clear();
     return true;
   }
 
@@ -466,6 +484,15 @@ public final class ClockDecisionContext {
     return pendingLaTasks.size();
   }
 
+  /** @return approximate heap bytes held by timers, side effect results and pending markers */
+  long getEstimatedMemoryBytes() {
+    return scheduledTimers.getEstimatedMemoryBytes()
+        + scheduledTimers.size() * OPEN_TIMER_BYTES
+        + sideEffectResults.getEstimatedMemoryBytes()
+        + sideEffectResultBytes
+        + (pendingLaTasks.size() + unstartedLaTasks.size() + versionMap.size()) * MAP_ENTRY_BYTES;
+  }
+
   void awaitTaskCompletion(Duration duration) throws InterruptedException {
     while (!taskCompleted) {
       // This call is called from already locked object
@@ -32,6 +32,33 @@ public interface Decider {
 
   void close();
 
+  /**
+   * @return approximate number of live workflow threads owned by this decider. Must not block as it
+   *     is called by {@link DeciderCache} while choosing an eviction candidate.
+   */
+  default int getWorkflowThreadCount() {
+    return 0;
+  }
+
+  /** @return id of the last history event this decider has processed. */
+  default long getHistorySize() {
+    return 0;
+  }
+
+  /**
+   * The estimate is not measured. It adds up per object constants derived from shallow object
+   * sizes on a 64-bit JVM with compressed references (12 byte headers, 4 byte references, 8 byte
+   * alignment) and the sizes of the payloads the decider holds. It is good enough to rank deciders
+   * for eviction and to roughly bound the cache.
+   *
+   * @return rough estimate of the heap bytes retained by this decider while it is cached. Doesn't
+   *     include objects referenced by the workflow implementation. Must not block as it is called
+   *     by {@link DeciderCache}.
+   */
+  default long getEstimatedMemoryBytes() {
+    return 0;
+  }
+
   class DecisionResult {
     private final List<Decision> decisions;
     private final Map<String, WorkflowQueryResult> queryResults;
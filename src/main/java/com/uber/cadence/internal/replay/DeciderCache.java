@@ -14,123 +14,390 @@
  *  express or implied. See the License for the specific language governing
  *  permissions and limitations under the License.
  */
-
 package com.uber.cadence.internal.replay;
 
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.uber.cadence.PollForDecisionTaskResponse;
 import com.uber.cadence.internal.metrics.MetricsType;
 import com.uber.m3.tally.Scope;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
 
+/**
+ * Cache of deciders for sticky execution.
+ *
+ * <p>Lookups and pinning of in-processing entries go through a {@link ConcurrentHashMap} and a
+ * per-entry atomic pin count, so the decision task hot path doesn't take any cache wide lock.
+ * Unpinned entries are kept in an intrusive doubly linked list in least recently used order. The
+ * list is guarded by a lock that is only held for constant time link/unlink operations, which makes
+ * eviction of the least recently used unpinned entry O(1).
+ *
+ * <p>When a weigher is configured, eviction looks at a small number of the least recently used
+ * unpinned entries and evicts the one with the largest weight. This allows freeing the resource
+ * that is actually scarce, for example workflow threads.
+ *
+ * <p>A task processing a cached decider holds the pin of the {@link Entry} it looked up and
+ * releases exactly that entry, so a task never unpins an entry that replaced its own one in the
+ * meantime. An entry that is removed while pinned, for example by a full history decision task
+ * while a query without the run lock is using it, is only marked retired. Its decider is closed
+ * when the last pin is released.
+ *
+ * <p>When {@code maxCacheBytes} is set, entries are also evicted while the sum of their {@link
+ * Decider#getEstimatedMemoryBytes()} exceeds it. The estimate of an entry is refreshed whenever a
+ * task finishes processing it.
+ *
+ * <p>Entries in processing can't be evicted. When the cache can't be brought within its bounds
+ * because all the other entries are in processing, the entry being added or refreshed is not kept
+ * and {@link MetricsType#STICKY_CACHE_FULL} is incremented. The next task of such a run misses the
+ * cache and replays the full history.
+ */
 public final class DeciderCache {
+
+  /** Weighs deciders by the number of live workflow threads they hold. */
+  public static final ToLongFunction<Decider> WORKFLOW_THREAD_COUNT_WEIGHER =
+      Decider::getWorkflowThreadCount;
+
+  /** Weighs deciders by the number of history events they have processed. */
+  public static final ToLongFunction<Decider> HISTORY_SIZE_WEIGHER = Decider::getHistorySize;
+
+  /** Weighs deciders by their estimated heap footprint. */
+  public static final ToLongFunction<Decider> MEMORY_WEIGHER = Decider::getEstimatedMemoryBytes;
+
+  /** Number of least recently used entries compared by weight when a weigher is configured. */
+  private static final int WEIGHTED_EVICTION_SAMPLE_SIZE = 8;
+
+  // Bit of Entry.state set once the entry was removed from the cache.
+  private static final int RETIRED = 1 << 30;
+  private static final int PIN_COUNT_MASK = RETIRED - 1;
+
+  /** Cached decider. Returned pinned to the task that processes it. */
+  static final class Entry {
+    private final String runId;
+    private final Decider decider;
+    // Number of tasks currently processing this entry, with the RETIRED bit set once the entry was
+    // removed. The decider is closed by whoever observes it retired and not pinned first.
+    private final AtomicInteger state;
+    // False when the entry was replaced by an entry of the same decider, which must stay open.
+    private volatile boolean ownsDecider = true;
+    // Guarded by lruLock.
+    private Entry prev;
+    private Entry next;
+    private boolean linked;
+    // Guarded by lruLock. Included in estimatedBytes until the entry is retired.
+    private long estimatedBytes;
+
+    private Entry(String runId, Decider decider, int pins) {
+      this.runId = runId;
+      this.decider = decider;
+      this.state = new AtomicInteger(pins);
+    }
+
+    Decider getDecider() {
+      return decider;
+    }
+
+    private boolean tryPin() {
+      while (true) {
+        int current = state.get();
+        if ((current & RETIRED) != 0) {
+          return false;
+        }
+        if (state.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    /** @return state after releasing the pin, -1 if the entry was not pinned. */
+    private int unpin() {
+      while (true) {
+        int current = state.get();
+        if ((current & PIN_COUNT_MASK) == 0) {
+          return -1;
+        }
+        if (state.compareAndSet(current, current - 1)) {
+          return current - 1;
+        }
+      }
+    }
+
+    /**
+     * Marks the entry as removed from the cache.
+     *
+     * @return true if this call retired the entry and no task has it pinned, so the caller closes
+     *     the decider. Otherwise it is closed when the last pin is released.
+     */
+    private boolean markRetired() {
+      while (true) {
+        int current = state.get();
+        if ((current & RETIRED) != 0) {
+          return false;
+        }
+        if (state.compareAndSet(current, current | RETIRED)) {
+          return current == 0 && ownsDecider;
+        }
+      }
+    }
+
+    private boolean isRetired() {
+      return (state.get() & RETIRED) != 0;
+    }
+  }
+
   private final Scope metricsScope;
-  private LoadingCache<String, Decider> cache;
-  private Lock cacheLock = new ReentrantLock();
-  private Set<String> inProcessing = new HashSet<>();
+  private final int maxCacheSize;
+  private final long maxCacheBytes;
+  private final ToLongFunction<Decider> weigher;
+  private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+  private final Lock lruLock = new ReentrantLock();
+  // Sentinel of the circular LRU list. head.next is the least recently used entry.
+  private final Entry head = new Entry(null, null, 0);
+  // Sum of the estimates of the cached entries. Guarded by lruLock.
+  private long estimatedBytes;
 
   public DeciderCache(int maxCacheSize, Scope scope) {
+    this(maxCacheSize, scope, null);
+  }
+
+  /**
+   * @param weigher optional function used to pick the eviction candidate among the least recently
+   *     used entries. Null means plain least recently used eviction.
+   */
+  public DeciderCache(int maxCacheSize, Scope scope, ToLongFunction<Decider> weigher) {
+    this(maxCacheSize, 0, scope, weigher);
+  }
+
+  /**
+   * @param maxCacheBytes maximum sum of the estimated memory of cached deciders. 0 means no limit.
+   * @param weigher optional function used to pick the eviction candidate among the least recently
+   *     used entries. Null means plain least recently used eviction.
+   */
+  public DeciderCache(
+      int maxCacheSize, long maxCacheBytes, Scope scope, ToLongFunction<Decider> weigher) {
     Preconditions.checkArgument(maxCacheSize > 0, "Max cache size must be greater than 0");
+    Preconditions.checkArgument(maxCacheBytes >= 0, "Max cache bytes must not be negative");
     this.metricsScope = Objects.requireNonNull(scope);
-    this.cache =
-        CacheBuilder.newBuilder()
-            .maximumSize(maxCacheSize)
-            .removalListener(
-                e -> {
-                  Decider entry = (Decider) e.getValue();
-                  if (entry != null) {
-                    entry.close();
-                  }
-                })
-            .build(
-                new CacheLoader<String, Decider>() {
-                  @Override
-                  public Decider load(String key) {
-                    return null;
-                  }
-                });
-  }
-
-  public Decider getOrCreate(
-      PollForDecisionTaskResponse decisionTask, Callable<Decider> deciderFunc) throws Exception {
+    this.maxCacheSize = maxCacheSize;
+    this.maxCacheBytes = maxCacheBytes;
+    this.weigher = weigher;
+    head.prev = head;
+    head.next = head;
+  }
+
+  /**
+   * Returns the pinned cache entry of the task's run, or a new entry for the decider created by
+   * {@code deciderFunc} that is added to the cache with {@link #addToCache(Entry)}. A new entry is
+   * pinned as well, so it can't be evicted and closed between being added and the end of the task
+   * that created it. Either is released with {@link #markProcessingDone(Entry)}.
+   */
+  Entry getOrCreate(PollForDecisionTaskResponse decisionTask, Callable<Decider> deciderFunc)
+      throws Exception {
     String runId = decisionTask.getWorkflowExecution().getRunId();
     if (isFullHistory(decisionTask)) {
       invalidate(runId);
-      return deciderFunc.call();
+      return new Entry(runId, deciderFunc.call(), 1);
     }
 
-    Decider decider = getForProcessing(runId);
-    if (decider != null) {
-      return decider;
+    Entry entry = getForProcessing(runId);
+    if (entry != null) {
+      return entry;
     }
-    return deciderFunc.call();
+    return new Entry(runId, deciderFunc.call(), 1);
   }
 
-  private Decider getForProcessing(String runId) throws Exception {
-    cacheLock.lock();
-    try {
-      Decider decider = cache.get(runId);
-      inProcessing.add(runId);
+  /**
+   * Returns the cache entry of the task's run without creating one. The returned entry is pinned
+   * until it is passed to {@link #markProcessingDone(Entry)}.
+   *
+   * @return pinned entry or null if the run is not cached
+   */
+  Entry getIfCached(PollForDecisionTaskResponse decisionTask) {
+    Entry entry = cache.get(decisionTask.getWorkflowExecution().getRunId());
+    if (entry != null && entry.tryPin()) {
       metricsScope.counter(MetricsType.STICKY_CACHE_HIT).inc(1);
-      return decider;
-    } catch (CacheLoader.InvalidCacheLoadException e) {
-      // We don't have a default loader and don't want to have one. So it's ok to get null value.
-      metricsScope.counter(MetricsType.STICKY_CACHE_MISS).inc(1);
-      return null;
-    } finally {
-      cacheLock.unlock();
+      return entry;
     }
+    return null;
   }
 
-  void markProcessingDone(PollForDecisionTaskResponse decisionTask) {
-    String runId = decisionTask.getWorkflowExecution().getRunId();
+  private Entry getForProcessing(String runId) {
+    Entry entry = cache.get(runId);
+    if (entry != null && entry.tryPin()) {
+      metricsScope.counter(MetricsType.STICKY_CACHE_HIT).inc(1);
+      return entry;
+    }
+    metricsScope.counter(MetricsType.STICKY_CACHE_MISS).inc(1);
+    return null;
+  }
 
-    cacheLock.lock();
+  /**
+   * Releases the pin of an entry returned by {@link #getOrCreate} or {@link #getIfCached}. The
+   * decider of a retired entry is closed when its last pin is released, the decider of a new entry
+   * that was never added to the cache is closed as well.
+   */
+  void markProcessingDone(Entry entry) {
+    int state = entry.unpin();
+    if (state == RETIRED) {
+      if (entry.ownsDecider) {
+        entry.decider.close();
+      }
+      return;
+    }
+    if (state != 0) {
+      return;
+    }
+    long bytes = entry.decider.getEstimatedMemoryBytes();
+    List<Decider> toClose = new ArrayList<>();
+    lruLock.lock();
     try {
-      inProcessing.remove(runId);
+      if (entry.isRetired()) {
+        // Retired after the pin was released, closed by the call that retired it.
+        return;
+      }
+      if (cache.get(entry.runId) != entry) {
+        // Created by getOrCreate but never added to the cache.
+        if (retire(entry)) {
+          toClose.add(entry.decider);
+        }
+        return;
+      }
+      estimatedBytes += bytes - entry.estimatedBytes;
+      entry.estimatedBytes = bytes;
+      moveToTail(entry);
+      if (!evictOverBudget(entry.runId, toClose) && entry.state.compareAndSet(0, RETIRED)) {
+        // Pinned again concurrently otherwise, then it is checked when that task is done.
+        unlink(entry);
+        release(entry);
+        cache.remove(entry.runId, entry);
+        toClose.add(entry.decider);
+        metricsScope.counter(MetricsType.STICKY_CACHE_FULL).inc(1);
+      }
     } finally {
-      cacheLock.unlock();
+      lruLock.unlock();
     }
+    closeAll(toClose);
+    updateSizeGauges();
   }
 
+  /** Adds a decider that is not being processed by any task. */
   public void addToCache(PollForDecisionTaskResponse decisionTask, Decider decider) {
-    String runId = decisionTask.getWorkflowExecution().getRunId();
-    cache.put(runId, decider);
+    addToCache(new Entry(decisionTask.getWorkflowExecution().getRunId(), decider, 0));
   }
 
-  public boolean evictAnyNotInProcessing(String runId) {
-    cacheLock.lock();
+  /**
+   * Adds an entry created by {@link #getOrCreate}, replacing the cached entry of its run. The entry
+   * stays pinned until the task that created it calls {@link #markProcessingDone(Entry)}.
+   */
+  void addToCache(Entry entry) {
+    String runId = entry.runId;
+    Decider decider = entry.decider;
+    long bytes = decider.getEstimatedMemoryBytes();
+    Entry replaced = cache.put(runId, entry);
+    List<Decider> toClose = new ArrayList<>();
+    lruLock.lock();
     try {
-      metricsScope.gauge(MetricsType.STICKY_CACHE_SIZE).update(size());
-      for (String key : cache.asMap().keySet()) {
-        if (!key.equals(runId) && !inProcessing.contains(key)) {
-          cache.invalidate(key);
-          metricsScope.gauge(MetricsType.STICKY_CACHE_SIZE).update(size());
-          metricsScope.counter(MetricsType.STICKY_CACHE_THREAD_FORCED_EVICTION).inc(1);
-          return true;
+      if (replaced != null && replaced != entry) {
+        if (replaced.decider == decider) {
+          replaced.ownsDecider = false;
+        }
+        if (retire(replaced)) {
+          toClose.add(replaced.decider);
         }
       }
+      estimatedBytes += bytes - entry.estimatedBytes;
+      entry.estimatedBytes = bytes;
+      moveToTail(entry);
+      if (!evictOverBudget(runId, toClose)) {
+        // Don't let the cache grow without a bound when every other entry is in processing.
+        cache.remove(runId, entry);
+        if (retire(entry)) {
+          toClose.add(decider);
+        }
+        metricsScope.counter(MetricsType.STICKY_CACHE_FULL).inc(1);
+      }
+    } finally {
+      lruLock.unlock();
+    }
+    closeAll(toClose);
+    updateSizeGauges();
+  }
 
-      return false;
+  /**
+   * Must be called under lruLock.
+   *
+   * @return false if the cache is still over its bounds because every entry other than the one of
+   *     {@code excludedRunId} is in processing.
+   */
+  private boolean evictOverBudget(String excludedRunId, List<Decider> toClose) {
+    while (cache.size() > maxCacheSize || (maxCacheBytes > 0 && estimatedBytes > maxCacheBytes)) {
+      Entry evicted = evictOne(excludedRunId);
+      if (evicted == null) {
+        return false;
+      }
+      toClose.add(evicted.decider);
+    }
+    return true;
+  }
+
+  private void updateSizeGauges() {
+    metricsScope.gauge(MetricsType.STICKY_CACHE_SIZE).update(size());
+    metricsScope.gauge(MetricsType.STICKY_CACHE_ESTIMATED_BYTES).update(getEstimatedMemoryBytes());
+  }
+
+  public boolean evictAnyNotInProcessing(String runId) {
+    metricsScope.gauge(MetricsType.STICKY_CACHE_SIZE).update(size());
+    Entry evicted;
+    lruLock.lock();
+    try {
+      evicted = evictOne(runId);
     } finally {
-      cacheLock.unlock();
+      lruLock.unlock();
     }
+    if (evicted == null) {
+      return false;
+    }
+    evicted.decider.close();
+    metricsScope.gauge(MetricsType.STICKY_CACHE_SIZE).update(size());
+    metricsScope.counter(MetricsType.STICKY_CACHE_THREAD_FORCED_EVICTION).inc(1);
+    return true;
   }
 
+  /** Removes the cached entry of the run. Its decider is closed once no task is processing it. */
   void invalidate(String runId) {
-    cacheLock.lock();
+    Entry entry = cache.remove(runId);
+    if (entry != null) {
+      retireAndClose(entry);
+    }
+    metricsScope.counter(MetricsType.STICKY_CACHE_TOTAL_FORCED_EVICTION).inc(1);
+  }
+
+  /**
+   * Removes the entry if it is still the cached one of its run and retires it even if it was never
+   * added. Its decider is closed once no task is processing it.
+   */
+  void invalidate(Entry entry) {
+    cache.remove(entry.runId, entry);
+    retireAndClose(entry);
+    metricsScope.counter(MetricsType.STICKY_CACHE_TOTAL_FORCED_EVICTION).inc(1);
+  }
+
+  private void retireAndClose(Entry entry) {
+    boolean close;
+    lruLock.lock();
     try {
-      cache.invalidate(runId);
-      inProcessing.remove(runId);
-      metricsScope.counter(MetricsType.STICKY_CACHE_TOTAL_FORCED_EVICTION).inc(1);
+      close = retire(entry);
     } finally {
-      cacheLock.unlock();
+      lruLock.unlock();
+    }
+    if (close) {
+      entry.decider.close();
     }
   }
 
@@ -138,6 +405,16 @@ public final class DeciderCache {
     return cache.size();
   }
 
+  /** @return sum of the memory estimates of the cached deciders */
+  public long getEstimatedMemoryBytes() {
+    lruLock.lock();
+    try {
+      return estimatedBytes;
+    } finally {
+      lruLock.unlock();
+    }
+  }
+
   private boolean isFullHistory(PollForDecisionTaskResponse decisionTask) {
     return decisionTask.getHistory() != null
         && decisionTask.getHistory().getEvents() != null
@@ -146,6 +423,113 @@ public final class DeciderCache {
   }
 
   public void invalidateAll() {
-    cache.invalidateAll();
+    List<Decider> toClose = new ArrayList<>();
+    lruLock.lock();
+    try {
+      for (Entry entry : cache.values()) {
+        if (cache.remove(entry.runId, entry) && retire(entry)) {
+          toClose.add(entry.decider);
+        }
+      }
+    } finally {
+      lruLock.unlock();
+    }
+    closeAll(toClose);
+  }
+
+  /**
+   * Removes the least recently used entry that is not in processing. Pinned entries found on the
+   * way are unlinked, they are linked back when their processing is done. Must be called under
+   * lruLock.
+   *
+   * @return removed entry that still needs to be closed or null if nothing could be evicted.
+   */
+  private Entry evictOne(String excludedRunId) {
+    int sampleSize = weigher == null ? 1 : WEIGHTED_EVICTION_SAMPLE_SIZE;
+    List<Entry> candidates = new ArrayList<>(sampleSize);
+    // Every iteration unlinks at least the victim, so retries on contention are bounded by the
+    // number of linked entries.
+    while (true) {
+      candidates.clear();
+      Entry current = head.next;
+      while (current != head && candidates.size() < sampleSize) {
+        Entry next = current.next;
+        if (current.state.get() != 0) {
+          unlink(current);
+        } else if (!current.runId.equals(excludedRunId)) {
+          candidates.add(current);
+        }
+        current = next;
+      }
+      Entry victim = null;
+      long victimWeight = Long.MIN_VALUE;
+      for (Entry candidate : candidates) {
+        long weight = weigher == null ? 0 : weigher.applyAsLong(candidate.decider);
+        if (weight > victimWeight) {
+          victim = candidate;
+          victimWeight = weight;
+        }
+      }
+      if (victim == null) {
+        return null;
+      }
+      unlink(victim);
+      if (victim.state.compareAndSet(0, RETIRED)) {
+        release(victim);
+        cache.remove(victim.runId, victim);
+        return victim;
+      }
+      // Pinned concurrently by a lookup, linked back when its processing is done.
+    }
+  }
+
+  /**
+   * Must be called under lruLock.
+   *
+   * @return true if the caller has to close the decider of the entry, see {@link
+   *     Entry#markRetired()}.
+   */
+  private boolean retire(Entry entry) {
+    boolean close = entry.markRetired();
+    unlink(entry);
+    release(entry);
+    return close;
+  }
+
+  /** Must be called under lruLock. */
+  private void release(Entry entry) {
+    estimatedBytes -= entry.estimatedBytes;
+    entry.estimatedBytes = 0;
+  }
+
+  /** Must be called under lruLock. */
+  private void moveToTail(Entry entry) {
+    if (entry.state.get() != 0) {
+      return;
+    }
+    unlink(entry);
+    entry.prev = head.prev;
+    entry.next = head;
+    head.prev.next = entry;
+    head.prev = entry;
+    entry.linked = true;
+  }
+
+  /** Must be called under lruLock. */
+  private void unlink(Entry entry) {
+    if (!entry.linked) {
+      return;
+    }
+    entry.prev.next = entry.next;
+    entry.next.prev = entry.prev;
+    entry.prev = null;
+    entry.next = null;
+    entry.linked = false;
+  }
+
+  private static void closeAll(List<Decider> deciders) {
+    for (Decider decider : deciders) {
+      decider.close();
+    }
   }
 }
@@ -419,6 +419,10 @@ final class DecisionContextImpl implements DecisionContext, HistoryEventHandler
     return workflowClock.numPendingLaTasks();
   }
 
+  long getEstimatedMemoryBytes() {
+    return workflowClock.getEstimatedMemoryBytes();
+  }
+
   void awaitTaskCompletion(Duration duration) throws InterruptedException {
     workflowClock.awaitTaskCompletion(duration);
   }
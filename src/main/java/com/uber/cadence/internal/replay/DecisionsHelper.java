@@ -88,11 +88,19 @@ class DecisionsHelper {
 
   static final String FORCE_IMMEDIATE_DECISION_TIMER = "FORCE_IMMEDIATE_DECISION";
 
+  // Shallow sizes added up as described in Decider#getEstimatedMemoryBytes. A state machine (40)
+  // with its state history list (100), the Decision and its attributes (120), the ids and type
+  // names they reference (200) and the map entry with its DecisionId key (50), rounded up.
+  private static final long DECISION_BYTES = 512;
+
   private static final String NON_DETERMINISTIC_MESSAGE =
       "The possible causes are a nondeterministic workflow definition code or an incompatible "
           + "change in the workflow definition.";
 
-  private final PollForDecisionTaskResponse task;
+  // Released once the decider is initialized, see releaseTask().
+  private PollForDecisionTaskResponse task;
+  private final WorkflowType workflowType;
+  private final WorkflowExecutionStartedEventAttributes startedEventAttributes;
   private final SingleWorkerOptions options;
 
   /**
@@ -108,7 +116,7 @@ class DecisionsHelper {
 
   /** Use access-order to ensure that decisions are emitted in order of their creation */
   private final Map<DecisionId, DecisionStateMachine> decisions =
-      new LinkedHashMap<>(100, 0.75f, true);
+      new LinkedHashMap<>(16, 0.75f, true);
 
   // TODO: removal of completed activities
   private final Map<String, Long> activityIdToScheduledEventId = new HashMap<>();
@@ -116,6 +124,19 @@ class DecisionsHelper {
   DecisionsHelper(PollForDecisionTaskResponse task, SingleWorkerOptions options) {
     this.task = task;
     this.options = options;
+    this.workflowType = task == null ? null : task.getWorkflowType();
+    this.startedEventAttributes = getStartedEventAttributes(task);
+  }
+
+  private static WorkflowExecutionStartedEventAttributes getStartedEventAttributes(
+      PollForDecisionTaskResponse task) {
+    if (task == null
+        || task.getHistory() == null
+        || task.getHistory().getEvents() == null
+        || task.getHistory().getEvents().isEmpty()) {
+      return null;
+    }
+    return task.getHistory().getEvents().get(0).getWorkflowExecutionStartedEventAttributes();
   }
 
   long getNextDecisionEventId() {
@@ -472,8 +493,7 @@ class DecisionsHelper {
   void continueAsNewWorkflowExecution(ContinueAsNewWorkflowExecutionParameters continueParameters) {
     addAllMissingVersionMarker(false, Optional.empty());
 
-    WorkflowExecutionStartedEventAttributes startedEvent =
-        task.getHistory().getEvents().get(0).getWorkflowExecutionStartedEventAttributes();
+    WorkflowExecutionStartedEventAttributes startedEvent = startedEventAttributes;
     ContinueAsNewWorkflowExecutionDecisionAttributes attributes =
         new ContinueAsNewWorkflowExecutionDecisionAttributes();
     attributes.setInput(continueParameters.getInput());
@@ -481,7 +501,7 @@ class DecisionsHelper {
     if (workflowType != null && !workflowType.isEmpty()) {
       attributes.setWorkflowType(new WorkflowType().setName(workflowType));
     } else {
-      attributes.setWorkflowType(task.getWorkflowType());
+      attributes.setWorkflowType(this.workflowType);
     }
     int executionStartToClose = continueParameters.getExecutionStartToCloseTimeoutSeconds();
     if (executionStartToClose == 0) {
@@ -659,6 +679,19 @@ class DecisionsHelper {
     return task;
   }
 
+  /**
+   * Drops the reference to the decision task this helper was created with. The task holds the first
+   * history page and pending queries that a cached decider must not keep alive.
+   */
+  void releaseTask() {
+    task = null;
+  }
+
+  /** @return approximate heap bytes held by the decision state machines */
+  long getEstimatedMemoryBytes() {
+    return decisions.size() * DECISION_BYTES;
+  }
+
   // addAllMissingVersionMarker should always be called before addDecision. In non-replay mode,
   // addAllMissingVersionMarker is a no-op. In replay mode, it tries to insert back missing
   // version marker decisions, as we allow user to remove getVersion and not breaking their code.
@@ -767,7 +800,7 @@ class DecisionsHelper {
       Scope metricsScope =
           options
               .getMetricsScope()
-              .tagged(ImmutableMap.of(MetricsTag.WORKFLOW_TYPE, task.getWorkflowType().getName()));
+              .tagged(ImmutableMap.of(MetricsTag.WORKFLOW_TYPE, workflowType.getName()));
       metricsScope.counter(MetricsType.NON_DETERMINISTIC_ERROR).inc(1);
       throw new NonDeterminisicWorkflowError(
           "Unknown " + decisionId + ". " + NON_DETERMINISTIC_MESSAGE);
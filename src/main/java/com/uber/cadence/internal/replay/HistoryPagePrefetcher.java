@@ -0,0 +1,221 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.replay;
+
+import com.uber.cadence.CadenceError;
+import com.uber.cadence.GetWorkflowExecutionHistoryRequest;
+import com.uber.cadence.GetWorkflowExecutionHistoryResponse;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.internal.metrics.HistogramBuckets;
+import com.uber.cadence.internal.metrics.MetricsEmit;
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import com.uber.m3.tally.Scope;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Requests the following pages of a decision task history in the background while the current page
+ * is being replayed. Each page carries the token of the next one, so pages are requested strictly
+ * one after another, but at most {@code maxBufferedPages} responses are kept ahead of the consumer.
+ * The chain pauses when the buffer is full and resumes when the consumer takes a page.
+ *
+ * <p>{@link #next(Duration)} returns null when a page could not be prefetched. The prefetcher is
+ * closed at that point and the caller is expected to load the rest of the history synchronously.
+ */
+final class HistoryPagePrefetcher {
+
+  private static final Logger log = LoggerFactory.getLogger(HistoryPagePrefetcher.class);
+
+  private final IWorkflowService service;
+  private final String domain;
+  private final WorkflowExecution execution;
+  private final int pageSize;
+  private final int maxBufferedPages;
+  private final Supplier<Duration> remainingTime;
+  private final Scope metricsScope;
+
+  // Pages requested but not taken by the consumer yet, in history order.
+  private final Deque<CompletableFuture<GetWorkflowExecutionHistoryResponse>> pages =
+      new ArrayDeque<>();
+  // Token of the next page when the chain is paused because the buffer is full.
+  private byte[] pausedPageToken;
+  private boolean closed;
+
+  HistoryPagePrefetcher(
+      IWorkflowService service,
+      String domain,
+      WorkflowExecution execution,
+      int pageSize,
+      int maxBufferedPages,
+      Supplier<Duration> remainingTime,
+      Scope metricsScope) {
+    if (maxBufferedPages <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + maxBufferedPages);
+    }
+    this.service = Objects.requireNonNull(service);
+    this.domain = domain;
+    this.execution = Objects.requireNonNull(execution);
+    this.pageSize = pageSize;
+    this.maxBufferedPages = maxBufferedPages;
+    this.remainingTime = Objects.requireNonNull(remainingTime);
+    this.metricsScope = Objects.requireNonNull(metricsScope);
+  }
+
+  /** Starts prefetching from the page identified by {@code nextPageToken}. */
+  synchronized void start(byte[] nextPageToken) {
+    if (nextPageToken != null && pages.isEmpty() && pausedPageToken == null) {
+      requestPage(nextPageToken);
+    }
+  }
+
+  /**
+   * Returns the next history page, waiting for at most {@code timeout} if it hasn't arrived yet.
+   *
+   * @return the page or null if it couldn't be prefetched, in which case this prefetcher is closed
+   */
+  GetWorkflowExecutionHistoryResponse next(Duration timeout) {
+    CompletableFuture<GetWorkflowExecutionHistoryResponse> page = take();
+    if (page == null) {
+      return null;
+    }
+    if (page.isDone()) {
+      metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_PREFETCH_HIT_COUNTER).inc(1);
+      return await(page, timeout);
+    }
+    metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_PREFETCH_STALL_COUNTER).inc(1);
+    MetricsEmit.DualStopwatch sw =
+        MetricsEmit.startLatency(
+            metricsScope,
+            MetricsType.WORKFLOW_GET_HISTORY_PREFETCH_STALL_LATENCY,
+            HistogramBuckets.DEFAULT_1MS_100S);
+    try {
+      return await(page, timeout);
+    } finally {
+      sw.stop();
+    }
+  }
+
+  /** Stops requesting new pages. Requests already in flight are left to complete. */
+  synchronized void close() {
+    closed = true;
+    pausedPageToken = null;
+    pages.clear();
+  }
+
+  private synchronized CompletableFuture<GetWorkflowExecutionHistoryResponse> take() {
+    if (closed) {
+      return null;
+    }
+    CompletableFuture<GetWorkflowExecutionHistoryResponse> page = pages.poll();
+    if (pausedPageToken != null && pages.size() < maxBufferedPages) {
+      byte[] token = pausedPageToken;
+      pausedPageToken = null;
+      requestPage(token);
+    }
+    return page;
+  }
+
+  private GetWorkflowExecutionHistoryResponse await(
+      CompletableFuture<GetWorkflowExecutionHistoryResponse> page, Duration timeout) {
+    try {
+      return page.get(Math.max(timeout.toMillis(), 1), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      return null;
+    } catch (ExecutionException | TimeoutException e) {
+      log.warn(
+          "Failed to prefetch history page, falling back to synchronous pagination, workflowID:{}, runID:{}, domain:{}",
+          execution.getWorkflowId(),
+          execution.getRunId(),
+          domain,
+          e);
+      close();
+      return null;
+    }
+  }
+
+  private synchronized void onPageReceived(GetWorkflowExecutionHistoryResponse response) {
+    byte[] token = response.getNextPageToken();
+    if (closed || token == null) {
+      return;
+    }
+    if (pages.size() < maxBufferedPages) {
+      requestPage(token);
+    } else {
+      pausedPageToken = token;
+    }
+  }
+
+  // Called with the monitor held.
+  private void requestPage(byte[] nextPageToken) {
+    CompletableFuture<GetWorkflowExecutionHistoryResponse> result = new CompletableFuture<>();
+    pages.add(result);
+
+    GetWorkflowExecutionHistoryRequest request = new GetWorkflowExecutionHistoryRequest();
+    request
+        .setDomain(domain)
+        .setExecution(execution)
+        .setMaximumPageSize(pageSize)
+        .setNextPageToken(nextPageToken);
+
+    metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_COUNTER).inc(1);
+    MetricsEmit.DualStopwatch sw =
+        MetricsEmit.startLatency(
+            metricsScope,
+            MetricsType.WORKFLOW_GET_HISTORY_LATENCY,
+            HistogramBuckets.DEFAULT_1MS_100S);
+    long timeoutMillis = Math.max(remainingTime.get().toMillis(), 1);
+    try {
+      service.GetWorkflowExecutionHistoryWithTimeout(
+          request,
+          new AsyncMethodCallback<GetWorkflowExecutionHistoryResponse>() {
+            @Override
+            public void onComplete(GetWorkflowExecutionHistoryResponse response) {
+              sw.stop();
+              metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_SUCCEED_COUNTER).inc(1);
+              onPageReceived(response);
+              result.complete(response);
+            }
+
+            @Override
+            public void onError(Exception exception) {
+              sw.stop();
+              metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_FAILED_COUNTER).inc(1);
+              result.completeExceptionally(exception);
+            }
+          },
+          timeoutMillis);
+    } catch (CadenceError e) {
+      sw.stop();
+      metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_FAILED_COUNTER).inc(1);
+      result.completeExceptionally(e);
+    }
+  }
+}
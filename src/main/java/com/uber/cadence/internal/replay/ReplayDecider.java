@@ -46,10 +46,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -66,6 +68,14 @@ class ReplayDecider implements Decider {
 
   private static final int MAXIMUM_PAGE_SIZE = 10000;
 
+  // Shallow sizes added up as described in Decider#getEstimatedMemoryBytes. The decider together
+  // with its DecisionsHelper, DecisionContextImpl, ClockDecisionContext and WorkflowContext, their
+  // initially empty collections, lock and conditions is about 40 objects of 100 bytes on average.
+  private static final long DECIDER_BYTES = 4096;
+  // A workflow thread with its context, runnable, cancellation scope and the runner bookkeeping.
+  // The stack of a platform thread is native memory and isn't included.
+  private static final long WORKFLOW_THREAD_BYTES = 4096;
+
   private final DecisionsHelper decisionsHelper;
   private final DecisionContextImpl context;
   private final IWorkflowService service;
@@ -78,8 +88,15 @@ class ReplayDecider implements Decider {
   private final Scope metricsScope;
   private final long wfStartTimeNanos;
   private final WorkflowExecutionStartedEventAttributes startedEvent;
-  private final Lock lock = new ReentrantLock();
+  // Decisions take the write lock, queries answered from the cache share the read lock. Fair, so
+  // that a steady stream of queries doesn't starve decisions.
+  private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock(true);
+  private final Lock lock = stateLock.writeLock();
+  // Query answered from the cache that identical queries can wait for instead of executing it.
+  private final AtomicReference<RunningQuery> runningQuery = new AtomicReference<>();
   private final Consumer<HistoryEvent> localActivityCompletionSink;
+  private volatile long lastProcessedEventId;
+  private final int historyPrefetchPageCount;
 
   ReplayDecider(
       IWorkflowService service,
@@ -92,6 +109,7 @@ class ReplayDecider implements Decider {
     this.service = service;
     this.workflow = workflow;
     this.decisionsHelper = decisionsHelper;
+    this.historyPrefetchPageCount = options.getHistoryPrefetchPageCount();
     this.metricsScope =
         options
             .getMetricsScope()
@@ -118,6 +136,7 @@ class ReplayDecider implements Decider {
             lock.unlock();
           }
         };
+    decisionsHelper.releaseTask();
   }
 
   Lock getLock() {
@@ -376,6 +395,7 @@ class ReplayDecider implements Decider {
       boolean forceCreateNewDecisionTask =
           decideImpl(
               decisionTask, () -> queryResults.set(getQueryResults(decisionTask.getQueries())));
+      lastProcessedEventId = decisionTask.getStartedEventId();
       return new DecisionResult(
           decisionsHelper.getDecisions(), queryResults.get(), forceCreateNewDecisionTask);
     } finally {
@@ -411,9 +431,10 @@ class ReplayDecider implements Decider {
   private boolean decideImpl(PollForDecisionTaskResponse decisionTask, Functions.Proc query)
       throws Throwable {
     boolean forceCreateNewDecisionTask = false;
+    DecisionTaskWithHistoryIteratorImpl decisionTaskWithHistoryIterator = null;
     try {
       long startTime = System.currentTimeMillis();
-      DecisionTaskWithHistoryIterator decisionTaskWithHistoryIterator =
+      decisionTaskWithHistoryIterator =
           new DecisionTaskWithHistoryIteratorImpl(
               decisionTask, Duration.ofSeconds(startedEvent.getTaskStartToCloseTimeoutSeconds()));
       HistoryHelper historyHelper =
@@ -490,6 +511,9 @@ class ReplayDecider implements Decider {
         throw e;
       }
     } finally {
+      if (decisionTaskWithHistoryIterator != null) {
+        decisionTaskWithHistoryIterator.close();
+      }
       if (query != null) {
         query.apply();
       }
@@ -593,6 +617,26 @@ class ReplayDecider implements Decider {
     }
   }
 
+  @Override
+  public int getWorkflowThreadCount() {
+    return workflow.getThreadCount();
+  }
+
+  @Override
+  public long getHistorySize() {
+    return lastProcessedEventId;
+  }
+
+  @Override
+  public long getEstimatedMemoryBytes() {
+    byte[] input = startedEvent.getInput();
+    return DECIDER_BYTES
+        + (input == null ? 0 : input.length)
+        + workflow.getThreadCount() * WORKFLOW_THREAD_BYTES
+        + decisionsHelper.getEstimatedMemoryBytes()
+        + context.getEstimatedMemoryBytes();
+  }
+
   @Override
   public byte[] query(PollForDecisionTaskResponse response, WorkflowQuery query) throws Throwable {
     lock.lock();
@@ -605,6 +649,92 @@ class ReplayDecider implements Decider {
     }
   }
 
+  /**
+   * Answers the query from the current state of the workflow without applying any history events.
+   * Runs in parallel with other queries of this workflow and waits only for a decision that is in
+   * progress.
+   *
+   * @param coalesce when true and an identical query is executing at the same history event, its
+   *     result is returned instead of executing the query again
+   */
+  byte[] queryCached(WorkflowQuery query, boolean coalesce) throws Throwable {
+    RunningQuery running = null;
+    if (coalesce) {
+      RunningQuery current = runningQuery.get();
+      if (current != null && current.matches(query, lastProcessedEventId)) {
+        metricsScope.counter(MetricsType.DECISION_QUERY_COALESCED_COUNTER).inc(1);
+        return current.await();
+      }
+      running = new RunningQuery(query, lastProcessedEventId);
+      if (!runningQuery.compareAndSet(current, running)) {
+        running = null;
+      }
+    }
+    try {
+      byte[] result = queryLocked(query);
+      if (running != null) {
+        running.result.complete(result);
+      }
+      return result;
+    } catch (Throwable e) {
+      if (running != null) {
+        running.result.completeExceptionally(e);
+      }
+      throw e;
+    } finally {
+      if (running != null) {
+        runningQuery.compareAndSet(running, null);
+      }
+    }
+  }
+
+  private byte[] queryLocked(WorkflowQuery query) throws InterruptedException {
+    Lock readLock = stateLock.readLock();
+    // Unlike tryLock(), a zero timeout respects the fairness of the lock.
+    if (!readLock.tryLock(0, TimeUnit.NANOSECONDS)) {
+      MetricsEmit.DualStopwatch sw =
+          MetricsEmit.startLatency(
+              metricsScope,
+              MetricsType.DECISION_QUERY_WAIT_LATENCY,
+              HistogramBuckets.DEFAULT_1MS_100S);
+      readLock.lockInterruptibly();
+      sw.stop();
+    }
+    try {
+      metricsScope.counter(MetricsType.DECISION_QUERY_CACHED_COUNTER).inc(1);
+      return workflow.query(query);
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  private static final class RunningQuery {
+    private final String queryType;
+    private final byte[] queryArgs;
+    private final long eventId;
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+    private RunningQuery(WorkflowQuery query, long eventId) {
+      this.queryType = query.getQueryType();
+      this.queryArgs = query.getQueryArgs();
+      this.eventId = eventId;
+    }
+
+    private boolean matches(WorkflowQuery query, long eventId) {
+      return this.eventId == eventId
+          && Objects.equals(queryType, query.getQueryType())
+          && Arrays.equals(queryArgs, query.getQueryArgs());
+    }
+
+    private byte[] await() throws Throwable {
+      try {
+        return result.get();
+      } catch (ExecutionException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
   public Consumer<HistoryEvent> getLocalActivityCompletionSink() {
     return localActivityCompletionSink;
   }
@@ -624,6 +754,7 @@ class ReplayDecider implements Decider {
     private final PollForDecisionTaskResponse task;
     private Iterator<HistoryEvent> current;
     private byte[] nextPageToken;
+    private HistoryPagePrefetcher prefetcher;
 
     @VisibleForTesting
     DecisionTaskWithHistoryIteratorImpl(
@@ -635,6 +766,19 @@ class ReplayDecider implements Decider {
       History history = task.getHistory();
       current = history.getEvents().iterator();
       nextPageToken = task.getNextPageToken();
+
+      if (historyPrefetchPageCount > 0 && nextPageToken != null) {
+        prefetcher =
+            new HistoryPagePrefetcher(
+                service,
+                context.getDomain(),
+                task.getWorkflowExecution(),
+                MAXIMUM_PAGE_SIZE,
+                historyPrefetchPageCount,
+                this::decisionTaskRemainingTime,
+                metricsScope);
+        prefetcher.start(nextPageToken);
+      }
     }
 
     @Override
@@ -661,52 +805,26 @@ class ReplayDecider implements Decider {
             return current.next();
           }
 
-          Duration decisionTaskRemainingTime = decisionTaskRemainingTime();
-          if (decisionTaskRemainingTime.isNegative() || decisionTaskRemainingTime.isZero()) {
-            throw new Error(
-                "Decision task timed out while querying history. If this happens consistently please consider "
-                    + "increase decision task timeout or reduce history size.");
+          GetWorkflowExecutionHistoryResponse r = null;
+          if (prefetcher != null) {
+            r = prefetcher.next(checkDecisionTaskRemainingTime());
+            if (r == null) {
+              prefetcher = null;
+            }
           }
-
-          metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_COUNTER).inc(1);
-          MetricsEmit.DualStopwatch sw =
-              MetricsEmit.startLatency(
-                  metricsScope,
-                  MetricsType.WORKFLOW_GET_HISTORY_LATENCY,
-                  HistogramBuckets.DEFAULT_1MS_100S);
-          RetryOptions retryOptions =
-              new RetryOptions.Builder()
-                  .setExpiration(decisionTaskRemainingTime)
-                  .setInitialInterval(retryServiceOperationInitialInterval)
-                  .setMaximumInterval(retryServiceOperationMaxInterval)
-                  .validateBuildWithDefaults();
-
-          GetWorkflowExecutionHistoryRequest request = new GetWorkflowExecutionHistoryRequest();
-          request
-              .setDomain(context.getDomain())
-              .setExecution(task.getWorkflowExecution())
-              .setMaximumPageSize(MAXIMUM_PAGE_SIZE)
-              .setNextPageToken(nextPageToken);
-
-          try {
-            GetWorkflowExecutionHistoryResponse r =
-                RpcRetryer.retryWithResult(
-                    retryOptions, () -> service.GetWorkflowExecutionHistory(request));
-            current = r.getHistory().getEvents().iterator();
-            nextPageToken = r.getNextPageToken();
-            metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_SUCCEED_COUNTER).inc(1);
-            sw.stop();
-          } catch (CadenceError e) {
-            metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_FAILED_COUNTER).inc(1);
-            throw new Error(e);
+          if (r == null) {
+            r = getHistoryPage(checkDecisionTaskRemainingTime());
           }
+          byte[] pageToken = nextPageToken;
+          current = r.getHistory().getEvents().iterator();
+          nextPageToken = r.getNextPageToken();
           if (!current.hasNext()) {
             log.error(
                 "GetWorkflowExecutionHistory returns an empty history, maybe a bug in server, workflowID:{}, runID:{}, domain:{} token:{}",
-                request.getExecution().getWorkflowId(),
-                request.getExecution().getRunId(),
-                request.getDomain(),
-                Arrays.toString(request.getNextPageToken()));
+                task.getWorkflowExecution().getWorkflowId(),
+                task.getWorkflowExecution().getRunId(),
+                context.getDomain(),
+                Arrays.toString(pageToken));
             throw new Error(
                 "GetWorkflowExecutionHistory return empty history, maybe a bug in server");
           }
@@ -714,5 +832,57 @@ class ReplayDecider implements Decider {
         }
       };
     }
+
+    /** Stops prefetching the history pages that the decision task didn't consume. */
+    void close() {
+      if (prefetcher != null) {
+        prefetcher.close();
+        prefetcher = null;
+      }
+    }
+
+    private Duration checkDecisionTaskRemainingTime() {
+      Duration decisionTaskRemainingTime = decisionTaskRemainingTime();
+      if (decisionTaskRemainingTime.isNegative() || decisionTaskRemainingTime.isZero()) {
+        throw new Error(
+            "Decision task timed out while querying history. If this happens consistently please consider "
+                + "increase decision task timeout or reduce history size.");
+      }
+      return decisionTaskRemainingTime;
+    }
+
+    private GetWorkflowExecutionHistoryResponse getHistoryPage(Duration decisionTaskRemainingTime) {
+      metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_COUNTER).inc(1);
+      MetricsEmit.DualStopwatch sw =
+          MetricsEmit.startLatency(
+              metricsScope,
+              MetricsType.WORKFLOW_GET_HISTORY_LATENCY,
+              HistogramBuckets.DEFAULT_1MS_100S);
+      RetryOptions retryOptions =
+          new RetryOptions.Builder()
+              .setExpiration(decisionTaskRemainingTime)
+              .setInitialInterval(retryServiceOperationInitialInterval)
+              .setMaximumInterval(retryServiceOperationMaxInterval)
+              .validateBuildWithDefaults();
+
+      GetWorkflowExecutionHistoryRequest request = new GetWorkflowExecutionHistoryRequest();
+      request
+          .setDomain(context.getDomain())
+          .setExecution(task.getWorkflowExecution())
+          .setMaximumPageSize(MAXIMUM_PAGE_SIZE)
+          .setNextPageToken(nextPageToken);
+
+      try {
+        GetWorkflowExecutionHistoryResponse r =
+            RpcRetryer.retryWithResult(
+                retryOptions, () -> service.GetWorkflowExecutionHistory(request));
+        metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_SUCCEED_COUNTER).inc(1);
+        sw.stop();
+        return r;
+      } catch (CadenceError e) {
+        metricsScope.counter(MetricsType.WORKFLOW_GET_HISTORY_FAILED_COUNTER).inc(1);
+        throw new Error(e);
+      }
+    }
   }
 }
@@ -128,24 +128,26 @@ public final class ReplayDecisionTaskHandler implements DecisionTaskHandler {
 
   private Result processDecision(PollForDecisionTaskResponse decisionTask) throws Throwable {
     Decider decider = null;
+    DeciderCache.Entry cacheEntry = null;
     AtomicBoolean createdNew = new AtomicBoolean();
     try {
       if (stickyTaskListName == null) {
         decider = createDecider(decisionTask);
       } else {
-        decider =
+        cacheEntry =
             cache.getOrCreate(
                 decisionTask,
                 () -> {
                   createdNew.set(true);
                   return createDecider(decisionTask);
                 });
+        decider = cacheEntry.getDecider();
       }
 
       Decider.DecisionResult result = decider.decide(decisionTask);
 
       if (stickyTaskListName != null && createdNew.get()) {
-        cache.addToCache(decisionTask, decider);
+        cache.addToCache(cacheEntry);
       }
 
       if (log.isTraceEnabled()) {
@@ -178,22 +180,19 @@ public final class ReplayDecisionTaskHandler implements DecisionTaskHandler {
       }
       return createCompletedRequest(decisionTask, result);
     } catch (Throwable e) {
-      // Note here that the decider might not be in the cache, even sticky is on. In that case we
-      // need to close the decider explicitly.
-      // For items in the cache, invalidation callback will try to close again, which should be ok.
-      if (decider != null) {
+      // A cached decider can be used by a concurrent query, so the cache closes it once no task is
+      // processing it. The cache also closes a new decider that was never added to it.
+      if (cacheEntry != null) {
+        cache.invalidate(cacheEntry);
+      } else if (decider != null) {
         decider.close();
       }
-
-      if (stickyTaskListName != null) {
-        cache.invalidate(decisionTask.getWorkflowExecution().getRunId());
-      }
       throw e;
     } finally {
       if (stickyTaskListName == null && decider != null) {
         decider.close();
-      } else {
-        cache.markProcessingDone(decisionTask);
+      } else if (cacheEntry != null) {
+        cache.markProcessingDone(cacheEntry);
       }
     }
   }
@@ -202,43 +201,88 @@ public final class ReplayDecisionTaskHandler implements DecisionTaskHandler {
     RespondQueryTaskCompletedRequest queryCompletedRequest = new RespondQueryTaskCompletedRequest();
     queryCompletedRequest.setTaskToken(decisionTask.getTaskToken());
     Decider decider = null;
+    DeciderCache.Entry cacheEntry = null;
     AtomicBoolean createdNew = new AtomicBoolean();
     try {
       if (stickyTaskListName == null) {
         decider = createDecider(decisionTask);
       } else {
-        decider =
+        cacheEntry =
             cache.getOrCreate(
                 decisionTask,
                 () -> {
                   createdNew.set(true);
                   return createDecider(decisionTask);
                 });
+        decider = cacheEntry.getDecider();
       }
 
       byte[] queryResult = decider.query(decisionTask, decisionTask.getQuery());
       if (stickyTaskListName != null && createdNew.get()) {
-        cache.addToCache(decisionTask, decider);
+        cache.addToCache(cacheEntry);
       }
       queryCompletedRequest.setQueryResult(queryResult);
       queryCompletedRequest.setCompletedType(QueryTaskCompletedType.COMPLETED);
     } catch (Throwable e) {
-      // TODO: Appropriate exception serialization.
-      StringWriter sw = new StringWriter();
-      PrintWriter pw = new PrintWriter(sw);
-      e.printStackTrace(pw);
-      queryCompletedRequest.setErrorMessage(sw.toString());
-      queryCompletedRequest.setCompletedType(QueryTaskCompletedType.FAILED);
+      setQueryFailure(queryCompletedRequest, e);
     } finally {
       if (stickyTaskListName == null && decider != null) {
         decider.close();
-      } else {
-        cache.markProcessingDone(decisionTask);
+      } else if (cacheEntry != null) {
+        cache.markProcessingDone(cacheEntry);
       }
     }
     return new Result(null, null, queryCompletedRequest);
   }
 
+  /**
+   * Answers queries of cached workflows when concurrent queries are enabled. Sticky query tasks
+   * come without history when there is nothing new since the last decision, tasks with history go
+   * through {@link #handleDecisionTask} to apply it.
+   */
+  @Override
+  public Result handleCachedQuery(PollForDecisionTaskResponse queryTask) {
+    if (stickyTaskListName == null
+        || !options.isEnableConcurrentQueries()
+        || queryTask.getQuery() == null
+        || (queryTask.getHistory() != null
+            && queryTask.getHistory().getEvents() != null
+            && !queryTask.getHistory().getEvents().isEmpty())) {
+      return null;
+    }
+    DeciderCache.Entry cacheEntry = cache.getIfCached(queryTask);
+    if (cacheEntry == null) {
+      return null;
+    }
+    Decider decider = cacheEntry.getDecider();
+    RespondQueryTaskCompletedRequest queryCompletedRequest = new RespondQueryTaskCompletedRequest();
+    queryCompletedRequest.setTaskToken(queryTask.getTaskToken());
+    try {
+      if (!(decider instanceof ReplayDecider)) {
+        return null;
+      }
+      byte[] queryResult =
+          ((ReplayDecider) decider)
+              .queryCached(queryTask.getQuery(), options.isEnableQueryCoalescing());
+      queryCompletedRequest.setQueryResult(queryResult);
+      queryCompletedRequest.setCompletedType(QueryTaskCompletedType.COMPLETED);
+    } catch (Throwable e) {
+      setQueryFailure(queryCompletedRequest, e);
+    } finally {
+      cache.markProcessingDone(cacheEntry);
+    }
+    return new Result(null, null, queryCompletedRequest);
+  }
+
+  private static void setQueryFailure(RespondQueryTaskCompletedRequest request, Throwable e) {
+    // TODO: Appropriate exception serialization.
+    StringWriter sw = new StringWriter();
+    PrintWriter pw = new PrintWriter(sw);
+    e.printStackTrace(pw);
+    request.setErrorMessage(sw.toString());
+    request.setCompletedType(QueryTaskCompletedType.FAILED);
+  }
+
   private Result createCompletedRequest(
       PollForDecisionTaskResponse decisionTask, Decider.DecisionResult result) {
     RespondDecisionTaskCompletedRequest completedRequest =
@@ -65,4 +65,9 @@ public interface ReplayWorkflow {
   WorkflowExecutionException mapError(Error failure);
 
   WorkflowImplementationOptions getWorkflowImplementationOptions();
+
+  /** @return approximate number of live threads used by the workflow. Must not block. */
+  default int getThreadCount() {
+    return 0;
+  }
 }
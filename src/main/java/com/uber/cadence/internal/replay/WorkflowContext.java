@@ -25,7 +25,10 @@ import java.util.Map;
 
 final class WorkflowContext {
 
-  private final PollForDecisionTaskResponse decisionTask;
+  // Only the ids are kept. The decision task holds the first history page, which cached workflows
+  // shouldn't retain.
+  private final WorkflowExecution workflowExecution;
+  private final WorkflowType workflowType;
   private boolean cancelRequested;
   private ContinueAsNewWorkflowExecutionParameters continueAsNewOnCompletion;
   private WorkflowExecutionStartedEventAttributes startedAttributes;
@@ -42,7 +45,8 @@ final class WorkflowContext {
       WorkflowExecutionStartedEventAttributes startedAttributes,
       List<ContextPropagator> contextPropagators) {
     this.domain = domain;
-    this.decisionTask = decisionTask;
+    this.workflowExecution = decisionTask == null ? null : decisionTask.getWorkflowExecution();
+    this.workflowType = decisionTask == null ? null : decisionTask.getWorkflowType();
     this.startedAttributes = startedAttributes;
     this.currentRunId = startedAttributes.getOriginalExecutionRunId();
     this.searchAttributes = startedAttributes.getSearchAttributes();
@@ -50,11 +54,11 @@ final class WorkflowContext {
   }
 
   WorkflowExecution getWorkflowExecution() {
-    return decisionTask.getWorkflowExecution();
+    return workflowExecution;
   }
 
   WorkflowType getWorkflowType() {
-    return decisionTask.getWorkflowType();
+    return workflowType;
   }
 
   boolean isCancelRequested() {
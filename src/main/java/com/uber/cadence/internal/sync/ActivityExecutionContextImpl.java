@@ -68,6 +68,8 @@ class ActivityExecutionContextImpl implements com.uber.cadence.activity.Activity
   private final ManualActivityCompletionClientFactory manualCompletionClientFactory;
   private Functions.Proc completionHandle;
   private boolean useLocalManualCompletion;
+  // Null when heartbeats are sent synchronously.
+  private final AsyncActivityHeartbeater asyncHeartbeater;
 
   /** Create an ActivityExecutionContextImpl with the given attributes. */
   ActivityExecutionContextImpl(
@@ -78,6 +80,26 @@ class ActivityExecutionContextImpl implements com.uber.cadence.activity.Activity
       ScheduledExecutorService heartbeatExecutor,
       Functions.Proc completionHandle,
       Scope metricsScope) {
+    this(
+        service,
+        domain,
+        task,
+        dataConverter,
+        heartbeatExecutor,
+        completionHandle,
+        metricsScope,
+        false);
+  }
+
+  ActivityExecutionContextImpl(
+      IWorkflowService service,
+      String domain,
+      ActivityTask task,
+      DataConverter dataConverter,
+      ScheduledExecutorService heartbeatExecutor,
+      Functions.Proc completionHandle,
+      Scope metricsScope,
+      boolean asyncHeartbeats) {
     this.domain = domain;
     this.service = service;
     this.task = task;
@@ -89,6 +111,16 @@ class ActivityExecutionContextImpl implements com.uber.cadence.activity.Activity
     this.completionHandle = completionHandle;
     this.manualCompletionClientFactory =
         new ManualActivityCompletionClientFactoryImpl(service, domain, dataConverter, metricsScope);
+    this.asyncHeartbeater =
+        asyncHeartbeats
+            ? new AsyncActivityHeartbeater(
+                service,
+                task,
+                dataConverter,
+                heartbeatExecutor,
+                heartbeatIntervalMillis,
+                metricsScope)
+            : null;
   }
 
   @Override
@@ -101,6 +133,10 @@ class ActivityExecutionContextImpl implements com.uber.cadence.activity.Activity
     if (heartbeatExecutor.isShutdown()) {
       throw new ActivityWorkerShutdownException(task);
     }
+    if (asyncHeartbeater != null) {
+      asyncHeartbeater.heartbeat(details);
+      return;
+    }
     lock.lock();
     try {
       // always set lastDetail. Successful heartbeat will clear it.
@@ -125,6 +161,14 @@ class ActivityExecutionContextImpl implements com.uber.cadence.activity.Activity
 
   @Override
   public <V> Optional<V> getHeartbeatDetails(Class<V> detailsClass, Type detailsType) {
+    if (asyncHeartbeater != null) {
+      Optional<Object> details = asyncHeartbeater.getLastDetails();
+      if (details != null) {
+        @SuppressWarnings("unchecked")
+        Optional<V> result = (Optional<V>) details;
+        return result;
+      }
+    }
     lock.lock();
     try {
       if (lastDetails != null) {
@@ -200,6 +244,13 @@ class ActivityExecutionContextImpl implements com.uber.cadence.activity.Activity
     }
   }
 
+  /** Stops sending the asynchronously recorded heartbeats after the activity has completed. */
+  void stopHeartbeats() {
+    if (asyncHeartbeater != null) {
+      asyncHeartbeater.stop();
+    }
+  }
+
   @Override
   public void doNotCompleteOnReturn() {
     lock.lock();
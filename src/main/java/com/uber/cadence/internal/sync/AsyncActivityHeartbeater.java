@@ -0,0 +1,211 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import com.uber.cadence.BadRequestError;
+import com.uber.cadence.EntityNotExistsError;
+import com.uber.cadence.RecordActivityTaskHeartbeatRequest;
+import com.uber.cadence.RecordActivityTaskHeartbeatResponse;
+import com.uber.cadence.WorkflowExecutionAlreadyCompletedError;
+import com.uber.cadence.activity.ActivityTask;
+import com.uber.cadence.client.ActivityCancelledException;
+import com.uber.cadence.client.ActivityCompletionException;
+import com.uber.cadence.client.ActivityCompletionFailureException;
+import com.uber.cadence.client.ActivityNotExistsException;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import com.uber.m3.tally.Scope;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends activity heartbeats without blocking the activity thread. {@link #heartbeat(Object)} only
+ * stores the details; a flush task on the worker heartbeat executor sends the latest stored value
+ * with the asynchronous service call. At most one flush is scheduled or in flight per activity, so
+ * heartbeats recorded while a request is outstanding or within the throttling interval are
+ * coalesced into a single request.
+ *
+ * <p>Responses are applied when they arrive: cancellation and errors reported by the service are
+ * thrown by the next {@link #heartbeat(Object)} call. No more flushes are scheduled after {@link
+ * #stop()}.
+ */
+final class AsyncActivityHeartbeater {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncActivityHeartbeater.class);
+  private static final long HEARTBEAT_RETRY_WAIT_MILLIS = 1000;
+
+  // Marks that there are no details waiting to be sent.
+  private static final Object NONE = new Object();
+  // Stands for null details, which are valid heartbeat payload.
+  private static final Object NULL = new Object();
+
+  private final IWorkflowService service;
+  private final ActivityTask task;
+  private final DataConverter dataConverter;
+  private final ScheduledExecutorService heartbeatExecutor;
+  private final long heartbeatIntervalMillis;
+  private final Scope metricsScope;
+
+  private final AtomicReference<Object> pendingDetails = new AtomicReference<>(NONE);
+  // True while a flush is scheduled or a heartbeat request is in flight.
+  private final AtomicBoolean flushing = new AtomicBoolean();
+  private volatile Optional<Object> lastDetails;
+  private volatile ActivityCompletionException lastException;
+  private volatile boolean stopped;
+
+  AsyncActivityHeartbeater(
+      IWorkflowService service,
+      ActivityTask task,
+      DataConverter dataConverter,
+      ScheduledExecutorService heartbeatExecutor,
+      long heartbeatIntervalMillis,
+      Scope metricsScope) {
+    this.service = service;
+    this.task = task;
+    this.dataConverter = dataConverter;
+    this.heartbeatExecutor = heartbeatExecutor;
+    this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+    this.metricsScope = metricsScope;
+  }
+
+  <V> void heartbeat(V details) throws ActivityCompletionException {
+    lastDetails = Optional.ofNullable(details);
+    Object previous = pendingDetails.getAndSet(details == null ? NULL : details);
+    if (previous != NONE) {
+      metricsScope.counter(MetricsType.ACTIVITY_HEARTBEAT_COALESCED_COUNTER).inc(1);
+    }
+    if (!stopped && flushing.compareAndSet(false, true)) {
+      scheduleFlush(0);
+    }
+    ActivityCompletionException exception = lastException;
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /** Stops sending heartbeats once the activity has completed. Details not sent yet are dropped. */
+  void stop() {
+    stopped = true;
+    pendingDetails.set(NONE);
+  }
+
+  /** @return details of the last heartbeat or null if the activity didn't heartbeat yet */
+  Optional<Object> getLastDetails() {
+    return lastDetails;
+  }
+
+  private void scheduleFlush(long delayMillis) {
+    if (stopped) {
+      // The flag stays set, so no more flushes are scheduled.
+      return;
+    }
+    try {
+      heartbeatExecutor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // The worker is shutting down, heartbeat() reports it to the activity.
+      flushing.set(false);
+    }
+  }
+
+  private void flush() {
+    if (stopped) {
+      return;
+    }
+    Object details = pendingDetails.getAndSet(NONE);
+    if (details == NONE) {
+      flushing.set(false);
+      // Details stored after getAndSet but before the flag was cleared would never be sent.
+      if (pendingDetails.get() != NONE && !stopped && flushing.compareAndSet(false, true)) {
+        scheduleFlush(0);
+      }
+      return;
+    }
+    send(details);
+  }
+
+  private void send(Object details) {
+    RecordActivityTaskHeartbeatRequest request = new RecordActivityTaskHeartbeatRequest();
+    request.setTaskToken(task.getTaskToken());
+    try {
+      request.setDetails(dataConverter.toData(details == NULL ? null : details));
+    } catch (RuntimeException e) {
+      log.error("Failed to serialize heartbeat details, activityID:{}", task.getActivityId(), e);
+      metricsScope.counter(MetricsType.ACTIVITY_HEARTBEAT_FAILED_COUNTER).inc(1);
+      scheduleFlush(heartbeatIntervalMillis);
+      return;
+    }
+    metricsScope.counter(MetricsType.ACTIVITY_HEARTBEAT_SENT_COUNTER).inc(1);
+    try {
+      service.RecordActivityTaskHeartbeat(
+          request,
+          new AsyncMethodCallback<RecordActivityTaskHeartbeatResponse>() {
+            @Override
+            public void onComplete(RecordActivityTaskHeartbeatResponse response) {
+              onHeartbeatCompleted(response);
+            }
+
+            @Override
+            public void onError(Exception exception) {
+              onHeartbeatFailed(details, exception);
+            }
+          });
+    } catch (RuntimeException e) {
+      // Failures of starting the call are retried the same way as the failed calls.
+      onHeartbeatFailed(details, e);
+    }
+  }
+
+  private void onHeartbeatCompleted(RecordActivityTaskHeartbeatResponse response) {
+    if (response.isCancelRequested()) {
+      lastException = new ActivityCancelledException(task);
+    } else {
+      lastException = null;
+    }
+    scheduleFlush(heartbeatIntervalMillis);
+  }
+
+  private void onHeartbeatFailed(Object details, Exception exception) {
+    if (exception instanceof EntityNotExistsError) {
+      lastException = new ActivityNotExistsException(task, exception);
+    } else if (exception instanceof WorkflowExecutionAlreadyCompletedError) {
+      // Nothing left to heartbeat for. The flag stays set, so no more flushes are scheduled.
+      lastException = new ActivityNotExistsException(task, exception);
+      stopped = true;
+      return;
+    } else if (exception instanceof BadRequestError) {
+      lastException = new ActivityCompletionFailureException(task, exception);
+    } else {
+      // Not failing the activity on intermittent connection or Cadence errors.
+      log.warn("Heartbeat failed.", exception);
+      metricsScope.counter(MetricsType.ACTIVITY_HEARTBEAT_FAILED_COUNTER).inc(1);
+      // Resend the failed details unless newer ones were recorded in the meantime.
+      pendingDetails.compareAndSet(NONE, details);
+      scheduleFlush(HEARTBEAT_RETRY_WAIT_MILLIS);
+      return;
+    }
+    scheduleFlush(heartbeatIntervalMillis);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.client.BulkWorkflowRequest;
+import com.uber.cadence.client.BulkWorkflowResult;
+import com.uber.cadence.client.WorkflowStub;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Iterator behind {@link WorkflowClientInternal#executeBulk}. Pulls requests from the source only
+ * when fewer than {@code maxConcurrentRequests} calls are in flight and returns results in
+ * completion order. Not thread safe, the same as any other iterator.
+ */
+final class BulkRequestIterator implements Iterator<BulkWorkflowResult> {
+
+  private final Iterator<BulkWorkflowRequest> source;
+  private final int maxConcurrentRequests;
+  private final BlockingQueue<BulkWorkflowResult> completed = new LinkedBlockingQueue<>();
+  private int inFlight;
+
+  BulkRequestIterator(Iterator<BulkWorkflowRequest> source, int maxConcurrentRequests) {
+    if (maxConcurrentRequests <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + maxConcurrentRequests);
+    }
+    this.source = Objects.requireNonNull(source);
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return inFlight > 0;
+  }
+
+  @Override
+  public BulkWorkflowResult next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      BulkWorkflowResult result = completed.take();
+      inFlight--;
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+  }
+
+  int getInFlight() {
+    return inFlight;
+  }
+
+  private void fill() {
+    while (inFlight < maxConcurrentRequests && source.hasNext()) {
+      BulkWorkflowRequest request = source.next();
+      inFlight++;
+      CompletableFuture<WorkflowExecution> call;
+      try {
+        call = submit(request);
+      } catch (RuntimeException e) {
+        completed.add(new BulkWorkflowResult(request, null, e));
+        continue;
+      }
+      @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
+      CompletableFuture<WorkflowExecution> ignored =
+          call.whenComplete(
+              (execution, e) ->
+                  completed.add(
+                      new BulkWorkflowResult(request, e == null ? execution : null, unwrap(e))));
+    }
+  }
+
+  private static CompletableFuture<WorkflowExecution> submit(BulkWorkflowRequest request) {
+    WorkflowStub stub = request.getStub();
+    switch (request.getType()) {
+      case START:
+        return stub.startAsync(request.getArgs());
+      case SIGNAL:
+        return stub.signalAsync(request.getSignalName(), request.getArgs())
+            .thenApply((r) -> stub.getExecution());
+      default:
+        throw new IllegalArgumentException("Unknown request type: " + request.getType());
+    }
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    if (e instanceof CompletionException && e.getCause() != null) {
+      return e.getCause();
+    }
+    return e;
+  }
+}
@@ -33,6 +33,8 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
   private RuntimeException failure;
   private boolean completed;
   private final List<Functions.Proc> handlers = new ArrayList<>();
+  // Threads blocked in get calls without timeout. Woken up on completion.
+  private List<WorkflowThread> waiters;
   private final DeterministicRunnerImpl runner;
   private boolean registeredWithRunner;
 
@@ -68,7 +70,7 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
   @Override
   public V get() {
     if (!completed) {
-      WorkflowThread.await("Feature.get", () -> completed);
+      awaitCompletion();
     }
     if (failure != null) {
       unregisterWithRunner();
@@ -80,7 +82,7 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
   @Override
   public V get(V defaultValue) {
     if (!completed) {
-      WorkflowThread.await("Feature.get", () -> completed);
+      awaitCompletion();
     }
     if (failure != null) {
       unregisterWithRunner();
@@ -130,7 +132,7 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
   @Override
   public RuntimeException getFailure() {
     if (!completed) {
-      WorkflowThread.await("Feature.get", () -> completed);
+      awaitCompletion();
     }
     if (failure != null) {
       unregisterWithRunner();
@@ -139,6 +141,23 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
     return null;
   }
 
+  private void awaitCompletion() {
+    if (waiters == null) {
+      waiters = new ArrayList<>(1);
+    }
+    waiters.add(DeterministicRunnerImpl.currentThreadInternal());
+    WorkflowThread.awaitWakeUp("Feature.get", () -> completed);
+  }
+
+  private void wakeUpWaiters() {
+    if (waiters != null) {
+      for (WorkflowThread waiter : waiters) {
+        waiter.wakeUp();
+      }
+      waiters = null;
+    }
+  }
+
   private void unregisterWithRunner() {
     if (registeredWithRunner) {
       runner.forgetFailedPromise(this);
@@ -153,6 +172,7 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
     }
     this.completed = true;
     this.value = value;
+    wakeUpWaiters();
     invokeHandlers();
     return true;
   }
@@ -164,6 +184,7 @@ class CompletablePromiseImpl<V> implements CompletablePromise<V> {
     }
     this.completed = true;
     this.failure = value;
+    wakeUpWaiters();
     boolean invoked = invokeHandlers();
     if (!invoked) {
       runner.registerFailedPromise(this); // To ensure that failure is not ignored
@@ -81,6 +81,12 @@ interface DeterministicRunner {
    */
   void runUntilAllBlocked() throws Throwable;
 
+  /**
+   * @return approximate number of workflow threads owned by the runner. Doesn't take the runner
+   *     lock, so it is safe to call from any thread.
+   */
+  int getThreadCount();
+
   /** IsDone returns true when all of threads are completed */
   boolean isDone();
 
@@ -40,18 +40,17 @@ import com.uber.cadence.workflow.GetVersionOptions;
 import com.uber.cadence.workflow.Promise;
 import com.uber.m3.tally.Scope;
 import java.time.Duration;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -88,7 +87,15 @@ class DeterministicRunnerImpl implements DeterministicRunner {
   private final Lock lock = new ReentrantLock();
   private final ExecutorService threadPool;
   private final SyncDecisionContext decisionContext;
-  private final Deque<WorkflowThread> threads = new ArrayDeque<>(); // protected by lock
+  // All threads in the order they are resumed, keyed by their position. Protected by lock.
+  private final TreeMap<Long, WorkflowThread> threads = new TreeMap<>();
+  // Keys of the threads that are resumed by runUntilAllBlocked. Protected by lock.
+  private final TreeSet<Long> runnableThreads = new TreeSet<>();
+  // Threads blocked in WorkflowThread.awaitWakeUp that weren't woken up yet. They wait without a
+  // timeout, so they never affect nextWakeUpTime. Protected by lock.
+  private final Map<WorkflowThread, Long> parkedThreads = new HashMap<>();
+  private long firstThreadKey;
+  private long lastThreadKey;
   // Values from RunnerLocalInternal
   private final Map<RunnerLocalInternal<?>, Object> runnerLocalMap = new HashMap<>();
 
@@ -183,7 +190,7 @@ class DeterministicRunnerImpl implements DeterministicRunner {
             cache,
             getContextPropagators(),
             getPropagatedContexts());
-    threads.addLast(rootWorkflowThread);
+    addLast(rootWorkflowThread);
     rootWorkflowThread.start();
   }
 
@@ -240,40 +247,43 @@ class DeterministicRunnerImpl implements DeterministicRunner {
           // Adding the callbacks in the same order as they appear in history.
 
           for (int i = callbackThreads.size() - 1; i >= 0; i--) {
-            threads.addFirst(callbackThreads.get(i));
+            addFirst(callbackThreads.get(i));
           }
         }
 
         toExecuteInWorkflowThread.clear();
         progress = false;
-        Iterator<WorkflowThread> ci = threads.iterator();
         nextWakeUpTime = Long.MAX_VALUE;
-        while (ci.hasNext()) {
-          WorkflowThread c = ci.next();
+        // Parked threads are skipped as they would remain blocked anyway. A thread woken up by
+        // a thread that follows it runs on the next pass, the same as without parking.
+        Long key = runnableThreads.isEmpty() ? null : runnableThreads.first();
+        while (key != null) {
+          WorkflowThread c = threads.get(key);
           progress = c.runUntilBlocked() || progress;
           if (exitRequested) {
             close();
             break outerLoop;
           }
           if (c.isDone()) {
-            ci.remove();
+            threads.remove(key);
+            runnableThreads.remove(key);
             if (c.getUnhandledException() != null) {
               unhandledException = c.getUnhandledException();
               break;
             }
+          } else if (c.isWaitingForWakeUp()) {
+            park(key, c);
           } else {
-            long t = c.getBlockedUntil();
-            if (t > currentTimeMillis() && t < nextWakeUpTime) {
-              nextWakeUpTime = t;
-            }
+            updateNextWakeUpTime(c.getBlockedUntil());
           }
+          key = runnableThreads.higher(key);
         }
         if (unhandledException != null) {
           close();
           throw unhandledException;
         }
         for (WorkflowThread c : threadsToAdd) {
-          threads.addLast(c);
+          addLast(c);
         }
       } while (progress && !threads.isEmpty());
 
@@ -291,6 +301,61 @@ class DeterministicRunnerImpl implements DeterministicRunner {
     }
   }
 
+  private void updateNextWakeUpTime(long blockedUntil) {
+    if (blockedUntil > currentTimeMillis() && blockedUntil < nextWakeUpTime) {
+      nextWakeUpTime = blockedUntil;
+    }
+  }
+
+  private void addFirst(WorkflowThread thread) {
+    long key = --firstThreadKey;
+    threads.put(key, thread);
+    runnableThreads.add(key);
+  }
+
+  private void addLast(WorkflowThread thread) {
+    long key = ++lastThreadKey;
+    threads.put(key, thread);
+    runnableThreads.add(key);
+  }
+
+  private void park(long key, WorkflowThread thread) {
+    runnableThreads.remove(key);
+    parkedThreads.put(thread, key);
+  }
+
+  /**
+   * Makes the runner resume the thread if it is blocked in {@link
+   * WorkflowThread#awaitWakeUp(String, Supplier)}. Does nothing otherwise.
+   */
+  void wakeUp(WorkflowThread thread) {
+    lock.lock();
+    try {
+      Long key = parkedThreads.remove(thread);
+      if (key != null) {
+        runnableThreads.add(key);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getParkedThreadCount() {
+    lock.lock();
+    try {
+      return parkedThreads.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int getThreadCount() {
+    // Racy read of the size of the thread map without the lock is fine as TreeMap.size() just reads
+    // a field and the value is only used as an estimate.
+    return threads.size() + threadsToAdd.size();
+  }
+
   @Override
   public boolean isDone() {
     lock.lock();
@@ -337,14 +402,16 @@ class DeterministicRunnerImpl implements DeterministicRunner {
     }
     try {
       for (WorkflowThread c : threadsToAdd) {
-        threads.addLast(c);
+        addLast(c);
       }
       threadsToAdd.clear();
 
-      for (WorkflowThread c : threads) {
+      for (WorkflowThread c : threads.values()) {
         threadFutures.add(c.stopNow());
       }
       threads.clear();
+      runnableThreads.clear();
+      parkedThreads.clear();
 
       // We cannot use an iterator to unregister failed Promises since f.get()
       // will remove the promise directly from failedPromises. This causes an
@@ -388,7 +455,7 @@ class DeterministicRunnerImpl implements DeterministicRunner {
     StringBuilder result = new StringBuilder();
     lock.lock();
     try {
-      for (WorkflowThread coroutine : threads) {
+      for (WorkflowThread coroutine : threads.values()) {
         if (result.length() > 0) {
           result.append("\n");
         }
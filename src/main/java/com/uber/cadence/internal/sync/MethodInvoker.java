@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Objects;
+
+/**
+ * Calls an activity, workflow or signal method with an argument array. The method is converted into
+ * a {@link MethodHandle} of type {@code (Object, Object[])Object} once at registration time, so a
+ * call doesn't repeat the access checks and argument validation of {@link Method#invoke}. Falls
+ * back to {@link Method#invoke} for methods this package cannot access, which then fail on every
+ * call with {@link IllegalAccessException}.
+ *
+ * <p>As with {@link Method#invoke}, anything thrown by the method itself is wrapped in {@link
+ * InvocationTargetException}, so callers can tell it apart from failures to call the method.
+ */
+final class MethodInvoker {
+
+  private static final MethodType INVOKER_TYPE =
+      MethodType.methodType(Object.class, Object.class, Object[].class);
+
+  private final Method method;
+  private final MethodHandle handle;
+  private final Type[] genericParameterTypes;
+  private final int parameterCount;
+  private final boolean returnsVoid;
+
+  static MethodInvoker of(Method method) {
+    MethodHandle handle;
+    try {
+      handle =
+          MethodHandles.lookup()
+              .unreflect(method)
+              .asFixedArity()
+              .asSpreader(Object[].class, method.getParameterCount())
+              .asType(INVOKER_TYPE);
+    } catch (IllegalAccessException e) {
+      handle = null;
+    }
+    return new MethodInvoker(method, handle);
+  }
+
+  private MethodInvoker(Method method, MethodHandle handle) {
+    this.method = Objects.requireNonNull(method);
+    this.handle = handle;
+    this.genericParameterTypes = method.getGenericParameterTypes();
+    this.parameterCount = method.getParameterCount();
+    this.returnsVoid = method.getReturnType() == Void.TYPE;
+  }
+
+  /**
+   * Calls the method with the same exceptions as {@link Method#invoke}.
+   *
+   * @return the method result, null for void methods
+   * @throws IllegalAccessException if this package cannot access the method
+   * @throws IllegalArgumentException if the number of arguments doesn't match
+   * @throws InvocationTargetException wrapping anything thrown by the method
+   */
+  Object invoke(Object target, Object[] args)
+      throws IllegalAccessException, InvocationTargetException {
+    if (handle == null) {
+      return method.invoke(target, args);
+    }
+    if ((args == null ? 0 : args.length) != parameterCount) {
+      throw new IllegalArgumentException("wrong number of arguments");
+    }
+    try {
+      return (Object) handle.invokeExact(target, args);
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+
+  Method getMethod() {
+    return method;
+  }
+
+  /** Cached, callers must not modify the returned array. */
+  Type[] getGenericParameterTypes() {
+    return genericParameterTypes;
+  }
+
+  boolean returnsVoid() {
+    return returnsVoid;
+  }
+
+  @Override
+  public String toString() {
+    return method.toString();
+  }
+}
@@ -50,24 +50,37 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
 
   private final DataConverter dataConverter;
   private final ScheduledExecutorService heartbeatExecutor;
-  private final Map<String, ActivityTaskExecutor> activities =
-      Collections.synchronizedMap(new HashMap<>());
+  // Immutable, replaced as a whole when activities are registered so that handle() doesn't lock.
+  private volatile Map<String, ActivityTaskExecutor> activities = Collections.emptyMap();
   private IWorkflowService service;
   private final String domain;
+  private final boolean asyncHeartbeats;
 
   POJOActivityTaskHandler(
       IWorkflowService service,
       String domain,
       DataConverter dataConverter,
       ScheduledExecutorService heartbeatExecutor) {
+    this(service, domain, dataConverter, heartbeatExecutor, false);
+  }
+
+  POJOActivityTaskHandler(
+      IWorkflowService service,
+      String domain,
+      DataConverter dataConverter,
+      ScheduledExecutorService heartbeatExecutor,
+      boolean asyncHeartbeats) {
     this.service = service;
     this.domain = domain;
     this.dataConverter = dataConverter;
     this.heartbeatExecutor = heartbeatExecutor;
+    this.asyncHeartbeats = asyncHeartbeats;
   }
 
-  private void addActivityImplementation(
-      Object activity, BiFunction<Method, Object, ActivityTaskExecutor> newTaskExecutor) {
+  private static void addActivityImplementation(
+      Map<String, ActivityTaskExecutor> activities,
+      Object activity,
+      BiFunction<MethodInvoker, Object, ActivityTaskExecutor> newTaskExecutor) {
     if (activity instanceof Class) {
       throw new IllegalArgumentException("Activity object instance expected, not the class");
     }
@@ -107,7 +120,8 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
               activityType + " activity type is already registered with the worker");
         }
 
-        ActivityTaskExecutor implementation = newTaskExecutor.apply(method, activity);
+        ActivityTaskExecutor implementation =
+            newTaskExecutor.apply(MethodInvoker.of(method), activity);
         activities.put(activityType, implementation);
       }
     }
@@ -147,6 +161,10 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
       metricsScope.counter(MetricsType.ACTIVITY_EXEC_FAILED_COUNTER).inc(1);
     }
 
+    if (!(failure instanceof Exception)) {
+      // Neither an Error nor an Exception, reported as the cause of a failure.
+      failure = new RuntimeException(failure);
+    }
     RespondActivityTaskFailedRequest result = new RespondActivityTaskFailedRequest();
     failure = CheckedExceptionWrapper.unwrap(failure);
     result.setReason(failure.getClass().getName());
@@ -161,17 +179,21 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
   }
 
   void setActivitiesImplementation(Object[] activitiesImplementation) {
-    activities.clear();
-    for (Object activity : activitiesImplementation) {
-      addActivityImplementation(activity, POJOActivityImplementation::new);
-    }
+    setActivities(activitiesImplementation, POJOActivityImplementation::new);
   }
 
   void setLocalActivitiesImplementation(Object[] activitiesImplementation) {
-    activities.clear();
+    setActivities(activitiesImplementation, POJOLocalActivityImplementation::new);
+  }
+
+  private void setActivities(
+      Object[] activitiesImplementation,
+      BiFunction<MethodInvoker, Object, ActivityTaskExecutor> newTaskExecutor) {
+    Map<String, ActivityTaskExecutor> registered = new HashMap<>();
     for (Object activity : activitiesImplementation) {
-      addActivityImplementation(activity, POJOLocalActivityImplementation::new);
+      addActivityImplementation(registered, activity, newTaskExecutor);
     }
+    activities = Collections.unmodifiableMap(registered);
   }
 
   @Override
@@ -179,6 +201,7 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
     PollForActivityTaskResponse pollResponse = activityTask.getResponse();
     String activityType = pollResponse.getActivityType().getName();
     ActivityTaskImpl task = new ActivityTaskImpl(pollResponse, activityTask.getCompletionHandle());
+    Map<String, ActivityTaskExecutor> activities = this.activities;
     ActivityTaskExecutor activity = activities.get(activityType);
     if (activity == null) {
       String knownTypes = Joiner.on(", ").join(activities.keySet());
@@ -208,17 +231,17 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
   }
 
   private class POJOActivityImplementation implements ActivityTaskExecutor {
-    private final Method method;
+    private final MethodInvoker method;
     private final Object activity;
 
-    POJOActivityImplementation(Method interfaceMethod, Object activity) {
+    POJOActivityImplementation(MethodInvoker interfaceMethod, Object activity) {
       this.method = interfaceMethod;
       this.activity = activity;
     }
 
     @Override
     public ActivityTaskHandler.Result execute(ActivityTaskImpl task, Scope metricsScope) {
-      ActivityExecutionContext context =
+      ActivityExecutionContextImpl context =
           new ActivityExecutionContextImpl(
               service,
               domain,
@@ -226,7 +249,8 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
               dataConverter,
               heartbeatExecutor,
               task.getCompletionHandle(),
-              metricsScope);
+              metricsScope,
+              asyncHeartbeats);
       byte[] input = task.getInput();
       CurrentActivityExecutionContext.set(context);
       try {
@@ -236,15 +260,18 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
           return new ActivityTaskHandler.Result(
               null, null, null, context.isUseLocalManualCompletion());
         }
+        context.stopHeartbeats();
         RespondActivityTaskCompletedRequest request = new RespondActivityTaskCompletedRequest();
-        if (method.getReturnType() != Void.TYPE) {
+        if (!method.returnsVoid()) {
           request.setResult(dataConverter.toData(result));
         }
         return new ActivityTaskHandler.Result(request, null, null, false);
       } catch (RuntimeException | IllegalAccessException e) {
+        context.stopHeartbeats();
         // Always release semaphore on failure, even if manual completion was requested
         return mapToActivityFailure(e, metricsScope, false);
       } catch (InvocationTargetException e) {
+        context.stopHeartbeats();
         // Always release semaphore on failure, even if manual completion was requested
         return mapToActivityFailure(e.getTargetException(), metricsScope, false);
       } finally {
@@ -254,10 +281,10 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
   }
 
   private class POJOLocalActivityImplementation implements ActivityTaskExecutor {
-    private final Method method;
+    private final MethodInvoker method;
     private final Object activity;
 
-    POJOLocalActivityImplementation(Method interfaceMethod, Object activity) {
+    POJOLocalActivityImplementation(MethodInvoker interfaceMethod, Object activity) {
       this.method = interfaceMethod;
       this.activity = activity;
     }
@@ -272,7 +299,7 @@ class POJOActivityTaskHandler implements ActivityTaskHandler {
         Object[] args = dataConverter.fromDataArray(input, method.getGenericParameterTypes());
         Object result = method.invoke(activity, args);
         RespondActivityTaskCompletedRequest request = new RespondActivityTaskCompletedRequest();
-        if (method.getReturnType() != Void.TYPE) {
+        if (!method.returnsVoid()) {
           request.setResult(dataConverter.toData(result));
         }
         return new ActivityTaskHandler.Result(request, null, null, false);
@@ -67,15 +67,18 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
   private DataConverter dataConverter;
   private List<ContextPropagator> contextPropagators;
 
+  // The maps below are immutable. Registration replaces them under the factory monitor, so
+  // workflow creation reads them without locking.
+
   /** Key: workflow type name, Value: function that creates SyncWorkflowDefinition instance. */
-  private final Map<String, Functions.Func<SyncWorkflowDefinition>> workflowDefinitions =
-      Collections.synchronizedMap(new HashMap<>());
+  private volatile Map<String, Functions.Func<SyncWorkflowDefinition>> workflowDefinitions =
+      Collections.emptyMap();
 
-  private Map<String, WorkflowImplementationOptions> implementationOptions =
-      Collections.synchronizedMap(new HashMap<>());
+  private volatile Map<String, WorkflowImplementationOptions> implementationOptions =
+      Collections.emptyMap();
 
-  private final Map<Class<?>, Functions.Func<?>> workflowImplementationFactories =
-      Collections.synchronizedMap(new HashMap<>());
+  private volatile Map<Class<?>, Functions.Func<?>> workflowImplementationFactories =
+      Collections.emptyMap();
 
   private final ExecutorService threadPool;
   private DeciderCache cache;
@@ -95,12 +98,15 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
     this.tracer = tracer;
   }
 
-  void setWorkflowImplementationTypes(
+  synchronized void setWorkflowImplementationTypes(
       WorkflowImplementationOptions options, Class<?>[] workflowImplementationTypes) {
-    workflowDefinitions.clear();
+    Map<String, Functions.Func<SyncWorkflowDefinition>> definitions = new HashMap<>();
+    Map<String, WorkflowImplementationOptions> definitionOptions =
+        new HashMap<>(implementationOptions);
     for (Class<?> type : workflowImplementationTypes) {
-      addWorkflowImplementationType(options, type);
+      addWorkflowImplementationType(definitions, definitionOptions, options, type);
     }
+    publish(definitions, definitionOptions);
   }
 
   <R> void addWorkflowImplementationFactory(Class<R> clazz, Functions.Func<R> factory) {
@@ -111,14 +117,32 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
     addWorkflowImplementationFactory(unitTestingOptions, clazz, factory);
   }
 
-  <R> void addWorkflowImplementationFactory(
+  synchronized <R> void addWorkflowImplementationFactory(
       WorkflowImplementationOptions options, Class<R> clazz, Functions.Func<R> factory) {
-    workflowImplementationFactories.put(clazz, factory);
-    addWorkflowImplementationType(options, clazz);
+    Map<String, Functions.Func<SyncWorkflowDefinition>> definitions =
+        new HashMap<>(workflowDefinitions);
+    Map<String, WorkflowImplementationOptions> definitionOptions =
+        new HashMap<>(implementationOptions);
+    addWorkflowImplementationType(definitions, definitionOptions, options, clazz);
+    Map<Class<?>, Functions.Func<?>> factories = new HashMap<>(workflowImplementationFactories);
+    factories.put(clazz, factory);
+    workflowImplementationFactories = Collections.unmodifiableMap(factories);
+    publish(definitions, definitionOptions);
+  }
+
+  private void publish(
+      Map<String, Functions.Func<SyncWorkflowDefinition>> definitions,
+      Map<String, WorkflowImplementationOptions> definitionOptions) {
+    // Options are published first, so a visible definition always has its options.
+    implementationOptions = Collections.unmodifiableMap(definitionOptions);
+    workflowDefinitions = Collections.unmodifiableMap(definitions);
   }
 
   private void addWorkflowImplementationType(
-      WorkflowImplementationOptions options, Class<?> workflowImplementationClass) {
+      Map<String, Functions.Func<SyncWorkflowDefinition>> workflowDefinitions,
+      Map<String, WorkflowImplementationOptions> implementationOptions,
+      WorkflowImplementationOptions options,
+      Class<?> workflowImplementationClass) {
     TypeToken<?>.TypeSet interfaces =
         TypeToken.of(workflowImplementationClass).getTypes().interfaces();
     if (interfaces.isEmpty()) {
@@ -126,7 +150,7 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
     }
     boolean hasWorkflowMethod = false;
     for (TypeToken<?> i : interfaces) {
-      Map<String, Method> signalHandlers = new HashMap<>();
+      Map<String, MethodInvoker> signalHandlers = new HashMap<>();
       for (Method method : i.getRawType().getMethods()) {
         WorkflowMethod workflowMethod = method.getAnnotation(WorkflowMethod.class);
         QueryMethod queryMethod = method.getAnnotation(QueryMethod.class);
@@ -142,10 +166,11 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
                   + "from @WorkflowMethod, @QueryMethod or @SignalMethod");
         }
         if (workflowMethod != null) {
+          MethodInvoker invoker = MethodInvoker.of(method);
           Functions.Func<SyncWorkflowDefinition> factory =
               () ->
                   new POJOWorkflowImplementation(
-                      method, workflowImplementationClass, signalHandlers);
+                      invoker, workflowImplementationClass, signalHandlers);
 
           String workflowName = workflowMethod.name();
           if (workflowName.isEmpty()) {
@@ -168,7 +193,7 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
           if (signalName.isEmpty()) {
             signalName = InternalUtils.getSimpleName(method);
           }
-          signalHandlers.put(signalName, method);
+          signalHandlers.put(signalName, MethodInvoker.of(method));
         }
         if (queryMethod != null) {
           if (method.getReturnType() == Void.TYPE) {
@@ -231,13 +256,15 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
 
   private class POJOWorkflowImplementation implements SyncWorkflowDefinition {
 
-    private final Method workflowMethod;
+    private final MethodInvoker workflowMethod;
     private final Class<?> workflowImplementationClass;
-    private final Map<String, Method> signalHandlers;
+    private final Map<String, MethodInvoker> signalHandlers;
     private Object workflow;
 
     POJOWorkflowImplementation(
-        Method method, Class<?> workflowImplementationClass, Map<String, Method> signalHandlers) {
+        MethodInvoker method,
+        Class<?> workflowImplementationClass,
+        Map<String, MethodInvoker> signalHandlers) {
       this.workflowMethod = method;
       this.workflowImplementationClass = workflowImplementationClass;
       this.signalHandlers = signalHandlers;
@@ -246,13 +273,10 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
     @Override
     public byte[] execute(byte[] input) throws CancellationException, WorkflowExecutionException {
       Object[] args = dataConverter.fromDataArray(input, workflowMethod.getGenericParameterTypes());
+      newInstance();
+      Object result;
       try {
-        newInstance();
-        Object result = workflowMethod.invoke(workflow, args);
-        if (workflowMethod.getReturnType() == Void.TYPE) {
-          return EMPTY_BLOB;
-        }
-        return dataConverter.toData(result);
+        result = workflowMethod.invoke(workflow, args);
       } catch (IllegalAccessException e) {
         throw new Error(mapToWorkflowExecutionException(e, dataConverter));
       } catch (InvocationTargetException e) {
@@ -276,9 +300,17 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
                   + context.getWorkflowType(),
               targetException);
         }
-        // Cast to Exception is safe as Error is handled above.
-        throw mapToWorkflowExecutionException((Exception) targetException, dataConverter);
+        // Neither an Error nor an Exception, reported as the cause of a workflow failure.
+        Exception failure =
+            targetException instanceof Exception
+                ? (Exception) targetException
+                : new RuntimeException(targetException);
+        throw mapToWorkflowExecutionException(failure, dataConverter);
+      }
+      if (workflowMethod.returnsVoid()) {
+        return EMPTY_BLOB;
       }
+      return dataConverter.toData(result);
     }
 
     private void newInstance() {
@@ -312,7 +344,7 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
      */
     @Override
     public void processSignal(String signalName, byte[] input, long eventId) {
-      Method signalMethod = signalHandlers.get(signalName);
+      MethodInvoker signalMethod = signalHandlers.get(signalName);
       if (signalMethod == null) {
         log.error(
             "Unknown signal: "
@@ -324,17 +356,21 @@ final class POJOWorkflowImplementationFactory implements ReplayWorkflowFactory {
         return;
       }
 
+      Object[] args;
+      try {
+        args = dataConverter.fromDataArray(input, signalMethod.getGenericParameterTypes());
+      } catch (DataConverterException e) {
+        logSerializationException(signalName, eventId, e);
+        return;
+      }
+      newInstance();
       try {
-        Object[] args = dataConverter.fromDataArray(input, signalMethod.getGenericParameterTypes());
-        newInstance();
         signalMethod.invoke(workflow, args);
       } catch (IllegalAccessException e) {
         String errorMessage =
             "Failed to process signal \"" + signalName + "\" at eventID " + eventId + ".";
         log.error(errorMessage + "\n" + e);
         throw new Error(errorMessage + " Check cause for details.", e);
-      } catch (DataConverterException e) {
-        logSerializationException(signalName, eventId, e);
       } catch (InvocationTargetException e) {
         Throwable targetException = e.getTargetException();
         if (targetException instanceof DataConverterException) {
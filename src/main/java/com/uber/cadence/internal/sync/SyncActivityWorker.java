@@ -37,7 +37,12 @@ public class SyncActivityWorker implements SuspendableWorker {
       IWorkflowService service, String domain, String taskList, SingleWorkerOptions options) {
     heartbeatExecutor = options.getExecutorWrapper().wrap(Executors.newScheduledThreadPool(4));
     taskHandler =
-        new POJOActivityTaskHandler(service, domain, options.getDataConverter(), heartbeatExecutor);
+        new POJOActivityTaskHandler(
+            service,
+            domain,
+            options.getDataConverter(),
+            heartbeatExecutor,
+            options.isEnableAsyncActivityHeartbeats());
     worker = new ActivityWorker(service, domain, taskList, options, taskHandler);
   }
 
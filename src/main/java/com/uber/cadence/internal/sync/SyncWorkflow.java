@@ -130,6 +130,12 @@ class SyncWorkflow implements ReplayWorkflow {
     return runner.isDone() || workflowProc.isDone(); // Do not wait for all other threads.
   }
 
+  @Override
+  public int getThreadCount() {
+    DeterministicRunner r = runner;
+    return r == null ? 0 : r.getThreadCount();
+  }
+
   @Override
   public byte[] getOutput() {
     return workflowProc.getOutput();
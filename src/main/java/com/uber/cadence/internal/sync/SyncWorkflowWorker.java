@@ -107,7 +107,8 @@ public class SyncWorkflowWorker implements SuspendableWorker {
               service,
               domain,
               locallyDispatchedActivityOptions.getDataConverter(),
-              ldaHeartbeatExecutor);
+              ldaHeartbeatExecutor,
+              locallyDispatchedActivityOptions.isEnableAsyncActivityHeartbeats());
       ldaWorker =
           new LocallyDispatchedActivityWorker(
               service, domain, taskList, locallyDispatchedActivityOptions, ldaTaskHandler);
@@ -357,6 +357,12 @@ public final class TestActivityEnvironmentInternal implements TestActivityEnviro
         RecordActivityTaskHeartbeatRequest heartbeatRequest)
         throws BadRequestError, InternalServiceError, EntityNotExistsError,
             WorkflowExecutionAlreadyCompletedError, CadenceError {
+      notifyHeartbeatListener(heartbeatRequest);
+      // TODO: Cancellation
+      return impl.RecordActivityTaskHeartbeat(heartbeatRequest);
+    }
+
+    private void notifyHeartbeatListener(RecordActivityTaskHeartbeatRequest heartbeatRequest) {
       if (activityHeartbetListener != null) {
         Object details =
             testEnvironmentOptions
@@ -367,8 +373,6 @@ public final class TestActivityEnvironmentInternal implements TestActivityEnviro
                     activityHeartbetListener.valueType);
         activityHeartbetListener.consumer.accept(details);
       }
-      // TODO: Cancellation
-      return impl.RecordActivityTaskHeartbeat(heartbeatRequest);
     }
 
     @Override
@@ -760,6 +764,7 @@ public final class TestActivityEnvironmentInternal implements TestActivityEnviro
     public void RecordActivityTaskHeartbeat(
         RecordActivityTaskHeartbeatRequest heartbeatRequest, AsyncMethodCallback resultHandler)
         throws CadenceError {
+      notifyHeartbeatListener(heartbeatRequest);
       impl.RecordActivityTaskHeartbeat(heartbeatRequest, resultHandler);
     }
 
@@ -155,7 +155,7 @@ public final class TestWorkflowEnvironmentInternal implements TestWorkflowEnviro
     }
 
     if (workflowServiceWrapper == null) {
-      this.service = new WorkflowServiceWrapper();
+      this.service = new WorkflowServiceWrapper(testEnvironmentOptions.getServiceShardCount());
     } else {
       this.service = workflowServiceWrapper;
     }
@@ -290,7 +290,11 @@ public final class TestWorkflowEnvironmentInternal implements TestWorkflowEnviro
     private final TestWorkflowService impl;
 
     public WorkflowServiceWrapper() {
-      impl = new TestWorkflowService();
+      this(1);
+    }
+
+    public WorkflowServiceWrapper(int shardCount) {
+      impl = new TestWorkflowService(shardCount);
     }
 
     public long currentTimeMillis() {
@@ -24,12 +24,15 @@ import com.uber.cadence.RefreshWorkflowTasksRequest;
 import com.uber.cadence.WorkflowExecution;
 import com.uber.cadence.client.ActivityCompletionClient;
 import com.uber.cadence.client.BatchRequest;
+import com.uber.cadence.client.BulkWorkflowRequest;
+import com.uber.cadence.client.BulkWorkflowResult;
 import com.uber.cadence.client.ScheduleClient;
 import com.uber.cadence.client.WorkflowClient;
 import com.uber.cadence.client.WorkflowClientInterceptor;
 import com.uber.cadence.client.WorkflowClientOptions;
 import com.uber.cadence.client.WorkflowOptions;
 import com.uber.cadence.client.WorkflowStub;
+import com.uber.cadence.internal.common.WorkflowResultWatcher;
 import com.uber.cadence.internal.external.GenericWorkflowClientExternalImpl;
 import com.uber.cadence.internal.external.ManualActivityCompletionClientFactory;
 import com.uber.cadence.internal.external.ManualActivityCompletionClientFactoryImpl;
@@ -45,9 +48,13 @@ import java.lang.reflect.Proxy;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public final class WorkflowClientInternal implements WorkflowClient {
 
@@ -79,7 +86,14 @@ public final class WorkflowClientInternal implements WorkflowClient {
     this.workflowService = service;
     this.genericClient =
         new GenericWorkflowClientExternalImpl(
-            service, options.getDomain(), options.getMetricsScope());
+            service,
+            options.getDomain(),
+            options.getMetricsScope(),
+            options.getMaxConcurrentResultPolls() > 0
+                ? Optional.of(
+                    new WorkflowResultWatcher(
+                        service, options.getDomain(), options.getMaxConcurrentResultPolls()))
+                : Optional.empty());
     this.interceptors = options.getInterceptors();
     this.manualActivityCompletionClientFactory =
         new ManualActivityCompletionClientFactoryImpl(
@@ -224,6 +238,16 @@ public final class WorkflowClientInternal implements WorkflowClient {
     return ((SignalWithStartBatchRequest) signalWithStartBatch).enqueue();
   }
 
+  @Override
+  public Stream<BulkWorkflowResult> executeBulk(
+      Stream<BulkWorkflowRequest> requests, int maxConcurrentRequests) {
+    BulkRequestIterator results =
+        new BulkRequestIterator(requests.iterator(), maxConcurrentRequests);
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(results, Spliterator.NONNULL), false)
+        .onClose(requests::close);
+  }
+
   @Override
   public void refreshWorkflowTasks(RefreshWorkflowTasksRequest refreshWorkflowTasksRequest)
       throws CadenceError {
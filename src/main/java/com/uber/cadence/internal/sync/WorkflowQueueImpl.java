@@ -21,13 +21,17 @@ import com.uber.cadence.workflow.Functions;
 import com.uber.cadence.workflow.QueueConsumer;
 import com.uber.cadence.workflow.WorkflowQueue;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 final class WorkflowQueueImpl<E> implements WorkflowQueue<E> {
 
   private final Deque<E> queue = new ArrayDeque<>();
   private final int capacity;
+  // Threads blocked in take. Woken up when an element is added.
+  private final List<WorkflowThread> takers = new ArrayList<>();
 
   public WorkflowQueueImpl(int capacity) {
     if (capacity < 1) {
@@ -38,7 +42,15 @@ final class WorkflowQueueImpl<E> implements WorkflowQueue<E> {
 
   @Override
   public E take() throws InterruptedException {
-    WorkflowThread.await("WorkflowQueue.take", () -> !queue.isEmpty());
+    if (queue.isEmpty()) {
+      WorkflowThread current = DeterministicRunnerImpl.currentThreadInternal();
+      takers.add(current);
+      try {
+        WorkflowThread.awaitWakeUp("WorkflowQueue.take", () -> !queue.isEmpty());
+      } finally {
+        takers.remove(current);
+      }
+    }
     return queue.pollLast();
   }
 
@@ -56,7 +68,7 @@ final class WorkflowQueueImpl<E> implements WorkflowQueue<E> {
     if (queue.size() == capacity) {
       return false;
     }
-    queue.addLast(e);
+    add(e);
     return true;
   }
 
@@ -69,7 +81,14 @@ final class WorkflowQueueImpl<E> implements WorkflowQueue<E> {
     if (queue.size() >= capacity) {
       WorkflowThread.await("WorkflowQueue.put", () -> queue.size() < capacity);
     }
+    add(e);
+  }
+
+  private void add(E e) {
     queue.addLast(e);
+    for (WorkflowThread taker : takers) {
+      taker.wakeUp();
+    }
   }
 
   @Override
@@ -80,7 +99,7 @@ final class WorkflowQueueImpl<E> implements WorkflowQueue<E> {
     if (!success) {
       return false;
     }
-    queue.addLast(e);
+    add(e);
     return true;
   }
 
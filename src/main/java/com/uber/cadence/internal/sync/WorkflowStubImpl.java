@@ -37,6 +37,7 @@ import com.uber.cadence.internal.common.SignalWithStartWorkflowExecutionParamete
 import com.uber.cadence.internal.common.StartWorkflowExecutionParameters;
 import com.uber.cadence.internal.common.WorkflowExecutionFailedException;
 import com.uber.cadence.internal.common.WorkflowExecutionUtils;
+import com.uber.cadence.internal.common.WorkflowResultWatcher;
 import com.uber.cadence.internal.external.GenericWorkflowClientExternal;
 import com.uber.cadence.internal.replay.QueryWorkflowParameters;
 import com.uber.cadence.internal.replay.SignalExternalWorkflowParameters;
@@ -383,14 +384,17 @@ class WorkflowStubImpl implements WorkflowStub {
       throws TimeoutException {
     checkStarted();
     try {
+      Optional<WorkflowResultWatcher> watcher = genericClient.getResultWatcher();
       byte[] resultValue =
-          WorkflowExecutionUtils.getWorkflowExecutionResult(
-              genericClient.getService(),
-              genericClient.getDomain(),
-              execution.get(),
-              workflowType,
-              timeout,
-              unit);
+          watcher.isPresent()
+              ? watcher.get().getResult(execution.get(), workflowType, timeout, unit)
+              : WorkflowExecutionUtils.getWorkflowExecutionResult(
+                  genericClient.getService(),
+                  genericClient.getDomain(),
+                  execution.get(),
+                  workflowType,
+                  timeout,
+                  unit);
       if (resultValue == null) {
         return null;
       }
@@ -422,30 +426,33 @@ class WorkflowStubImpl implements WorkflowStub {
   public <R> CompletableFuture<R> getResultAsync(
       long timeout, TimeUnit unit, Class<R> resultClass, Type resultType) {
     checkStarted();
-    return WorkflowExecutionUtils.getWorkflowExecutionResultAsync(
-            genericClient.getService(),
-            genericClient.getDomain(),
-            execution.get(),
-            workflowType,
-            timeout,
-            unit)
-        .handle(
-            (r, e) -> {
-              if (e instanceof CompletionException) {
-                e = e.getCause();
-              }
-              if (e instanceof WorkflowExecutionFailedException) {
-                return mapToWorkflowFailureException(
-                    (WorkflowExecutionFailedException) e, resultClass);
-              }
-              if (e != null) {
-                throw CheckedExceptionWrapper.wrap(e);
-              }
-              if (r == null) {
-                return null;
-              }
-              return dataConverter.fromData(r, resultClass, resultType);
-            });
+    Optional<WorkflowResultWatcher> watcher = genericClient.getResultWatcher();
+    CompletableFuture<byte[]> result =
+        watcher.isPresent()
+            ? watcher.get().getResultAsync(execution.get(), workflowType, timeout, unit)
+            : WorkflowExecutionUtils.getWorkflowExecutionResultAsync(
+                genericClient.getService(),
+                genericClient.getDomain(),
+                execution.get(),
+                workflowType,
+                timeout,
+                unit);
+    return result.handle(
+        (r, e) -> {
+          if (e instanceof CompletionException) {
+            e = e.getCause();
+          }
+          if (e instanceof WorkflowExecutionFailedException) {
+            return mapToWorkflowFailureException((WorkflowExecutionFailedException) e, resultClass);
+          }
+          if (e != null) {
+            throw CheckedExceptionWrapper.wrap(e);
+          }
+          if (r == null) {
+            return null;
+          }
+          return dataConverter.fromData(r, resultClass, resultType);
+        });
   }
 
   private <R> R mapToWorkflowFailureException(
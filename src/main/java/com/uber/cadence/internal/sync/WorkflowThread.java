@@ -43,6 +43,16 @@ interface WorkflowThread extends CancellationScope {
     currentThreadInternal().yield(reason, unblockCondition);
   }
 
+  /**
+   * Block current thread until unblockCondition is evaluated to true. Unlike {@link #await(String,
+   * Supplier)} the condition is reevaluated only after the thread is woken up by {@link #wakeUp()},
+   * so the code that makes the condition true must wake up all the waiting threads.
+   */
+  static void awaitWakeUp(String reason, Supplier<Boolean> unblockCondition)
+      throws DestroyWorkflowThreadError {
+    currentThreadInternal().yieldUntilWokenUp(reason, unblockCondition);
+  }
+
   /**
    * Block current thread until unblockCondition is evaluated to true or timeoutMillis passes.
    *
@@ -99,6 +109,15 @@ interface WorkflowThread extends CancellationScope {
   boolean yield(long timeoutMillis, String reason, Supplier<Boolean> unblockCondition)
       throws DestroyWorkflowThreadError;
 
+  void yieldUntilWokenUp(String reason, Supplier<Boolean> unblockCondition)
+      throws DestroyWorkflowThreadError;
+
+  /** @return true if blocked in {@link #awaitWakeUp(String, Supplier)}. */
+  boolean isWaitingForWakeUp();
+
+  /** Makes the runner resume the thread if it is blocked in {@link #awaitWakeUp}. */
+  void wakeUp();
+
   /**
    * Stop executing all workflow threads and puts {@link DeterministicRunner} into closed state. To
    * be called only from a workflow thread.
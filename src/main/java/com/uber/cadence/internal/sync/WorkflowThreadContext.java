@@ -40,6 +40,8 @@ class WorkflowThreadContext {
   private boolean remainedBlocked;
   private String yieldReason;
   private boolean destroyRequested;
+  // True while yielded in a wait that only a wakeUp call can unblock.
+  private boolean waitingForWakeUp;
 
   WorkflowThreadContext(Lock lock) {
     this.lock = lock;
@@ -60,12 +62,22 @@ class WorkflowThreadContext {
   }
 
   public void yield(String reason, Supplier<Boolean> unblockFunction) {
+    yield(reason, unblockFunction, false);
+  }
+
+  /**
+   * @param waitForWakeUp true if unblockFunction can become true only after the waiting thread is
+   *     woken up through {@link DeterministicRunnerImpl#wakeUp(WorkflowThread)}. The runner doesn't
+   *     resume such thread to reevaluate the function until then.
+   */
+  public void yield(String reason, Supplier<Boolean> unblockFunction, boolean waitForWakeUp) {
     if (unblockFunction == null) {
       throw new IllegalArgumentException("null unblockFunction");
     }
     // Evaluates unblockFunction out of the lock to avoid deadlocks.
     lock.lock();
     try {
+      waitingForWakeUp = waitForWakeUp;
       // TODO: Verify that calling unblockFunction under the lock is a sane thing to do.
       while (!inRunUntilBlocked || !unblockFunction.get()) {
         if (destroyRequested) {
@@ -84,6 +96,7 @@ class WorkflowThreadContext {
       setStatus(Status.RUNNING);
       remainedBlocked = false;
       yieldReason = null;
+      waitingForWakeUp = false;
       lock.unlock();
     }
   }
@@ -191,6 +204,15 @@ class WorkflowThreadContext {
     }
   }
 
+  public boolean isWaitingForWakeUp() {
+    lock.lock();
+    try {
+      return waitingForWakeUp;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   public String getYieldReason() {
     return yieldReason;
   }
@@ -417,6 +417,21 @@ class WorkflowThreadImpl implements WorkflowThread {
     context.yield(reason, unblockCondition);
   }
 
+  @Override
+  public void yieldUntilWokenUp(String reason, Supplier<Boolean> unblockCondition) {
+    context.yield(reason, unblockCondition, true);
+  }
+
+  @Override
+  public boolean isWaitingForWakeUp() {
+    return context.isWaitingForWakeUp();
+  }
+
+  @Override
+  public void wakeUp() {
+    runner.wakeUp(this);
+  }
+
   @Override
   public boolean yield(long timeoutMillis, String reason, Supplier<Boolean> unblockCondition)
       throws DestroyWorkflowThreadError {
@@ -427,7 +442,12 @@ class WorkflowThreadImpl implements WorkflowThread {
     setBlockedUntil(blockedUntil);
     YieldWithTimeoutCondition condition =
         new YieldWithTimeoutCondition(unblockCondition, blockedUntil);
-    WorkflowThread.await(reason, condition);
+    try {
+      WorkflowThread.await(reason, condition);
+    } finally {
+      // Untimed waits that follow must not report the deadline of this one.
+      setBlockedUntil(0);
+    }
     return !condition.isTimedOut();
   }
 
@@ -19,20 +19,23 @@ package com.uber.cadence.internal.sync;
 
 import com.uber.cadence.workflow.CompletablePromise;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
-/** Helper class for timers. Not thread safe. */
+/**
+ * Helper class for timers. Not thread safe.
+ *
+ * <p>Cached workflows keep their timers for their whole lifetime, so groups of timers are stored in
+ * a list sorted by fire time instead of a {@code TreeMap<Long, Timers>}, which allocates a boxed
+ * key and a tree node per fire time. Workflows rarely have more than a few pending timers, so the
+ * linear insertion and removal cost is negligible.
+ */
 class WorkflowTimers {
 
   /** Timers that fire at the same time. */
   private static class Timers {
 
-    private final Set<CompletablePromise<Void>> results = new HashSet<>();
+    // Usually holds a single timer. Kept in insertion order, so timers fire deterministically.
+    private final List<CompletablePromise<Void>> results = new ArrayList<>(1);
 
     private final long fireTime;
 
@@ -69,30 +72,34 @@ class WorkflowTimers {
   }
 
   /** Timers sorted by fire time. */
-  private final SortedMap<Long, Timers> timers = new TreeMap<>();
+  private final List<Timers> timers = new ArrayList<>();
 
   public void addTimer(long fireTime, CompletablePromise<Void> result) {
-    Timers t = timers.get(fireTime);
-    if (t == null) {
+    int index = indexOf(fireTime);
+    Timers t;
+    if (index >= 0) {
+      t = timers.get(index);
+    } else {
       t = new Timers(fireTime);
-      timers.put(fireTime, t);
+      timers.add(-index - 1, t);
     }
     t.addTimer(result);
   }
 
   public void removeTimer(long fireTime, CompletablePromise<Void> result) {
-    Timers t = timers.get(fireTime);
-    if (t == null) {
+    int index = indexOf(fireTime);
+    if (index < 0) {
       throw new Error("Unknown timer");
     }
+    Timers t = timers.get(index);
     t.remove(result);
     if (t.isEmpty()) {
-      timers.remove(fireTime);
+      timers.remove(index);
     }
   }
 
   public boolean hasTimersToFire(long currentTime) {
-    return !timers.isEmpty() && timers.firstKey() <= currentTime;
+    return !timers.isEmpty() && timers.get(0).fireTime <= currentTime;
   }
 
   /** @return true if any timer fired */
@@ -101,16 +108,19 @@ class WorkflowTimers {
     boolean newTimersAdded;
     do {
       List<Timers> toFire = new ArrayList<>();
-      for (Map.Entry<Long, Timers> pair : timers.entrySet()) {
-        if (pair.getKey() > currentTime) {
+      for (Timers t : timers) {
+        if (t.fireTime > currentTime) {
           break;
         }
-        toFire.add(pair.getValue());
+        toFire.add(t);
       }
       int beforeSize = timers.size() - toFire.size();
       for (Timers t : toFire) {
         t.fire();
-        timers.remove(t.fireTime);
+        int index = indexOf(t.fireTime);
+        if (index >= 0) {
+          timers.remove(index);
+        }
       }
       newTimersAdded = timers.size() > beforeSize;
       fired = fired || !toFire.isEmpty();
@@ -121,6 +131,27 @@ class WorkflowTimers {
     if (timers.isEmpty()) {
       return 0;
     }
-    return timers.firstKey();
+    return timers.get(0).fireTime;
+  }
+
+  /**
+   * @return index of the timers firing at the given time or {@code (-(insertion point) - 1)} if
+   *     there are none, the same as {@link java.util.Collections#binarySearch(List, Object)}
+   */
+  private int indexOf(long fireTime) {
+    int low = 0;
+    int high = timers.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midFireTime = timers.get(mid).fireTime;
+      if (midFireTime < fireTime) {
+        low = mid + 1;
+      } else if (midFireTime > fireTime) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
   }
 }
@@ -18,7 +18,7 @@
 package com.uber.cadence.internal.testservice;
 
 import com.google.common.base.Preconditions;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -34,8 +34,8 @@ import javax.annotation.Nonnull;
  * @param <E>
  */
 class TaskQueue<E> {
-  private final LinkedList<E> backlog = new LinkedList<>();
-  private final LinkedList<PollFuture> waiters = new LinkedList<>();
+  private final ArrayDeque<E> backlog = new ArrayDeque<>();
+  private final ArrayDeque<PollFuture> waiters = new ArrayDeque<>();
 
   /**
    * Adds the provided element to the tail of this queue.
@@ -0,0 +1,602 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.testservice;
+
+import com.uber.cadence.BadRequestError;
+import com.uber.cadence.EventType;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.Memo;
+import com.uber.cadence.SearchAttributes;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.WorkflowExecutionCloseStatus;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowExecutionStartedEventAttributes;
+import com.uber.cadence.WorkflowType;
+import com.uber.cadence.internal.common.WorkflowExecutionUtils;
+import com.uber.cadence.internal.testservice.TestWorkflowStore.WorkflowState;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Visibility records of the executions stored by the test service. Records are updated as history
+ * events are saved, so listing doesn't rebuild them from histories. The records of a domain are
+ * indexed by open or closed state, workflow id, workflow type, close status and search attribute
+ * values. Every index is ordered by start time, newest first, so a page of a filtered list is read
+ * from the smallest index that matches one of the conditions, starting at the position stored in
+ * the page token.
+ *
+ * <p>The indexes are concurrent maps, so updates of different executions don't lock each other out
+ * and history saves apply them after releasing their shard lock. An update is started with {@link
+ * #beginUpdate(ExecutionId)} while the history is still locked, which orders the updates of an
+ * execution and makes list and count calls wait for the updates of the saves that completed before
+ * they started.
+ */
+final class TestVisibilityStore {
+
+  // Greater than any run id, which are UUIDs.
+  private static final String LAST_RUN_ID = "\uffff";
+
+  /** Conditions that all have to match for an execution to be listed or counted. */
+  static final class Filter {
+    private String workflowId;
+    private String runId;
+    private String workflowType;
+    private WorkflowState state;
+    private WorkflowExecutionCloseStatus closeStatus;
+    private long minStartTime = Long.MIN_VALUE;
+    private long maxStartTime = Long.MAX_VALUE;
+    private long minCloseTime = Long.MIN_VALUE;
+    private long maxCloseTime = Long.MAX_VALUE;
+    private final Map<String, String> searchAttributes = new HashMap<>();
+
+    Filter setWorkflowId(String workflowId) {
+      this.workflowId = workflowId;
+      return this;
+    }
+
+    Filter setRunId(String runId) {
+      this.runId = runId;
+      return this;
+    }
+
+    Filter setWorkflowType(String workflowType) {
+      this.workflowType = workflowType;
+      return this;
+    }
+
+    Filter setState(WorkflowState state) {
+      this.state = state;
+      return this;
+    }
+
+    Filter setCloseStatus(WorkflowExecutionCloseStatus closeStatus) {
+      this.closeStatus = closeStatus;
+      return this;
+    }
+
+    /** Narrows the start time range, in nanoseconds, to {@code [min, max]}. */
+    Filter setStartTimeRange(long min, long max) {
+      minStartTime = Math.max(minStartTime, min);
+      maxStartTime = Math.min(maxStartTime, max);
+      return this;
+    }
+
+    /** Narrows the close time range, in nanoseconds, to {@code [min, max]}. */
+    Filter setCloseTimeRange(long min, long max) {
+      minCloseTime = Math.max(minCloseTime, min);
+      maxCloseTime = Math.min(maxCloseTime, max);
+      return this;
+    }
+
+    /**
+     * @param value value as it is written in a query, that is without the JSON quotes of strings
+     */
+    Filter setSearchAttribute(String key, String value) {
+      searchAttributes.put(key, value);
+      return this;
+    }
+
+    private boolean hasStartTimeRange() {
+      return minStartTime != Long.MIN_VALUE || maxStartTime != Long.MAX_VALUE;
+    }
+
+    private boolean hasCloseTimeRange() {
+      return minCloseTime != Long.MIN_VALUE || maxCloseTime != Long.MAX_VALUE;
+    }
+
+    // True if the index selected for this filter contains exactly the matching records.
+    private boolean isCoveredByIndex() {
+      if (runId != null || hasStartTimeRange() || hasCloseTimeRange()) {
+        return false;
+      }
+      int conditions = searchAttributes.size();
+      for (Object condition : new Object[] {workflowId, workflowType, state, closeStatus}) {
+        if (condition != null) {
+          conditions++;
+        }
+      }
+      return conditions <= 1;
+    }
+  }
+
+  static final class Page {
+    private final List<WorkflowExecutionInfo> executions;
+    private final byte[] nextPageToken;
+
+    private Page(List<WorkflowExecutionInfo> executions, byte[] nextPageToken) {
+      this.executions = executions;
+      this.nextPageToken = nextPageToken;
+    }
+
+    List<WorkflowExecutionInfo> getExecutions() {
+      return executions;
+    }
+
+    /** @return position after the last returned execution or null if the page isn't full */
+    byte[] getNextPageToken() {
+      return nextPageToken;
+    }
+  }
+
+  /** Position of a record in the indexes. Newer executions come first. */
+  private static final class Key implements Comparable<Key> {
+    private final long startTime;
+    private final String runId;
+
+    private Key(long startTime, String runId) {
+      this.startTime = startTime;
+      this.runId = runId;
+    }
+
+    @Override
+    public int compareTo(Key o) {
+      int result = Long.compare(o.startTime, startTime);
+      return result != 0 ? result : runId.compareTo(o.runId);
+    }
+
+    private byte[] toPageToken() {
+      return (startTime + ":" + runId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Key fromPageToken(byte[] token) throws BadRequestError {
+      String value = new String(token, StandardCharsets.UTF_8);
+      int separator = value.indexOf(':');
+      try {
+        if (separator > 0) {
+          return new Key(
+              Long.parseLong(value.substring(0, separator)), value.substring(separator + 1));
+        }
+      } catch (NumberFormatException e) {
+        // Reported below
+      }
+      throw new BadRequestError("Invalid next page token: " + value);
+    }
+  }
+
+  private static final class Record {
+    private final WorkflowExecution execution;
+    private final WorkflowType type;
+    private final Key key;
+    private final String taskList;
+    private final boolean cron;
+    private final Memo memo;
+    private final WorkflowExecution parentExecution;
+    private final String parentDomainName;
+    // Values as they are stored in the history, and as they are compared with queries. Replaced as
+    // a whole on upsert, as listing reads them concurrently.
+    private volatile Map<String, byte[]> searchAttributes = Collections.emptyMap();
+    private volatile Map<String, String> searchAttributeValues = Collections.emptyMap();
+    private volatile long historyLength;
+    private volatile long closeTime;
+    private volatile WorkflowExecutionCloseStatus closeStatus;
+
+    private Record(WorkflowExecution execution, HistoryEvent startedEvent) {
+      WorkflowExecutionStartedEventAttributes attributes =
+          startedEvent.getWorkflowExecutionStartedEventAttributes();
+      String cronSchedule = attributes.getCronSchedule();
+      this.execution = execution;
+      this.type = attributes.getWorkflowType();
+      this.key = new Key(startedEvent.getTimestamp(), execution.getRunId());
+      this.taskList = attributes.getTaskList() == null ? null : attributes.getTaskList().getName();
+      this.cron = cronSchedule != null && !cronSchedule.isEmpty();
+      this.memo = attributes.getMemo();
+      this.parentExecution = attributes.getParentWorkflowExecution();
+      this.parentDomainName = attributes.getParentWorkflowDomain();
+    }
+
+    private boolean isClosed() {
+      return closeStatus != null;
+    }
+
+    private boolean matches(Filter filter) {
+      if (filter.workflowId != null && !filter.workflowId.equals(execution.getWorkflowId())) {
+        return false;
+      }
+      if (filter.runId != null && !filter.runId.equals(execution.getRunId())) {
+        return false;
+      }
+      if (filter.workflowType != null && !filter.workflowType.equals(type.getName())) {
+        return false;
+      }
+      if (filter.state != null && (filter.state == WorkflowState.CLOSED) != isClosed()) {
+        return false;
+      }
+      if (filter.closeStatus != null && filter.closeStatus != closeStatus) {
+        return false;
+      }
+      if (key.startTime < filter.minStartTime || key.startTime > filter.maxStartTime) {
+        return false;
+      }
+      if (filter.hasCloseTimeRange()
+          && (!isClosed() || closeTime < filter.minCloseTime || closeTime > filter.maxCloseTime)) {
+        return false;
+      }
+      for (Map.Entry<String, String> condition : filter.searchAttributes.entrySet()) {
+        if (!condition.getValue().equals(searchAttributeValues.get(condition.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private WorkflowExecutionInfo toInfo() {
+      WorkflowExecutionInfo result =
+          new WorkflowExecutionInfo()
+              .setExecution(execution)
+              .setType(type)
+              .setStartTime(key.startTime)
+              .setHistoryLength(historyLength)
+              .setTaskList(taskList)
+              .setCron(cron)
+              .setMemo(memo)
+              .setParentExecution(parentExecution)
+              .setParentDomainName(parentDomainName);
+      if (!searchAttributes.isEmpty()) {
+        result.setSearchAttributes(
+            new SearchAttributes().setIndexedFields(new HashMap<>(searchAttributes)));
+      }
+      if (isClosed()) {
+        result.setCloseTime(closeTime).setCloseStatus(closeStatus);
+      }
+      return result;
+    }
+  }
+
+  /** Records grouped by a value, each group ordered by {@link Key}. */
+  private static final class Index {
+    private final ConcurrentMap<String, NavigableMap<Key, Record>> groups =
+        new ConcurrentHashMap<>();
+
+    private void add(String value, Record record) {
+      if (value != null) {
+        groups.compute(
+            value,
+            (v, group) -> {
+              NavigableMap<Key, Record> result = group;
+              if (result == null) {
+                result = new ConcurrentSkipListMap<>();
+              }
+              result.put(record.key, record);
+              return result;
+            });
+      }
+    }
+
+    private void remove(String value, Record record) {
+      if (value != null) {
+        groups.computeIfPresent(
+            value,
+            (v, group) -> {
+              group.remove(record.key);
+              return group.isEmpty() ? null : group;
+            });
+      }
+    }
+
+    private NavigableMap<Key, Record> get(String value) {
+      NavigableMap<Key, Record> result = groups.get(value);
+      return result == null ? Collections.emptyNavigableMap() : result;
+    }
+  }
+
+  private static final class DomainIndex {
+    private final NavigableMap<Key, Record> all = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Key, Record> open = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Key, Record> closed = new ConcurrentSkipListMap<>();
+    private final Index byWorkflowId = new Index();
+    private final Index byWorkflowType = new Index();
+    private final Index byCloseStatus = new Index();
+    private final ConcurrentMap<String, Index> bySearchAttribute = new ConcurrentHashMap<>();
+    // Updates that were started and not applied yet. Guarded by this.
+    private final TreeSet<Long> pendingUpdates = new TreeSet<>();
+    private long lastUpdate;
+
+    private synchronized long beginUpdate() {
+      long result = ++lastUpdate;
+      pendingUpdates.add(result);
+      return result;
+    }
+
+    private synchronized void endUpdate(long update) {
+      pendingUpdates.remove(update);
+      notifyAll();
+    }
+
+    /** Waits for the updates started before this call. Later ones are not waited for. */
+    private synchronized void awaitUpdates() {
+      long last = lastUpdate;
+      boolean interrupted = false;
+      while (!pendingUpdates.isEmpty() && pendingUpdates.first() <= last) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /** Returns the smallest index of records that match at least one condition of the filter. */
+    private NavigableMap<Key, Record> select(Filter filter) {
+      NavigableMap<Key, Record> result = all;
+      if (filter.state == WorkflowState.OPEN) {
+        result = open;
+      } else if (filter.state == WorkflowState.CLOSED
+          || filter.closeStatus != null
+          || filter.hasCloseTimeRange()) {
+        result = closed;
+      }
+      if (filter.workflowId != null) {
+        result = smaller(result, byWorkflowId.get(filter.workflowId));
+      }
+      if (filter.workflowType != null) {
+        result = smaller(result, byWorkflowType.get(filter.workflowType));
+      }
+      if (filter.closeStatus != null) {
+        result = smaller(result, byCloseStatus.get(filter.closeStatus.name()));
+      }
+      for (Map.Entry<String, String> condition : filter.searchAttributes.entrySet()) {
+        Index index = bySearchAttribute.get(condition.getKey());
+        if (index == null) {
+          return Collections.emptyNavigableMap();
+        }
+        result = smaller(result, index.get(condition.getValue()));
+      }
+      return result;
+    }
+
+    private static NavigableMap<Key, Record> smaller(
+        NavigableMap<Key, Record> m1, NavigableMap<Key, Record> m2) {
+      return m2.size() < m1.size() ? m2 : m1;
+    }
+  }
+
+  /** Record of an execution and the lock that orders its updates. */
+  private static final class Execution {
+    private final Lock lock = new ReentrantLock();
+    // Guarded by lock.
+    private Record record;
+  }
+
+  /** Update of the record of an execution started by {@link #beginUpdate(ExecutionId)}. */
+  final class Update {
+    private final ExecutionId executionId;
+    private final Execution execution;
+    private final DomainIndex domain;
+    private final long update;
+
+    private Update(ExecutionId executionId, Execution execution, DomainIndex domain, long update) {
+      this.executionId = executionId;
+      this.execution = execution;
+      this.domain = domain;
+      this.update = update;
+    }
+
+    /**
+     * Updates the record with newly saved events of the history and ends the update.
+     *
+     * @param historyLength number of events in the history including the new ones
+     */
+    void apply(List<HistoryEvent> events, long historyLength) {
+      try {
+        Record record = execution.record;
+        for (HistoryEvent event : events) {
+          if (event.getEventType() == EventType.WorkflowExecutionStarted) {
+            record = new Record(executionId.getExecution(), event);
+            execution.record = record;
+            addStarted(domain, record, event);
+          } else if (record == null) {
+            continue;
+          } else if (event.getEventType() == EventType.UpsertWorkflowSearchAttributes) {
+            upsertSearchAttributes(
+                domain,
+                record,
+                event.getUpsertWorkflowSearchAttributesEventAttributes().getSearchAttributes());
+          } else if (WorkflowExecutionUtils.isWorkflowExecutionCompletedEvent(event)) {
+            close(domain, record, event);
+          }
+        }
+        if (record != null) {
+          record.historyLength = historyLength;
+        }
+      } finally {
+        execution.lock.unlock();
+        domain.endUpdate(update);
+      }
+    }
+  }
+
+  private final ConcurrentMap<ExecutionId, Execution> executions = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, DomainIndex> domains = new ConcurrentHashMap<>();
+
+  /**
+   * Starts an update of the record of an execution. Waits for the previous update of the same
+   * execution to be applied. The returned update must be applied.
+   */
+  Update beginUpdate(ExecutionId executionId) {
+    DomainIndex domain = domains.computeIfAbsent(executionId.getDomain(), (d) -> new DomainIndex());
+    Execution execution = executions.computeIfAbsent(executionId, (id) -> new Execution());
+    execution.lock.lock();
+    return new Update(executionId, execution, domain, domain.beginUpdate());
+  }
+
+  /**
+   * Updates the record of an execution with newly saved events of its history.
+   *
+   * @param historyLength number of events in the history including the new ones
+   */
+  void recordEvents(ExecutionId executionId, List<HistoryEvent> events, long historyLength) {
+    beginUpdate(executionId).apply(events, historyLength);
+  }
+
+  /**
+   * Returns up to {@code pageSize} executions that match the filter, newest first.
+   *
+   * @param pageSize maximum number of executions to return, all of them if not positive
+   * @param nextPageToken token of the previous page or null to start from the newest execution
+   */
+  Page list(String domain, Filter filter, int pageSize, byte[] nextPageToken)
+      throws BadRequestError {
+    Key after =
+        nextPageToken == null || nextPageToken.length == 0
+            ? null
+            : Key.fromPageToken(nextPageToken);
+    List<WorkflowExecutionInfo> result = new ArrayList<>();
+    Key last = null;
+    for (Record record : getRange(domain, filter, after).values()) {
+      if (pageSize > 0 && result.size() == pageSize) {
+        return new Page(result, last.toPageToken());
+      }
+      if (record.matches(filter)) {
+        result.add(record.toInfo());
+        last = record.key;
+      }
+    }
+    return new Page(result, null);
+  }
+
+  /** Returns the number of executions that match the filter. */
+  long count(String domain, Filter filter) {
+    NavigableMap<Key, Record> range = getRange(domain, filter, null);
+    if (filter.isCoveredByIndex()) {
+      return range.size();
+    }
+    long result = 0;
+    for (Record record : range.values()) {
+      if (record.matches(filter)) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  // Records of the selected index within the start time range and after the page token.
+  private NavigableMap<Key, Record> getRange(String domain, Filter filter, Key after) {
+    DomainIndex index = domains.get(domain);
+    if (index == null) {
+      return Collections.emptyNavigableMap();
+    }
+    index.awaitUpdates();
+    NavigableMap<Key, Record> result = index.select(filter);
+    Key from = null;
+    boolean fromInclusive = true;
+    if (filter.maxStartTime != Long.MAX_VALUE) {
+      from = new Key(filter.maxStartTime, "");
+    }
+    if (after != null && (from == null || after.compareTo(from) >= 0)) {
+      from = after;
+      fromInclusive = false;
+    }
+    if (from != null) {
+      result = result.tailMap(from, fromInclusive);
+    }
+    if (filter.minStartTime != Long.MIN_VALUE) {
+      Key to = new Key(filter.minStartTime, LAST_RUN_ID);
+      if (from != null && to.compareTo(from) < 0) {
+        return Collections.emptyNavigableMap();
+      }
+      result = result.headMap(to, true);
+    }
+    return result;
+  }
+
+  private void addStarted(DomainIndex domain, Record record, HistoryEvent startedEvent) {
+    domain.all.put(record.key, record);
+    domain.open.put(record.key, record);
+    domain.byWorkflowId.add(record.execution.getWorkflowId(), record);
+    domain.byWorkflowType.add(record.type.getName(), record);
+    upsertSearchAttributes(
+        domain,
+        record,
+        startedEvent.getWorkflowExecutionStartedEventAttributes().getSearchAttributes());
+  }
+
+  private void upsertSearchAttributes(
+      DomainIndex domain, Record record, SearchAttributes searchAttributes) {
+    if (searchAttributes == null || searchAttributes.getIndexedFields() == null) {
+      return;
+    }
+    Map<String, byte[]> attributes = new HashMap<>(record.searchAttributes);
+    Map<String, String> values = new HashMap<>(record.searchAttributeValues);
+    for (Map.Entry<String, byte[]> field : searchAttributes.getIndexedFields().entrySet()) {
+      String key = field.getKey();
+      Index index = domain.bySearchAttribute.computeIfAbsent(key, (k) -> new Index());
+      index.remove(values.get(key), record);
+      String value = toQueryValue(field.getValue());
+      attributes.put(key, field.getValue());
+      values.put(key, value);
+      index.add(value, record);
+    }
+    record.searchAttributes = attributes;
+    record.searchAttributeValues = values;
+  }
+
+  private void close(DomainIndex domain, Record record, HistoryEvent closeEvent) {
+    record.closeTime = closeEvent.getTimestamp();
+    record.closeStatus = WorkflowExecutionUtils.getCloseStatus(closeEvent);
+    // Added to closed first, so that concurrent listing doesn't miss the record.
+    domain.closed.put(record.key, record);
+    domain.open.remove(record.key);
+    domain.byCloseStatus.add(record.closeStatus.name(), record);
+  }
+
+  // Search attributes are JSON encoded. Strings are compared without their quotes.
+  private static String toQueryValue(byte[] value) {
+    if (value == null) {
+      return null;
+    }
+    String result = new String(value, StandardCharsets.UTF_8).trim();
+    if (result.length() >= 2 && result.startsWith("\"") && result.endsWith("\"")) {
+      return result.substring(1, result.length() - 1);
+    }
+    return result;
+  }
+}
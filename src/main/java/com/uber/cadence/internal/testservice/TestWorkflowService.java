@@ -103,6 +103,7 @@ import com.uber.cadence.SignalWithStartWorkflowExecutionAsyncRequest;
 import com.uber.cadence.SignalWithStartWorkflowExecutionAsyncResponse;
 import com.uber.cadence.SignalWithStartWorkflowExecutionRequest;
 import com.uber.cadence.SignalWorkflowExecutionRequest;
+import com.uber.cadence.StartTimeFilter;
 import com.uber.cadence.StartWorkflowExecutionAsyncRequest;
 import com.uber.cadence.StartWorkflowExecutionAsyncResponse;
 import com.uber.cadence.StartWorkflowExecutionRequest;
@@ -120,8 +121,8 @@ import com.uber.cadence.WorkflowExecutionAlreadyStartedError;
 import com.uber.cadence.WorkflowExecutionCloseStatus;
 import com.uber.cadence.WorkflowExecutionContinuedAsNewEventAttributes;
 import com.uber.cadence.WorkflowExecutionFilter;
-import com.uber.cadence.WorkflowExecutionInfo;
 import com.uber.cadence.WorkflowIdReusePolicy;
+import com.uber.cadence.WorkflowTypeFilter;
 import com.uber.cadence.internal.testservice.TestWorkflowMutableStateImpl.QueryId;
 import com.uber.cadence.internal.testservice.TestWorkflowStore.WorkflowState;
 import com.uber.cadence.serviceclient.AsyncMethodCallback;
@@ -129,7 +130,6 @@ import com.uber.cadence.serviceclient.ClientOptions;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import java.time.Duration;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalLong;
@@ -150,17 +150,47 @@ public final class TestWorkflowService implements IWorkflowService {
 
   private static final Logger log = LoggerFactory.getLogger(TestWorkflowService.class);
 
-  private final Lock lock = new ReentrantLock();
+  /** Mutable states of the executions whose workflow ids map to the same shard. */
+  private static final class ExecutionShard {
+    private final Lock lock = new ReentrantLock();
 
-  private final TestWorkflowStore store = new TestWorkflowStoreImpl();
+    private final Map<ExecutionId, TestWorkflowMutableState> executions = new HashMap<>();
 
-  private final Map<ExecutionId, TestWorkflowMutableState> executions = new HashMap<>();
+    // key->WorkflowId
+    private final Map<WorkflowId, TestWorkflowMutableState> executionsByWorkflowId =
+        new HashMap<>();
+  }
+
+  private final ExecutionShard[] shards;
 
-  // key->WorkflowId
-  private final Map<WorkflowId, TestWorkflowMutableState> executionsByWorkflowId = new HashMap<>();
+  private final TestWorkflowStore store;
 
   private final ForkJoinPool forkJoinPool = new ForkJoinPool(4);
 
+  public TestWorkflowService() {
+    this(1);
+  }
+
+  /**
+   * @param shardCount number of independently locked partitions of the executions and their
+   *     histories. Requests for workflows in different shards don't contend with each other, which
+   *     matters when a test runs thousands of concurrent workflows.
+   */
+  public TestWorkflowService(int shardCount) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + shardCount);
+    }
+    shards = new ExecutionShard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new ExecutionShard();
+    }
+    store = new TestWorkflowStoreImpl(shardCount);
+  }
+
+  private ExecutionShard getShard(WorkflowId workflowId) {
+    return shards[Math.floorMod(workflowId.hashCode(), shards.length)];
+  }
+
   @Override
   public void close() {
     store.close();
@@ -178,18 +208,19 @@ public final class TestWorkflowService implements IWorkflowService {
 
   private TestWorkflowMutableState getMutableState(ExecutionId executionId, boolean failNotExists)
       throws InternalServiceError, EntityNotExistsError {
-    lock.lock();
+    if (executionId.getExecution().getRunId() == null) {
+      return getMutableState(executionId.getWorkflowId(), failNotExists);
+    }
+    ExecutionShard shard = getShard(executionId.getWorkflowId());
+    shard.lock.lock();
     try {
-      if (executionId.getExecution().getRunId() == null) {
-        return getMutableState(executionId.getWorkflowId(), failNotExists);
-      }
-      TestWorkflowMutableState mutableState = executions.get(executionId);
+      TestWorkflowMutableState mutableState = shard.executions.get(executionId);
       if (mutableState == null && failNotExists) {
         throw new InternalServiceError("Execution not found in mutable state: " + executionId);
       }
       return mutableState;
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
   }
 
@@ -200,15 +231,16 @@ public final class TestWorkflowService implements IWorkflowService {
 
   private TestWorkflowMutableState getMutableState(WorkflowId workflowId, boolean failNotExists)
       throws EntityNotExistsError {
-    lock.lock();
+    ExecutionShard shard = getShard(workflowId);
+    shard.lock.lock();
     try {
-      TestWorkflowMutableState mutableState = executionsByWorkflowId.get(workflowId);
+      TestWorkflowMutableState mutableState = shard.executionsByWorkflowId.get(workflowId);
       if (mutableState == null && failNotExists) {
         throw new EntityNotExistsError("Execution not found in mutable state: " + workflowId);
       }
       return mutableState;
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
   }
 
@@ -295,9 +327,10 @@ public final class TestWorkflowService implements IWorkflowService {
     String domain = requireNotNull("Domain", startRequest.getDomain());
     WorkflowId workflowId = new WorkflowId(domain, requestWorkflowId);
     TestWorkflowMutableState existing;
-    lock.lock();
+    ExecutionShard shard = getShard(workflowId);
+    shard.lock.lock();
     try {
-      existing = executionsByWorkflowId.get(workflowId);
+      existing = shard.executionsByWorkflowId.get(workflowId);
       if (existing != null) {
         Optional<WorkflowExecutionCloseStatus> statusOptional = existing.getCloseStatus();
         WorkflowIdReusePolicy policy =
@@ -327,7 +360,7 @@ public final class TestWorkflowService implements IWorkflowService {
           signalWithStartSignal,
           workflowId);
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
   }
 
@@ -379,8 +412,9 @@ public final class TestWorkflowService implements IWorkflowService {
             store);
     WorkflowExecution execution = mutableState.getExecutionId().getExecution();
     ExecutionId executionId = new ExecutionId(domain, execution);
-    executionsByWorkflowId.put(workflowId, mutableState);
-    executions.put(executionId, mutableState);
+    ExecutionShard shard = getShard(workflowId);
+    shard.executionsByWorkflowId.put(workflowId, mutableState);
+    shard.executions.put(executionId, mutableState);
     mutableState.startWorkflow(continuedExecutionRunId.isPresent(), signalWithStartSignal);
     return new StartWorkflowExecutionResponse().setRunId(execution.getRunId());
   }
@@ -734,7 +768,8 @@ public final class TestWorkflowService implements IWorkflowService {
     if (a.getInput() != null) {
       startRequest.setInput(a.getInput());
     }
-    lock.lock();
+    ExecutionShard shard = getShard(executionId.getWorkflowId());
+    shard.lock.lock();
     try {
       StartWorkflowExecutionResponse response =
           startWorkflowExecutionNoRunningCheckLocked(
@@ -749,7 +784,7 @@ public final class TestWorkflowService implements IWorkflowService {
               executionId.getWorkflowId());
       return response.getRunId();
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
   }
 
@@ -758,17 +793,20 @@ public final class TestWorkflowService implements IWorkflowService {
       ListOpenWorkflowExecutionsRequest listRequest)
       throws BadRequestError, InternalServiceError, EntityNotExistsError, ServiceBusyError,
           CadenceError {
-    Optional<String> workflowIdFilter;
-    WorkflowExecutionFilter executionFilter = listRequest.getExecutionFilter();
-    if (executionFilter != null
-        && executionFilter.getWorkflowId() != null
-        && !executionFilter.getWorkflowId().isEmpty()) {
-      workflowIdFilter = Optional.of(executionFilter.getWorkflowId());
-    } else {
-      workflowIdFilter = Optional.empty();
-    }
-    List<WorkflowExecutionInfo> result = store.listWorkflows(WorkflowState.OPEN, workflowIdFilter);
-    return new ListOpenWorkflowExecutionsResponse().setExecutions(result);
+    String domain = requireNotNull("Domain", listRequest.getDomain());
+    TestVisibilityStore.Filter filter =
+        newListFilter(
+            WorkflowState.OPEN,
+            listRequest.getStartTimeFilter(),
+            listRequest.getExecutionFilter(),
+            listRequest.getTypeFilter());
+    TestVisibilityStore.Page page =
+        store
+            .getVisibilityStore()
+            .list(domain, filter, listRequest.getMaximumPageSize(), listRequest.getNextPageToken());
+    return new ListOpenWorkflowExecutionsResponse()
+        .setExecutions(page.getExecutions())
+        .setNextPageToken(page.getNextPageToken());
   }
 
   @Override
@@ -776,18 +814,47 @@ public final class TestWorkflowService implements IWorkflowService {
       ListClosedWorkflowExecutionsRequest listRequest)
       throws BadRequestError, InternalServiceError, EntityNotExistsError, ServiceBusyError,
           CadenceError {
-    Optional<String> workflowIdFilter;
-    WorkflowExecutionFilter executionFilter = listRequest.getExecutionFilter();
+    String domain = requireNotNull("Domain", listRequest.getDomain());
+    TestVisibilityStore.Filter filter =
+        newListFilter(
+                WorkflowState.CLOSED,
+                listRequest.getStartTimeFilter(),
+                listRequest.getExecutionFilter(),
+                listRequest.getTypeFilter())
+            .setCloseStatus(listRequest.getStatusFilter());
+    TestVisibilityStore.Page page =
+        store
+            .getVisibilityStore()
+            .list(domain, filter, listRequest.getMaximumPageSize(), listRequest.getNextPageToken());
+    return new ListClosedWorkflowExecutionsResponse()
+        .setExecutions(page.getExecutions())
+        .setNextPageToken(page.getNextPageToken());
+  }
+
+  private static TestVisibilityStore.Filter newListFilter(
+      WorkflowState state,
+      StartTimeFilter startTimeFilter,
+      WorkflowExecutionFilter executionFilter,
+      WorkflowTypeFilter typeFilter) {
+    TestVisibilityStore.Filter result = new TestVisibilityStore.Filter().setState(state);
+    if (startTimeFilter != null) {
+      // Zero latest time is treated as unset.
+      result.setStartTimeRange(
+          startTimeFilter.getEarliestTime(),
+          startTimeFilter.getLatestTime() == 0 ? Long.MAX_VALUE : startTimeFilter.getLatestTime());
+    }
     if (executionFilter != null
         && executionFilter.getWorkflowId() != null
         && !executionFilter.getWorkflowId().isEmpty()) {
-      workflowIdFilter = Optional.of(executionFilter.getWorkflowId());
-    } else {
-      workflowIdFilter = Optional.empty();
+      result.setWorkflowId(executionFilter.getWorkflowId());
+      if (executionFilter.getRunId() != null && !executionFilter.getRunId().isEmpty()) {
+        result.setRunId(executionFilter.getRunId());
+      }
+    }
+    if (typeFilter != null && typeFilter.getName() != null && !typeFilter.getName().isEmpty()) {
+      result.setWorkflowType(typeFilter.getName());
     }
-    List<WorkflowExecutionInfo> result =
-        store.listWorkflows(WorkflowState.CLOSED, workflowIdFilter);
-    return new ListClosedWorkflowExecutionsResponse().setExecutions(result);
+    return result;
   }
 
   @Override
@@ -795,7 +862,18 @@ public final class TestWorkflowService implements IWorkflowService {
       ListWorkflowExecutionsRequest listRequest)
       throws BadRequestError, InternalServiceError, EntityNotExistsError, ServiceBusyError,
           ClientVersionNotSupportedError, CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    String domain = requireNotNull("Domain", listRequest.getDomain());
+    TestVisibilityStore.Page page =
+        store
+            .getVisibilityStore()
+            .list(
+                domain,
+                VisibilityQueryParser.parse(listRequest.getQuery()),
+                listRequest.getPageSize(),
+                listRequest.getNextPageToken());
+    return new ListWorkflowExecutionsResponse()
+        .setExecutions(page.getExecutions())
+        .setNextPageToken(page.getNextPageToken());
   }
 
   @Override
@@ -811,7 +889,7 @@ public final class TestWorkflowService implements IWorkflowService {
       ListWorkflowExecutionsRequest listRequest)
       throws BadRequestError, InternalServiceError, EntityNotExistsError, ServiceBusyError,
           ClientVersionNotSupportedError, CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    return ListWorkflowExecutions(listRequest);
   }
 
   @Override
@@ -819,7 +897,12 @@ public final class TestWorkflowService implements IWorkflowService {
       CountWorkflowExecutionsRequest countRequest)
       throws BadRequestError, InternalServiceError, EntityNotExistsError, ServiceBusyError,
           ClientVersionNotSupportedError, CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    String domain = requireNotNull("Domain", countRequest.getDomain());
+    long count =
+        store
+            .getVisibilityStore()
+            .count(domain, VisibilityQueryParser.parse(countRequest.getQuery()));
+    return new CountWorkflowExecutionsResponse().setCount(count);
   }
 
   @Override
@@ -1038,14 +1121,31 @@ public final class TestWorkflowService implements IWorkflowService {
   public void RespondDecisionTaskCompleted(
       RespondDecisionTaskCompletedRequest completeRequest, AsyncMethodCallback resultHandler)
       throws CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    forkJoinPool.execute(
+        () -> {
+          try {
+            RespondDecisionTaskCompletedResponse result =
+                RespondDecisionTaskCompleted(completeRequest);
+            resultHandler.onComplete(result);
+          } catch (CadenceError e) {
+            resultHandler.onError(e);
+          }
+        });
   }
 
   @Override
   public void RespondDecisionTaskFailed(
       RespondDecisionTaskFailedRequest failedRequest, AsyncMethodCallback resultHandler)
       throws CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    forkJoinPool.execute(
+        () -> {
+          try {
+            RespondDecisionTaskFailed(failedRequest);
+            resultHandler.onComplete(null);
+          } catch (CadenceError e) {
+            resultHandler.onError(e);
+          }
+        });
   }
 
   @Override
@@ -1059,7 +1159,16 @@ public final class TestWorkflowService implements IWorkflowService {
   public void RecordActivityTaskHeartbeat(
       RecordActivityTaskHeartbeatRequest heartbeatRequest, AsyncMethodCallback resultHandler)
       throws CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    forkJoinPool.execute(
+        () -> {
+          try {
+            RecordActivityTaskHeartbeatResponse result =
+                RecordActivityTaskHeartbeat(heartbeatRequest);
+            resultHandler.onComplete(result);
+          } catch (CadenceError e) {
+            resultHandler.onError(e);
+          }
+        });
   }
 
   @Override
@@ -1221,7 +1330,15 @@ public final class TestWorkflowService implements IWorkflowService {
   public void RespondQueryTaskCompleted(
       RespondQueryTaskCompletedRequest completeRequest, AsyncMethodCallback resultHandler)
       throws CadenceError {
-    throw new UnsupportedOperationException("not implemented");
+    forkJoinPool.execute(
+        () -> {
+          try {
+            RespondQueryTaskCompleted(completeRequest);
+            resultHandler.onComplete(null);
+          } catch (CadenceError e) {
+            resultHandler.onError(e);
+          }
+        });
   }
 
   @Override
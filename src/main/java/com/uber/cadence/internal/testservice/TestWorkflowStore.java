@@ -26,11 +26,8 @@ import com.uber.cadence.PollForActivityTaskRequest;
 import com.uber.cadence.PollForActivityTaskResponse;
 import com.uber.cadence.PollForDecisionTaskRequest;
 import com.uber.cadence.PollForDecisionTaskResponse;
-import com.uber.cadence.WorkflowExecutionInfo;
 import java.time.Duration;
-import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.concurrent.Future;
 
 interface TestWorkflowStore {
@@ -159,7 +156,8 @@ interface TestWorkflowStore {
 
   void getDiagnostics(StringBuilder result);
 
-  List<WorkflowExecutionInfo> listWorkflows(WorkflowState state, Optional<String> workflowId);
+  /** Records of the stored executions for list and count requests. */
+  TestVisibilityStore getVisibilityStore();
 
   void close();
 }
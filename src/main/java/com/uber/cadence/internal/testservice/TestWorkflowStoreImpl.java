@@ -32,7 +32,6 @@ import com.uber.cadence.PollForDecisionTaskRequest;
 import com.uber.cadence.PollForDecisionTaskResponse;
 import com.uber.cadence.StickyExecutionAttributes;
 import com.uber.cadence.WorkflowExecution;
-import com.uber.cadence.WorkflowExecutionInfo;
 import com.uber.cadence.internal.common.WorkflowExecutionUtils;
 import com.uber.cadence.internal.testservice.RequestContext.Timer;
 import java.time.Duration;
@@ -41,8 +40,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -138,20 +138,44 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
     }
   }
 
-  private final Lock lock = new ReentrantLock();
+  /** Histories of the executions whose workflow ids map to the same shard. */
+  private static final class HistoryShard {
+    private final Lock lock = new ReentrantLock();
+    private final Map<ExecutionId, HistoryStore> histories = new HashMap<>();
+  }
+
+  private final HistoryShard[] shards;
 
-  private final Map<ExecutionId, HistoryStore> histories = new HashMap<>();
+  // Set by the first save, which unlocks the time skipping locked in the constructor.
+  private final AtomicBoolean started = new AtomicBoolean();
 
   private final Map<TaskListId, TaskQueue<PollForActivityTaskResponse>> activityTaskLists =
-      new HashMap<>();
+      new ConcurrentHashMap<>();
 
   private final Map<TaskListId, TaskQueue<PollForDecisionTaskResponse>> decisionTaskLists =
-      new HashMap<>();
+      new ConcurrentHashMap<>();
+
+  private final TestVisibilityStore visibilityStore = new TestVisibilityStore();
 
   private final SelfAdvancingTimer timerService =
       new SelfAdvancingTimerImpl(System.currentTimeMillis());
 
   public TestWorkflowStoreImpl() {
+    this(1);
+  }
+
+  /**
+   * @param shardCount number of independently locked partitions of the histories. All runs of a
+   *     workflow id are in the same shard.
+   */
+  public TestWorkflowStoreImpl(int shardCount) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + shardCount);
+    }
+    shards = new HistoryShard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new HistoryShard();
+    }
     // locked until the first save
     timerService.lockTimeSkipping("TestWorkflowStoreImpl constructor");
   }
@@ -170,32 +194,40 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
   public long save(RequestContext ctx)
       throws InternalServiceError, EntityNotExistsError, BadRequestError {
     long result;
-    lock.lock();
-    boolean historiesEmpty = histories.isEmpty();
+    ExecutionId executionId = ctx.getExecutionId();
+    HistoryShard shard = getShard(executionId);
+    boolean first = false;
+    List<HistoryEvent> events = ctx.getEvents();
+    long historyLength;
+    TestVisibilityStore.Update visibilityUpdate;
+    shard.lock.lock();
     try {
-      ExecutionId executionId = ctx.getExecutionId();
-      HistoryStore history = histories.get(executionId);
-      List<HistoryEvent> events = ctx.getEvents();
+      HistoryStore history = shard.histories.get(executionId);
       if (history == null) {
         if (events.isEmpty()
             || events.get(0).getEventType() != EventType.WorkflowExecutionStarted) {
           throw new IllegalStateException("No history found for " + executionId);
         }
-        history = new HistoryStore(executionId, lock);
-        histories.put(executionId, history);
+        history = new HistoryStore(executionId, shard.lock);
+        shard.histories.put(executionId, history);
+        first = started.compareAndSet(false, true);
       }
       history.checkNextEventId(ctx.getInitialEventId());
       history.addAllLocked(events, ctx.currentTimeInNanoseconds());
+      historyLength = history.getEventsLocked().size();
       result = history.getNextEventIdLocked();
       timerService.updateLocks(ctx.getTimerLocks(), "TestWorkflowStoreImpl save");
       ctx.fireCallbacks(history.getEventsLocked().size());
+      // Started under the shard lock to keep the order of the saves, applied out of it.
+      visibilityUpdate = visibilityStore.beginUpdate(executionId);
     } finally {
-      if (historiesEmpty && !histories.isEmpty()) {
+      if (first) {
         timerService.unlockTimeSkipping(
             "TestWorkflowStoreImpl save"); // Initially locked in the constructor
       }
-      lock.unlock();
+      shard.lock.unlock();
     }
+    visibilityUpdate.apply(events, historyLength);
     // Push tasks to the queues out of locks
     DecisionTask decisionTask = ctx.getDecisionTask();
 
@@ -234,11 +266,12 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
 
   @Override
   public void applyTimersAndLocks(RequestContext ctx) {
-    lock.lock();
+    HistoryShard shard = getShard(ctx.getExecutionId());
+    shard.lock.lock();
     try {
       timerService.updateLocks(ctx.getTimerLocks(), "TestWorkflowStoreImpl applyTimersAndLocks");
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
 
     List<Timer> timers = ctx.getTimers();
@@ -258,31 +291,11 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
   }
 
   private TaskQueue<PollForActivityTaskResponse> getActivityTaskListQueue(TaskListId taskListId) {
-    lock.lock();
-    try {
-      TaskQueue<PollForActivityTaskResponse> activitiesQueue = activityTaskLists.get(taskListId);
-      if (activitiesQueue == null) {
-        activitiesQueue = new TaskQueue<>();
-        activityTaskLists.put(taskListId, activitiesQueue);
-      }
-      return activitiesQueue;
-    } finally {
-      lock.unlock();
-    }
+    return activityTaskLists.computeIfAbsent(taskListId, (id) -> new TaskQueue<>());
   }
 
   private TaskQueue<PollForDecisionTaskResponse> getDecisionTaskListQueue(TaskListId taskListId) {
-    lock.lock();
-    try {
-      TaskQueue<PollForDecisionTaskResponse> decisionsQueue = decisionTaskLists.get(taskListId);
-      if (decisionsQueue == null) {
-        decisionsQueue = new TaskQueue<>();
-        decisionTaskLists.put(taskListId, decisionsQueue);
-      }
-      return decisionsQueue;
-    } finally {
-      lock.unlock();
-    }
+    return decisionTaskLists.computeIfAbsent(taskListId, (id) -> new TaskQueue<>());
   }
 
   @Override
@@ -305,7 +318,8 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
   public void sendQueryTask(
       ExecutionId executionId, TaskListId taskList, PollForDecisionTaskResponse task)
       throws EntityNotExistsError {
-    lock.lock();
+    HistoryShard shard = getShard(executionId);
+    shard.lock.lock();
     try {
       HistoryStore historyStore = getHistoryStore(executionId);
       List<HistoryEvent> events = new ArrayList<>(historyStore.getEventsLocked());
@@ -317,7 +331,7 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
       }
       task.setHistory(history);
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
     TaskQueue<PollForDecisionTaskResponse> decisionsQueue = getDecisionTaskListQueue(taskList);
     decisionsQueue.add(task);
@@ -330,7 +344,8 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
     HistoryStore history;
     // Used to eliminate the race condition on waitForNewEvents
     long expectedNextEventId;
-    lock.lock();
+    HistoryShard shard = getShard(executionId);
+    shard.lock.lock();
     try {
       history = getHistoryStore(executionId);
       if (!getRequest.isWaitForNewEvent()
@@ -343,7 +358,7 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
       }
       expectedNextEventId = history.getNextEventIdLocked();
     } finally {
-      lock.unlock();
+      shard.lock.unlock();
     }
     List<HistoryEvent> events =
         history.waitForNewEvents(expectedNextEventId, getRequest.getHistoryEventFilterType());
@@ -354,8 +369,13 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
     return result;
   }
 
+  private HistoryShard getShard(ExecutionId executionId) {
+    return shards[Math.floorMod(executionId.getWorkflowId().hashCode(), shards.length)];
+  }
+
+  /** Must be called under the lock of the shard of {@code executionId}. */
   private HistoryStore getHistoryStore(ExecutionId executionId) throws EntityNotExistsError {
-    HistoryStore result = histories.get(executionId);
+    HistoryStore result = getShard(executionId).histories.get(executionId);
     if (result == null) {
       WorkflowExecution execution = executionId.getExecution();
       throw new EntityNotExistsError(
@@ -369,10 +389,10 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
   @Override
   public void getDiagnostics(StringBuilder result) {
     result.append("Stored Workflows:\n");
-    lock.lock();
-    try {
-      {
-        for (Entry<ExecutionId, HistoryStore> entry : this.histories.entrySet()) {
+    for (HistoryShard shard : shards) {
+      shard.lock.lock();
+      try {
+        for (Entry<ExecutionId, HistoryStore> entry : shard.histories.entrySet()) {
           result.append(entry.getKey());
           result.append("\n");
           result.append(
@@ -380,85 +400,17 @@ class TestWorkflowStoreImpl implements TestWorkflowStore {
                   entry.getValue().getEventsLocked().iterator(), true));
           result.append("\n");
         }
+      } finally {
+        shard.lock.unlock();
       }
-    } finally {
-      lock.unlock();
     }
     // Uncomment to troubleshoot time skipping issues.
     timerService.getDiagnostics(result);
   }
 
   @Override
-  public List<WorkflowExecutionInfo> listWorkflows(
-      WorkflowState state, Optional<String> filterWorkflowId) {
-    lock.lock();
-    List<WorkflowExecutionInfo> result;
-    try {
-      result = new ArrayList<>();
-      for (Entry<ExecutionId, HistoryStore> entry : this.histories.entrySet()) {
-        if (state == WorkflowState.OPEN) {
-          if (entry.getValue().isCompleted()) {
-            continue;
-          }
-          ExecutionId executionId = entry.getKey();
-          String workflowId = executionId.getWorkflowId().getWorkflowId();
-          if (filterWorkflowId.isPresent() && !workflowId.equals(filterWorkflowId.get())) {
-            continue;
-          }
-          List<HistoryEvent> history = entry.getValue().getHistory();
-          WorkflowExecutionInfo info =
-              new WorkflowExecutionInfo()
-                  .setExecution(executionId.getExecution())
-                  .setHistoryLength(history.size())
-                  .setStartTime(history.get(0).getTimestamp())
-                  .setCron(
-                      history.get(0).getWorkflowExecutionStartedEventAttributes().getCronSchedule()
-                              != null
-                          && !history
-                              .get(0)
-                              .getWorkflowExecutionStartedEventAttributes()
-                              .getCronSchedule()
-                              .isEmpty())
-                  .setType(
-                      history
-                          .get(0)
-                          .getWorkflowExecutionStartedEventAttributes()
-                          .getWorkflowType());
-          result.add(info);
-        } else {
-          if (!entry.getValue().isCompleted()) {
-            continue;
-          }
-          ExecutionId executionId = entry.getKey();
-          String workflowId = executionId.getWorkflowId().getWorkflowId();
-          if (filterWorkflowId.isPresent() && !workflowId.equals(filterWorkflowId.get())) {
-            continue;
-          }
-          List<HistoryEvent> history = entry.getValue().getHistory();
-          WorkflowExecutionInfo info =
-              new WorkflowExecutionInfo()
-                  .setExecution(executionId.getExecution())
-                  .setHistoryLength(history.size())
-                  .setStartTime(history.get(0).getTimestamp())
-                  .setCron(
-                      history.get(0).getWorkflowExecutionStartedEventAttributes().getCronSchedule()
-                              != null
-                          && !history
-                              .get(0)
-                              .getWorkflowExecutionStartedEventAttributes()
-                              .getCronSchedule()
-                              .isEmpty())
-                  .setType(
-                      history.get(0).getWorkflowExecutionStartedEventAttributes().getWorkflowType())
-                  .setCloseStatus(
-                      WorkflowExecutionUtils.getCloseStatus(history.get(history.size() - 1)));
-          result.add(info);
-        }
-      }
-    } finally {
-      lock.unlock();
-    }
-    return result;
+  public TestVisibilityStore getVisibilityStore() {
+    return visibilityStore;
   }
 
   @Override
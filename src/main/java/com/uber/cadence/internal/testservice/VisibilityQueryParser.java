@@ -0,0 +1,265 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.testservice;
+
+import com.uber.cadence.BadRequestError;
+import com.uber.cadence.WorkflowExecutionCloseStatus;
+import com.uber.cadence.internal.testservice.TestVisibilityStore.Filter;
+import com.uber.cadence.internal.testservice.TestWorkflowStore.WorkflowState;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the visibility queries of {@code ListWorkflowExecutions} and {@code
+ * CountWorkflowExecutions} into a {@link Filter}. Supports conditions joined by {@code AND}:
+ *
+ * <ul>
+ *   <li>{@code WorkflowID}, {@code RunID} and {@code WorkflowType} compared with {@code =}
+ *   <li>{@code CloseStatus = 'COMPLETED'}, by name or by number
+ *   <li>{@code StartTime} and {@code CloseTime} compared with {@code =, <, <=, >, >=} to
+ *       nanoseconds since the epoch or to a quoted RFC 3339 time
+ *   <li>{@code CloseTime = missing} for open and {@code CloseTime != missing} for closed workflows
+ *   <li>any other search attribute compared with {@code =}
+ * </ul>
+ *
+ * <p>{@code ORDER BY StartTime DESC}, which is the order of the results anyway, is accepted. Other
+ * queries are rejected with {@link BadRequestError}.
+ */
+final class VisibilityQueryParser {
+
+  private static final String MISSING = "missing";
+
+  private final String query;
+  private final List<String> tokens;
+  private int position;
+
+  private VisibilityQueryParser(String query) throws BadRequestError {
+    this.query = query;
+    this.tokens = tokenize(query);
+  }
+
+  static Filter parse(String query) throws BadRequestError {
+    Filter result = new Filter();
+    if (query == null || query.trim().isEmpty()) {
+      return result;
+    }
+    new VisibilityQueryParser(query).parse(result);
+    return result;
+  }
+
+  private void parse(Filter filter) throws BadRequestError {
+    while (position < tokens.size()) {
+      if (position > 0) {
+        String keyword = next();
+        if ("ORDER".equalsIgnoreCase(keyword)) {
+          parseOrderBy();
+          return;
+        }
+        if (!"AND".equalsIgnoreCase(keyword)) {
+          throw unsupported();
+        }
+      } else if ("ORDER".equalsIgnoreCase(tokens.get(0))) {
+        next();
+        parseOrderBy();
+        return;
+      }
+      parseCondition(filter);
+    }
+  }
+
+  private void parseOrderBy() throws BadRequestError {
+    if (!"BY".equalsIgnoreCase(next())
+        || !"StartTime".equals(next())
+        || (position < tokens.size() && !"DESC".equalsIgnoreCase(next()))
+        || position < tokens.size()) {
+      throw unsupported();
+    }
+  }
+
+  private void parseCondition(Filter filter) throws BadRequestError {
+    String attribute = next();
+    String operator = next();
+    String value = next();
+    switch (attribute) {
+      case "WorkflowID":
+        filter.setWorkflowId(parseEquality(operator, value));
+        break;
+      case "RunID":
+        filter.setRunId(parseEquality(operator, value));
+        break;
+      case "WorkflowType":
+        filter.setWorkflowType(parseEquality(operator, value));
+        break;
+      case "CloseStatus":
+        filter.setCloseStatus(parseCloseStatus(parseEquality(operator, value)));
+        break;
+      case "StartTime":
+        {
+          long time = parseTime(value);
+          filter.setStartTimeRange(getMin(operator, time), getMax(operator, time));
+          break;
+        }
+      case "CloseTime":
+        if (MISSING.equalsIgnoreCase(value)) {
+          if ("=".equals(operator)) {
+            filter.setState(WorkflowState.OPEN);
+          } else if ("!=".equals(operator)) {
+            filter.setState(WorkflowState.CLOSED);
+          } else {
+            throw unsupported();
+          }
+        } else {
+          long time = parseTime(value);
+          filter.setCloseTimeRange(getMin(operator, time), getMax(operator, time));
+        }
+        break;
+      default:
+        if (!Character.isLetter(attribute.charAt(0))) {
+          throw unsupported();
+        }
+        filter.setSearchAttribute(attribute, parseEquality(operator, value));
+    }
+  }
+
+  private String parseEquality(String operator, String value) throws BadRequestError {
+    if (!"=".equals(operator)) {
+      throw unsupported();
+    }
+    return unquote(value);
+  }
+
+  private WorkflowExecutionCloseStatus parseCloseStatus(String value) throws BadRequestError {
+    WorkflowExecutionCloseStatus[] values = WorkflowExecutionCloseStatus.values();
+    for (WorkflowExecutionCloseStatus status : values) {
+      if (status.name().equalsIgnoreCase(value)) {
+        return status;
+      }
+    }
+    try {
+      int ordinal = Integer.parseInt(value);
+      if (ordinal >= 0 && ordinal < values.length) {
+        return values[ordinal];
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new BadRequestError("Invalid CloseStatus " + value + " in query: " + query);
+  }
+
+  private long parseTime(String value) throws BadRequestError {
+    try {
+      if (isQuoted(value)) {
+        Instant time = Instant.parse(unquote(value));
+        return TimeUnit.SECONDS.toNanos(time.getEpochSecond()) + time.getNano();
+      }
+      return Long.parseLong(value);
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new BadRequestError("Invalid time " + value + " in query: " + query);
+    }
+  }
+
+  private long getMin(String operator, long time) throws BadRequestError {
+    switch (operator) {
+      case "=":
+      case ">=":
+        return time;
+      case ">":
+        return time + 1;
+      case "<":
+      case "<=":
+        return Long.MIN_VALUE;
+      default:
+        throw unsupported();
+    }
+  }
+
+  private long getMax(String operator, long time) throws BadRequestError {
+    switch (operator) {
+      case "=":
+      case "<=":
+        return time;
+      case "<":
+        return time - 1;
+      case ">":
+      case ">=":
+        return Long.MAX_VALUE;
+      default:
+        throw unsupported();
+    }
+  }
+
+  private String next() throws BadRequestError {
+    if (position >= tokens.size()) {
+      throw unsupported();
+    }
+    return tokens.get(position++);
+  }
+
+  private BadRequestError unsupported() {
+    return new BadRequestError("Query is not supported by the test service: " + query);
+  }
+
+  private static boolean isQuoted(String token) {
+    return token.length() >= 2 && (token.charAt(0) == '\'' || token.charAt(0) == '"');
+  }
+
+  private static String unquote(String token) {
+    return isQuoted(token) ? token.substring(1, token.length() - 1) : token;
+  }
+
+  // Splits the query into names, values, quoted strings and comparison operators.
+  private static List<String> tokenize(String query) throws BadRequestError {
+    List<String> result = new ArrayList<>();
+    int i = 0;
+    while (i < query.length()) {
+      char c = query.charAt(i);
+      int start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      if (c == '\'' || c == '"') {
+        int end = query.indexOf(c, i + 1);
+        if (end < 0) {
+          throw new BadRequestError("Unterminated string in query: " + query);
+        }
+        i = end + 1;
+      } else if (c == '=' || c == '<' || c == '>' || c == '!') {
+        i++;
+        if (i < query.length() && query.charAt(i) == '=') {
+          i++;
+        }
+      } else if (Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.') {
+        while (i < query.length()) {
+          char n = query.charAt(i);
+          if (!Character.isLetterOrDigit(n) && n != '_' && n != '-' && n != '.') {
+            break;
+          }
+          i++;
+        }
+      } else {
+        throw new BadRequestError("Query is not supported by the test service: " + query);
+      }
+      result.add(query.substring(start, i));
+    }
+    return result;
+  }
+}
@@ -26,11 +26,14 @@ import com.uber.cadence.internal.metrics.HistogramBuckets;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
 import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-final class ActivityPollTask extends ActivityPollTaskBase {
+final class ActivityPollTask extends ActivityPollTaskBase
+    implements Poller.AsyncPollTask<ActivityTask> {
 
   private static final Logger log = LoggerFactory.getLogger(ActivityPollTask.class);
   private final IWorkflowService service;
@@ -53,6 +56,76 @@ final class ActivityPollTask extends ActivityPollTaskBase {
             options.getMetricsScope(),
             MetricsType.ACTIVITY_POLL_LATENCY,
             HistogramBuckets.DEFAULT_1MS_100S);
+    PollForActivityTaskRequest pollRequest = createRequest();
+    if (log.isDebugEnabled()) {
+      log.debug("poll request begin: " + pollRequest);
+    }
+    PollForActivityTaskResponse result;
+    try {
+      result = service.PollForActivityTask(pollRequest);
+    } catch (CadenceError e) {
+      recordFailure(e);
+      throw e;
+    }
+
+    if (!checkResponse(result)) {
+      return null;
+    }
+    sw.stop();
+    return result;
+  }
+
+  @Override
+  public CompletableFuture<ActivityTask> pollAsync() {
+    if (!tryAcquirePollPermit()) {
+      return null;
+    }
+    options.getMetricsScope().counter(MetricsType.ACTIVITY_POLL_COUNTER).inc(1);
+    MetricsEmit.DualStopwatch sw =
+        MetricsEmit.startLatency(
+            options.getMetricsScope(),
+            MetricsType.ACTIVITY_POLL_LATENCY,
+            HistogramBuckets.DEFAULT_1MS_100S);
+    PollForActivityTaskRequest pollRequest = createRequest();
+    CompletableFuture<ActivityTask> result = new CompletableFuture<>();
+    AsyncMethodCallback<PollForActivityTaskResponse> callback =
+        new AsyncMethodCallback<PollForActivityTaskResponse>() {
+          @Override
+          public void onComplete(PollForActivityTaskResponse response) {
+            sw.stop();
+            if (!checkResponse(response)) {
+              releasePollPermit();
+              result.complete(null);
+              return;
+            }
+            ActivityTask task = createTask(response);
+            if (!result.complete(task)) {
+              // Poll was cancelled by the poller shutdown, the task is left to time out.
+              task.getCompletionHandle().apply();
+            }
+          }
+
+          @Override
+          public void onError(Exception exception) {
+            sw.stop();
+            recordFailure(exception);
+            releasePollPermit();
+            result.completeExceptionally(exception);
+          }
+        };
+
+    if (log.isDebugEnabled()) {
+      log.debug("async poll request begin: " + pollRequest);
+    }
+    try {
+      service.PollForActivityTask(pollRequest, callback);
+    } catch (RuntimeException e) {
+      callback.onError(e);
+    }
+    return result;
+  }
+
+  private PollForActivityTaskRequest createRequest() {
     PollForActivityTaskRequest pollRequest = new PollForActivityTaskRequest();
     pollRequest.setDomain(domain);
     pollRequest.setIdentity(options.getIdentity());
@@ -63,44 +136,39 @@ final class ActivityPollTask extends ActivityPollTaskBase {
       metadata.setMaxTasksPerSecond(options.getTaskListActivitiesPerSecond());
       pollRequest.setTaskListMetadata(metadata);
     }
+    return pollRequest;
+  }
 
-    if (log.isDebugEnabled()) {
-      log.debug("poll request begin: " + pollRequest);
-    }
-    PollForActivityTaskResponse result;
-    try {
-      result = service.PollForActivityTask(pollRequest);
-    } catch (InternalServiceError e) {
+  private void recordFailure(Exception e) {
+    if (e instanceof InternalServiceError) {
       options
           .getMetricsScope()
           .tagged(ImmutableMap.of(MetricsTag.CAUSE, INTERNAL_SERVICE_ERROR))
           .counter(MetricsType.ACTIVITY_POLL_TRANSIENT_FAILED_COUNTER)
           .inc(1);
-      throw e;
-    } catch (ServiceBusyError e) {
+    } else if (e instanceof ServiceBusyError) {
       options
           .getMetricsScope()
           .tagged(ImmutableMap.of(MetricsTag.CAUSE, SERVICE_BUSY))
           .counter(MetricsType.ACTIVITY_POLL_TRANSIENT_FAILED_COUNTER)
           .inc(1);
-      throw e;
-    } catch (CadenceError e) {
+    } else {
       options.getMetricsScope().counter(MetricsType.ACTIVITY_POLL_FAILED_COUNTER).inc(1);
-      throw e;
     }
+  }
 
+  private boolean checkResponse(PollForActivityTaskResponse result) {
     if (result == null || result.getTaskToken() == null) {
       if (log.isDebugEnabled()) {
         log.debug("poll request returned no task");
       }
       options.getMetricsScope().counter(MetricsType.ACTIVITY_POLL_NO_TASK_COUNTER).inc(1);
-      return null;
+      return false;
     }
 
     if (log.isTraceEnabled()) {
       log.trace("poll request returned " + result);
     }
-    sw.stop();
-    return result;
+    return true;
   }
 }
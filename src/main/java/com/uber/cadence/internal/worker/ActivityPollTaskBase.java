@@ -23,10 +23,10 @@ import com.uber.cadence.internal.metrics.HistogramBuckets;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.metrics.TaggedScopeCache;
 import com.uber.cadence.workflow.Functions;
 import com.uber.m3.tally.Scope;
 import com.uber.m3.util.Duration;
-import com.uber.m3.util.ImmutableMap;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,9 +34,13 @@ abstract class ActivityPollTaskBase implements Poller.PollTask<ActivityTask> {
 
   protected final SingleWorkerOptions options;
   private final Semaphore pollSemaphore;
+  private final TaggedScopeCache typeScopes;
 
   public ActivityPollTaskBase(SingleWorkerOptions options) {
     this.options = options;
+    this.typeScopes =
+        new TaggedScopeCache(
+            options.getMetricsScope(), MetricsTag.ACTIVITY_TYPE, MetricsTag.WORKFLOW_TYPE);
     // TODO: we need to share this semaphore with the locally dispatched activity poll task
     this.pollSemaphore = new Semaphore(options.getTaskExecutorThreadPoolSize());
   }
@@ -55,33 +59,9 @@ abstract class ActivityPollTaskBase implements Poller.PollTask<ActivityTask> {
       if (result == null || result.getTaskToken() == null) {
         return null;
       }
-
-      Scope metricsScope =
-          options
-              .getMetricsScope()
-              .tagged(
-                  ImmutableMap.of(
-                      MetricsTag.ACTIVITY_TYPE,
-                      result.getActivityType().getName(),
-                      MetricsTag.WORKFLOW_TYPE,
-                      result.getWorkflowType().getName()));
-      metricsScope.counter(MetricsType.ACTIVITY_POLL_SUCCEED_COUNTER).inc(1);
-      MetricsEmit.emitLatency(
-          metricsScope,
-          MetricsType.ACTIVITY_SCHEDULED_TO_START_LATENCY,
-          Duration.ofNanos(
-              result.getStartedTimestamp() - result.getScheduledTimestampOfThisAttempt()),
-          HistogramBuckets.HIGH_1MS_24H);
+      ActivityTask task = createTask(result);
       isSuccessful = true;
-      // Wrap semaphore release to make it idempotent
-      AtomicBoolean released = new AtomicBoolean(false);
-      Functions.Proc completionHandle =
-          () -> {
-            if (released.compareAndSet(false, true)) {
-              pollSemaphore.release();
-            }
-          };
-      return new ActivityTask(result, completionHandle);
+      return task;
     } finally {
       if (!isSuccessful) {
         pollSemaphore.release();
@@ -89,5 +69,39 @@ abstract class ActivityPollTaskBase implements Poller.PollTask<ActivityTask> {
     }
   }
 
+  /** Non blocking acquisition of the permit that {@link #poll()} waits for. */
+  protected final boolean tryAcquirePollPermit() {
+    return pollSemaphore.tryAcquire();
+  }
+
+  protected final void releasePollPermit() {
+    pollSemaphore.release();
+  }
+
+  /**
+   * Emits the poll success metrics and wraps the result into a task that releases the poll permit
+   * when completed.
+   */
+  protected final ActivityTask createTask(PollForActivityTaskResponse result) {
+    Scope metricsScope =
+        typeScopes.get(result.getActivityType().getName(), result.getWorkflowType().getName());
+    metricsScope.counter(MetricsType.ACTIVITY_POLL_SUCCEED_COUNTER).inc(1);
+    MetricsEmit.emitLatency(
+        metricsScope,
+        MetricsType.ACTIVITY_SCHEDULED_TO_START_LATENCY,
+        Duration.ofNanos(
+            result.getStartedTimestamp() - result.getScheduledTimestampOfThisAttempt()),
+        HistogramBuckets.HIGH_1MS_24H);
+    // Wrap semaphore release to make it idempotent
+    AtomicBoolean released = new AtomicBoolean(false);
+    Functions.Proc completionHandle =
+        () -> {
+          if (released.compareAndSet(false, true)) {
+            pollSemaphore.release();
+          }
+        };
+    return new ActivityTask(result, completionHandle);
+  }
+
   protected abstract PollForActivityTaskResponse pollTask() throws CadenceError;
 }
@@ -26,13 +26,13 @@ import com.uber.cadence.internal.metrics.HistogramBuckets;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.metrics.TaggedScopeCache;
 import com.uber.cadence.internal.tracing.TracingPropagator;
 import com.uber.cadence.internal.worker.ActivityTaskHandler.Result;
 import com.uber.cadence.internal.worker.Poller.PollTask;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import com.uber.m3.tally.Scope;
 import com.uber.m3.util.Duration;
-import com.uber.m3.util.ImmutableMap;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
 import java.nio.charset.StandardCharsets;
@@ -90,14 +90,30 @@ public class ActivityWorker extends SuspendableWorkerBase {
   @Override
   public void start() {
     if (handler.isAnyTypeSupported()) {
-      SuspendableWorker poller =
-          new Poller<>(
-              options.getIdentity(),
-              getOrCreateActivityPollTask(),
-              new PollTaskExecutor<>(domain, taskList, options, new TaskHandlerImpl(handler)),
-              options.getPollerOptions(),
-              options.getMetricsScope(),
-              options.getExecutorWrapper());
+      PollTask<ActivityTask> pollTask = getOrCreateActivityPollTask();
+      PollTaskExecutor<ActivityTask> pollTaskExecutor =
+          new PollTaskExecutor<>(domain, taskList, options, new TaskHandlerImpl(handler));
+      SuspendableWorker poller;
+      if (options.getPollerOptions().isEnableAsyncPolling()
+          && pollTask instanceof Poller.AsyncPollTask) {
+        poller =
+            new AsyncPoller<>(
+                options.getIdentity(),
+                (Poller.AsyncPollTask<ActivityTask>) pollTask,
+                pollTaskExecutor,
+                options.getPollerOptions(),
+                options.getMetricsScope(),
+                options.getExecutorWrapper());
+      } else {
+        poller =
+            new Poller<>(
+                options.getIdentity(),
+                pollTask,
+                pollTaskExecutor,
+                options.getPollerOptions(),
+                options.getMetricsScope(),
+                options.getExecutorWrapper());
+      }
       poller.start();
       setPoller(poller);
       options.getMetricsScope().counter(MetricsType.WORKER_START_COUNTER).inc(1);
@@ -111,6 +127,9 @@ public class ActivityWorker extends SuspendableWorkerBase {
   private class TaskHandlerImpl implements PollTaskExecutor.TaskHandler<ActivityTask> {
 
     final ActivityTaskHandler handler;
+    private final TaggedScopeCache typeScopes =
+        new TaggedScopeCache(
+            options.getMetricsScope(), MetricsTag.ACTIVITY_TYPE, MetricsTag.WORKFLOW_TYPE);
 
     private TaskHandlerImpl(ActivityTaskHandler handler) {
       this.handler = handler;
@@ -120,14 +139,8 @@ public class ActivityWorker extends SuspendableWorkerBase {
     public void handle(ActivityTask task) throws Exception {
       PollForActivityTaskResponse response = task.getResponse();
       Scope metricsScope =
-          options
-              .getMetricsScope()
-              .tagged(
-                  ImmutableMap.of(
-                      MetricsTag.ACTIVITY_TYPE,
-                      response.getActivityType().getName(),
-                      MetricsTag.WORKFLOW_TYPE,
-                      response.getWorkflowType().getName()));
+          typeScopes.get(
+              response.getActivityType().getName(), response.getWorkflowType().getName());
 
       MetricsEmit.emitLatency(
           metricsScope,
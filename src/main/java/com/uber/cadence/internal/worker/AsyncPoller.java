@@ -0,0 +1,403 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import com.uber.cadence.TimeoutError;
+import com.uber.cadence.internal.common.BackoffThrottler;
+import com.uber.cadence.internal.common.InternalUtils;
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.worker.autoscaler.AutoScaler;
+import com.uber.cadence.internal.worker.autoscaler.AutoScalerFactory;
+import com.uber.cadence.worker.ExecutorWrapper;
+import com.uber.m3.tally.Scope;
+import io.grpc.Context;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Poller that keeps up to {@link PollerOptions#getPollThreadCount()} long polls outstanding without
+ * a thread per poll. Polls are started from a single scheduler thread and tracked as futures. The
+ * number of outstanding polls is limited by permits, both its own and the ones of the poller
+ * autoscaler. A completed poll hands its task to a single dispatcher thread, which may block in the
+ * task executor without holding up the transport thread that completed the poll, and keeps the poll
+ * permits until the task is handed over.
+ *
+ * <p>Polls are started in a cancellable gRPC {@link Context}, so stopping the poller cancels the
+ * outstanding long polls on the server connection instead of abandoning them.
+ *
+ * @see PollerOptions.Builder#setEnableAsyncPolling(boolean)
+ */
+final class AsyncPoller<T> implements SuspendableWorker {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncPoller.class);
+
+  // How often polls are restarted when they couldn't start because of missing capacity or after
+  // the autoscaler granted more permits.
+  private static final long RESTART_POLLS_INTERVAL_MS = 100;
+
+  // How long a graceful shutdown waits for the cancelled polls to complete and their tasks to be
+  // handed to the taskExecutor, matching the poll thread termination wait of Poller.
+  private static final long SHUTDOWN_POLLS_TIMEOUT_MS = 1000;
+
+  private final String identity;
+  private final Poller.AsyncPollTask<T> pollTask;
+  private final ShutdownableTaskExecutor<T> taskExecutor;
+  private final PollerOptions pollerOptions;
+  private final Scope metricsScope;
+  private final ExecutorWrapper executorWrapper;
+  private final AutoScaler pollerAutoScaler;
+  private final Semaphore pollPermits;
+  private final Set<CompletableFuture<T>> outstandingPolls = ConcurrentHashMap.newKeySet();
+
+  private final Context.CancellableContext pollContext = Context.ROOT.withCancellation();
+
+  private ScheduledExecutorService pollScheduler;
+  private ExecutorService taskDispatcher;
+  private BackoffThrottler pollBackoffThrottler;
+  private Throttler pollRateThrottler;
+  private volatile boolean suspended;
+  private volatile boolean shuttingDown;
+
+  AsyncPoller(
+      String identity,
+      Poller.AsyncPollTask<T> pollTask,
+      ShutdownableTaskExecutor<T> taskExecutor,
+      PollerOptions pollerOptions,
+      Scope metricsScope,
+      ExecutorWrapper executorWrapper) {
+    this.identity = Objects.requireNonNull(identity, "identity cannot be null");
+    this.pollTask = Objects.requireNonNull(pollTask, "poll service should not be null");
+    this.taskExecutor = Objects.requireNonNull(taskExecutor, "taskExecutor should not be null");
+    this.pollerOptions = Objects.requireNonNull(pollerOptions, "pollerOptions should not be null");
+    this.metricsScope = Objects.requireNonNull(metricsScope, "metricsScope should not be null");
+    this.executorWrapper =
+        Objects.requireNonNull(executorWrapper, "executorWrapper should not be null");
+    this.pollerAutoScaler =
+        AutoScalerFactory.getInstance().createAutoScaler(pollerOptions, metricsScope);
+    this.pollPermits = new Semaphore(pollerOptions.getPollThreadCount());
+  }
+
+  @Override
+  public void start() {
+    if (log.isDebugEnabled()) {
+      log.debug("start(): " + toString());
+    }
+    if (pollerOptions.getMaximumPollRatePerSecond() > 0.0) {
+      pollRateThrottler =
+          new Throttler(
+              "poller",
+              pollerOptions.getMaximumPollRatePerSecond(),
+              pollerOptions.getMaximumPollRateIntervalMilliseconds());
+    }
+    pollBackoffThrottler =
+        new BackoffThrottler(
+            pollerOptions.getPollBackoffInitialInterval(),
+            pollerOptions.getPollBackoffMaximumInterval(),
+            pollerOptions.getPollBackoffCoefficient());
+
+    ScheduledExecutorService scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            new ExecutorThreadFactory(
+                pollerOptions.getPollThreadNamePrefix(),
+                pollerOptions.getUncaughtExceptionHandler()));
+    pollScheduler = executorWrapper.wrap(scheduler);
+    ThreadPoolExecutor dispatcher =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            new ExecutorThreadFactory(
+                pollerOptions.getPollThreadNamePrefix() + " dispatcher",
+                pollerOptions.getUncaughtExceptionHandler()));
+    taskDispatcher = executorWrapper.wrap(dispatcher);
+    pollScheduler.scheduleWithFixedDelay(
+        this::startPolls, 0, RESTART_POLLS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    metricsScope.counter(MetricsType.POLLER_START_COUNTER).inc(1);
+
+    pollerAutoScaler.start();
+  }
+
+  @Override
+  public boolean isStarted() {
+    return pollScheduler != null;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return pollScheduler.isShutdown() && taskDispatcher.isShutdown() && taskExecutor.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return pollScheduler.isTerminated()
+        && taskDispatcher.isTerminated()
+        && taskExecutor.isTerminated();
+  }
+
+  @Override
+  public void shutdown() {
+    log.debug("shutdown");
+    if (!isStarted()) {
+      return;
+    }
+    stopPolling();
+    // Tasks of polls that completed before the cancellation took effect are still handed to the
+    // taskExecutor, which is shut down only after the dispatcher went through them.
+    long timeoutMillis = InternalUtils.awaitTermination(pollScheduler, SHUTDOWN_POLLS_TIMEOUT_MS);
+    try {
+      timeoutMillis = awaitOutstandingPolls(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (CompletableFuture<T> poll : outstandingPolls) {
+      poll.cancel(true);
+    }
+    taskDispatcher.shutdown();
+    InternalUtils.awaitTermination(taskDispatcher, timeoutMillis);
+    taskExecutor.shutdown();
+    pollerAutoScaler.stop();
+  }
+
+  @Override
+  public void shutdownNow() {
+    if (log.isDebugEnabled()) {
+      log.debug("shutdownNow poller=" + this.pollerOptions.getPollThreadNamePrefix());
+    }
+    if (!isStarted()) {
+      return;
+    }
+    stopPolling();
+    for (CompletableFuture<T> poll : outstandingPolls) {
+      poll.cancel(true);
+    }
+    taskDispatcher.shutdownNow();
+    taskExecutor.shutdownNow();
+  }
+
+  @Override
+  public void awaitTermination(long timeout, TimeUnit unit) {
+    if (!isStarted()) {
+      return;
+    }
+    long timeoutMillis = unit.toMillis(timeout);
+    timeoutMillis = InternalUtils.awaitTermination(pollScheduler, timeoutMillis);
+    timeoutMillis = InternalUtils.awaitTermination(taskDispatcher, timeoutMillis);
+    InternalUtils.awaitTermination(taskExecutor, timeoutMillis);
+  }
+
+  @Override
+  public void suspendPolling() {
+    log.info("suspendPolling");
+    suspended = true;
+  }
+
+  @Override
+  public void resumePolling() {
+    log.info("resumePolling");
+    suspended = false;
+    schedulePolls();
+  }
+
+  @Override
+  public boolean isSuspended() {
+    return suspended;
+  }
+
+  /** Number of polls that were started and haven't completed yet. */
+  int getOutstandingPollCount() {
+    return outstandingPolls.size();
+  }
+
+  @Override
+  public String toString() {
+    return "AsyncPoller{" + "options=" + pollerOptions + ", identity=" + identity + '}';
+  }
+
+  // Same as Poller shutdownNow of the poll threads: stops starting polls and cancels the
+  // outstanding long polls, which then complete either with a task received before the
+  // cancellation or with a cancellation failure.
+  private void stopPolling() {
+    shuttingDown = true;
+    pollScheduler.shutdownNow();
+    pollContext.cancel(null);
+  }
+
+  private long awaitOutstandingPolls(long timeoutMillis) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (outstandingPolls) {
+      while (!outstandingPolls.isEmpty()) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          return 0;
+        }
+        outstandingPolls.wait(remaining);
+      }
+    }
+    return Math.max(0, deadline - System.currentTimeMillis());
+  }
+
+  private void schedulePolls() {
+    if (shuttingDown) {
+      return;
+    }
+    try {
+      pollScheduler.execute(this::startPolls);
+    } catch (RejectedExecutionException e) {
+      // Shutting down.
+    }
+  }
+
+  // Always called from the single pollScheduler thread.
+  private void startPolls() {
+    while (!shuttingDown && !suspended) {
+      if (pollerOptions.getPollOnlyIfExecutorHasCapacity() && !taskExecutor.hasCapacity()) {
+        return;
+      }
+      if (!pollPermits.tryAcquire()) {
+        return;
+      }
+      if (!pollerAutoScaler.tryAcquire()) {
+        pollPermits.release();
+        return;
+      }
+      boolean started = false;
+      try {
+        pollBackoffThrottler.throttle();
+        if (pollRateThrottler != null) {
+          pollRateThrottler.throttle();
+        }
+        if (shuttingDown) {
+          return;
+        }
+        long pollStart = System.nanoTime();
+        CompletableFuture<T> poll = pollContext.call(pollTask::pollAsync);
+        if (poll == null) {
+          // No capacity to process a task, retried on the next scheduled run.
+          return;
+        }
+        started = true;
+        outstandingPolls.add(poll);
+        poll.whenComplete((task, failure) -> onPollCompleted(poll, pollStart, task, failure));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable e) {
+        pollBackoffThrottler.failure();
+        reportFailure(e);
+      } finally {
+        if (!started) {
+          releasePermits();
+        }
+      }
+    }
+  }
+
+  private void onPollCompleted(
+      CompletableFuture<T> poll, long pollStart, T task, Throwable failure) {
+    pollerAutoScaler.recordPollLatency(System.nanoTime() - pollStart);
+    boolean dispatched = false;
+    try {
+      if (failure != null) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+          failure = failure.getCause();
+        }
+        if (!shuttingDown && !(failure instanceof CancellationException)) {
+          pollBackoffThrottler.failure();
+          reportFailure(failure);
+        }
+      } else {
+        pollBackoffThrottler.success();
+        if (task == null) {
+          pollerAutoScaler.increaseNoopPollCount();
+          pollerAutoScaler.recordExecutorCapacity(taskExecutor.hasCapacity());
+        } else {
+          pollerAutoScaler.increaseActionablePollCount();
+          long backlogCountHint = pollTask.getBacklogCountHint(task);
+          if (backlogCountHint >= 0) {
+            pollerAutoScaler.recordBacklogCountHint(backlogCountHint);
+          }
+          taskDispatcher.execute(() -> dispatch(task));
+          dispatched = true;
+        }
+      }
+    } catch (RejectedExecutionException e) {
+      // shutdownNow, the task is left to time out as with the rejection of the taskExecutor.
+      log.debug("Task dropped by shut down async poller " + identity);
+    } catch (Throwable e) {
+      reportFailure(e);
+    } finally {
+      removeOutstandingPoll(poll);
+      if (!dispatched) {
+        releasePermits();
+        schedulePolls();
+      }
+    }
+  }
+
+  // Runs on the taskDispatcher thread. Keeps the poll permits until the taskExecutor accepted the
+  // task, so a blocking taskExecutor limits the number of polls the same way it blocks the poll
+  // threads of Poller.
+  private void dispatch(T task) {
+    try {
+      taskExecutor.process(task);
+    } catch (Throwable e) {
+      reportFailure(e);
+    } finally {
+      pollerAutoScaler.recordExecutorCapacity(taskExecutor.hasCapacity());
+      releasePermits();
+      schedulePolls();
+    }
+  }
+
+  private void removeOutstandingPoll(CompletableFuture<T> poll) {
+    synchronized (outstandingPolls) {
+      outstandingPolls.remove(poll);
+      outstandingPolls.notifyAll();
+    }
+  }
+
+  private void releasePermits() {
+    pollerAutoScaler.release();
+    pollPermits.release();
+  }
+
+  private void reportFailure(Throwable e) {
+    if (e instanceof TimeoutError) {
+      log.warn("Failure in async poller " + identity, e);
+      return;
+    }
+    pollerOptions.getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+  }
+}
@@ -78,6 +78,18 @@ public interface DecisionTaskHandler {
    */
   Result handleDecisionTask(PollForDecisionTaskResponse decisionTask) throws Exception;
 
+  /**
+   * Answers a query task from the state of a cached workflow. Called before the task is serialized
+   * with the other tasks of the same workflow run, so it must not apply any history. Shouldn't
+   * throw any exceptions.
+   *
+   * @return query reply or null if the task has to be handled by {@link
+   *     #handleDecisionTask(PollForDecisionTaskResponse)}
+   */
+  default Result handleCachedQuery(PollForDecisionTaskResponse queryTask) {
+    return null;
+  }
+
   /** True if this handler handles at least one workflow type. */
   boolean isAnyTypeSupported();
 }
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.m3.tally.Scope;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Sends decision task replies without blocking the caller on the service call. Replies of the same
+ * workflow run are sent one after another in the order they were submitted, replies of different
+ * runs are sent concurrently. The number of submitted replies that are not acknowledged yet is
+ * bounded. A caller takes a permit with {@link #acquire()} before it starts processing a task, so
+ * it never waits for the sender while holding the lock of a workflow run, and hands the permit over
+ * with {@link #submit(String, Supplier)} or returns it with {@link #release()}. After {@link
+ * #shutdown()} new replies are rejected while the already submitted ones are still sent.
+ */
+final class DecisionTaskReplySender {
+
+  private final Semaphore permits;
+  private final Scope metricsScope;
+  // The latest submitted reply of each run that has replies not acknowledged yet.
+  private final ConcurrentHashMap<String, CompletableFuture<Void>> lastReplies =
+      new ConcurrentHashMap<>();
+  private boolean shutdown;
+
+  DecisionTaskReplySender(int maxOutstandingReplies, Scope metricsScope) {
+    if (maxOutstandingReplies <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + maxOutstandingReplies);
+    }
+    this.permits = new Semaphore(maxOutstandingReplies);
+    this.metricsScope = metricsScope;
+  }
+
+  /** Waits until the number of outstanding replies is below the limit and takes a permit. */
+  void acquire() throws InterruptedException {
+    permits.acquire();
+  }
+
+  /** Returns a permit taken by {@link #acquire()} that is not going to be used for a reply. */
+  void release() {
+    permits.release();
+  }
+
+  /**
+   * Sends a reply once all the replies previously submitted for {@code runId} are completed. The
+   * caller must hold a permit taken by {@link #acquire()}. The permit is released when the reply
+   * completes or when it is rejected.
+   *
+   * @param reply starts the service call and returns its result
+   * @return completes with the result of the call returned by {@code reply}
+   * @throws RejectedExecutionException if the sender is shut down
+   */
+  CompletableFuture<Void> submit(String runId, Supplier<CompletableFuture<Void>> reply) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    CompletableFuture<Void> previous;
+    synchronized (this) {
+      if (shutdown) {
+        permits.release();
+        throw new RejectedExecutionException("Decision task reply sender is shut down");
+      }
+      previous = lastReplies.put(runId, result);
+    }
+    reportPendingRunCount();
+    if (previous == null) {
+      send(runId, reply, result);
+    } else {
+      // Failure of the previous reply doesn't prevent this one from being sent.
+      previous.whenComplete((r, e) -> send(runId, reply, result));
+    }
+    return result;
+  }
+
+  int getPendingRunCount() {
+    return lastReplies.size();
+  }
+
+  /** Stops accepting new replies. The already submitted replies are still sent. */
+  synchronized void shutdown() {
+    shutdown = true;
+  }
+
+  synchronized boolean isShutdown() {
+    return shutdown;
+  }
+
+  /**
+   * Waits for the replies submitted before {@link #shutdown()} to complete.
+   *
+   * @return false if the timeout elapsed before all the replies completed
+   */
+  boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    if (!isShutdown()) {
+      throw new IllegalStateException("Decision task reply sender is not shut down");
+    }
+    // The last reply of a run completes after all the previous ones of the same run.
+    CompletableFuture<?>[] pending = lastReplies.values().toArray(new CompletableFuture<?>[0]);
+    try {
+      CompletableFuture.allOf(pending).get(timeout, unit);
+    } catch (ExecutionException e) {
+      // Failures are reported by the submitters. allOf completes only after all of them.
+    } catch (TimeoutException e) {
+      return false;
+    }
+    return true;
+  }
+
+  private void send(
+      String runId, Supplier<CompletableFuture<Void>> reply, CompletableFuture<Void> result) {
+    CompletableFuture<Void> call;
+    try {
+      call = reply.get();
+    } catch (Throwable e) {
+      call = new CompletableFuture<>();
+      call.completeExceptionally(e);
+    }
+    call.whenComplete(
+        (r, e) -> {
+          lastReplies.remove(runId, result);
+          permits.release();
+          reportPendingRunCount();
+          if (e == null) {
+            result.complete(null);
+          } else {
+            result.completeExceptionally(e);
+          }
+        });
+  }
+
+  private void reportPendingRunCount() {
+    metricsScope.gauge(MetricsType.DECISION_REPLY_PENDING_RUNS).update(lastReplies.size());
+  }
+}
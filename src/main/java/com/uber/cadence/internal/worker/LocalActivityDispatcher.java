@@ -0,0 +1,234 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import com.uber.cadence.internal.common.InternalUtils;
+import com.uber.cadence.worker.ExecutorWrapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queues local activity tasks scheduled by decision tasks and dispatches them to the local activity
+ * executor. A single dispatch thread drains the queue in batches straight into the executor, so
+ * tasks scheduled together by one decision don't wait for poll threads to take them one by one.
+ *
+ * <p>{@link #apply(LocalActivityWorker.Task, Duration)} returns false when the task couldn't be
+ * queued within the allowed time, which makes the decider complete the decision task and continue
+ * in a new one.
+ */
+final class LocalActivityDispatcher
+    implements SuspendableWorker, BiFunction<LocalActivityWorker.Task, Duration, Boolean> {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalActivityDispatcher.class);
+
+  private final BlockingQueue<LocalActivityWorker.Task> pendingTasks;
+  private final int maxBatchSize;
+  private final ShutdownableTaskExecutor<LocalActivityWorker.Task> taskExecutor;
+  private final PollerOptions pollerOptions;
+  private final ExecutorWrapper executorWrapper;
+  private final AtomicReference<CountDownLatch> suspendLatch = new AtomicReference<>();
+
+  private ThreadPoolExecutor dispatchExecutor;
+  private volatile boolean shuttingDown;
+
+  /**
+   * @param queueSize maximum number of tasks waiting to be dispatched
+   * @param maxBatchSize maximum number of tasks taken from the queue at once
+   */
+  LocalActivityDispatcher(
+      int queueSize,
+      int maxBatchSize,
+      ShutdownableTaskExecutor<LocalActivityWorker.Task> taskExecutor,
+      PollerOptions pollerOptions,
+      ExecutorWrapper executorWrapper) {
+    if (queueSize <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + queueSize);
+    }
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + maxBatchSize);
+    }
+    this.pendingTasks = new ArrayBlockingQueue<>(queueSize);
+    this.maxBatchSize = maxBatchSize;
+    this.taskExecutor = Objects.requireNonNull(taskExecutor);
+    this.pollerOptions = Objects.requireNonNull(pollerOptions);
+    this.executorWrapper = Objects.requireNonNull(executorWrapper);
+  }
+
+  @Override
+  public Boolean apply(LocalActivityWorker.Task task, Duration maxWaitAllowed) {
+    if (shuttingDown) {
+      return false;
+    }
+    if (pendingTasks.offer(task)) {
+      return true;
+    }
+    try {
+      return pendingTasks.offer(
+          task, Math.max(maxWaitAllowed.toMillis(), 0), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @Override
+  public void start() {
+    dispatchExecutor =
+        executorWrapper.wrap(
+            new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<>()));
+    dispatchExecutor.setThreadFactory(
+        new ExecutorThreadFactory(
+            pollerOptions.getPollThreadNamePrefix(), pollerOptions.getUncaughtExceptionHandler()));
+    dispatchExecutor.execute(this::dispatchLoop);
+  }
+
+  @Override
+  public boolean isStarted() {
+    return dispatchExecutor != null;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return dispatchExecutor.isShutdown() && taskExecutor.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return dispatchExecutor.isTerminated() && taskExecutor.isTerminated();
+  }
+
+  @Override
+  public void shutdown() {
+    log.debug("shutdown");
+    if (!isStarted()) {
+      return;
+    }
+    // Same as Poller, stop dispatching right away so that no new tasks reach the taskExecutor.
+    shuttingDown = true;
+    dispatchExecutor.shutdownNow();
+    try {
+      dispatchExecutor.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+    }
+    taskExecutor.shutdown();
+  }
+
+  @Override
+  public void shutdownNow() {
+    log.debug("shutdownNow");
+    if (!isStarted()) {
+      return;
+    }
+    shuttingDown = true;
+    dispatchExecutor.shutdownNow();
+    taskExecutor.shutdownNow();
+  }
+
+  @Override
+  public void awaitTermination(long timeout, TimeUnit unit) {
+    if (!isStarted()) {
+      return;
+    }
+    long timeoutMillis = unit.toMillis(timeout);
+    timeoutMillis = InternalUtils.awaitTermination(dispatchExecutor, timeoutMillis);
+    InternalUtils.awaitTermination(taskExecutor, timeoutMillis);
+  }
+
+  @Override
+  public void suspendPolling() {
+    log.info("suspendPolling");
+    suspendLatch.set(new CountDownLatch(1));
+  }
+
+  @Override
+  public void resumePolling() {
+    log.info("resumePolling");
+    CountDownLatch existing = suspendLatch.getAndSet(null);
+    if (existing != null) {
+      existing.countDown();
+    }
+  }
+
+  @Override
+  public boolean isSuspended() {
+    return suspendLatch.get() != null;
+  }
+
+  /** Number of tasks waiting to be dispatched. */
+  int getPendingTaskCount() {
+    return pendingTasks.size();
+  }
+
+  private void dispatchLoop() {
+    List<LocalActivityWorker.Task> batch = new ArrayList<>(maxBatchSize);
+    while (!shuttingDown) {
+      try {
+        CountDownLatch suspender = suspendLatch.get();
+        if (suspender != null) {
+          suspender.await();
+        }
+        batch.add(pendingTasks.take());
+      } catch (InterruptedException e) {
+        log.debug("local activity dispatch interrupted");
+        return;
+      }
+      pendingTasks.drainTo(batch, maxBatchSize - 1);
+      for (LocalActivityWorker.Task task : batch) {
+        if (!dispatch(task)) {
+          return;
+        }
+      }
+      batch.clear();
+    }
+  }
+
+  /**
+   * Hands a task to the taskExecutor. A failure is reported and only affects this task, the rest of
+   * the batch is still dispatched.
+   *
+   * @return false if the dispatcher is shutting down
+   */
+  private boolean dispatch(LocalActivityWorker.Task task) {
+    try {
+      // Blocks while all the executor threads are busy.
+      taskExecutor.process(task);
+    } catch (Throwable e) {
+      if (shuttingDown) {
+        return false;
+      }
+      pollerOptions
+          .getUncaughtExceptionHandler()
+          .uncaughtException(
+              Thread.currentThread(),
+              new RuntimeException("Failure dispatching local activity task.", e));
+    }
+    return !shuttingDown;
+  }
+}
@@ -29,11 +29,11 @@ import com.uber.cadence.internal.metrics.HistogramBuckets;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.metrics.TaggedScopeCache;
 import com.uber.cadence.internal.replay.ClockDecisionContext;
 import com.uber.cadence.internal.replay.ExecuteLocalActivityParameters;
 import com.uber.cadence.internal.tracing.TracingPropagator;
 import com.uber.m3.tally.Scope;
-import com.uber.m3.util.ImmutableMap;
 import io.opentracing.Span;
 import io.opentracing.Tracer;
 import java.time.Duration;
@@ -52,7 +52,7 @@ public final class LocalActivityWorker extends SuspendableWorkerBase {
   private final String domain;
   private final String taskList;
   private final SingleWorkerOptions options;
-  private final LocalActivityPollTask laPollTask;
+  private final LocalActivityDispatcher dispatcher;
   private final TracingPropagator spanFactory;
   private final Tracer tracer;
 
@@ -61,7 +61,6 @@ public final class LocalActivityWorker extends SuspendableWorkerBase {
     this.domain = Objects.requireNonNull(domain);
     this.taskList = Objects.requireNonNull(taskList);
     this.handler = handler;
-    this.laPollTask = new LocalActivityPollTask();
     this.spanFactory = new TracingPropagator(options.getTracer());
     this.tracer = options.getTracer();
 
@@ -74,21 +73,20 @@ public final class LocalActivityWorker extends SuspendableWorkerBase {
               .build();
     }
     this.options = SingleWorkerOptions.newBuilder(options).setPollerOptions(pollerOptions).build();
+    this.dispatcher =
+        new LocalActivityDispatcher(
+            this.options.getLocalActivityQueueSize(),
+            this.options.getTaskExecutorThreadPoolSize(),
+            new PollTaskExecutor<>(domain, taskList, this.options, new TaskHandlerImpl(handler)),
+            this.options.getPollerOptions(),
+            this.options.getExecutorWrapper());
   }
 
   @Override
   public void start() {
     if (handler.isAnyTypeSupported()) {
-      SuspendableWorker poller =
-          new Poller<>(
-              options.getIdentity(),
-              laPollTask,
-              new PollTaskExecutor<>(domain, taskList, options, new TaskHandlerImpl(handler)),
-              options.getPollerOptions(),
-              options.getMetricsScope(),
-              options.getExecutorWrapper());
-      poller.start();
-      setPoller(poller);
+      dispatcher.start();
+      setPoller(dispatcher);
       options.getMetricsScope().counter(MetricsType.WORKER_START_COUNTER).inc(1);
     }
   }
@@ -120,12 +118,14 @@ public final class LocalActivityWorker extends SuspendableWorkerBase {
   }
 
   public BiFunction<Task, Duration, Boolean> getLocalActivityTaskPoller() {
-    return laPollTask;
+    return dispatcher;
   }
 
   private class TaskHandlerImpl implements PollTaskExecutor.TaskHandler<Task> {
 
     final ActivityTaskHandler handler;
+    private final TaggedScopeCache activityTypeScopes =
+        new TaggedScopeCache(options.getMetricsScope(), MetricsTag.ACTIVITY_TYPE);
 
     private TaskHandlerImpl(ActivityTaskHandler handler) {
       this.handler = handler;
@@ -186,12 +186,7 @@ public final class LocalActivityWorker extends SuspendableWorkerBase {
     }
 
     private ActivityTaskHandler.Result handleLocalActivity(Task task) throws InterruptedException {
-      Map<String, String> activityTypeTag =
-          new ImmutableMap.Builder<String, String>(1)
-              .put(MetricsTag.ACTIVITY_TYPE, task.params.getActivityType().getName())
-              .build();
-
-      Scope metricsScope = options.getMetricsScope().tagged(activityTypeTag);
+      Scope metricsScope = activityTypeScopes.get(task.params.getActivityType().getName());
       metricsScope.counter(MetricsType.LOCAL_ACTIVITY_TOTAL_COUNTER).inc(1);
 
       PollForActivityTaskResponse pollTask = new PollForActivityTaskResponse();
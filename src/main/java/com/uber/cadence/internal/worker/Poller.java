@@ -28,6 +28,7 @@ import com.uber.cadence.worker.ExecutorWrapper;
 import com.uber.m3.tally.Scope;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -39,6 +40,23 @@ public final class Poller<T> implements SuspendableWorker {
 
   public interface PollTask<TT> {
     TT poll() throws CadenceError;
+
+    /** Backlog count hint returned by the server with the polled task, -1 if not available. */
+    default long getBacklogCountHint(TT task) {
+      return -1;
+    }
+  }
+
+  /** Poll task that can also poll without blocking a thread for the duration of the long poll. */
+  public interface AsyncPollTask<TT> extends PollTask<TT> {
+
+    /**
+     * Starts a poll.
+     *
+     * @return null if there is no capacity to process a task right now, otherwise a future that
+     *     completes with the polled task or with null if the poll returned no task.
+     */
+    CompletableFuture<TT> pollAsync();
   }
 
   interface ThrowingRunnable {
@@ -91,7 +109,8 @@ public final class Poller<T> implements SuspendableWorker {
     this.taskExecutor = taskExecutor;
     this.pollerOptions = pollerOptions;
     this.metricsScope = metricsScope;
-    this.pollerAutoScaler = AutoScalerFactory.getInstance().createAutoScaler(pollerOptions);
+    this.pollerAutoScaler =
+        AutoScalerFactory.getInstance().createAutoScaler(pollerOptions, metricsScope);
     this.executorWrapper = executorWrapper;
   }
 
@@ -277,15 +296,22 @@ public final class Poller<T> implements SuspendableWorker {
       try {
         pollerAutoScaler.acquire();
         try {
+          long pollStart = System.nanoTime();
           T task = pollTask.poll();
+          pollerAutoScaler.recordPollLatency(System.nanoTime() - pollStart);
           if (task == null) {
             pollerAutoScaler.increaseNoopPollCount();
             return;
           }
 
           pollerAutoScaler.increaseActionablePollCount();
+          long backlogCountHint = pollTask.getBacklogCountHint(task);
+          if (backlogCountHint >= 0) {
+            pollerAutoScaler.recordBacklogCountHint(backlogCountHint);
+          }
           taskExecutor.process(task);
         } finally {
+          pollerAutoScaler.recordExecutorCapacity(taskExecutor.hasCapacity());
           checkIfTaskHasExecutorHasCapacity();
         }
       } finally {
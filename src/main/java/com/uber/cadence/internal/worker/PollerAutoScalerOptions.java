@@ -23,6 +23,7 @@ public class PollerAutoScalerOptions {
   private Duration pollerScalingInterval;
   private int minConcurrentPollers;
   private float targetPollerUtilisation;
+  private boolean enableAdaptiveScaling;
 
   private PollerAutoScalerOptions() {}
 
@@ -31,6 +32,7 @@ public class PollerAutoScalerOptions {
     private Duration pollerScalingInterval = Duration.ofMinutes(1);
     private int minConcurrentPollers = 1;
     private float targetPollerUtilisation = 0.6f;
+    private boolean enableAdaptiveScaling;
 
     private Builder() {}
 
@@ -53,11 +55,22 @@ public class PollerAutoScalerOptions {
       return this;
     }
 
+    /**
+     * Scale pollers based on task backlog hints, executor saturation and poll latency in addition
+     * to poll success rate. Pollers are added as soon as they are needed and removed gradually.
+     * Default is false.
+     */
+    public Builder setEnableAdaptiveScaling(boolean enableAdaptiveScaling) {
+      this.enableAdaptiveScaling = enableAdaptiveScaling;
+      return this;
+    }
+
     public PollerAutoScalerOptions build() {
       PollerAutoScalerOptions pollerAutoScalerOptions = new PollerAutoScalerOptions();
       pollerAutoScalerOptions.pollerScalingInterval = this.pollerScalingInterval;
       pollerAutoScalerOptions.minConcurrentPollers = this.minConcurrentPollers;
       pollerAutoScalerOptions.targetPollerUtilisation = this.targetPollerUtilisation;
+      pollerAutoScalerOptions.enableAdaptiveScaling = this.enableAdaptiveScaling;
       return pollerAutoScalerOptions;
     }
   }
@@ -74,6 +87,10 @@ public class PollerAutoScalerOptions {
     return targetPollerUtilisation;
   }
 
+  public boolean isEnableAdaptiveScaling() {
+    return enableAdaptiveScaling;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -81,12 +98,17 @@ public class PollerAutoScalerOptions {
     PollerAutoScalerOptions that = (PollerAutoScalerOptions) o;
     return minConcurrentPollers == that.minConcurrentPollers
         && Float.compare(that.targetPollerUtilisation, targetPollerUtilisation) == 0
+        && enableAdaptiveScaling == that.enableAdaptiveScaling
         && Objects.equals(pollerScalingInterval, that.pollerScalingInterval);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(pollerScalingInterval, minConcurrentPollers, targetPollerUtilisation);
+    return Objects.hash(
+        pollerScalingInterval,
+        minConcurrentPollers,
+        targetPollerUtilisation,
+        enableAdaptiveScaling);
   }
 
   @Override
@@ -98,6 +120,8 @@ public class PollerAutoScalerOptions {
         + minConcurrentPollers
         + ", targetPollerUtilisation="
         + targetPollerUtilisation
+        + ", enableAdaptiveScaling="
+        + enableAdaptiveScaling
         + '}';
   }
 }
@@ -66,6 +66,8 @@ public final class PollerOptions {
 
     private PollerAutoScalerOptions pollerAutoScalerOptions;
 
+    private boolean enableAsyncPolling;
+
     private Builder() {}
 
     private Builder(PollerOptions o) {
@@ -82,6 +84,7 @@ public final class PollerOptions {
       this.pollOnlyIfExecutorHasCapacity = o.getPollOnlyIfExecutorHasCapacity();
       this.uncaughtExceptionHandler = o.getUncaughtExceptionHandler();
       this.pollerAutoScalerOptions = o.getPollerAutoScalerOptions();
+      this.enableAsyncPolling = o.isEnableAsyncPolling();
     }
 
     /** Defines interval for measuring poll rate. Larger the interval more spiky can be the load. */
@@ -153,6 +156,17 @@ public final class PollerOptions {
       return this;
     }
 
+    /**
+     * Issue long polls through the asynchronous service API instead of dedicating a thread to each
+     * of them. Poll thread count then limits the number of outstanding polls, and a single thread
+     * per poller starts them. Only decision and activity task list pollers support it, the others
+     * keep polling from threads. Default is false.
+     */
+    public Builder setEnableAsyncPolling(boolean enableAsyncPolling) {
+      this.enableAsyncPolling = enableAsyncPolling;
+      return this;
+    }
+
     public PollerOptions build() {
       if (uncaughtExceptionHandler == null) {
         uncaughtExceptionHandler = (t, e) -> log.error("uncaught exception", e);
@@ -167,7 +181,8 @@ public final class PollerOptions {
           uncaughtExceptionHandler,
           pollThreadNamePrefix,
           pollOnlyIfExecutorHasCapacity,
-          pollerAutoScalerOptions);
+          pollerAutoScalerOptions,
+          enableAsyncPolling);
     }
   }
 
@@ -191,6 +206,8 @@ public final class PollerOptions {
 
   private final PollerAutoScalerOptions pollerAutoScalerOptions;
 
+  private final boolean enableAsyncPolling;
+
   private PollerOptions(
       int maximumPollRateIntervalMilliseconds,
       double maximumPollRatePerSecond,
@@ -201,7 +218,8 @@ public final class PollerOptions {
       Thread.UncaughtExceptionHandler uncaughtExceptionHandler,
       String pollThreadNamePrefix,
       boolean pollOnlyIfExecutorHasCapacity,
-      PollerAutoScalerOptions pollerAutoScalerOptions) {
+      PollerAutoScalerOptions pollerAutoScalerOptions,
+      boolean enableAsyncPolling) {
     this.maximumPollRateIntervalMilliseconds = maximumPollRateIntervalMilliseconds;
     this.maximumPollRatePerSecond = maximumPollRatePerSecond;
     this.pollBackoffCoefficient = pollBackoffCoefficient;
@@ -212,6 +230,7 @@ public final class PollerOptions {
     this.pollThreadNamePrefix = pollThreadNamePrefix;
     this.pollOnlyIfExecutorHasCapacity = pollOnlyIfExecutorHasCapacity;
     this.pollerAutoScalerOptions = pollerAutoScalerOptions;
+    this.enableAsyncPolling = enableAsyncPolling;
   }
 
   public int getMaximumPollRateIntervalMilliseconds() {
@@ -254,6 +273,10 @@ public final class PollerOptions {
     return pollerAutoScalerOptions;
   }
 
+  public boolean isEnableAsyncPolling() {
+    return enableAsyncPolling;
+  }
+
   @Override
   public String toString() {
     return "PollerOptions{"
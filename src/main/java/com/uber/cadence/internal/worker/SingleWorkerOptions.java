@@ -49,6 +49,12 @@ public final class SingleWorkerOptions {
     private Tracer tracer;
     private ExecutorWrapper executorWrapper;
     private Duration stickyTaskListScheduleToStartTimeout;
+    private int historyPrefetchPageCount;
+    private int localActivityQueueSize = 1000;
+    private boolean enableAsyncActivityHeartbeats;
+    private boolean enableAsyncDecisionTaskCompletion;
+    private boolean enableConcurrentQueries;
+    private boolean enableQueryCoalescing;
 
     private Builder() {}
 
@@ -64,6 +70,12 @@ public final class SingleWorkerOptions {
       this.tracer = options.getTracer();
       this.executorWrapper = options.getExecutorWrapper();
       this.stickyTaskListScheduleToStartTimeout = options.getStickyTaskListScheduleToStartTimeout();
+      this.historyPrefetchPageCount = options.getHistoryPrefetchPageCount();
+      this.localActivityQueueSize = options.getLocalActivityQueueSize();
+      this.enableAsyncActivityHeartbeats = options.isEnableAsyncActivityHeartbeats();
+      this.enableAsyncDecisionTaskCompletion = options.isEnableAsyncDecisionTaskCompletion();
+      this.enableConcurrentQueries = options.isEnableConcurrentQueries();
+      this.enableQueryCoalescing = options.isEnableQueryCoalescing();
     }
 
     public Builder setIdentity(String identity) {
@@ -123,6 +135,36 @@ public final class SingleWorkerOptions {
       return this;
     }
 
+    public Builder setHistoryPrefetchPageCount(int historyPrefetchPageCount) {
+      this.historyPrefetchPageCount = historyPrefetchPageCount;
+      return this;
+    }
+
+    public Builder setLocalActivityQueueSize(int localActivityQueueSize) {
+      this.localActivityQueueSize = localActivityQueueSize;
+      return this;
+    }
+
+    public Builder setEnableAsyncActivityHeartbeats(boolean enableAsyncActivityHeartbeats) {
+      this.enableAsyncActivityHeartbeats = enableAsyncActivityHeartbeats;
+      return this;
+    }
+
+    public Builder setEnableAsyncDecisionTaskCompletion(boolean enableAsyncDecisionTaskCompletion) {
+      this.enableAsyncDecisionTaskCompletion = enableAsyncDecisionTaskCompletion;
+      return this;
+    }
+
+    public Builder setEnableConcurrentQueries(boolean enableConcurrentQueries) {
+      this.enableConcurrentQueries = enableConcurrentQueries;
+      return this;
+    }
+
+    public Builder setEnableQueryCoalescing(boolean enableQueryCoalescing) {
+      this.enableQueryCoalescing = enableQueryCoalescing;
+      return this;
+    }
+
     public SingleWorkerOptions build() {
       if (pollerOptions == null) {
         pollerOptions =
@@ -152,7 +194,13 @@ public final class SingleWorkerOptions {
           contextPropagators,
           tracer,
           executorWrapper,
-          stickyTaskListScheduleToStartTimeout);
+          stickyTaskListScheduleToStartTimeout,
+          historyPrefetchPageCount,
+          localActivityQueueSize,
+          enableAsyncActivityHeartbeats,
+          enableAsyncDecisionTaskCompletion,
+          enableConcurrentQueries,
+          enableQueryCoalescing);
     }
   }
 
@@ -167,6 +215,12 @@ public final class SingleWorkerOptions {
   private final Tracer tracer;
   private final ExecutorWrapper executorWrapper;
   private final Duration stickyTaskListScheduleToStartTimeout;
+  private final int historyPrefetchPageCount;
+  private final int localActivityQueueSize;
+  private final boolean enableAsyncActivityHeartbeats;
+  private final boolean enableAsyncDecisionTaskCompletion;
+  private final boolean enableConcurrentQueries;
+  private final boolean enableQueryCoalescing;
 
   private SingleWorkerOptions(
       String identity,
@@ -179,7 +233,13 @@ public final class SingleWorkerOptions {
       List<ContextPropagator> contextPropagators,
       Tracer tracer,
       ExecutorWrapper executorWrapper,
-      Duration stickyTaskListScheduleToStartTimeout) {
+      Duration stickyTaskListScheduleToStartTimeout,
+      int historyPrefetchPageCount,
+      int localActivityQueueSize,
+      boolean enableAsyncActivityHeartbeats,
+      boolean enableAsyncDecisionTaskCompletion,
+      boolean enableConcurrentQueries,
+      boolean enableQueryCoalescing) {
     this.identity = identity;
     this.dataConverter = dataConverter;
     this.taskExecutorThreadPoolSize = taskExecutorThreadPoolSize;
@@ -191,6 +251,12 @@ public final class SingleWorkerOptions {
     this.tracer = tracer;
     this.executorWrapper = executorWrapper;
     this.stickyTaskListScheduleToStartTimeout = stickyTaskListScheduleToStartTimeout;
+    this.historyPrefetchPageCount = historyPrefetchPageCount;
+    this.localActivityQueueSize = localActivityQueueSize;
+    this.enableAsyncActivityHeartbeats = enableAsyncActivityHeartbeats;
+    this.enableAsyncDecisionTaskCompletion = enableAsyncDecisionTaskCompletion;
+    this.enableConcurrentQueries = enableConcurrentQueries;
+    this.enableQueryCoalescing = enableQueryCoalescing;
   }
 
   public String getIdentity() {
@@ -236,4 +302,28 @@ public final class SingleWorkerOptions {
   public Duration getStickyTaskListScheduleToStartTimeout() {
     return stickyTaskListScheduleToStartTimeout;
   }
+
+  public int getHistoryPrefetchPageCount() {
+    return historyPrefetchPageCount;
+  }
+
+  public int getLocalActivityQueueSize() {
+    return localActivityQueueSize;
+  }
+
+  public boolean isEnableAsyncActivityHeartbeats() {
+    return enableAsyncActivityHeartbeats;
+  }
+
+  public boolean isEnableAsyncDecisionTaskCompletion() {
+    return enableAsyncDecisionTaskCompletion;
+  }
+
+  public boolean isEnableConcurrentQueries() {
+    return enableConcurrentQueries;
+  }
+
+  public boolean isEnableQueryCoalescing() {
+    return enableQueryCoalescing;
+  }
 }
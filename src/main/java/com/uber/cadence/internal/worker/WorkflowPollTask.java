@@ -26,20 +26,25 @@ import com.uber.cadence.internal.metrics.HistogramBuckets;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.metrics.TaggedScopeCache;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import com.uber.m3.tally.Scope;
 import com.uber.m3.util.Duration;
 import com.uber.m3.util.ImmutableMap;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-final class WorkflowPollTask implements Poller.PollTask<DecisionTask> {
+final class WorkflowPollTask implements Poller.AsyncPollTask<DecisionTask> {
 
   private static final Logger log = LoggerFactory.getLogger(WorkflowWorker.class);
   private final Scope metricScope;
   private final Scope stickyMetricScope;
+  private final TaggedScopeCache workflowTypeScopes;
+  private final TaggedScopeCache stickyWorkflowTypeScopes;
   private final IWorkflowService service;
   private final String domain;
   private final String identity;
@@ -71,6 +76,9 @@ final class WorkflowPollTask implements Poller.PollTask<DecisionTask> {
             new ImmutableMap.Builder<String, String>(1)
                 .put(MetricsTag.TASK_LIST, String.format("%s:%s", taskList, "sticky"))
                 .build());
+    this.workflowTypeScopes = new TaggedScopeCache(metricScope, MetricsTag.WORKFLOW_TYPE);
+    this.stickyWorkflowTypeScopes =
+        new TaggedScopeCache(stickyMetricScope, MetricsTag.WORKFLOW_TYPE);
   }
 
   @Override
@@ -84,28 +92,14 @@ final class WorkflowPollTask implements Poller.PollTask<DecisionTask> {
     }
 
     TaskListKind taskListKind = stickyQueueBalancer.makePoll();
-    boolean isSticky = TaskListKind.STICKY.equals(taskListKind);
-    PollForDecisionTaskRequest request =
-        isSticky
-            ? new PollForDecisionTaskRequest()
-                .setDomain(domain)
-                .setIdentity(identity)
-                .setBinaryChecksum(BinaryChecksum.getBinaryChecksum())
-                .setTaskList(
-                    new TaskList()
-                        .setName(stickyTaskListName)
-                        .setKind(TaskListKind.STICKY)
-                        .setBaseName(taskList))
-            : new PollForDecisionTaskRequest()
-                .setDomain(domain)
-                .setIdentity(identity)
-                .setBinaryChecksum(BinaryChecksum.getBinaryChecksum())
-                .setTaskList(new TaskList().setName(taskList).setKind(TaskListKind.NORMAL));
-    Scope scope = isSticky ? stickyMetricScope : metricScope;
+    PollForDecisionTaskRequest request = createRequest(taskListKind);
+    boolean sticky = TaskListKind.STICKY.equals(taskListKind);
+    Scope scope = sticky ? stickyMetricScope : metricScope;
+    TaggedScopeCache typeScopes = sticky ? stickyWorkflowTypeScopes : workflowTypeScopes;
 
     log.trace("poll request begin: {}", request);
     try {
-      PollForDecisionTaskResponse response = doPoll(request, scope);
+      PollForDecisionTaskResponse response = doPoll(request, scope, typeScopes);
       if (response == null) {
         return null;
       }
@@ -120,7 +114,87 @@ final class WorkflowPollTask implements Poller.PollTask<DecisionTask> {
     }
   }
 
-  private PollForDecisionTaskResponse doPoll(PollForDecisionTaskRequest request, Scope scope)
+  @Override
+  public CompletableFuture<DecisionTask> pollAsync() {
+    if (!decisionTaskExecutorSemaphore.tryAcquire()) {
+      return null;
+    }
+    TaskListKind taskListKind = stickyQueueBalancer.makePoll();
+    PollForDecisionTaskRequest request = createRequest(taskListKind);
+    boolean sticky = TaskListKind.STICKY.equals(taskListKind);
+    Scope scope = sticky ? stickyMetricScope : metricScope;
+    TaggedScopeCache typeScopes = sticky ? stickyWorkflowTypeScopes : workflowTypeScopes;
+
+    scope.counter(MetricsType.DECISION_POLL_COUNTER).inc(1);
+    MetricsEmit.DualStopwatch sw =
+        MetricsEmit.startLatency(
+            scope, MetricsType.DECISION_POLL_LATENCY, HistogramBuckets.DEFAULT_1MS_100S);
+    CompletableFuture<DecisionTask> result = new CompletableFuture<>();
+    AsyncMethodCallback<PollForDecisionTaskResponse> callback =
+        new AsyncMethodCallback<PollForDecisionTaskResponse>() {
+          @Override
+          public void onComplete(PollForDecisionTaskResponse response) {
+            sw.stop();
+            if (!checkResponse(response, scope, typeScopes)) {
+              decisionTaskExecutorSemaphore.release();
+              stickyQueueBalancer.finishPoll(taskListKind);
+              result.complete(null);
+              return;
+            }
+            stickyQueueBalancer.finishPoll(taskListKind, response.getBacklogCountHint());
+            if (!result.complete(
+                new DecisionTask(response, decisionTaskExecutorSemaphore::release))) {
+              // Poll was cancelled by the poller shutdown, the task is left to time out.
+              decisionTaskExecutorSemaphore.release();
+            }
+          }
+
+          @Override
+          public void onError(Exception exception) {
+            sw.stop();
+            recordFailure(exception, scope);
+            decisionTaskExecutorSemaphore.release();
+            stickyQueueBalancer.finishPoll(taskListKind);
+            result.completeExceptionally(exception);
+          }
+        };
+
+    if (log.isDebugEnabled()) {
+      log.debug("async poll request begin: " + request);
+    }
+    try {
+      service.PollForDecisionTask(request, callback);
+    } catch (RuntimeException e) {
+      callback.onError(e);
+    }
+    return result;
+  }
+
+  @Override
+  public long getBacklogCountHint(DecisionTask task) {
+    return task.getResponse().getBacklogCountHint();
+  }
+
+  private PollForDecisionTaskRequest createRequest(TaskListKind taskListKind) {
+    PollForDecisionTaskRequest request =
+        new PollForDecisionTaskRequest()
+            .setDomain(domain)
+            .setIdentity(identity)
+            .setBinaryChecksum(BinaryChecksum.getBinaryChecksum());
+    if (TaskListKind.STICKY.equals(taskListKind)) {
+      request.setTaskList(
+          new TaskList()
+              .setName(stickyTaskListName)
+              .setKind(TaskListKind.STICKY)
+              .setBaseName(taskList));
+    } else {
+      request.setTaskList(new TaskList().setName(taskList).setKind(TaskListKind.NORMAL));
+    }
+    return request;
+  }
+
+  private PollForDecisionTaskResponse doPoll(
+      PollForDecisionTaskRequest request, Scope scope, TaggedScopeCache typeScopes)
       throws CadenceError {
     scope.counter(MetricsType.DECISION_POLL_COUNTER).inc(1);
     MetricsEmit.DualStopwatch sw =
@@ -134,57 +208,66 @@ final class WorkflowPollTask implements Poller.PollTask<DecisionTask> {
       }
       try {
         result = service.PollForDecisionTask(request);
-      } catch (InternalServiceError e) {
-        scope
-            .tagged(ImmutableMap.of(MetricsTag.CAUSE, INTERNAL_SERVICE_ERROR))
-            .counter(MetricsType.DECISION_POLL_TRANSIENT_FAILED_COUNTER)
-            .inc(1);
-        throw e;
-      } catch (ServiceBusyError e) {
-        scope
-            .tagged(ImmutableMap.of(MetricsTag.CAUSE, SERVICE_BUSY))
-            .counter(MetricsType.DECISION_POLL_TRANSIENT_FAILED_COUNTER)
-            .inc(1);
-        throw e;
       } catch (CadenceError e) {
-        scope.counter(MetricsType.DECISION_POLL_FAILED_COUNTER).inc(1);
+        recordFailure(e, scope);
         throw e;
       }
-
-      if (log.isDebugEnabled()) {
-        log.debug(
-            "poll request returned decision task: workflowType="
-                + result.getWorkflowType()
-                + ", workflowExecution="
-                + result.getWorkflowExecution()
-                + ", startedEventId="
-                + result.getStartedEventId()
-                + ", previousStartedEventId="
-                + result.getPreviousStartedEventId()
-                + (result.getQuery() != null
-                    ? ", queryType=" + result.getQuery().getQueryType()
-                    : ""));
-      }
-
-      if (result == null || result.getTaskToken() == null) {
-        scope.counter(MetricsType.DECISION_POLL_NO_TASK_COUNTER).inc(1);
+      if (!checkResponse(result, scope, typeScopes)) {
         return null;
       }
-
-      Scope metricsScope =
-          scope.tagged(
-              ImmutableMap.of(MetricsTag.WORKFLOW_TYPE, result.getWorkflowType().getName()));
-      metricsScope.counter(MetricsType.DECISION_POLL_SUCCEED_COUNTER).inc(1);
-      Duration scheduledToStartLatency =
-          Duration.ofNanos(result.getStartedTimestamp() - result.getScheduledTimestamp());
-      MetricsEmit.emitLatency(
-          metricsScope,
-          MetricsType.DECISION_SCHEDULED_TO_START_LATENCY,
-          scheduledToStartLatency,
-          HistogramBuckets.DEFAULT_1MS_100S);
     } finally {
       sw.stop();
     }
     return result;
   }
+
+  private static void recordFailure(Exception e, Scope scope) {
+    if (e instanceof InternalServiceError) {
+      scope
+          .tagged(ImmutableMap.of(MetricsTag.CAUSE, INTERNAL_SERVICE_ERROR))
+          .counter(MetricsType.DECISION_POLL_TRANSIENT_FAILED_COUNTER)
+          .inc(1);
+    } else if (e instanceof ServiceBusyError) {
+      scope
+          .tagged(ImmutableMap.of(MetricsTag.CAUSE, SERVICE_BUSY))
+          .counter(MetricsType.DECISION_POLL_TRANSIENT_FAILED_COUNTER)
+          .inc(1);
+    } else {
+      scope.counter(MetricsType.DECISION_POLL_FAILED_COUNTER).inc(1);
+    }
+  }
+
+  /** Emits poll result metrics and returns false if the poll returned no task. */
+  private static boolean checkResponse(
+      PollForDecisionTaskResponse result, Scope scope, TaggedScopeCache typeScopes) {
+    if (result == null || result.getTaskToken() == null) {
+      scope.counter(MetricsType.DECISION_POLL_NO_TASK_COUNTER).inc(1);
+      return false;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "poll request returned decision task: workflowType="
+              + result.getWorkflowType()
+              + ", workflowExecution="
+              + result.getWorkflowExecution()
+              + ", startedEventId="
+              + result.getStartedEventId()
+              + ", previousStartedEventId="
+              + result.getPreviousStartedEventId()
+              + (result.getQuery() != null
+                  ? ", queryType=" + result.getQuery().getQueryType()
+                  : ""));
+    }
+
+    Scope metricsScope = typeScopes.get(result.getWorkflowType().getName());
+    metricsScope.counter(MetricsType.DECISION_POLL_SUCCEED_COUNTER).inc(1);
+    Duration scheduledToStartLatency =
+        Duration.ofNanos(result.getStartedTimestamp() - result.getScheduledTimestamp());
+    MetricsEmit.emitLatency(
+        metricsScope,
+        MetricsType.DECISION_SCHEDULED_TO_START_LATENCY,
+        scheduledToStartLatency,
+        HistogramBuckets.DEFAULT_1MS_100S);
+    return true;
+  }
 }
@@ -17,26 +17,37 @@
 
 package com.uber.cadence.internal.worker;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Hands out per workflow run locks. Locks are reference counted and created on first use, so tasks
+ * of different runs never contend on a shared lock. A lock whose count dropped to zero is never
+ * handed out again: it is replaced by a new one and removed by the task that released it last.
+ */
 final class WorkflowRunLockManager {
 
   private static class CountableLock {
     private final Lock lock = new ReentrantLock();
-    private int count = 1;
-
-    void incrementCount() {
-      count++;
-    }
-
-    void decrementCount() {
-      count--;
+    private final AtomicInteger count = new AtomicInteger(1);
+
+    /** @return false if the count already dropped to zero and the lock is being removed */
+    boolean tryIncrementCount() {
+      while (true) {
+        int current = count.get();
+        if (current == 0) {
+          return false;
+        }
+        if (count.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
     }
 
-    int getCount() {
-      return count;
+    int decrementCount() {
+      return count.decrementAndGet();
     }
 
     Lock getLock() {
@@ -44,8 +55,7 @@ final class WorkflowRunLockManager {
     }
   }
 
-  private final Lock mapLock = new ReentrantLock();
-  private final HashMap<String, CountableLock> perRunLock = new HashMap<>();
+  private final ConcurrentHashMap<String, CountableLock> perRunLock = new ConcurrentHashMap<>();
 
   /**
    * This method returns a lock that can be used to serialize decision task processing for a
@@ -56,50 +66,27 @@ final class WorkflowRunLockManager {
    * @return a lock to be used during decision task processing
    */
   Lock getLockForLocking(String runId) {
-    mapLock.lock();
-
-    try {
-      CountableLock cl = perRunLock.get(runId);
-      if (cl == null) {
-        cl = new CountableLock();
-        perRunLock.put(runId, cl);
-      } else {
-        cl.incrementCount();
-      }
-
-      return cl.getLock();
-    } finally {
-      mapLock.unlock();
-    }
+    CountableLock cl =
+        perRunLock.compute(
+            runId,
+            (id, existing) ->
+                existing != null && existing.tryIncrementCount() ? existing : new CountableLock());
+    return cl.getLock();
   }
 
   void unlock(String runId) {
-    mapLock.lock();
-
-    try {
-      CountableLock cl = perRunLock.get(runId);
-      if (cl == null) {
-        throw new RuntimeException("lock for run " + runId + " does not exist.");
-      }
-
-      cl.decrementCount();
-      if (cl.getCount() == 0) {
-        perRunLock.remove(runId);
-      }
-
-      cl.getLock().unlock();
-    } finally {
-      mapLock.unlock();
+    CountableLock cl = perRunLock.get(runId);
+    if (cl == null) {
+      throw new RuntimeException("lock for run " + runId + " does not exist.");
+    }
+    // Released before the count drops so the lock is free by the time it can be replaced.
+    cl.getLock().unlock();
+    if (cl.decrementCount() == 0) {
+      perRunLock.remove(runId, cl);
     }
   }
 
   int totalLocks() {
-    mapLock.lock();
-
-    try {
-      return perRunLock.size();
-    } finally {
-      mapLock.unlock();
-    }
+    return perRunLock.size();
   }
 }
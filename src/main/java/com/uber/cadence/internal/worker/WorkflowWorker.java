@@ -28,16 +28,20 @@ import com.uber.cadence.internal.metrics.HistogramBuckets;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.metrics.TaggedScopeCache;
 import com.uber.cadence.internal.worker.LocallyDispatchedActivityWorker.Task;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import com.uber.m3.tally.Scope;
-import com.uber.m3.util.ImmutableMap;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import org.slf4j.Logger;
@@ -57,6 +61,8 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
   private final String stickyTaskListName;
   private final WorkflowRunLockManager runLocks = new WorkflowRunLockManager();
   private final Function<Task, Boolean> ldaTaskPoller;
+  // Null unless decision task replies are sent asynchronously.
+  private final DecisionTaskReplySender replySender;
   private PollTaskExecutor<DecisionTask> pollTaskExecutor;
 
   public WorkflowWorker(
@@ -87,6 +93,11 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
       pollerOptions = PollerOptions.newBuilder(pollerOptions).setPollThreadCount(2).build();
     }
     this.options = SingleWorkerOptions.newBuilder(options).setPollerOptions(pollerOptions).build();
+    this.replySender =
+        options.isEnableAsyncDecisionTaskCompletion()
+            ? new DecisionTaskReplySender(
+                options.getTaskExecutorThreadPoolSize(), options.getMetricsScope())
+            : null;
   }
 
   @Override
@@ -95,30 +106,39 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
       Semaphore decisionTaskExecutorSemaphore =
           new Semaphore(options.getTaskExecutorThreadPoolSize());
 
-      pollTaskExecutor =
-          new PollTaskExecutor<>(domain, taskList, options, new TaskHandlerImpl(handler));
+      pollTaskExecutor = new PollTaskExecutor<>(domain, taskList, options, newTaskHandler());
 
       // Create sticky queue balancer
       StickyQueueBalancer stickyQueueBalancer =
           new StickyQueueBalancer(
               options.getPollerOptions().getPollThreadCount(), stickyTaskListName != null);
 
-      SuspendableWorker poller =
-          new Poller<>(
+      WorkflowPollTask pollTask =
+          new WorkflowPollTask(
+              service,
+              domain,
+              taskList,
+              stickyTaskListName,
+              options.getMetricsScope(),
               options.getIdentity(),
-              new WorkflowPollTask(
-                  service,
-                  domain,
-                  taskList,
-                  stickyTaskListName,
+              decisionTaskExecutorSemaphore,
+              stickyQueueBalancer);
+      SuspendableWorker poller =
+          options.getPollerOptions().isEnableAsyncPolling()
+              ? new AsyncPoller<>(
+                  options.getIdentity(),
+                  pollTask,
+                  pollTaskExecutor,
+                  options.getPollerOptions(),
                   options.getMetricsScope(),
+                  options.getExecutorWrapper())
+              : new Poller<>(
                   options.getIdentity(),
-                  decisionTaskExecutorSemaphore,
-                  stickyQueueBalancer),
-              pollTaskExecutor,
-              options.getPollerOptions(),
-              options.getMetricsScope(),
-              options.getExecutorWrapper());
+                  pollTask,
+                  pollTaskExecutor,
+                  options.getPollerOptions(),
+                  options.getMetricsScope(),
+                  options.getExecutorWrapper());
       poller.start();
       setPoller(poller);
 
@@ -126,6 +146,47 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
     }
   }
 
+  /** Handler of the polled decision tasks. Package-private for tests that don't poll. */
+  PollTaskExecutor.TaskHandler<DecisionTask> newTaskHandler() {
+    return new TaskHandlerImpl(handler);
+  }
+
+  /**
+   * Once the poller and its task executor terminated no more replies can be submitted, so the worker
+   * is terminated when the replies already submitted are sent.
+   */
+  @Override
+  public boolean isTerminated() {
+    return super.isTerminated() && (replySender == null || replySender.getPendingRunCount() == 0);
+  }
+
+  @Override
+  public void shutdownNow() {
+    super.shutdownNow();
+    if (replySender != null) {
+      replySender.shutdown();
+    }
+  }
+
+  /**
+   * Waits for the poller to terminate and then for the replies of the tasks it processed. The reply
+   * sender stops accepting replies once no more tasks can be processed.
+   */
+  @Override
+  public void awaitTermination(long timeout, TimeUnit unit) {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    super.awaitTermination(timeout, unit);
+    if (replySender == null || !super.isTerminated()) {
+      return;
+    }
+    replySender.shutdown();
+    try {
+      replySender.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   public byte[] queryWorkflowExecution(WorkflowExecution exec, String queryType, byte[] args)
       throws Exception {
     GetWorkflowExecutionHistoryResponse historyResponse =
@@ -192,6 +253,8 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
   private class TaskHandlerImpl implements PollTaskExecutor.TaskHandler<DecisionTask> {
 
     final DecisionTaskHandler handler;
+    private final TaggedScopeCache workflowTypeScopes =
+        new TaggedScopeCache(options.getMetricsScope(), MetricsTag.WORKFLOW_TYPE);
 
     private TaskHandlerImpl(DecisionTaskHandler handler) {
       this.handler = handler;
@@ -200,32 +263,46 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
     @Override
     public void handle(DecisionTask task) throws Exception {
       PollForDecisionTaskResponse response = task.getResponse();
-      Scope metricsScope =
-          options
-              .getMetricsScope()
-              .tagged(
-                  ImmutableMap.of(MetricsTag.WORKFLOW_TYPE, response.getWorkflowType().getName()));
+      Scope metricsScope = workflowTypeScopes.get(response.getWorkflowType().getName());
 
       MDC.put(LoggerTag.WORKFLOW_ID, response.getWorkflowExecution().getWorkflowId());
       MDC.put(LoggerTag.WORKFLOW_TYPE, response.getWorkflowType().getName());
       MDC.put(LoggerTag.RUN_ID, response.getWorkflowExecution().getRunId());
 
       Lock runLock = null;
-      if (!Strings.isNullOrEmpty(stickyTaskListName)) {
-        runLock = runLocks.getLockForLocking(response.getWorkflowExecution().getRunId());
-        runLock.lock();
-      }
-
+      // The reply permit is taken before the run lock, so that waiting for the replies of other
+      // tasks to be acknowledged doesn't stall the tasks of this run.
+      boolean replyPermit = false;
       try {
-        MetricsEmit.DualStopwatch sw =
-            MetricsEmit.startLatency(
-                metricsScope,
-                MetricsType.DECISION_EXECUTION_LATENCY,
-                HistogramBuckets.DEFAULT_1MS_100S);
-        DecisionTaskHandler.Result handlerResponse = handler.handleDecisionTask(response);
-        sw.stop();
+        if (replySender != null) {
+          replySender.acquire();
+          replyPermit = true;
+        }
+        // Queries answered from the cache don't wait for the other tasks of the same run.
+        DecisionTaskHandler.Result handlerResponse = handler.handleCachedQuery(response);
+        if (handlerResponse == null) {
+          if (!Strings.isNullOrEmpty(stickyTaskListName)) {
+            runLock = runLocks.getLockForLocking(response.getWorkflowExecution().getRunId());
+            runLock.lock();
+          }
+          MetricsEmit.DualStopwatch sw =
+              MetricsEmit.startLatency(
+                  metricsScope,
+                  MetricsType.DECISION_EXECUTION_LATENCY,
+                  HistogramBuckets.DEFAULT_1MS_100S);
+          handlerResponse = handler.handleDecisionTask(response);
+          sw.stop();
+        }
+
+        if (replySender != null) {
+          // The run lock is released as soon as the reply is queued. The sender keeps the replies
+          // of a run in order.
+          replyPermit = false;
+          sendReplyAsync(task, handlerResponse, metricsScope);
+          return;
+        }
 
-        sw =
+        MetricsEmit.DualStopwatch sw =
             MetricsEmit.startLatency(
                 metricsScope,
                 MetricsType.DECISION_RESPONSE_LATENCY,
@@ -241,6 +318,9 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
 
         task.getCompletionCallback().apply();
 
+        if (replyPermit) {
+          replySender.release();
+        }
         if (runLock != null) {
           runLocks.unlock(response.getWorkflowExecution().getRunId());
         }
@@ -273,70 +353,10 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
               RespondDecisionTaskCompletedResponse taskCompletedResponse = null;
               List<Task> activityTasks = new ArrayList<>();
               try {
-                if (ldaTaskPoller != null) {
-                  for (Decision decision : taskCompleted.getDecisions()) {
-                    ScheduleActivityTaskDecisionAttributes attr =
-                        decision.getScheduleActivityTaskDecisionAttributes();
-                    if (attr != null && taskList.equals(attr.getTaskList().getName())) {
-                      // assume the activity type is in registry otherwise the activity would be
-                      // failed and retried from server
-                      Task activityTask =
-                          new Task(
-                              attr.getActivityId(),
-                              attr.getActivityType(),
-                              attr.getInput() != null
-                                  ? ByteBuffer.wrap(attr.getInput())
-                                  : ByteBuffer.allocate(0),
-                              attr.getScheduleToCloseTimeoutSeconds(),
-                              attr.getStartToCloseTimeoutSeconds(),
-                              attr.getHeartbeatTimeoutSeconds(),
-                              task.getWorkflowType(),
-                              domain,
-                              attr.getHeader(),
-                              task.getWorkflowExecution());
-                      if (ldaTaskPoller.apply(activityTask)) {
-                        options
-                            .getMetricsScope()
-                            .counter(MetricsType.ACTIVITY_LOCAL_DISPATCH_SUCCEED_COUNTER)
-                            .inc(1);
-                        decision
-                            .getScheduleActivityTaskDecisionAttributes()
-                            .setRequestLocalDispatch(true);
-                        activityTasks.add(activityTask);
-                      } else {
-                        // all pollers are busy - no room to optimize
-                        options
-                            .getMetricsScope()
-                            .counter(MetricsType.ACTIVITY_LOCAL_DISPATCH_FAILED_COUNTER)
-                            .inc(1);
-                      }
-                    }
-                  }
-                }
+                dispatchActivitiesLocally(task, taskCompleted, activityTasks);
                 taskCompletedResponse = service.RespondDecisionTaskCompleted(taskCompleted);
               } finally {
-                for (Task activityTask : activityTasks) {
-                  boolean started = false;
-                  if (taskCompletedResponse != null
-                      && taskCompletedResponse.getActivitiesToDispatchLocally() != null) {
-                    ActivityLocalDispatchInfo activityLocalDispatchInfo =
-                        taskCompletedResponse
-                            .getActivitiesToDispatchLocally()
-                            .getOrDefault(activityTask.activityId, null);
-                    if (activityLocalDispatchInfo != null) {
-                      activityTask.scheduledTimestamp =
-                          activityLocalDispatchInfo.getScheduledTimestamp();
-                      activityTask.startedTimestamp =
-                          activityLocalDispatchInfo.getStartedTimestamp();
-                      activityTask.scheduledTimestampOfThisAttempt =
-                          activityLocalDispatchInfo.getScheduledTimestampOfThisAttempt();
-                      activityTask.taskToken =
-                          ByteBuffer.wrap(activityLocalDispatchInfo.getTaskToken());
-                      started = true;
-                    }
-                  }
-                  activityTask.notify(started);
-                }
+                notifyLocallyDispatched(activityTasks, taskCompletedResponse);
               }
             });
       } else {
@@ -356,5 +376,209 @@ public final class WorkflowWorker extends SuspendableWorkerBase {
         }
       }
     }
+
+    /** Queues the reply using the permit the caller took from the reply sender. */
+    private void sendReplyAsync(
+        DecisionTask decisionTask, DecisionTaskHandler.Result response, Scope metricsScope) {
+      PollForDecisionTaskResponse task = decisionTask.getResponse();
+      RespondDecisionTaskCompletedRequest taskCompleted = response.getTaskCompleted();
+      RespondDecisionTaskFailedRequest taskFailed = response.getTaskFailed();
+      RespondQueryTaskCompletedRequest queryCompleted = response.getQueryCompleted();
+      List<Task> activityTasks = new ArrayList<>();
+      if (taskCompleted != null) {
+        taskCompleted.setIdentity(options.getIdentity());
+        taskCompleted.setTaskToken(task.getTaskToken());
+        taskCompleted.setBinaryChecksum(BinaryChecksum.getBinaryChecksum());
+        try {
+          dispatchActivitiesLocally(task, taskCompleted, activityTasks);
+        } catch (RuntimeException e) {
+          notifyLocallyDispatched(activityTasks, null);
+          replySender.release();
+          throw e;
+        }
+      } else if (taskFailed != null) {
+        taskFailed.setIdentity(options.getIdentity());
+        taskFailed.setTaskToken(task.getTaskToken());
+        taskFailed.setBinaryChecksum(BinaryChecksum.getBinaryChecksum());
+      } else if (queryCompleted != null) {
+        queryCompleted.setTaskToken(task.getTaskToken());
+      } else {
+        replySender.release();
+        return;
+      }
+
+      CompletableFuture<Void> reply;
+      try {
+        reply =
+            replySender.submit(
+                task.getWorkflowExecution().getRunId(),
+                () -> {
+                  MetricsEmit.DualStopwatch sw =
+                      MetricsEmit.startLatency(
+                          metricsScope,
+                          MetricsType.DECISION_RESPONSE_LATENCY,
+                          HistogramBuckets.DEFAULT_1MS_100S);
+                  CompletableFuture<RespondDecisionTaskCompletedResponse> result;
+                  if (taskCompleted != null) {
+                    result =
+                        RpcRetryer.retryWithResultAsync(
+                            RpcRetryer.DEFAULT_RPC_RETRY_OPTIONS,
+                            () ->
+                                WorkflowWorker.<RespondDecisionTaskCompletedResponse>callAsync(
+                                    (callback) ->
+                                        service.RespondDecisionTaskCompleted(
+                                            taskCompleted, callback)));
+                  } else if (taskFailed != null) {
+                    result =
+                        RpcRetryer.retryWithResultAsync(
+                                RpcRetryer.DEFAULT_RPC_RETRY_OPTIONS,
+                                () ->
+                                    WorkflowWorker.<Void>callAsync(
+                                        (callback) ->
+                                            service.RespondDecisionTaskFailed(
+                                                taskFailed, callback)))
+                            .thenApply((r) -> null);
+                  } else {
+                    // Do not retry query response.
+                    result =
+                        WorkflowWorker.<Void>callAsync(
+                                (callback) ->
+                                    service.RespondQueryTaskCompleted(queryCompleted, callback))
+                            .thenApply((r) -> null);
+                  }
+                  return result.handle(
+                      (r, e) -> {
+                        notifyLocallyDispatched(activityTasks, r);
+                        if (e != null) {
+                          throw e instanceof CompletionException
+                              ? (CompletionException) e
+                              : new CompletionException(e);
+                        }
+                        sw.stop();
+                        metricsScope.counter(MetricsType.DECISION_TASK_COMPLETED_COUNTER).inc(1);
+                        return null;
+                      });
+                });
+      } catch (RuntimeException e) {
+        notifyLocallyDispatched(activityTasks, null);
+        throw e;
+      }
+      @SuppressWarnings({"FutureReturnValueIgnored", "unused"})
+      CompletableFuture<Void> ignored =
+          reply.whenComplete(
+              (r, e) -> {
+                if (e != null) {
+                  Throwable failure = e instanceof CompletionException ? e.getCause() : e;
+                  options
+                      .getPollerOptions()
+                      .getUncaughtExceptionHandler()
+                      .uncaughtException(
+                          Thread.currentThread(), wrapFailure(decisionTask, failure));
+                }
+              });
+    }
+
+    /**
+     * Offers the activities scheduled on this task list to the locally dispatched activity pollers
+     * and marks the decisions of the accepted ones with the local dispatch request. Accepted tasks
+     * are added to {@code activityTasks}.
+     */
+    private void dispatchActivitiesLocally(
+        PollForDecisionTaskResponse task,
+        RespondDecisionTaskCompletedRequest taskCompleted,
+        List<Task> activityTasks) {
+      if (ldaTaskPoller == null) {
+        return;
+      }
+      for (Decision decision : taskCompleted.getDecisions()) {
+        ScheduleActivityTaskDecisionAttributes attr =
+            decision.getScheduleActivityTaskDecisionAttributes();
+        if (attr != null && taskList.equals(attr.getTaskList().getName())) {
+          // assume the activity type is in registry otherwise the activity would be
+          // failed and retried from server
+          Task activityTask =
+              new Task(
+                  attr.getActivityId(),
+                  attr.getActivityType(),
+                  attr.getInput() != null
+                      ? ByteBuffer.wrap(attr.getInput())
+                      : ByteBuffer.allocate(0),
+                  attr.getScheduleToCloseTimeoutSeconds(),
+                  attr.getStartToCloseTimeoutSeconds(),
+                  attr.getHeartbeatTimeoutSeconds(),
+                  task.getWorkflowType(),
+                  domain,
+                  attr.getHeader(),
+                  task.getWorkflowExecution());
+          if (ldaTaskPoller.apply(activityTask)) {
+            options
+                .getMetricsScope()
+                .counter(MetricsType.ACTIVITY_LOCAL_DISPATCH_SUCCEED_COUNTER)
+                .inc(1);
+            decision.getScheduleActivityTaskDecisionAttributes().setRequestLocalDispatch(true);
+            activityTasks.add(activityTask);
+          } else {
+            // all pollers are busy - no room to optimize
+            options
+                .getMetricsScope()
+                .counter(MetricsType.ACTIVITY_LOCAL_DISPATCH_FAILED_COUNTER)
+                .inc(1);
+          }
+        }
+      }
+    }
+
+    /**
+     * Starts the locally dispatched activities the service accepted and releases the others.
+     *
+     * @param taskCompletedResponse null if the decision task completion failed
+     */
+    private void notifyLocallyDispatched(
+        List<Task> activityTasks, RespondDecisionTaskCompletedResponse taskCompletedResponse) {
+      for (Task activityTask : activityTasks) {
+        boolean started = false;
+        if (taskCompletedResponse != null
+            && taskCompletedResponse.getActivitiesToDispatchLocally() != null) {
+          ActivityLocalDispatchInfo activityLocalDispatchInfo =
+              taskCompletedResponse
+                  .getActivitiesToDispatchLocally()
+                  .getOrDefault(activityTask.activityId, null);
+          if (activityLocalDispatchInfo != null) {
+            activityTask.scheduledTimestamp = activityLocalDispatchInfo.getScheduledTimestamp();
+            activityTask.startedTimestamp = activityLocalDispatchInfo.getStartedTimestamp();
+            activityTask.scheduledTimestampOfThisAttempt =
+                activityLocalDispatchInfo.getScheduledTimestampOfThisAttempt();
+            activityTask.taskToken = ByteBuffer.wrap(activityLocalDispatchInfo.getTaskToken());
+            started = true;
+          }
+        }
+        activityTask.notify(started);
+      }
+    }
+  }
+
+  private interface AsyncCall<R> {
+    void apply(AsyncMethodCallback<R> callback) throws CadenceError;
+  }
+
+  private static <R> CompletableFuture<R> callAsync(AsyncCall<R> call) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    try {
+      call.apply(
+          new AsyncMethodCallback<R>() {
+            @Override
+            public void onComplete(R response) {
+              result.complete(response);
+            }
+
+            @Override
+            public void onError(Exception exception) {
+              result.completeExceptionally(exception);
+            }
+          });
+    } catch (CadenceError e) {
+      result.completeExceptionally(e);
+    }
+    return result;
   }
 }
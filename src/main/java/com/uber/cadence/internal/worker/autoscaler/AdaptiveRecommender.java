@@ -0,0 +1,122 @@
+/*
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker.autoscaler;
+
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.m3.tally.Scope;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Recommender that besides the share of polls that returned a task takes into account the backlog
+ * count hints returned by the server, how often the task executor ran out of capacity and how long
+ * polls took. Scaling up is applied at once while scaling down happens only after it was
+ * recommended for {@link #SCALE_DOWN_STABILIZATION_INTERVALS} consecutive intervals and removes at
+ * most a quarter of the pollers at a time. A backlog larger than the number of pollers scales them
+ * up as soon as it is reported instead of at the end of the interval.
+ *
+ * <p>Every recommendation is reported through the poller autoscaler metrics.
+ */
+public class AdaptiveRecommender extends Recommender {
+
+  static final int SCALE_DOWN_STABILIZATION_INTERVALS = 2;
+  private static final float MAX_SCALE_DOWN_RATIO = 0.25f;
+  // Long polls that return a task faster than this mean that tasks are waiting in the task list.
+  private static final Duration FAST_POLL_LATENCY = Duration.ofSeconds(1);
+
+  private final Scope metricsScope;
+  private int scaleDownVotes;
+
+  public AdaptiveRecommender(
+      float targetPollerUtilRate, int upperValue, int lowerValue, Scope metricsScope) {
+    super(targetPollerUtilRate, upperValue, lowerValue);
+    this.metricsScope = Objects.requireNonNull(metricsScope);
+  }
+
+  @Override
+  public int recommend(int currentPollers, PollerUsage pollerUsage) {
+    int desired = desiredPollers(currentPollers, pollerUsage);
+    int result = currentPollers;
+    if (desired > currentPollers) {
+      scaleDownVotes = 0;
+      result = desired;
+      metricsScope.counter(MetricsType.POLLER_AUTOSCALER_SCALE_UP_COUNTER).inc(1);
+    } else if (desired < currentPollers) {
+      if (++scaleDownVotes >= SCALE_DOWN_STABILIZATION_INTERVALS) {
+        int maxStep = Math.max(1, (int) (currentPollers * MAX_SCALE_DOWN_RATIO));
+        result = Math.max(desired, currentPollers - maxStep);
+        metricsScope.counter(MetricsType.POLLER_AUTOSCALER_SCALE_DOWN_COUNTER).inc(1);
+      }
+    } else {
+      scaleDownVotes = 0;
+    }
+
+    metricsScope.gauge(MetricsType.POLLER_AUTOSCALER_POLLER_COUNT).update(result);
+    metricsScope
+        .gauge(MetricsType.POLLER_AUTOSCALER_UTILIZATION_RATE)
+        .update(pollerUsage.getPollerUtilizationRate());
+    metricsScope
+        .gauge(MetricsType.POLLER_AUTOSCALER_EXECUTOR_SATURATION_RATE)
+        .update(pollerUsage.getExecutorSaturationRate());
+    if (pollerUsage.getBacklogCountHint() >= 0) {
+      metricsScope
+          .gauge(MetricsType.POLLER_AUTOSCALER_BACKLOG_COUNT_HINT)
+          .update(pollerUsage.getBacklogCountHint());
+    }
+    return result;
+  }
+
+  @Override
+  public int recommendOnBacklog(int currentPollers, long backlogCountHint) {
+    // A poller per waiting task, so repeated hints of the same backlog don't add more pollers.
+    int desired = (int) Math.min(getUpperValue(), backlogCountHint);
+    if (desired <= currentPollers) {
+      return currentPollers;
+    }
+    scaleDownVotes = 0;
+    metricsScope.counter(MetricsType.POLLER_AUTOSCALER_SCALE_UP_COUNTER).inc(1);
+    metricsScope.gauge(MetricsType.POLLER_AUTOSCALER_POLLER_COUNT).update(desired);
+    metricsScope.gauge(MetricsType.POLLER_AUTOSCALER_BACKLOG_COUNT_HINT).update(backlogCountHint);
+    return desired;
+  }
+
+  private int desiredPollers(int currentPollers, PollerUsage pollerUsage) {
+    if (pollerUsage.getPollCount() == 0) {
+      // No poll completed during the interval, there is nothing to base a decision on.
+      return currentPollers;
+    }
+    float utilization = pollerUsage.getPollerUtilizationRate();
+    float desired =
+        utilization == 1
+            ? getUpperValue()
+            : currentPollers * utilization / getTargetPollerUtilRate();
+    if (utilization >= getTargetPollerUtilRate()) {
+      // Bursts: tasks are waiting in the task list, add pollers up to the backlog size.
+      if (pollerUsage.getBacklogCountHint() > 0) {
+        desired = Math.max(desired, currentPollers + pollerUsage.getBacklogCountHint());
+      }
+      if (pollerUsage.getAveragePollLatency().compareTo(FAST_POLL_LATENCY) < 0) {
+        desired = Math.max(desired, currentPollers * 2f);
+      }
+    }
+    // Tasks polled while the executor is saturated wait for a thread, so more pollers don't help.
+    float saturation = pollerUsage.getExecutorSaturationRate();
+    if (saturation > 0) {
+      desired = Math.min(desired, currentPollers * (1 - saturation));
+    }
+    return Math.round(Math.min(getUpperValue(), Math.max(getLowerValue(), desired)));
+  }
+}
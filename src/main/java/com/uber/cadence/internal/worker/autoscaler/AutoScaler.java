@@ -30,6 +30,9 @@ public interface AutoScaler {
    */
   void acquire() throws InterruptedException;
 
+  /** Non blocking version of {@link #acquire()}. Returns false if no lock is available. */
+  boolean tryAcquire();
+
   /**
    * Releases lock into the autoscaler pool. Release should be always called in same process,
    * failing to do so is considered a usage error.
@@ -39,4 +42,13 @@ public interface AutoScaler {
   void increaseNoopPollCount();
 
   void increaseActionablePollCount();
+
+  /** Records how long a poll took. */
+  void recordPollLatency(long nanos);
+
+  /** Records the backlog count hint the server returned with a polled task. */
+  void recordBacklogCountHint(long backlogCountHint);
+
+  /** Records whether the task executor could accept more tasks after a poll. */
+  void recordExecutorCapacity(boolean hasCapacity);
 }
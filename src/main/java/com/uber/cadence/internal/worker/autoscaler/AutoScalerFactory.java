@@ -15,8 +15,10 @@
 
 package com.uber.cadence.internal.worker.autoscaler;
 
+import com.uber.cadence.internal.metrics.NoopScope;
 import com.uber.cadence.internal.worker.PollerAutoScalerOptions;
 import com.uber.cadence.internal.worker.PollerOptions;
+import com.uber.m3.tally.Scope;
 
 public class AutoScalerFactory {
 
@@ -25,18 +27,28 @@ public class AutoScalerFactory {
   private AutoScalerFactory() {}
 
   public AutoScaler createAutoScaler(PollerOptions pollerOptions) {
+    return createAutoScaler(pollerOptions, NoopScope.getInstance());
+  }
+
+  public AutoScaler createAutoScaler(PollerOptions pollerOptions, Scope metricsScope) {
     if (pollerOptions == null || pollerOptions.getPollerAutoScalerOptions() == null) {
       return new NoopAutoScaler();
     }
 
     PollerAutoScalerOptions autoScalerOptions = pollerOptions.getPollerAutoScalerOptions();
+    Recommender recommender =
+        autoScalerOptions.isEnableAdaptiveScaling()
+            ? new AdaptiveRecommender(
+                autoScalerOptions.getTargetPollerUtilisation(),
+                pollerOptions.getPollThreadCount(),
+                autoScalerOptions.getMinConcurrentPollers(),
+                metricsScope)
+            : new Recommender(
+                autoScalerOptions.getTargetPollerUtilisation(),
+                pollerOptions.getPollThreadCount(),
+                autoScalerOptions.getMinConcurrentPollers());
     return new PollerAutoScaler(
-        autoScalerOptions.getPollerScalingInterval(),
-        new PollerUsageEstimator(),
-        new Recommender(
-            autoScalerOptions.getTargetPollerUtilisation(),
-            pollerOptions.getPollThreadCount(),
-            autoScalerOptions.getMinConcurrentPollers()));
+        autoScalerOptions.getPollerScalingInterval(), new PollerUsageEstimator(), recommender);
   }
 
   public static AutoScalerFactory getInstance() {
@@ -31,6 +31,11 @@ public class NoopAutoScaler implements AutoScaler {
     // NOOP
   }
 
+  @Override
+  public boolean tryAcquire() {
+    return true;
+  }
+
   @Override
   public void release() {
     // NOOP
@@ -45,4 +50,19 @@ public class NoopAutoScaler implements AutoScaler {
   public void increaseActionablePollCount() {
     // NOOP
   }
+
+  @Override
+  public void recordPollLatency(long nanos) {
+    // NOOP
+  }
+
+  @Override
+  public void recordBacklogCountHint(long backlogCountHint) {
+    // NOOP
+  }
+
+  @Override
+  public void recordExecutorCapacity(boolean hasCapacity) {
+    // NOOP
+  }
 }
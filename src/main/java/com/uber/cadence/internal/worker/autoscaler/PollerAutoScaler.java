@@ -28,7 +28,9 @@ public class PollerAutoScaler implements AutoScaler {
   private final PollerUsageEstimator pollerUsageEstimator;
   private final Recommender recommender;
   private final ResizableSemaphore semaphore;
-  private int semaphoreSize;
+  // Changed under the lock of this, read without it by the pollers.
+  private volatile int semaphoreSize;
+  private volatile boolean executorHasCapacity = true;
   private boolean shuttingDown;
 
   public PollerAutoScaler(
@@ -70,10 +72,9 @@ public class PollerAutoScaler implements AutoScaler {
     shuttingDown = true;
   }
 
-  protected void resizePollers() {
+  protected synchronized void resizePollers() {
     PollerUsage pollerUsage = pollerUsageEstimator.estimate();
-    int pollerCount =
-        recommender.recommend(this.semaphoreSize, pollerUsage.getPollerUtilizationRate());
+    int pollerCount = recommender.recommend(this.semaphoreSize, pollerUsage);
 
     int diff = this.semaphoreSize - pollerCount;
     if (diff < 0) {
@@ -86,10 +87,25 @@ public class PollerAutoScaler implements AutoScaler {
     this.semaphoreSize = pollerCount;
   }
 
+  private synchronized void scaleUpOnBacklog(long backlogCountHint) {
+    int pollerCount = recommender.recommendOnBacklog(this.semaphoreSize, backlogCountHint);
+    if (pollerCount <= this.semaphoreSize) {
+      return;
+    }
+    semaphore.release(pollerCount - this.semaphoreSize);
+    LOGGER.info(String.format("resized pollers on backlog to: %d", pollerCount));
+    this.semaphoreSize = pollerCount;
+  }
+
   public void acquire() throws InterruptedException {
     semaphore.acquire();
   }
 
+  @Override
+  public boolean tryAcquire() {
+    return semaphore.tryAcquire();
+  }
+
   public void release() {
     semaphore.release();
   }
@@ -104,6 +120,27 @@ public class PollerAutoScaler implements AutoScaler {
     pollerUsageEstimator.increaseActionableTaskCount();
   }
 
+  @Override
+  public void recordPollLatency(long nanos) {
+    pollerUsageEstimator.recordPollLatency(nanos);
+  }
+
+  @Override
+  public void recordBacklogCountHint(long backlogCountHint) {
+    pollerUsageEstimator.recordBacklogCountHint(backlogCountHint);
+    // Bursts are not left waiting for the next scaling interval. More pollers don't help while
+    // the polled tasks wait for the executor.
+    if (backlogCountHint > semaphoreSize && executorHasCapacity) {
+      scaleUpOnBacklog(backlogCountHint);
+    }
+  }
+
+  @Override
+  public void recordExecutorCapacity(boolean hasCapacity) {
+    executorHasCapacity = hasCapacity;
+    pollerUsageEstimator.recordExecutorCapacity(hasCapacity);
+  }
+
   // For testing
   protected int getSemaphoreSize() {
     return semaphoreSize;
@@ -15,15 +15,57 @@
 
 package com.uber.cadence.internal.worker.autoscaler;
 
+import java.time.Duration;
+
 public class PollerUsage {
 
   private final float pollerUtilizationRate;
+  private final float executorSaturationRate;
+  private final long backlogCountHint;
+  private final Duration averagePollLatency;
+  private final int pollCount;
 
   public PollerUsage(float pollerUtilizationRate) {
+    this(pollerUtilizationRate, 0, -1, Duration.ZERO, 0);
+  }
+
+  /**
+   * @param pollerUtilizationRate share of polls that returned a task
+   * @param executorSaturationRate share of polls after which the task executor had no capacity
+   * @param backlogCountHint largest backlog count hint returned by the server, -1 if unknown
+   * @param averagePollLatency average duration of a poll
+   * @param pollCount number of polls the usage is based on
+   */
+  public PollerUsage(
+      float pollerUtilizationRate,
+      float executorSaturationRate,
+      long backlogCountHint,
+      Duration averagePollLatency,
+      int pollCount) {
     this.pollerUtilizationRate = pollerUtilizationRate;
+    this.executorSaturationRate = executorSaturationRate;
+    this.backlogCountHint = backlogCountHint;
+    this.averagePollLatency = averagePollLatency;
+    this.pollCount = pollCount;
   }
 
   public float getPollerUtilizationRate() {
     return pollerUtilizationRate;
   }
+
+  public float getExecutorSaturationRate() {
+    return executorSaturationRate;
+  }
+
+  public long getBacklogCountHint() {
+    return backlogCountHint;
+  }
+
+  public Duration getAveragePollLatency() {
+    return averagePollLatency;
+  }
+
+  public int getPollCount() {
+    return pollCount;
+  }
 }
@@ -15,12 +15,19 @@
 
 package com.uber.cadence.internal.worker.autoscaler;
 
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PollerUsageEstimator {
 
   private AtomicInteger noopTaskCount = new AtomicInteger();
   private AtomicInteger actionableTaskCount = new AtomicInteger();
+  private AtomicInteger executorCapacityChecks = new AtomicInteger();
+  private AtomicInteger executorSaturatedChecks = new AtomicInteger();
+  private AtomicLong maxBacklogCountHint = new AtomicLong(-1);
+  private AtomicLong pollLatencyNanos = new AtomicLong();
+  private AtomicInteger pollLatencyCount = new AtomicInteger();
 
   public void increaseNoopTaskCount() {
     noopTaskCount.addAndGet(1);
@@ -30,13 +37,39 @@ public class PollerUsageEstimator {
     actionableTaskCount.addAndGet(1);
   }
 
+  public void recordExecutorCapacity(boolean hasCapacity) {
+    executorCapacityChecks.incrementAndGet();
+    if (!hasCapacity) {
+      executorSaturatedChecks.incrementAndGet();
+    }
+  }
+
+  public void recordBacklogCountHint(long backlogCountHint) {
+    maxBacklogCountHint.accumulateAndGet(backlogCountHint, Math::max);
+  }
+
+  public void recordPollLatency(long nanos) {
+    pollLatencyNanos.addAndGet(nanos);
+    pollLatencyCount.incrementAndGet();
+  }
+
   public PollerUsage estimate() {
     int actionableTasks = actionableTaskCount.get();
     int noopTasks = noopTaskCount.get();
     if (noopTasks + actionableTasks == 0) {
       return new PollerUsage(0);
     }
-    PollerUsage result = new PollerUsage((actionableTasks * 1f) / (noopTasks + actionableTasks));
+    int capacityChecks = executorCapacityChecks.get();
+    int latencyCount = pollLatencyCount.get();
+    PollerUsage result =
+        new PollerUsage(
+            (actionableTasks * 1f) / (noopTasks + actionableTasks),
+            capacityChecks == 0 ? 0 : (executorSaturatedChecks.get() * 1f) / capacityChecks,
+            maxBacklogCountHint.get(),
+            latencyCount == 0
+                ? Duration.ZERO
+                : Duration.ofNanos(pollLatencyNanos.get() / latencyCount),
+            noopTasks + actionableTasks);
     reset();
     return result;
   }
@@ -44,5 +77,10 @@ public class PollerUsageEstimator {
   private void reset() {
     noopTaskCount.set(0);
     actionableTaskCount.set(0);
+    executorCapacityChecks.set(0);
+    executorSaturatedChecks.set(0);
+    maxBacklogCountHint.set(-1);
+    pollLatencyNanos.set(0);
+    pollLatencyCount.set(0);
   }
 }
@@ -36,6 +36,23 @@ public class Recommender {
     return Math.round(Math.min(upperValue, Math.max(lowerValue, r)));
   }
 
+  /** Recommends poller count for the usage measured during the last scaling interval. */
+  public int recommend(int currentPollers, PollerUsage pollerUsage) {
+    return recommend(currentPollers, pollerUsage.getPollerUtilizationRate());
+  }
+
+  /**
+   * Recommends poller count right after a poll returned a backlog count hint, without waiting for
+   * the end of the scaling interval. Only scaling up is expected, the current count keeps it.
+   */
+  public int recommendOnBacklog(int currentPollers, long backlogCountHint) {
+    return currentPollers;
+  }
+
+  public float getTargetPollerUtilRate() {
+    return targetPollerUtilRate;
+  }
+
   public int getUpperValue() {
     return upperValue;
   }
@@ -85,6 +85,12 @@ public class ClientOptions {
   private final String isolationGroup;
   /** Optional tracer for service client, default is GlobalTracer */
   private final Tracer tracer;
+  /** Map history events of gRPC responses lazily on access */
+  private final boolean enableLazyHistoryMapping;
+  /** Number of channels for calls other than task list polls */
+  private final int grpcChannelCount;
+  /** Number of channels dedicated to task list polls */
+  private final int grpcLongPollChannelCount;
 
   private ClientOptions(Builder builder) {
     if (Strings.isNullOrEmpty(builder.host)) {
@@ -131,6 +137,9 @@ public class ClientOptions {
     this.authProvider = builder.authProvider;
     this.isolationGroup = builder.isolationGroup;
     this.tracer = builder.tracer;
+    this.enableLazyHistoryMapping = builder.enableLazyHistoryMapping;
+    this.grpcChannelCount = builder.grpcChannelCount;
+    this.grpcLongPollChannelCount = builder.grpcLongPollChannelCount;
   }
 
   public static ClientOptions defaultInstance() {
@@ -210,6 +219,18 @@ public class ClientOptions {
     return this.tracer;
   }
 
+  public boolean isEnableLazyHistoryMapping() {
+    return this.enableLazyHistoryMapping;
+  }
+
+  public int getGrpcChannelCount() {
+    return grpcChannelCount;
+  }
+
+  public int getGrpcLongPollChannelCount() {
+    return grpcLongPollChannelCount;
+  }
+
   /**
    * Builder is the builder for ClientOptions.
    *
@@ -235,6 +256,9 @@ public class ClientOptions {
     private String isolationGroup;
     // by default NoopTracer
     private Tracer tracer = NoopTracerFactory.create();
+    private boolean enableLazyHistoryMapping;
+    private int grpcChannelCount = 1;
+    private int grpcLongPollChannelCount;
 
     private Builder() {}
 
@@ -391,6 +415,55 @@ public class ClientOptions {
       return this;
     }
 
+    /**
+     * When enabled, history events returned by PollForDecisionTask and GetWorkflowExecutionHistory
+     * over gRPC are converted from their proto representation on access instead of all at once.
+     * This avoids holding two full copies of large histories in memory during replay. Default is
+     * false.
+     *
+     * @param enableLazyHistoryMapping true to convert history events on access
+     * @return Builder for ClentOptions
+     */
+    public Builder setEnableLazyHistoryMapping(boolean enableLazyHistoryMapping) {
+      this.enableLazyHistoryMapping = enableLazyHistoryMapping;
+      return this;
+    }
+
+    /**
+     * Sets the number of gRPC channels to the service. Each channel has its own connections and
+     * every call goes to the channel with the fewest calls in flight. Ignored when a channel is set
+     * through {@link #setGRPCChannel(ManagedChannel)}. Default is 1.
+     *
+     * @param grpcChannelCount number of channels, at least 1
+     * @return Builder for ClentOptions
+     */
+    public Builder setGrpcChannelCount(int grpcChannelCount) {
+      if (grpcChannelCount < 1) {
+        throw new IllegalArgumentException("Invalid grpcChannelCount: " + grpcChannelCount);
+      }
+      this.grpcChannelCount = grpcChannelCount;
+      return this;
+    }
+
+    /**
+     * Sets the number of gRPC channels used only by decision and activity task list polls. Polls
+     * are held open by the service for up to a minute, so keeping them on their own channels
+     * prevents them from taking up the streams needed by task completions and heartbeats. Ignored
+     * when a channel is set through {@link #setGRPCChannel(ManagedChannel)}. Default is 0, which
+     * sends polls over the same channels as all other calls.
+     *
+     * @param grpcLongPollChannelCount number of long poll channels, 0 or more
+     * @return Builder for ClentOptions
+     */
+    public Builder setGrpcLongPollChannelCount(int grpcLongPollChannelCount) {
+      if (grpcLongPollChannelCount < 0) {
+        throw new IllegalArgumentException(
+            "Invalid grpcLongPollChannelCount: " + grpcLongPollChannelCount);
+      }
+      this.grpcLongPollChannelCount = grpcLongPollChannelCount;
+      return this;
+    }
+
     /**
      * Builds and returns a ClientOptions object.
      *
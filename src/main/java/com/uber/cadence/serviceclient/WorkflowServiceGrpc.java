@@ -25,6 +25,7 @@ import com.uber.cadence.*;
 import com.uber.cadence.internal.compatibility.proto.mappers.*;
 import com.uber.cadence.internal.compatibility.proto.serviceclient.IGrpcServiceStubs;
 import io.grpc.*;
+import io.grpc.stub.AbstractStub;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -34,9 +35,19 @@ public class WorkflowServiceGrpc implements IWorkflowService {
 
   private final IGrpcServiceStubs grpcServiceStubs;
   private final Executor executor = MoreExecutors.directExecutor();
+  private final boolean lazyHistoryMapping;
 
   public WorkflowServiceGrpc(ClientOptions options) {
     this.grpcServiceStubs = IGrpcServiceStubs.newInstance(options);
+    this.lazyHistoryMapping = options.isEnableLazyHistoryMapping();
+  }
+
+  /** Sends history requests that wait for new events over the long poll channels. */
+  private static <S extends AbstractStub<S>> S longPoll(
+      S stub, GetWorkflowExecutionHistoryRequest request) {
+    return request.isWaitForNewEvent()
+        ? stub.withOption(IGrpcServiceStubs.LONG_POLL_CALL_OPTION, true)
+        : stub;
   }
 
   @Override
@@ -107,11 +118,11 @@ public class WorkflowServiceGrpc implements IWorkflowService {
       GetWorkflowExecutionHistoryRequest getRequest, Long timeoutInMillis) throws CadenceError {
     try {
       return ResponseMapper.getWorkflowExecutionHistoryResponse(
-          grpcServiceStubs
-              .workflowBlockingStub()
+          longPoll(grpcServiceStubs.workflowBlockingStub(), getRequest)
               .withDeadlineAfter(timeoutInMillis, TimeUnit.MILLISECONDS)
               .getWorkflowExecutionHistory(
-                  RequestMapper.getWorkflowExecutionHistoryRequest(getRequest)));
+                  RequestMapper.getWorkflowExecutionHistoryRequest(getRequest)),
+          lazyHistoryMapping);
     } catch (Exception e) {
       throw toServiceClientException(e);
     }
@@ -124,12 +135,13 @@ public class WorkflowServiceGrpc implements IWorkflowService {
       Long timeoutInMillis)
       throws CadenceError {
     Futures.addCallback(
-        grpcServiceStubs
-            .workflowFutureStub()
+        longPoll(grpcServiceStubs.workflowFutureStub(), getRequest)
             .withDeadlineAfter(timeoutInMillis, TimeUnit.MILLISECONDS)
             .getWorkflowExecutionHistory(
                 RequestMapper.getWorkflowExecutionHistoryRequest(getRequest)),
-        toFutureCallback(resultHandler, ResponseMapper::getWorkflowExecutionHistoryResponse),
+        toFutureCallback(
+            resultHandler,
+            r -> ResponseMapper.getWorkflowExecutionHistoryResponse(r, lazyHistoryMapping)),
         executor);
   }
 
@@ -280,10 +292,10 @@ public class WorkflowServiceGrpc implements IWorkflowService {
           ClientVersionNotSupportedError, CadenceError {
     try {
       return ResponseMapper.getWorkflowExecutionHistoryResponse(
-          grpcServiceStubs
-              .workflowBlockingStub()
+          longPoll(grpcServiceStubs.workflowBlockingStub(), getRequest)
               .getWorkflowExecutionHistory(
-                  RequestMapper.getWorkflowExecutionHistoryRequest(getRequest)));
+                  RequestMapper.getWorkflowExecutionHistoryRequest(getRequest)),
+          lazyHistoryMapping);
     } catch (Exception e) {
       throw toServiceClientException(e);
     }
@@ -297,7 +309,8 @@ public class WorkflowServiceGrpc implements IWorkflowService {
       return ResponseMapper.pollForDecisionTaskResponse(
           grpcServiceStubs
               .workerBlockingStub()
-              .pollForDecisionTask(RequestMapper.pollForDecisionTaskRequest(pollRequest)));
+              .pollForDecisionTask(RequestMapper.pollForDecisionTaskRequest(pollRequest)),
+          lazyHistoryMapping);
     } catch (Exception e) {
       throw toServiceClientException(e);
     }
@@ -1016,11 +1029,12 @@ public class WorkflowServiceGrpc implements IWorkflowService {
       AsyncMethodCallback<GetWorkflowExecutionHistoryResponse> resultHandler)
       throws CadenceError {
     Futures.addCallback(
-        grpcServiceStubs
-            .workflowFutureStub()
+        longPoll(grpcServiceStubs.workflowFutureStub(), getRequest)
             .getWorkflowExecutionHistory(
                 RequestMapper.getWorkflowExecutionHistoryRequest(getRequest)),
-        toFutureCallback(resultHandler, ResponseMapper::getWorkflowExecutionHistoryResponse),
+        toFutureCallback(
+            resultHandler,
+            r -> ResponseMapper.getWorkflowExecutionHistoryResponse(r, lazyHistoryMapping)),
         executor);
   }
 
@@ -1033,7 +1047,8 @@ public class WorkflowServiceGrpc implements IWorkflowService {
         grpcServiceStubs
             .workerFutureStub()
             .pollForDecisionTask(RequestMapper.pollForDecisionTaskRequest(pollRequest)),
-        toFutureCallback(resultHandler, ResponseMapper::pollForDecisionTaskResponse),
+        toFutureCallback(
+            resultHandler, r -> ResponseMapper.pollForDecisionTaskResponse(r, lazyHistoryMapping)),
         executor);
   }
 
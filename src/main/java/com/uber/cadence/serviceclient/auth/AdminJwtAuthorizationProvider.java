@@ -24,10 +24,16 @@ import java.nio.charset.StandardCharsets;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.sql.Date;
+import java.time.Duration;
 import java.time.Instant;
 
 public class AdminJwtAuthorizationProvider implements IAuthorizationProvider {
 
+  private static final int JWT_TTL_SECONDS = 60 * 10;
+
+  /** Lifetime of the issued tokens, see {@link CachingAuthorizationProvider}. */
+  public static final Duration TOKEN_TTL = Duration.ofSeconds(JWT_TTL_SECONDS);
+
   private final RSAPrivateKey rsaPrivateKey;
   private final RSAPublicKey rsaPublicKey;
 
@@ -40,7 +46,6 @@ public class AdminJwtAuthorizationProvider implements IAuthorizationProvider {
   public byte[] getAuthToken() {
     final Instant now = Instant.now();
     final JWTCreator.Builder jwtBuilder = JWT.create();
-    int JWT_TTL_SECONDS = 60 * 10;
     jwtBuilder.withClaim("admin", true);
     jwtBuilder.withClaim("ttl", JWT_TTL_SECONDS);
     jwtBuilder.withIssuedAt(Date.from(now));
@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.serviceclient.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Wraps another {@link IAuthorizationProvider} and reuses its token instead of requesting a new one
+ * for every call. The token is requested again in the background once {@code refreshFraction} of
+ * its {@code ttl} has passed, while calls keep using the current one. Only a token that has expired
+ * before the refresh completed is requested synchronously.
+ *
+ * <pre>{@code
+ * IAuthorizationProvider provider =
+ *     new CachingAuthorizationProvider(
+ *         new AdminJwtAuthorizationProvider(publicKey, privateKey),
+ *         AdminJwtAuthorizationProvider.TOKEN_TTL);
+ * }</pre>
+ */
+public final class CachingAuthorizationProvider implements IAuthorizationProvider {
+
+  public static final double DEFAULT_REFRESH_FRACTION = 0.8;
+
+  private static final Logger log = LoggerFactory.getLogger(CachingAuthorizationProvider.class);
+
+  // Delay before retrying a failed background refresh.
+  private static final long RETRY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+  private static final class Token {
+    final byte[] value;
+    final String headerValue;
+    final long refreshAtNanos;
+    final long expiresAtNanos;
+
+    Token(byte[] value, long refreshAtNanos, long expiresAtNanos) {
+      this.value = value;
+      this.headerValue = new String(value, StandardCharsets.UTF_8);
+      this.refreshAtNanos = refreshAtNanos;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+
+    Token withRefreshAt(long refreshAtNanos) {
+      return new Token(value, refreshAtNanos, expiresAtNanos);
+    }
+  }
+
+  private final IAuthorizationProvider delegate;
+  private final long ttlNanos;
+  private final long refreshAfterNanos;
+  private final Executor refreshExecutor;
+  private final LongSupplier nanoClock;
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+  private volatile Token token;
+
+  /**
+   * @param delegate provider of the tokens
+   * @param ttl how long a token stays valid after it is requested
+   */
+  public CachingAuthorizationProvider(IAuthorizationProvider delegate, Duration ttl) {
+    this(delegate, ttl, DEFAULT_REFRESH_FRACTION);
+  }
+
+  /**
+   * @param delegate provider of the tokens
+   * @param ttl how long a token stays valid after it is requested
+   * @param refreshFraction part of the ttl after which the token is refreshed in the background,
+   *     greater than 0 and at most 1
+   */
+  public CachingAuthorizationProvider(
+      IAuthorizationProvider delegate, Duration ttl, double refreshFraction) {
+    this(
+        delegate,
+        ttl,
+        refreshFraction,
+        CachingAuthorizationProvider::startRefreshThread,
+        System::nanoTime);
+  }
+
+  CachingAuthorizationProvider(
+      IAuthorizationProvider delegate,
+      Duration ttl,
+      double refreshFraction,
+      Executor refreshExecutor,
+      LongSupplier nanoClock) {
+    if (ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("Negative or zero ttl: " + ttl);
+    }
+    if (!(refreshFraction > 0 && refreshFraction <= 1)) {
+      throw new IllegalArgumentException("Invalid refreshFraction: " + refreshFraction);
+    }
+    this.delegate = Objects.requireNonNull(delegate);
+    this.ttlNanos = ttl.toNanos();
+    this.refreshAfterNanos = (long) (ttlNanos * refreshFraction);
+    this.refreshExecutor = Objects.requireNonNull(refreshExecutor);
+    this.nanoClock = Objects.requireNonNull(nanoClock);
+  }
+
+  @Override
+  public byte[] getAuthToken() {
+    return getToken().value.clone();
+  }
+
+  @Override
+  public String getAuthHeaderValue() {
+    return getToken().headerValue;
+  }
+
+  private Token getToken() {
+    Token current = token;
+    long now = nanoClock.getAsLong();
+    if (current == null || now - current.expiresAtNanos >= 0) {
+      return refreshNow();
+    }
+    if (now - current.refreshAtNanos >= 0 && refreshing.compareAndSet(false, true)) {
+      try {
+        refreshExecutor.execute(this::refreshInBackground);
+      } catch (RuntimeException e) {
+        refreshing.set(false);
+        log.warn("Failed to schedule authorization token refresh", e);
+      }
+    }
+    return current;
+  }
+
+  private synchronized Token refreshNow() {
+    Token current = token;
+    long now = nanoClock.getAsLong();
+    // Another thread could have refreshed the token while this one waited for the lock.
+    if (current != null && now - current.expiresAtNanos < 0) {
+      return current;
+    }
+    Token result = newToken(delegate.getAuthToken(), now);
+    if (result.value.length > 0) {
+      token = result;
+    }
+    return result;
+  }
+
+  private void refreshInBackground() {
+    try {
+      synchronized (this) {
+        long now = nanoClock.getAsLong();
+        byte[] value = null;
+        try {
+          value = delegate.getAuthToken();
+        } catch (RuntimeException e) {
+          log.warn("Failed to refresh authorization token", e);
+        }
+        if (value != null && value.length > 0) {
+          token = newToken(value, now);
+        } else {
+          // Keep the current token until it expires and try again later.
+          Token current = token;
+          if (current != null) {
+            token =
+                current.withRefreshAt(Math.min(now + RETRY_INTERVAL_NANOS, current.expiresAtNanos));
+          }
+        }
+      }
+    } finally {
+      refreshing.set(false);
+    }
+  }
+
+  private Token newToken(byte[] value, long now) {
+    return new Token(value == null ? new byte[0] : value, now + refreshAfterNanos, now + ttlNanos);
+  }
+
+  private static void startRefreshThread(Runnable refresh) {
+    // Refreshes happen once per token lifetime, so a short lived thread is cheaper than a pool.
+    Thread thread = new Thread(refresh, "cadence-auth-token-refresh");
+    thread.setDaemon(true);
+    thread.start();
+  }
+}
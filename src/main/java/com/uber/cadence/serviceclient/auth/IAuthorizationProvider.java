@@ -17,8 +17,16 @@
 
 package com.uber.cadence.serviceclient.auth;
 
+import java.nio.charset.StandardCharsets;
+
 public interface IAuthorizationProvider {
   // getAuthToken provides the OAuth authorization token
   // It's called before every request to Cadence server, and sets the token in the request header.
   byte[] getAuthToken();
+
+  // getAuthHeaderValue provides the token as the value of the authorization request header.
+  // Providers that cache the token can override it to avoid decoding the token on every request.
+  default String getAuthHeaderValue() {
+    return new String(getAuthToken(), StandardCharsets.UTF_8);
+  }
 }
@@ -41,6 +41,8 @@ public final class TestEnvironmentOptions {
 
     private WorkflowClientOptions workflowClientOptions = WorkflowClientOptions.defaultInstance();
 
+    private int serviceShardCount = 1;
+
     public Builder setWorkflowClientOptions(WorkflowClientOptions workflowClientOptions) {
       this.workflowClientOptions = workflowClientOptions;
       return this;
@@ -75,6 +77,19 @@ public final class TestEnvironmentOptions {
       return this;
     }
 
+    /**
+     * Number of independently locked partitions the in-memory service splits workflow executions,
+     * histories and their locks into by workflow id. Increase it for load tests that run thousands
+     * of concurrent workflows. Default is 1.
+     */
+    public Builder setServiceShardCount(int serviceShardCount) {
+      if (serviceShardCount <= 0) {
+        throw new IllegalArgumentException("Negative or zero: " + serviceShardCount);
+      }
+      this.serviceShardCount = serviceShardCount;
+      return this;
+    }
+
     public TestEnvironmentOptions build() {
       if (factoryOptions == null) {
         factoryOptions = WorkerFactoryOptions.newBuilder().setDisableStickyExecution(false).build();
@@ -85,7 +100,8 @@ public final class TestEnvironmentOptions {
           interceptorFactory,
           factoryOptions,
           workflowClientOptions,
-          enableLoggingInReplay);
+          enableLoggingInReplay,
+          serviceShardCount);
     }
   }
 
@@ -94,18 +110,21 @@ public final class TestEnvironmentOptions {
   private final boolean enableLoggingInReplay;
   private final WorkerFactoryOptions workerFactoryOptions;
   private final WorkflowClientOptions workflowClientOptions;
+  private final int serviceShardCount;
 
   private TestEnvironmentOptions(
       DataConverter dataConverter,
       Function<WorkflowInterceptor, WorkflowInterceptor> interceptorFactory,
       WorkerFactoryOptions options,
       WorkflowClientOptions workflowClientOptions,
-      boolean enableLoggingInReplay) {
+      boolean enableLoggingInReplay,
+      int serviceShardCount) {
     this.dataConverter = dataConverter;
     this.interceptorFactory = interceptorFactory;
     this.workerFactoryOptions = options;
     this.workflowClientOptions = workflowClientOptions;
     this.enableLoggingInReplay = enableLoggingInReplay;
+    this.serviceShardCount = serviceShardCount;
   }
 
   public DataConverter getDataConverter() {
@@ -128,6 +147,10 @@ public final class TestEnvironmentOptions {
     return workflowClientOptions;
   }
 
+  public int getServiceShardCount() {
+    return serviceShardCount;
+  }
+
   @Override
   public String toString() {
     return "TestEnvironmentOptions{"
@@ -137,6 +160,8 @@ public final class TestEnvironmentOptions {
         + workerFactoryOptions
         + ", workflowClientOptions="
         + workflowClientOptions
+        + ", serviceShardCount="
+        + serviceShardCount
         + '}';
   }
 }
@@ -0,0 +1,279 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.testing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Outcome of replaying many workflow histories with {@link
+ * WorkflowReplayer#replayWorkflowExecutions(java.io.File, int, Class, Class[])}. Contains the
+ * failures and the replay time aggregated by workflow type.
+ */
+public final class WorkflowReplayReport {
+
+  /** A history that couldn't be read or replayed. */
+  public static final class Failure {
+    private final String historyName;
+    private final String workflowType;
+    private final Throwable cause;
+    private final boolean nonDeterministic;
+
+    Failure(String historyName, String workflowType, Throwable cause) {
+      this.historyName = historyName;
+      this.workflowType = workflowType;
+      this.cause = cause;
+      this.nonDeterministic = isNonDeterministicError(cause);
+    }
+
+    /** @return name of the file the history was read from */
+    public String getHistoryName() {
+      return historyName;
+    }
+
+    /** @return workflow type of the history or null if the history couldn't be read */
+    public String getWorkflowType() {
+      return workflowType;
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+
+    /** @return true if the workflow code didn't produce the decisions recorded in the history */
+    public boolean isNonDeterministic() {
+      return nonDeterministic;
+    }
+
+    @Override
+    public String toString() {
+      return "Failure{"
+          + "historyName='"
+          + historyName
+          + '\''
+          + ", workflowType='"
+          + workflowType
+          + '\''
+          + ", nonDeterministic="
+          + nonDeterministic
+          + ", cause="
+          + cause
+          + '}';
+    }
+  }
+
+  /** Replay counts and times of the histories of a single workflow type. */
+  public static final class WorkflowTypeStats {
+    private final String workflowType;
+    private int replayed;
+    private int failed;
+    private int nonDeterministic;
+    private long totalReplayNanos;
+    private long maxReplayNanos;
+
+    WorkflowTypeStats(String workflowType) {
+      this.workflowType = workflowType;
+    }
+
+    private WorkflowTypeStats(WorkflowTypeStats stats) {
+      this.workflowType = stats.workflowType;
+      this.replayed = stats.replayed;
+      this.failed = stats.failed;
+      this.nonDeterministic = stats.nonDeterministic;
+      this.totalReplayNanos = stats.totalReplayNanos;
+      this.maxReplayNanos = stats.maxReplayNanos;
+    }
+
+    public String getWorkflowType() {
+      return workflowType;
+    }
+
+    public int getReplayed() {
+      return replayed;
+    }
+
+    public int getFailed() {
+      return failed;
+    }
+
+    public int getNonDeterministic() {
+      return nonDeterministic;
+    }
+
+    public Duration getTotalReplayTime() {
+      return Duration.ofNanos(totalReplayNanos);
+    }
+
+    public Duration getAverageReplayTime() {
+      return replayed == 0 ? Duration.ZERO : Duration.ofNanos(totalReplayNanos / replayed);
+    }
+
+    public Duration getMaxReplayTime() {
+      return Duration.ofNanos(maxReplayNanos);
+    }
+
+    private void add(long replayNanos, Failure failure) {
+      replayed++;
+      if (failure != null) {
+        failed++;
+        if (failure.isNonDeterministic()) {
+          nonDeterministic++;
+        }
+      }
+      totalReplayNanos += replayNanos;
+      maxReplayNanos = Math.max(maxReplayNanos, replayNanos);
+    }
+
+    @Override
+    public String toString() {
+      return "WorkflowTypeStats{"
+          + "workflowType='"
+          + workflowType
+          + '\''
+          + ", replayed="
+          + replayed
+          + ", failed="
+          + failed
+          + ", nonDeterministic="
+          + nonDeterministic
+          + ", totalReplayTime="
+          + getTotalReplayTime()
+          + ", averageReplayTime="
+          + getAverageReplayTime()
+          + ", maxReplayTime="
+          + getMaxReplayTime()
+          + '}';
+    }
+  }
+
+  /** Collects results of concurrent replays. */
+  static final class Collector {
+    private final Map<String, WorkflowTypeStats> stats = new TreeMap<>();
+    private final List<Failure> failures = new ArrayList<>();
+    private int replayed;
+
+    synchronized void recordSuccess(String workflowType, long replayNanos) {
+      replayed++;
+      stats.computeIfAbsent(workflowType, WorkflowTypeStats::new).add(replayNanos, null);
+    }
+
+    /**
+     * @param workflowType null if the history couldn't be read
+     * @param replayNanos time spent replaying before the failure
+     */
+    synchronized void recordFailure(
+        String historyName, String workflowType, Throwable cause, long replayNanos) {
+      replayed++;
+      Failure failure = new Failure(historyName, workflowType, cause);
+      failures.add(failure);
+      if (workflowType != null) {
+        stats.computeIfAbsent(workflowType, WorkflowTypeStats::new).add(replayNanos, failure);
+      }
+    }
+
+    synchronized WorkflowReplayReport build() {
+      Map<String, WorkflowTypeStats> statsCopy = new TreeMap<>();
+      for (WorkflowTypeStats s : stats.values()) {
+        statsCopy.put(s.getWorkflowType(), new WorkflowTypeStats(s));
+      }
+      return new WorkflowReplayReport(replayed, new ArrayList<>(failures), statsCopy);
+    }
+  }
+
+  private final int replayed;
+  private final List<Failure> failures;
+  private final Map<String, WorkflowTypeStats> workflowTypeStats;
+
+  private WorkflowReplayReport(
+      int replayed, List<Failure> failures, Map<String, WorkflowTypeStats> workflowTypeStats) {
+    this.replayed = replayed;
+    this.failures = Collections.unmodifiableList(failures);
+    this.workflowTypeStats = Collections.unmodifiableMap(workflowTypeStats);
+  }
+
+  /** @return number of histories processed including the ones that failed */
+  public int getReplayed() {
+    return replayed;
+  }
+
+  public int getSucceeded() {
+    return replayed - failures.size();
+  }
+
+  public int getFailed() {
+    return failures.size();
+  }
+
+  public int getNonDeterministic() {
+    int result = 0;
+    for (Failure failure : failures) {
+      if (failure.isNonDeterministic()) {
+        result++;
+      }
+    }
+    return result;
+  }
+
+  /** @return true if every history was replayed successfully */
+  public boolean isSuccessful() {
+    return failures.isEmpty();
+  }
+
+  public List<Failure> getFailures() {
+    return failures;
+  }
+
+  /** @return statistics keyed and sorted by workflow type */
+  public Map<String, WorkflowTypeStats> getWorkflowTypeStats() {
+    return workflowTypeStats;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    result
+        .append("Replayed ")
+        .append(replayed)
+        .append(" histories, succeeded: ")
+        .append(getSucceeded())
+        .append(", failed: ")
+        .append(getFailed())
+        .append(", nondeterministic: ")
+        .append(getNonDeterministic());
+    for (WorkflowTypeStats stats : workflowTypeStats.values()) {
+      result.append("\n  ").append(stats);
+    }
+    for (Failure failure : failures) {
+      result.append("\n  ").append(failure);
+    }
+    return result.toString();
+  }
+
+  // Same check as the shadowing replay activity: the error is reported by the query that replays
+  // the history and its message contains the NonDeterminisicWorkflowError stack trace.
+  private static boolean isNonDeterministicError(Throwable e) {
+    return e != null
+        && e.getMessage() != null
+        && (e.getMessage().contains("nondeterministic")
+            || e.getMessage().contains("NonDeterminisicWorkflowError"));
+  }
+}
@@ -17,17 +17,27 @@
 
 package com.uber.cadence.testing;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.ObjectArrays;
 import com.uber.cadence.TaskList;
 import com.uber.cadence.WorkflowExecutionStartedEventAttributes;
 import com.uber.cadence.common.WorkflowExecutionHistory;
 import com.uber.cadence.internal.common.WorkflowExecutionUtils;
 import com.uber.cadence.worker.Worker;
+import com.uber.cadence.worker.WorkerFactoryOptions;
 import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
 
 /** Replays a workflow given its history. Useful for backwards compatibility testing. */
 public final class WorkflowReplayer {
 
+  private static final String BULK_REPLAY_TASK_LIST = "WorkflowReplayer";
+
   /**
    * Replays workflow from a resource that contains a json serialized history.
    *
@@ -105,4 +115,116 @@ public final class WorkflowReplayer {
         ObjectArrays.concat(moreWorkflowClasses, workflowClass));
     worker.replayWorkflowExecution(history);
   }
+
+  /**
+   * Replays every json serialized history in a directory, see {@link
+   * #replayWorkflowExecutions(Iterator, int, Class, Class[])}.
+   *
+   * @param historyDirectory directory with one history per file, only files ending with {@code
+   *     .json} are replayed
+   * @param parallelism number of histories replayed at the same time
+   * @param workflowClass workflow implementation class to replay
+   * @param moreWorkflowClasses optional additional workflow implementation classes
+   * @return results of all replays, failed replays don't throw
+   * @throws Exception if the directory couldn't be listed
+   */
+  public static WorkflowReplayReport replayWorkflowExecutions(
+      File historyDirectory,
+      int parallelism,
+      Class<?> workflowClass,
+      Class<?>... moreWorkflowClasses)
+      throws Exception {
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(historyDirectory.toPath(), "*.json")) {
+      return replayWorkflowExecutions(
+          Iterators.transform(files.iterator(), Path::toFile),
+          parallelism,
+          workflowClass,
+          moreWorkflowClasses);
+    }
+  }
+
+  /**
+   * Replays json serialized histories in parallel on a {@link ForkJoinPool} and reports the ones
+   * that fail, for example to check a new version of the workflow code against histories exported
+   * from production. Files are taken from the iterator only as replays complete and each file is
+   * parsed while it is read. Every history is replayed by its own decider that is discarded
+   * afterwards, so replays don't share any workflow state.
+   *
+   * @param historyFiles files with one history each
+   * @param parallelism number of histories replayed at the same time
+   * @param workflowClass workflow implementation class to replay
+   * @param moreWorkflowClasses optional additional workflow implementation classes
+   * @return results of all replays, failed replays don't throw
+   * @throws InterruptedException if interrupted while waiting for replays to complete
+   */
+  public static WorkflowReplayReport replayWorkflowExecutions(
+      Iterator<File> historyFiles,
+      int parallelism,
+      Class<?> workflowClass,
+      Class<?>... moreWorkflowClasses)
+      throws InterruptedException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Negative or zero: " + parallelism);
+    }
+    TestEnvironmentOptions options =
+        new TestEnvironmentOptions.Builder()
+            .setWorkerFactoryOptions(
+                WorkerFactoryOptions.newBuilder().setDisableStickyExecution(true).build())
+            .build();
+    TestWorkflowEnvironment testEnv = TestWorkflowEnvironment.newInstance(options);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      Worker worker = testEnv.newWorker(BULK_REPLAY_TASK_LIST);
+      worker.registerWorkflowImplementationTypes(
+          ObjectArrays.concat(moreWorkflowClasses, workflowClass));
+      WorkflowReplayReport.Collector collector = new WorkflowReplayReport.Collector();
+      // Limits how many files are taken from the iterator ahead of the running replays.
+      int maxPending = parallelism * 2;
+      Semaphore pending = new Semaphore(maxPending);
+      while (historyFiles.hasNext()) {
+        File historyFile = historyFiles.next();
+        pending.acquire();
+        pool.execute(
+            () -> {
+              try {
+                replayWorkflowExecution(worker, historyFile, collector);
+              } finally {
+                pending.release();
+              }
+            });
+      }
+      pending.acquire(maxPending);
+      return collector.build();
+    } finally {
+      pool.shutdownNow();
+      testEnv.close();
+    }
+  }
+
+  private static void replayWorkflowExecution(
+      Worker worker, File historyFile, WorkflowReplayReport.Collector collector) {
+    WorkflowExecutionHistory history;
+    String workflowType;
+    try {
+      history = WorkflowExecutionUtils.readHistory(historyFile);
+      workflowType =
+          history
+              .getEvents()
+              .get(0)
+              .getWorkflowExecutionStartedEventAttributes()
+              .getWorkflowType()
+              .getName();
+    } catch (Throwable e) {
+      collector.recordFailure(historyFile.getPath(), null, e, 0);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      worker.replayWorkflowExecution(history);
+      collector.recordSuccess(workflowType, System.nanoTime() - start);
+    } catch (Throwable e) {
+      collector.recordFailure(historyFile.getPath(), workflowType, e, System.nanoTime() - start);
+    }
+  }
 }
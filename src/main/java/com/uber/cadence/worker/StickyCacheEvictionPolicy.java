@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.worker;
+
+/** Chooses which cached workflow is evicted from the sticky cache when space is needed. */
+public enum StickyCacheEvictionPolicy {
+
+  /** Evicts the least recently used workflow that is not currently processing a task. */
+  LeastRecentlyUsed,
+
+  /**
+   * Among the least recently used workflows evicts the one holding the largest number of workflow
+   * threads. Useful when the workflow thread pool, not memory, is the limiting resource.
+   */
+  MostWorkflowThreads,
+
+  /** Among the least recently used workflows evicts the one with the longest history. */
+  LargestHistory,
+
+  /**
+   * Among the least recently used workflows evicts the one with the largest estimated heap
+   * footprint. Pairs well with {@link WorkerFactoryOptions.Builder#setStickyCacheMaxBytes(long)}.
+   */
+  LargestMemory,
+}
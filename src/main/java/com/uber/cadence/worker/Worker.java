@@ -106,6 +106,7 @@ public final class Worker implements Suspendable {
             .setContextPropagators(contextPropagators)
             .setTracer(options.getTracer())
             .setExecutorWrapper(factoryOptions.getExecutorWrapper())
+            .setEnableAsyncActivityHeartbeats(options.isEnableAsyncActivityHeartbeats())
             .build();
     activityWorker =
         new SyncActivityWorker(
@@ -124,6 +125,10 @@ public final class Worker implements Suspendable {
             .setExecutorWrapper(factoryOptions.getExecutorWrapper())
             .setStickyTaskListScheduleToStartTimeout(
                 options.getStickyTaskListScheduleToStartTimeout())
+            .setHistoryPrefetchPageCount(options.getHistoryPrefetchPageCount())
+            .setEnableAsyncDecisionTaskCompletion(options.isEnableAsyncDecisionTaskCompletion())
+            .setEnableConcurrentQueries(options.isEnableConcurrentQueries())
+            .setEnableQueryCoalescing(options.isEnableQueryCoalescing())
             .build();
     SingleWorkerOptions localActivityOptions =
         SingleWorkerOptions.newBuilder()
@@ -131,6 +136,7 @@ public final class Worker implements Suspendable {
             .setIdentity(client.getOptions().getIdentity())
             .setPollerOptions(options.getWorkflowPollerOptions())
             .setTaskExecutorThreadPoolSize(options.getMaxConcurrentLocalActivityExecutionSize())
+            .setLocalActivityQueueSize(options.getLocalActivityQueueSize())
             .setMetricsScope(metricsScope)
             .setEnableLoggingInReplay(factoryOptions.isEnableLoggingInReplay())
             .setContextPropagators(contextPropagators)
@@ -25,7 +25,9 @@ import com.uber.cadence.client.WorkflowClient;
 import com.uber.cadence.converter.DataConverter;
 import com.uber.cadence.converter.JsonDataConverter;
 import com.uber.cadence.internal.common.InternalUtils;
+import com.uber.cadence.internal.common.VirtualThreads;
 import com.uber.cadence.internal.metrics.MetricsTag;
+import com.uber.cadence.internal.replay.Decider;
 import com.uber.cadence.internal.replay.DeciderCache;
 import com.uber.cadence.internal.worker.*;
 import com.uber.m3.tally.Scope;
@@ -33,11 +35,14 @@ import com.uber.m3.util.ImmutableMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +76,7 @@ public final class WorkerFactory {
       "attempted to %s while in %s state. Acceptable States: %s";
   private static final Logger log = LoggerFactory.getLogger(WorkerFactory.class);
   private static final String STICKY_TASK_LIST_METRIC_TAG = "__sticky__";
+  private static final String WORKFLOW_THREAD_NAME_PREFIX = "workflow-thread-";
 
   /**
    * Creates a factory. Workers will be connect to the cadence-server using the workflowService
@@ -94,8 +100,7 @@ public final class WorkerFactory {
                     1,
                     TimeUnit.SECONDS,
                     new SynchronousQueue<>()));
-    workflowThreadPool.setThreadFactory(
-        r -> new Thread(r, "workflow-thread-" + workflowThreadCounter.incrementAndGet()));
+    workflowThreadPool.setThreadFactory(newWorkflowThreadFactory());
 
     if (this.factoryOptions.isDisableStickyExecution()) {
       return;
@@ -115,7 +120,40 @@ public final class WorkerFactory {
                     workflowClient.getOptions().getDomain(),
                     MetricsTag.TASK_LIST,
                     STICKY_TASK_LIST_METRIC_TAG));
-    this.cache = new DeciderCache(this.factoryOptions.getCacheMaximumSize(), metricsScope);
+    this.cache =
+        new DeciderCache(
+            this.factoryOptions.getCacheMaximumSize(),
+            this.factoryOptions.getCacheMaximumBytes(),
+            metricsScope,
+            getStickyCacheWeigher(this.factoryOptions.getStickyCacheEvictionPolicy()));
+  }
+
+  private static ToLongFunction<Decider> getStickyCacheWeigher(StickyCacheEvictionPolicy policy) {
+    switch (policy) {
+      case MostWorkflowThreads:
+        return DeciderCache.WORKFLOW_THREAD_COUNT_WEIGHER;
+      case LargestHistory:
+        return DeciderCache.HISTORY_SIZE_WEIGHER;
+      case LargestMemory:
+        return DeciderCache.MEMORY_WEIGHER;
+      default:
+        return null;
+    }
+  }
+
+  private ThreadFactory newWorkflowThreadFactory() {
+    if (factoryOptions.isEnableVirtualWorkflowThreads()) {
+      Optional<ThreadFactory> virtualThreadFactory =
+          VirtualThreads.newThreadFactory(WORKFLOW_THREAD_NAME_PREFIX);
+      if (virtualThreadFactory.isPresent()) {
+        return virtualThreadFactory.get();
+      }
+      log.warn(
+          "Virtual workflow threads are enabled but not supported by this JVM "
+              + "(requires JDK 21+). Falling back to platform threads.");
+    }
+    return r ->
+        new Thread(r, WORKFLOW_THREAD_NAME_PREFIX + workflowThreadCounter.incrementAndGet());
   }
 
   /**
@@ -18,6 +18,7 @@
 package com.uber.cadence.worker;
 
 import com.google.common.base.Preconditions;
+import java.util.Objects;
 
 public class WorkerFactoryOptions {
   public static Builder newBuilder() {
@@ -39,8 +40,12 @@ public class WorkerFactoryOptions {
   public static class Builder {
     private boolean disableStickyExecution;
     private int stickyCacheSize = DEFAULT_STICKY_CACHE_SIZE;
+    private long stickyCacheMaxBytes;
     private int maxWorkflowThreadCount = DEFAULT_MAX_WORKFLOW_THREAD_COUNT;
     private boolean enableLoggingInReplay;
+    private boolean enableVirtualWorkflowThreads;
+    private StickyCacheEvictionPolicy stickyCacheEvictionPolicy =
+        StickyCacheEvictionPolicy.LeastRecentlyUsed;
     private ExecutorWrapper executorWrapper = ExecutorWrapper.newDefaultInstance();
 
     private Builder() {}
@@ -66,6 +71,33 @@ public class WorkerFactoryOptions {
       return this;
     }
 
+    /**
+     * When Sticky execution is enabled this will set the maximum estimated heap size of the cached
+     * workflows in bytes. Workflows are evicted while either this or {@link
+     * #setStickyCacheSize(int)} is exceeded. The estimate covers the replay state kept by the
+     * framework, not objects referenced by workflow implementations, so leave headroom for them.
+     * Reported by the sticky-cache-estimated-bytes gauge.
+     *
+     * <p>Default value is 0, which means no limit.
+     */
+    public Builder setStickyCacheMaxBytes(long stickyCacheMaxBytes) {
+      this.stickyCacheMaxBytes = stickyCacheMaxBytes;
+      return this;
+    }
+
+    /**
+     * Policy used to choose which workflow to evict from the sticky cache when it is full or when
+     * the workflow thread pool is exhausted. Workflows that are currently processing a decision or
+     * query are never evicted.
+     *
+     * <p>Default value is {@link StickyCacheEvictionPolicy#LeastRecentlyUsed}.
+     */
+    public Builder setStickyCacheEvictionPolicy(
+        StickyCacheEvictionPolicy stickyCacheEvictionPolicy) {
+      this.stickyCacheEvictionPolicy = Objects.requireNonNull(stickyCacheEvictionPolicy);
+      return this;
+    }
+
     /**
      * Maximum number of threads available for workflow execution across all workers created by the
      * Factory.
@@ -82,6 +114,19 @@ public class WorkerFactoryOptions {
       return this;
     }
 
+    /**
+     * When set to true workflow threads are created as virtual threads if the JVM supports them
+     * (JDK 21+). Falls back to platform threads otherwise. Virtual threads are much cheaper to keep
+     * parked, so {@link #setMaxWorkflowThreadCount(int)} and {@link #setStickyCacheSize(int)} can
+     * be raised by orders of magnitude when this is enabled.
+     *
+     * <p>Default value is false.
+     */
+    public Builder setEnableVirtualWorkflowThreads(boolean enableVirtualWorkflowThreads) {
+      this.enableVirtualWorkflowThreads = enableVirtualWorkflowThreads;
+      return this;
+    }
+
     public Builder setExecutorWrapper(ExecutorWrapper executorWrapper) {
       this.executorWrapper = executorWrapper;
       return this;
@@ -91,33 +136,46 @@ public class WorkerFactoryOptions {
       return new WorkerFactoryOptions(
           disableStickyExecution,
           stickyCacheSize,
+          stickyCacheMaxBytes,
           maxWorkflowThreadCount,
           enableLoggingInReplay,
+          enableVirtualWorkflowThreads,
+          stickyCacheEvictionPolicy,
           executorWrapper);
     }
   }
 
   private final boolean disableStickyExecution;
   private final int cacheMaximumSize;
+  private final long cacheMaximumBytes;
   private final int maxWorkflowThreadCount;
   private boolean enableLoggingInReplay;
+  private final boolean enableVirtualWorkflowThreads;
+  private final StickyCacheEvictionPolicy stickyCacheEvictionPolicy;
   private int stickyPollerCount;
   private ExecutorWrapper executorWrapper;
 
   private WorkerFactoryOptions(
       boolean disableStickyExecution,
       int cacheMaximumSize,
+      long cacheMaximumBytes,
       int maxWorkflowThreadCount,
       boolean enableLoggingInReplay,
+      boolean enableVirtualWorkflowThreads,
+      StickyCacheEvictionPolicy stickyCacheEvictionPolicy,
       ExecutorWrapper executorWrapper) {
     Preconditions.checkArgument(cacheMaximumSize > 0, "cacheMaximumSize should be greater than 0");
+    Preconditions.checkArgument(cacheMaximumBytes >= 0, "cacheMaximumBytes should not be negative");
     Preconditions.checkArgument(
         maxWorkflowThreadCount > 0, "maxWorkflowThreadCount should be greater than 0");
 
     this.disableStickyExecution = disableStickyExecution;
     this.cacheMaximumSize = cacheMaximumSize;
+    this.cacheMaximumBytes = cacheMaximumBytes;
     this.maxWorkflowThreadCount = maxWorkflowThreadCount;
     this.enableLoggingInReplay = enableLoggingInReplay;
+    this.enableVirtualWorkflowThreads = enableVirtualWorkflowThreads;
+    this.stickyCacheEvictionPolicy = stickyCacheEvictionPolicy;
     this.executorWrapper = executorWrapper;
   }
 
@@ -133,10 +191,22 @@ public class WorkerFactoryOptions {
     return cacheMaximumSize;
   }
 
+  public long getCacheMaximumBytes() {
+    return cacheMaximumBytes;
+  }
+
   public boolean isEnableLoggingInReplay() {
     return enableLoggingInReplay;
   }
 
+  public boolean isEnableVirtualWorkflowThreads() {
+    return enableVirtualWorkflowThreads;
+  }
+
+  public StickyCacheEvictionPolicy getStickyCacheEvictionPolicy() {
+    return stickyCacheEvictionPolicy;
+  }
+
   public ExecutorWrapper getExecutorWrapper() {
     return executorWrapper;
   }
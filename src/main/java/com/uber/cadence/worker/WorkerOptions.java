@@ -60,6 +60,12 @@ public final class WorkerOptions {
         DEFAULT_STICKY_TASK_SCHEDULE_TO_START_TIMEOUT;
     // by default NoopTracer
     private Tracer tracer = NoopTracerFactory.create();
+    private int historyPrefetchPageCount;
+    private int localActivityQueueSize = 1000;
+    private boolean enableAsyncActivityHeartbeats;
+    private boolean enableAsyncDecisionTaskCompletion;
+    private boolean enableConcurrentQueries;
+    private boolean enableQueryCoalescing;
 
     private Builder() {}
 
@@ -75,6 +81,12 @@ public final class WorkerOptions {
       this.interceptorFactory = options.interceptorFactory;
       this.stickyTaskListScheduleToStartTimeout = options.stickyTaskListScheduleToStartTimeout;
       this.tracer = options.tracer;
+      this.historyPrefetchPageCount = options.historyPrefetchPageCount;
+      this.localActivityQueueSize = options.localActivityQueueSize;
+      this.enableAsyncActivityHeartbeats = options.enableAsyncActivityHeartbeats;
+      this.enableAsyncDecisionTaskCompletion = options.enableAsyncDecisionTaskCompletion;
+      this.enableConcurrentQueries = options.enableConcurrentQueries;
+      this.enableQueryCoalescing = options.enableQueryCoalescing;
     }
 
     /** Maximum number of activities started per second. Default is 0 which means unlimited. */
@@ -170,6 +182,80 @@ public final class WorkerOptions {
       return this;
     }
 
+    /**
+     * Optional: Number of history pages that a decision task fetches ahead of replay when its
+     * history doesn't fit into a single page. The next page is requested asynchronously as soon as
+     * the previous one arrives, so that replay doesn't wait for each page in turn. Default is 0
+     * which disables prefetching and fetches each page when replay reaches it.
+     */
+    public Builder setHistoryPrefetchPageCount(int historyPrefetchPageCount) {
+      if (historyPrefetchPageCount < 0) {
+        throw new IllegalArgumentException("Negative: " + historyPrefetchPageCount);
+      }
+      this.historyPrefetchPageCount = historyPrefetchPageCount;
+      return this;
+    }
+
+    /**
+     * Maximum number of local activities that were scheduled by decision tasks and wait for a free
+     * local activity execution thread. A decision task that can't queue all the local activities it
+     * scheduled before its deadline is completed and the rest is started in a following one.
+     * Default is 1000.
+     */
+    public Builder setLocalActivityQueueSize(int localActivityQueueSize) {
+      if (localActivityQueueSize <= 0) {
+        throw new IllegalArgumentException("Negative or zero: " + localActivityQueueSize);
+      }
+      this.localActivityQueueSize = localActivityQueueSize;
+      return this;
+    }
+
+    /**
+     * When enabled {@link com.uber.cadence.activity.Activity#heartbeat(Object)} never blocks on a
+     * service call. The latest details are kept in memory and sent in the background, and a
+     * cancellation or an error returned by the service is reported by the heartbeat call that
+     * follows the response. Default is false, which sends the first heartbeat of each throttling
+     * interval synchronously.
+     */
+    public Builder setEnableAsyncActivityHeartbeats(boolean enableAsyncActivityHeartbeats) {
+      this.enableAsyncActivityHeartbeats = enableAsyncActivityHeartbeats;
+      return this;
+    }
+
+    /**
+     * When enabled the decision task executor thread doesn't wait for the decision task reply to be
+     * sent. Replies are sent with the asynchronous service calls in the order they were produced
+     * for each workflow run, and locally dispatched activities are started once the reply is
+     * acknowledged. At most {@link #setMaxConcurrentWorkflowExecutionSize(int)} replies are
+     * outstanding, executor threads wait for one of them to complete beyond that. Default is false.
+     */
+    public Builder setEnableAsyncDecisionTaskCompletion(boolean enableAsyncDecisionTaskCompletion) {
+      this.enableAsyncDecisionTaskCompletion = enableAsyncDecisionTaskCompletion;
+      return this;
+    }
+
+    /**
+     * When enabled a query of a workflow that is in the sticky cache and has no new history events
+     * is answered directly by the query method of the cached workflow. It doesn't wait for the
+     * decision tasks of the same workflow that are queued behind the one in progress and doesn't
+     * run the workflow event loop. Queries of the same workflow run in parallel, so query methods
+     * must not modify the workflow state. Default is false.
+     */
+    public Builder setEnableConcurrentQueries(boolean enableConcurrentQueries) {
+      this.enableConcurrentQueries = enableConcurrentQueries;
+      return this;
+    }
+
+    /**
+     * When enabled together with {@link #setEnableConcurrentQueries(boolean)} a query that arrives
+     * while an identical query of the same workflow is being executed at the same history event
+     * gets the result of that query instead of executing the query method again. Default is false.
+     */
+    public Builder setEnableQueryCoalescing(boolean enableQueryCoalescing) {
+      this.enableQueryCoalescing = enableQueryCoalescing;
+      return this;
+    }
+
     public WorkerOptions build() {
       return new WorkerOptions(
           workerActivitiesPerSecond,
@@ -181,7 +267,13 @@ public final class WorkerOptions {
           workflowPollerOptions,
           interceptorFactory,
           tracer,
-          stickyTaskListScheduleToStartTimeout);
+          stickyTaskListScheduleToStartTimeout,
+          historyPrefetchPageCount,
+          localActivityQueueSize,
+          enableAsyncActivityHeartbeats,
+          enableAsyncDecisionTaskCompletion,
+          enableConcurrentQueries,
+          enableQueryCoalescing);
     }
   }
 
@@ -195,6 +287,12 @@ public final class WorkerOptions {
   private final Function<WorkflowInterceptor, WorkflowInterceptor> interceptorFactory;
   private final Tracer tracer;
   private final Duration stickyTaskListScheduleToStartTimeout;
+  private final int historyPrefetchPageCount;
+  private final int localActivityQueueSize;
+  private final boolean enableAsyncActivityHeartbeats;
+  private final boolean enableAsyncDecisionTaskCompletion;
+  private final boolean enableConcurrentQueries;
+  private final boolean enableQueryCoalescing;
 
   private WorkerOptions(
       double workerActivitiesPerSecond,
@@ -206,7 +304,13 @@ public final class WorkerOptions {
       PollerOptions workflowPollerOptions,
       Function<WorkflowInterceptor, WorkflowInterceptor> interceptorFactory,
       Tracer tracer,
-      Duration stickyTaskListScheduleToStartTimeout) {
+      Duration stickyTaskListScheduleToStartTimeout,
+      int historyPrefetchPageCount,
+      int localActivityQueueSize,
+      boolean enableAsyncActivityHeartbeats,
+      boolean enableAsyncDecisionTaskCompletion,
+      boolean enableConcurrentQueries,
+      boolean enableQueryCoalescing) {
     this.workerActivitiesPerSecond = workerActivitiesPerSecond;
     this.maxConcurrentActivityExecutionSize = maxConcurrentActivityExecutionSize;
     this.maxConcurrentWorkflowExecutionSize = maxConcurrentWorkflowExecutionSize;
@@ -217,6 +321,12 @@ public final class WorkerOptions {
     this.interceptorFactory = interceptorFactory;
     this.tracer = tracer;
     this.stickyTaskListScheduleToStartTimeout = stickyTaskListScheduleToStartTimeout;
+    this.historyPrefetchPageCount = historyPrefetchPageCount;
+    this.localActivityQueueSize = localActivityQueueSize;
+    this.enableAsyncActivityHeartbeats = enableAsyncActivityHeartbeats;
+    this.enableAsyncDecisionTaskCompletion = enableAsyncDecisionTaskCompletion;
+    this.enableConcurrentQueries = enableConcurrentQueries;
+    this.enableQueryCoalescing = enableQueryCoalescing;
   }
 
   public double getWorkerActivitiesPerSecond() {
@@ -259,6 +369,30 @@ public final class WorkerOptions {
     return stickyTaskListScheduleToStartTimeout;
   }
 
+  public int getHistoryPrefetchPageCount() {
+    return historyPrefetchPageCount;
+  }
+
+  public int getLocalActivityQueueSize() {
+    return localActivityQueueSize;
+  }
+
+  public boolean isEnableAsyncActivityHeartbeats() {
+    return enableAsyncActivityHeartbeats;
+  }
+
+  public boolean isEnableAsyncDecisionTaskCompletion() {
+    return enableAsyncDecisionTaskCompletion;
+  }
+
+  public boolean isEnableConcurrentQueries() {
+    return enableConcurrentQueries;
+  }
+
+  public boolean isEnableQueryCoalescing() {
+    return enableQueryCoalescing;
+  }
+
   @Override
   public String toString() {
     return "WorkerOptions{"
@@ -278,6 +412,18 @@ public final class WorkerOptions {
         + workflowPollerOptions
         + ", stickyTaskListScheduleToStartTimeout="
         + stickyTaskListScheduleToStartTimeout
+        + ", historyPrefetchPageCount="
+        + historyPrefetchPageCount
+        + ", localActivityQueueSize="
+        + localActivityQueueSize
+        + ", enableAsyncActivityHeartbeats="
+        + enableAsyncActivityHeartbeats
+        + ", enableAsyncDecisionTaskCompletion="
+        + enableAsyncDecisionTaskCompletion
+        + ", enableConcurrentQueries="
+        + enableConcurrentQueries
+        + ", enableQueryCoalescing="
+        + enableQueryCoalescing
         + '}';
   }
 }
@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.converter;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.StringValue;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import org.junit.Test;
+
+public class CompressingDataConverterTest {
+
+  private final DataConverter json = JsonDataConverter.getInstance();
+  private final DataConverter converter =
+      new CompressingDataConverter(json, 100, Deflater.BEST_SPEED);
+
+  @Test
+  public void testSmallPayloadIsNotCompressed() {
+    byte[] data = converter.toData("foo", 1);
+    assertArrayEquals(json.toData("foo", 1), data);
+    Object[] result = converter.fromDataArray(data, String.class, int.class);
+    assertEquals("foo", result[0]);
+    assertEquals(1, result[1]);
+  }
+
+  @Test
+  public void testLargePayloadRoundTrip() {
+    char[] chars = new char[10000];
+    Arrays.fill(chars, 'a');
+    String value = new String(chars);
+    byte[] data = converter.toData(value);
+    assertTrue(data.length < json.toData(value).length);
+    assertEquals(0, data[0]);
+    assertEquals(value, converter.fromData(data, String.class, String.class));
+    assertEquals(value, converter.fromDataArray(data, String.class)[0]);
+  }
+
+  @Test
+  public void testIncompressiblePayloadIsNotCompressed() {
+    DataConverter bytesConverter =
+        new CompressingDataConverter(
+            new DataConverter() {
+              @Override
+              public byte[] toData(Object... value) {
+                return (byte[]) value[0];
+              }
+
+              @Override
+              public <T> T fromData(byte[] content, Class<T> valueClass, Type t) {
+                return valueClass.cast(content);
+              }
+
+              @Override
+              public Object[] fromDataArray(byte[] content, Type... t) {
+                return new Object[] {content};
+              }
+            },
+            100,
+            Deflater.BEST_COMPRESSION);
+    byte[] random = new byte[2000];
+    new Random(42).nextBytes(random);
+    random[0] = '{';
+    byte[] data = bytesConverter.toData((Object) random);
+    assertArrayEquals(random, data);
+    assertArrayEquals(random, bytesConverter.fromData(data, byte[].class, byte[].class));
+  }
+
+  @Test
+  public void testReadsUncompressedPayloads() {
+    char[] chars = new char[1000];
+    Arrays.fill(chars, 'b');
+    String value = new String(chars);
+    assertEquals(value, converter.fromData(json.toData(value), String.class, String.class));
+  }
+
+  @Test(expected = DataConverterException.class)
+  public void testCorruptedPayload() {
+    char[] chars = new char[1000];
+    Arrays.fill(chars, 'c');
+    byte[] data = converter.toData(new String(chars));
+    converter.fromData(Arrays.copyOf(data, data.length / 2), String.class, String.class);
+  }
+
+  @Test
+  public void testCompressesProtobufPayloads() {
+    DataConverter protoConverter =
+        new CompressingDataConverter(ProtobufDataConverter.getInstance(), 10, Deflater.BEST_SPEED);
+    char[] chars = new char[1000];
+    Arrays.fill(chars, 'd');
+    StringValue value = StringValue.newBuilder().setValue(new String(chars)).build();
+    byte[] data = protoConverter.toData(value);
+    assertTrue(data.length < 1000);
+    assertEquals(value, protoConverter.fromData(data, StringValue.class, StringValue.class));
+  }
+}
@@ -211,4 +211,37 @@ public class JsonDataConverterTest {
     assertEquals("application exception", fromConverted.getMessage());
     assertNotSame(fromConverted.getStackTrace().length, 0);
   }
+
+  @Test
+  public void testPayloadBytesMatchStringEncoding() {
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      large.append("héllo wörld ✓ ").append(i);
+    }
+    String[] values = {"small", large.toString(), "small again", ""};
+    DataConverter[] converters = {converter, JsonDataConverter.getStreamingInstance()};
+    for (DataConverter c : converters) {
+      for (String value : values) {
+        byte[] data = c.toData(value);
+        assertArrayEquals(("\"" + value + "\"").getBytes(StandardCharsets.UTF_8), data);
+        assertEquals(value, c.fromData(data, String.class, String.class));
+      }
+      byte[] data = c.toData("a", large.toString(), 3);
+      Object[] result = c.fromDataArray(data, String.class, String.class, int.class);
+      assertEquals("a", result[0]);
+      assertEquals(large.toString(), result[1]);
+      assertEquals(3, result[2]);
+    }
+  }
+
+  @Test
+  public void testStreamingEncodesSurrogatesLikeDefault() {
+    DataConverter streaming = JsonDataConverter.getStreamingInstance();
+    String[] values = {
+      "emoji \uD83D\uDE00 pair", "unpaired \uD800 high", "unpaired \uDC00 low", "\uD800"
+    };
+    for (String value : values) {
+      assertArrayEquals(converter.toData(value), streaming.toData(value));
+    }
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.converter;
+
+import static org.junit.Assert.*;
+
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Timestamp;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import org.junit.Test;
+
+public class ProtobufDataConverterTest {
+
+  private final DataConverter converter = ProtobufDataConverter.getInstance();
+
+  public static class Wrapper {
+    public String name;
+    public Timestamp timestamp;
+  }
+
+  @Test
+  public void testMessageRoundTrip() {
+    Timestamp timestamp = Timestamp.newBuilder().setSeconds(1234).setNanos(5678).build();
+    byte[] data = converter.toData(timestamp);
+    assertEquals(0, data[0]);
+    assertEquals(timestamp, converter.fromData(data, Timestamp.class, Timestamp.class));
+
+    Object[] result = converter.fromDataArray(data, Timestamp.class, int.class);
+    assertEquals(timestamp, result[0]);
+    assertEquals(0, result[1]);
+  }
+
+  @Test
+  public void testNestedMessageIsWrittenAsJson() {
+    Wrapper wrapper = new Wrapper();
+    wrapper.name = "foo";
+    wrapper.timestamp = Timestamp.newBuilder().setSeconds(1).build();
+    byte[] data = converter.toData(wrapper);
+    assertEquals('{', data[0]);
+
+    Wrapper result = converter.fromData(data, Wrapper.class, Wrapper.class);
+    assertEquals("foo", result.name);
+    assertEquals(wrapper.timestamp, result.timestamp);
+  }
+
+  @Test
+  public void testMultipleArgumentsWithMessages() throws NoSuchMethodException {
+    Method m =
+        ProtobufDataConverterTest.class.getDeclaredMethod(
+            "foo", String.class, StringValue.class, Timestamp.class);
+    Type[] types = m.getGenericParameterTypes();
+    StringValue value = StringValue.newBuilder().setValue("bar").build();
+    byte[] data = converter.toData("foo", value, null);
+    Object[] result = converter.fromDataArray(data, types);
+    assertEquals("foo", result[0]);
+    assertEquals(value, result[1]);
+    assertNull(result[2]);
+  }
+
+  @Test
+  public void testReadsJsonDataConverterPayloads() {
+    byte[] data = JsonDataConverter.getInstance().toData("foo", 12);
+    Object[] result = converter.fromDataArray(data, String.class, int.class);
+    assertEquals("foo", result[0]);
+    assertEquals(12, result[1]);
+  }
+
+  @Test(expected = DataConverterException.class)
+  public void testMessageIntoNonMessageType() {
+    byte[] data = converter.toData(StringValue.newBuilder().setValue("bar").build());
+    converter.fromData(data, String.class, String.class);
+  }
+
+  public void foo(String arg1, StringValue arg2, Timestamp arg3) {}
+}
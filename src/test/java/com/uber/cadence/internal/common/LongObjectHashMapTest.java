@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.common;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import org.junit.Test;
+
+public class LongObjectHashMapTest {
+
+  @Test
+  public void testBasicOperations() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>();
+    assertTrue(map.isEmpty());
+    assertNull(map.put(1, "one"));
+    assertNull(map.put(-5, null));
+    assertEquals("one", map.put(1, "uno"));
+    assertEquals(2, map.size());
+    assertEquals("uno", map.get(1));
+    assertTrue(map.containsKey(-5));
+    assertNull(map.get(-5));
+    assertFalse(map.containsKey(2));
+
+    assertNull(map.remove(-5));
+    assertFalse(map.containsKey(-5));
+    assertEquals("uno", map.remove(1));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testMatchesHashMap() {
+    Random random = new Random(42);
+    LongObjectHashMap<Integer> map = new LongObjectHashMap<>();
+    Map<Long, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      // Keys sharing low bits collide in small tables, which exercises removal shifting.
+      long key = random.nextInt(300) * (random.nextBoolean() ? 1L : 1L << 32);
+      switch (random.nextInt(3)) {
+        case 0:
+          assertEquals(expected.put(key, i), map.put(key, i));
+          break;
+        case 1:
+          assertEquals(expected.remove(key), map.remove(key));
+          break;
+        default:
+          assertTrue(Objects.equals(expected.get(key), map.get(key)));
+          assertEquals(expected.containsKey(key), map.containsKey(key));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    map.clear();
+    assertEquals(0, map.size());
+    assertFalse(map.containsKey(0));
+  }
+}
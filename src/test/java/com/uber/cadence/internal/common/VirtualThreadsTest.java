@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+  @Test
+  public void testThreadFactoryAvailability() {
+    Optional<ThreadFactory> factory = VirtualThreads.newThreadFactory("test-");
+    assertEquals(VirtualThreads.isSupported(), factory.isPresent());
+  }
+
+  @Test
+  public void testVirtualThreadsAreCreated() throws Exception {
+    Optional<ThreadFactory> factory = VirtualThreads.newThreadFactory("test-");
+    Assume.assumeTrue("virtual threads require JDK 21+", factory.isPresent());
+    CompletableFuture<Thread> result = new CompletableFuture<>();
+    Thread thread = factory.get().newThread(() -> result.complete(Thread.currentThread()));
+    thread.start();
+    Thread executed = result.get();
+    assertTrue(VirtualThreads.isVirtual(executed));
+    assertTrue(executed.getName().startsWith("test-"));
+  }
+
+  @Test
+  public void testPlatformThreadIsNotVirtual() {
+    assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+  }
+}
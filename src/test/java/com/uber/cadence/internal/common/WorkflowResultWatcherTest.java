@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.common;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import com.uber.cadence.*;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkflowResultWatcherTest {
+
+  private static final String DOMAIN = "testDomain";
+
+  private IWorkflowService service;
+  private List<GetWorkflowExecutionHistoryRequest> requests;
+  private List<AsyncMethodCallback<GetWorkflowExecutionHistoryResponse>> callbacks;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws CadenceError {
+    service = mock(IWorkflowService.class);
+    requests = Collections.synchronizedList(new ArrayList<>());
+    callbacks = Collections.synchronizedList(new ArrayList<>());
+    doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              callbacks.add(invocation.getArgument(1));
+              return null;
+            })
+        .when(service)
+        .GetWorkflowExecutionHistoryWithTimeout(
+            any(GetWorkflowExecutionHistoryRequest.class),
+            any(AsyncMethodCallback.class),
+            anyLong());
+  }
+
+  @Test
+  public void testWaitersOfExecutionShareOnePoll() throws Exception {
+    WorkflowResultWatcher watcher = new WorkflowResultWatcher(service, DOMAIN, 10);
+    CompletableFuture<byte[]> first = waitForResult(watcher, "w1", "r1");
+    CompletableFuture<byte[]> second = waitForResult(watcher, "w1", "r1");
+    awaitRequests(1);
+    assertEquals(1, watcher.getWatchedExecutionCount());
+
+    callbacks.get(0).onComplete(completed("result"));
+    assertEquals("result", new String(first.get(5, TimeUnit.SECONDS)));
+    assertEquals("result", new String(second.get(5, TimeUnit.SECONDS)));
+    assertEquals(1, requests.size());
+    assertEquals(0, watcher.getWatchedExecutionCount());
+  }
+
+  @Test
+  public void testPollsAboveLimitAreQueued() throws Exception {
+    WorkflowResultWatcher watcher = new WorkflowResultWatcher(service, DOMAIN, 1);
+    CompletableFuture<byte[]> first = waitForResult(watcher, "w1", "r1");
+    CompletableFuture<byte[]> second = waitForResult(watcher, "w2", "r2");
+    awaitRequests(1);
+    Thread.sleep(100);
+    assertEquals(1, requests.size());
+
+    // An empty poll moves the execution behind the queued one.
+    callbacks.get(0).onComplete(new GetWorkflowExecutionHistoryResponse());
+    awaitRequests(2);
+    assertEquals("w2", requests.get(1).getExecution().getWorkflowId());
+
+    callbacks.get(1).onComplete(completed("second"));
+    assertEquals("second", new String(second.get(5, TimeUnit.SECONDS)));
+    awaitRequests(3);
+    assertEquals("w1", requests.get(2).getExecution().getWorkflowId());
+    callbacks.get(2).onComplete(completed("first"));
+    assertEquals("first", new String(first.get(5, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  public void testContinueAsNewIsFollowed() throws Exception {
+    WorkflowResultWatcher watcher = new WorkflowResultWatcher(service, DOMAIN, 10);
+    CompletableFuture<byte[]> result = waitForResult(watcher, "w1", "r1");
+    awaitRequests(1);
+
+    HistoryEvent continued =
+        new HistoryEvent()
+            .setEventType(EventType.WorkflowExecutionContinuedAsNew)
+            .setWorkflowExecutionContinuedAsNewEventAttributes(
+                new WorkflowExecutionContinuedAsNewEventAttributes().setNewExecutionRunId("r2"));
+    callbacks
+        .get(0)
+        .onComplete(
+            new GetWorkflowExecutionHistoryResponse()
+                .setHistory(new History().setEvents(Collections.singletonList(continued))));
+    awaitRequests(2);
+    assertEquals("r2", requests.get(1).getExecution().getRunId());
+
+    callbacks.get(1).onComplete(completed("result"));
+    assertEquals("result", new String(result.get(5, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  public void testWaiterTimesOut() throws Exception {
+    WorkflowResultWatcher watcher = new WorkflowResultWatcher(service, DOMAIN, 10);
+    CompletableFuture<byte[]> result =
+        watcher.getResultAsync(execution("w1", "r1"), Optional.empty(), 10, TimeUnit.MILLISECONDS);
+    try {
+      result.get(5, TimeUnit.SECONDS);
+      fail("unreachable");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    // The execution is dropped after its poll returns as nobody waits for it anymore.
+    awaitRequests(1);
+    callbacks.get(0).onComplete(new GetWorkflowExecutionHistoryResponse());
+    assertEquals(0, watcher.getWatchedExecutionCount());
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void testFailedPollIsNotRetriedAfterWaitersTimedOut() throws Exception {
+    WorkflowResultWatcher watcher = new WorkflowResultWatcher(service, DOMAIN, 10);
+    CompletableFuture<byte[]> result =
+        watcher.getResultAsync(execution("w1", "r1"), Optional.empty(), 10, TimeUnit.MILLISECONDS);
+    awaitRequests(1);
+    try {
+      result.get(5, TimeUnit.SECONDS);
+      fail("unreachable");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    callbacks.get(0).onError(new InternalServiceError("simulated"));
+    // The first retry is attempted after 20ms.
+    Thread.sleep(200);
+    assertEquals(1, requests.size());
+    assertEquals(0, watcher.getWatchedExecutionCount());
+  }
+
+  private static CompletableFuture<byte[]> waitForResult(
+      WorkflowResultWatcher watcher, String workflowId, String runId) {
+    return watcher.getResultAsync(
+        execution(workflowId, runId), Optional.empty(), 10, TimeUnit.SECONDS);
+  }
+
+  private void awaitRequests(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (requests.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, requests.size());
+  }
+
+  private static WorkflowExecution execution(String workflowId, String runId) {
+    return new WorkflowExecution().setWorkflowId(workflowId).setRunId(runId);
+  }
+
+  private static GetWorkflowExecutionHistoryResponse completed(String result) {
+    HistoryEvent event =
+        new HistoryEvent()
+            .setEventType(EventType.WorkflowExecutionCompleted)
+            .setWorkflowExecutionCompletedEventAttributes(
+                new WorkflowExecutionCompletedEventAttributes().setResult(result.getBytes()));
+    return new GetWorkflowExecutionHistoryResponse()
+        .setHistory(new History().setEvents(Collections.singletonList(event)));
+  }
+}
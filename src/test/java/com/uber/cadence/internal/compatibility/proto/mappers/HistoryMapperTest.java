@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.compatibility.proto.mappers;
+
+import static org.junit.Assert.*;
+
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.internal.compatibility.ClientObjects;
+import com.uber.cadence.internal.compatibility.ProtoObjects;
+import java.util.List;
+import org.junit.Test;
+
+public class HistoryMapperTest {
+
+  @Test
+  public void testLazyHistoryMatchesEagerHistory() {
+    assertEquals(ClientObjects.HISTORY, HistoryMapper.lazyHistory(ProtoObjects.HISTORY));
+    assertEquals(
+        HistoryMapper.history(ProtoObjects.HISTORY),
+        HistoryMapper.lazyHistory(ProtoObjects.HISTORY));
+  }
+
+  @Test
+  public void testLazyHistoryHandlesNull() {
+    assertNull(HistoryMapper.lazyHistory(null));
+    assertNull(HistoryMapper.lazyHistory(com.uber.cadence.api.v1.History.getDefaultInstance()));
+  }
+
+  @Test
+  public void testLazyHistoryEventListIsReadOnly() {
+    List<HistoryEvent> events = HistoryMapper.lazyHistory(ProtoObjects.HISTORY).getEvents();
+    assertEquals(1, events.size());
+    assertSame(events.get(0), events.get(0));
+    try {
+      events.add(ClientObjects.HISTORY_EVENT);
+      fail("expected UnsupportedOperationException");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLazyHistoryEventListMapsEachEventOnce() {
+    List<HistoryEvent> events =
+        HistoryMapper.lazyHistory(
+                com.uber.cadence.api.v1.History.newBuilder()
+                    .addEvents(ProtoObjects.HISTORY_EVENT)
+                    .addEvents(ProtoObjects.HISTORY_EVENT)
+                    .build())
+            .getEvents();
+    assertEquals(2, events.size());
+    assertSame(events.get(1), events.get(1));
+    assertNotSame(events.get(0), events.get(1));
+    assertEquals(ClientObjects.HISTORY_EVENT, events.get(1));
+  }
+
+  @Test
+  public void testLazyHistoryEventListDropsEventsOutsideOfWindow() {
+    com.uber.cadence.api.v1.History.Builder history = com.uber.cadence.api.v1.History.newBuilder();
+    for (int i = 0; i < LazyHistoryEventList.WINDOW_SIZE + 1; i++) {
+      history.addEvents(ProtoObjects.HISTORY_EVENT);
+    }
+    List<HistoryEvent> events = HistoryMapper.lazyHistory(history.build()).getEvents();
+    HistoryEvent first = events.get(0);
+    for (HistoryEvent event : events) {
+      assertEquals(ClientObjects.HISTORY_EVENT, event);
+    }
+    // The last event took the slot of the first one, so it is mapped again.
+    assertNotSame(first, events.get(0));
+    assertEquals(first, events.get(0));
+    assertSame(events.get(1), events.get(1));
+  }
+
+  @Test
+  public void testLazyResponses() {
+    assertEquals(
+        ClientObjects.GET_WORKFLOW_EXECUTION_HISTORY_RESPONSE,
+        ResponseMapper.getWorkflowExecutionHistoryResponse(
+            ProtoObjects.GET_WORKFLOW_EXECUTION_HISTORY_RESPONSE, true));
+    assertEquals(
+        ResponseMapper.pollForDecisionTaskResponse(
+            ProtoObjects.POLL_FOR_DECISION_TASK_RESPONSE, false),
+        ResponseMapper.pollForDecisionTaskResponse(
+            ProtoObjects.POLL_FOR_DECISION_TASK_RESPONSE, true));
+  }
+}
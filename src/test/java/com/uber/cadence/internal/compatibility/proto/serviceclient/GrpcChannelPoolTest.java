@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.compatibility.proto.serviceclient;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.uber.cadence.api.v1.WorkerAPIGrpc;
+import com.uber.cadence.api.v1.WorkflowAPIGrpc;
+import com.uber.cadence.internal.metrics.NoopScope;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class GrpcChannelPoolTest {
+
+  private final List<ClientCall<Object, Object>> calls = new ArrayList<>();
+  private List<ManagedChannel> channels;
+  private ManagedChannel longPollChannel;
+
+  @Before
+  public void setUp() {
+    channels = Arrays.asList(newChannel(), newChannel(), newChannel());
+    longPollChannel = newChannel();
+  }
+
+  @Test
+  public void testCallsGoToLeastLoadedChannel() {
+    GrpcChannelPool pool = new GrpcChannelPool(channels, Collections.emptyList(), scope());
+    List<ClientCall.Listener<Object>> listeners = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      listeners.add(startCall(pool, false));
+    }
+    assertArrayEquals(new int[] {2, 2, 2}, pool.getInFlight());
+
+    // Ties are broken round robin, so the first and the fourth call share the first channel.
+    listeners.get(0).onClose(Status.OK, new Metadata());
+    listeners.get(3).onClose(Status.OK, new Metadata());
+    assertArrayEquals(new int[] {0, 2, 2}, pool.getInFlight());
+
+    startCall(pool, false);
+    startCall(pool, false);
+    assertArrayEquals(new int[] {2, 2, 2}, pool.getInFlight());
+    startCall(pool, false);
+    assertEquals(7, Arrays.stream(pool.getInFlight()).sum());
+  }
+
+  @Test
+  public void testLongPollsUseDedicatedChannels() {
+    GrpcChannelPool pool =
+        new GrpcChannelPool(channels, Collections.singletonList(longPollChannel), scope());
+    startCall(pool, true);
+    startCall(pool, true);
+    startCall(pool, false);
+    assertArrayEquals(new int[] {1, 0, 0, 2}, pool.getInFlight());
+    verify(longPollChannel, times(2)).newCall(any(), any());
+  }
+
+  @Test
+  public void testCallsWithLongPollOptionUseDedicatedChannels() {
+    GrpcChannelPool pool =
+        new GrpcChannelPool(channels, Collections.singletonList(longPollChannel), scope());
+    pool.newCall(
+        WorkflowAPIGrpc.getGetWorkflowExecutionHistoryMethod(),
+        CallOptions.DEFAULT.withOption(IGrpcServiceStubs.LONG_POLL_CALL_OPTION, true));
+    pool.newCall(WorkflowAPIGrpc.getGetWorkflowExecutionHistoryMethod(), CallOptions.DEFAULT);
+    verify(longPollChannel, times(1)).newCall(any(), any());
+  }
+
+  @Test
+  public void testLongPollsShareChannelsWithoutDedicatedLane() {
+    GrpcChannelPool pool = new GrpcChannelPool(channels, Collections.emptyList(), scope());
+    startCall(pool, true);
+    startCall(pool, false);
+    startCall(pool, true);
+    assertArrayEquals(new int[] {1, 1, 1}, pool.getInFlight());
+  }
+
+  @Test
+  public void testCallIsReleasedOnceWhenClosedTwice() {
+    GrpcChannelPool pool =
+        new GrpcChannelPool(
+            Collections.singletonList(channels.get(0)), Collections.emptyList(), scope());
+    ClientCall.Listener<Object> listener = startCall(pool, false);
+    startCall(pool, false);
+    listener.onClose(Status.CANCELLED, new Metadata());
+    listener.onClose(Status.CANCELLED, new Metadata());
+    assertArrayEquals(new int[] {1}, pool.getInFlight());
+  }
+
+  @Test
+  public void testShutdownAppliesToAllChannels() {
+    GrpcChannelPool pool =
+        new GrpcChannelPool(channels, Collections.singletonList(longPollChannel), scope());
+    pool.shutdownNow();
+    for (ManagedChannel channel : channels) {
+      verify(channel).shutdownNow();
+    }
+    verify(longPollChannel).shutdownNow();
+  }
+
+  @SuppressWarnings("unchecked")
+  private ManagedChannel newChannel() {
+    ManagedChannel channel = mock(ManagedChannel.class);
+    when(channel.newCall(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              ClientCall<Object, Object> call = mock(ClientCall.class);
+              calls.add(call);
+              return call;
+            });
+    return channel;
+  }
+
+  /** Starts a call and returns the listener the pool passed to the underlying call. */
+  @SuppressWarnings("unchecked")
+  private ClientCall.Listener<Object> startCall(GrpcChannelPool pool, boolean longPoll) {
+    ClientCall<?, ?> call =
+        longPoll
+            ? pool.newCall(WorkerAPIGrpc.getPollForDecisionTaskMethod(), CallOptions.DEFAULT)
+            : pool.newCall(WorkflowAPIGrpc.getStartWorkflowExecutionMethod(), CallOptions.DEFAULT);
+    ((ClientCall<Object, Object>) call).start(mock(ClientCall.Listener.class), new Metadata());
+    ArgumentCaptor<ClientCall.Listener<Object>> listener =
+        ArgumentCaptor.forClass(ClientCall.Listener.class);
+    verify(calls.get(calls.size() - 1)).start(listener.capture(), any(Metadata.class));
+    return listener.getValue();
+  }
+
+  private static com.uber.m3.tally.Scope scope() {
+    return NoopScope.getInstance();
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.metrics;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.uber.m3.tally.Scope;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("unchecked")
+public class TaggedScopeCacheTest {
+
+  private Scope scope;
+
+  @Before
+  public void setUp() {
+    scope = mock(Scope.class);
+    when(scope.tagged(any(Map.class))).thenAnswer(invocation -> mock(Scope.class));
+  }
+
+  @Test
+  public void testSingleTagScopesAreCached() {
+    TaggedScopeCache cache = new TaggedScopeCache(scope, MetricsTag.WORKFLOW_TYPE);
+    Scope first = cache.get("type1");
+    assertSame(first, cache.get("type1"));
+    assertNotSame(first, cache.get("type2"));
+    verify(scope, times(2)).tagged(any(Map.class));
+  }
+
+  @Test
+  public void testTwoTagScopesAreCached() {
+    TaggedScopeCache cache =
+        new TaggedScopeCache(scope, MetricsTag.ACTIVITY_TYPE, MetricsTag.WORKFLOW_TYPE);
+    Scope first = cache.get("activity", "workflow1");
+    assertSame(first, cache.get("activity", "workflow1"));
+    assertNotSame(first, cache.get("activity", "workflow2"));
+    verify(scope, times(2)).tagged(any(Map.class));
+  }
+
+  @Test
+  public void testValuesOverLimitAreNotCached() {
+    TaggedScopeCache cache = new TaggedScopeCache(scope, MetricsTag.WORKFLOW_TYPE, null, 1);
+    assertSame(cache.get("type1"), cache.get("type1"));
+    assertNotSame(cache.get("type2"), cache.get("type2"));
+    verify(scope, times(3)).tagged(any(Map.class));
+  }
+}
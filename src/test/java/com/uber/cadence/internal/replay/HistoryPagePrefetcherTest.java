@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.replay;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import com.uber.cadence.*;
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HistoryPagePrefetcherTest {
+
+  private static final String DOMAIN = "testDomain";
+  private static final WorkflowExecution EXECUTION =
+      new WorkflowExecution().setWorkflowId("testWorkflowId").setRunId("testRunId");
+
+  private IWorkflowService service;
+  private List<GetWorkflowExecutionHistoryRequest> requests;
+  private List<AsyncMethodCallback<GetWorkflowExecutionHistoryResponse>> callbacks;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws CadenceError {
+    service = mock(IWorkflowService.class);
+    requests = Collections.synchronizedList(new ArrayList<>());
+    callbacks = Collections.synchronizedList(new ArrayList<>());
+    doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              callbacks.add(invocation.getArgument(1));
+              return null;
+            })
+        .when(service)
+        .GetWorkflowExecutionHistoryWithTimeout(
+            any(GetWorkflowExecutionHistoryRequest.class),
+            any(AsyncMethodCallback.class),
+            anyLong());
+  }
+
+  @Test
+  public void testPagesArePrefetchedInOrderUpToLimit() {
+    HistoryPagePrefetcher prefetcher = newPrefetcher(2);
+    prefetcher.start("page1".getBytes());
+    assertEquals(1, requests.size());
+    assertArrayEquals("page1".getBytes(), requests.get(0).getNextPageToken());
+    assertEquals(DOMAIN, requests.get(0).getDomain());
+
+    callbacks.get(0).onComplete(page(1, "page2"));
+    assertEquals(2, requests.size());
+    assertArrayEquals("page2".getBytes(), requests.get(1).getNextPageToken());
+
+    // Two pages are buffered, so the chain pauses until the consumer takes one.
+    callbacks.get(1).onComplete(page(2, "page3"));
+    assertEquals(2, requests.size());
+
+    assertEquals(1, firstEventId(prefetcher.next(Duration.ofSeconds(1))));
+    assertEquals(3, requests.size());
+    assertArrayEquals("page3".getBytes(), requests.get(2).getNextPageToken());
+
+    assertEquals(2, firstEventId(prefetcher.next(Duration.ofSeconds(1))));
+    callbacks.get(2).onComplete(page(3, null));
+    assertEquals(3, firstEventId(prefetcher.next(Duration.ofSeconds(1))));
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void testFailedPageClosesPrefetcher() {
+    HistoryPagePrefetcher prefetcher = newPrefetcher(2);
+    prefetcher.start("page1".getBytes());
+    callbacks.get(0).onError(new CadenceError("boom"));
+
+    assertNull(prefetcher.next(Duration.ofSeconds(1)));
+    assertNull(prefetcher.next(Duration.ofSeconds(1)));
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void testSlowPageTimesOut() {
+    HistoryPagePrefetcher prefetcher = newPrefetcher(1);
+    prefetcher.start("page1".getBytes());
+
+    assertNull(prefetcher.next(Duration.ofMillis(10)));
+
+    // A late response must not restart the chain.
+    callbacks.get(0).onComplete(page(1, "page2"));
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void testClosedPrefetcherStopsRequestingPages() {
+    HistoryPagePrefetcher prefetcher = newPrefetcher(2);
+    prefetcher.start("page1".getBytes());
+    prefetcher.close();
+
+    // The response of the request in flight doesn't continue the chain.
+    callbacks.get(0).onComplete(page(1, "page2"));
+    assertEquals(1, requests.size());
+    assertNull(prefetcher.next(Duration.ofSeconds(1)));
+  }
+
+  private HistoryPagePrefetcher newPrefetcher(int maxBufferedPages) {
+    return new HistoryPagePrefetcher(
+        service,
+        DOMAIN,
+        EXECUTION,
+        1000,
+        maxBufferedPages,
+        () -> Duration.ofSeconds(10),
+        NoopScope.getInstance());
+  }
+
+  private static GetWorkflowExecutionHistoryResponse page(long firstEventId, String nextPageToken) {
+    return new GetWorkflowExecutionHistoryResponse()
+        .setHistory(
+            new History()
+                .setEvents(
+                    Arrays.asList(
+                        new HistoryEvent().setEventId(firstEventId),
+                        new HistoryEvent().setEventId(firstEventId + 100))))
+        .setNextPageToken(nextPageToken == null ? null : nextPageToken.getBytes());
+  }
+
+  private static long firstEventId(GetWorkflowExecutionHistoryResponse response) {
+    assertNotNull(response);
+    return response.getHistory().getEvents().get(0).getEventId();
+  }
+}
@@ -40,6 +40,9 @@ import com.uber.m3.tally.StatsReporter;
 import com.uber.m3.util.Duration;
 import com.uber.m3.util.ImmutableMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import junit.framework.TestCase;
 import org.junit.Test;
 
@@ -59,12 +62,16 @@ public class ReplayDeciderCacheTests {
 
     // Act
     Decider decider =
-        replayDeciderCache.getOrCreate(decisionTask, () -> createFakeDecider(decisionTask));
+        replayDeciderCache
+            .getOrCreate(decisionTask, () -> createFakeDecider(decisionTask))
+            .getDecider();
 
     // Assert
     assertNotEquals(
         decider,
-        replayDeciderCache.getOrCreate(decisionTask, () -> createFakeDecider(decisionTask)));
+        replayDeciderCache
+            .getOrCreate(decisionTask, () -> createFakeDecider(decisionTask))
+            .getDecider());
   }
 
   @Test
@@ -78,7 +85,9 @@ public class ReplayDeciderCacheTests {
             "domain", "taskList", "workflowType", service);
 
     Decider decider =
-        replayDeciderCache.getOrCreate(decisionTask1, () -> createFakeDecider(decisionTask1));
+        replayDeciderCache
+            .getOrCreate(decisionTask1, () -> createFakeDecider(decisionTask1))
+            .getDecider();
     replayDeciderCache.addToCache(decisionTask1, decider);
 
     PollForDecisionTaskResponse decisionTask2 =
@@ -87,16 +96,22 @@ public class ReplayDeciderCacheTests {
 
     assertEquals(
         decider,
-        replayDeciderCache.getOrCreate(decisionTask2, () -> doNotCreateFakeDecider(decisionTask2)));
+        replayDeciderCache
+            .getOrCreate(decisionTask2, () -> doNotCreateFakeDecider(decisionTask2))
+            .getDecider());
 
     // Act
     Decider decider2 =
-        replayDeciderCache.getOrCreate(decisionTask2, () -> createFakeDecider(decisionTask2));
+        replayDeciderCache
+            .getOrCreate(decisionTask2, () -> createFakeDecider(decisionTask2))
+            .getDecider();
 
     // Assert
     assertEquals(
         decider2,
-        replayDeciderCache.getOrCreate(decisionTask2, () -> createFakeDecider(decisionTask2)));
+        replayDeciderCache
+            .getOrCreate(decisionTask2, () -> createFakeDecider(decisionTask2))
+            .getDecider());
     assertSame(decider2, decider);
     service.close();
   }
@@ -121,7 +136,9 @@ public class ReplayDeciderCacheTests {
             "domain", "taskList", "workflowType", service);
 
     Decider decider =
-        replayDeciderCache.getOrCreate(decisionTask, () -> createFakeDecider(decisionTask));
+        replayDeciderCache
+            .getOrCreate(decisionTask, () -> createFakeDecider(decisionTask))
+            .getDecider();
     replayDeciderCache.addToCache(decisionTask, decider);
 
     // Act
@@ -129,7 +146,9 @@ public class ReplayDeciderCacheTests {
         HistoryUtils.generateDecisionTaskWithPartialHistoryFromExistingTask(
             decisionTask, "domain", "stickyTaskList", service);
     Decider decider2 =
-        replayDeciderCache.getOrCreate(decisionTask2, () -> doNotCreateFakeDecider(decisionTask2));
+        replayDeciderCache
+            .getOrCreate(decisionTask2, () -> doNotCreateFakeDecider(decisionTask2))
+            .getDecider();
 
     // Assert
     // Wait for reporter
@@ -192,11 +211,19 @@ public class ReplayDeciderCacheTests {
 
     // Act
     Decider decider =
-        replayDeciderCache.getOrCreate(decisionTask1, () -> createFakeDecider(decisionTask1));
+        replayDeciderCache
+            .getOrCreate(decisionTask1, () -> createFakeDecider(decisionTask1))
+            .getDecider();
     replayDeciderCache.addToCache(decisionTask1, decider);
-    decider = replayDeciderCache.getOrCreate(decisionTask2, () -> createFakeDecider(decisionTask2));
+    decider =
+        replayDeciderCache
+            .getOrCreate(decisionTask2, () -> createFakeDecider(decisionTask2))
+            .getDecider();
     replayDeciderCache.addToCache(decisionTask2, decider);
-    decider = replayDeciderCache.getOrCreate(decisionTask3, () -> createFakeDecider(decisionTask3));
+    decider =
+        replayDeciderCache
+            .getOrCreate(decisionTask3, () -> createFakeDecider(decisionTask3))
+            .getDecider();
     replayDeciderCache.addToCache(decisionTask3, decider);
 
     assertEquals(3, replayDeciderCache.size());
@@ -221,7 +248,9 @@ public class ReplayDeciderCacheTests {
 
     // Act
     Decider decider =
-        replayDeciderCache.getOrCreate(decisionTask1, () -> createFakeDecider(decisionTask1));
+        replayDeciderCache
+            .getOrCreate(decisionTask1, () -> createFakeDecider(decisionTask1))
+            .getDecider();
     replayDeciderCache.addToCache(decisionTask1, decider);
 
     assertEquals(1, replayDeciderCache.size());
@@ -232,6 +261,246 @@ public class ReplayDeciderCacheTests {
     assertEquals(1, replayDeciderCache.size());
   }
 
+  @Test
+  public void evictAnyEvictsLeastRecentlyUsedEntry() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, NoopScope.getInstance());
+    Decider decider1 = addMockDecider(replayDeciderCache, "run1");
+    Decider decider2 = addMockDecider(replayDeciderCache, "run2");
+    Decider decider3 = addMockDecider(replayDeciderCache, "run3");
+
+    // Touch run1 so run2 becomes the least recently used entry.
+    PollForDecisionTaskResponse task1 = newStickyDecisionTask("run1");
+    DeciderCache.Entry entry1 =
+        replayDeciderCache.getOrCreate(task1, () -> doNotCreateFakeDecider(task1));
+    assertSame(decider1, entry1.getDecider());
+    replayDeciderCache.markProcessingDone(entry1);
+
+    assertTrue(replayDeciderCache.evictAnyNotInProcessing("run4"));
+
+    assertEquals(2, replayDeciderCache.size());
+    verify(decider2, times(1)).close();
+    verify(decider1, never()).close();
+    verify(decider3, never()).close();
+  }
+
+  @Test
+  public void evictAnyDoesNotEvictEntriesInProcessing() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, NoopScope.getInstance());
+    Decider decider1 = addMockDecider(replayDeciderCache, "run1");
+    Decider decider2 = addMockDecider(replayDeciderCache, "run2");
+
+    PollForDecisionTaskResponse task1 = newStickyDecisionTask("run1");
+    DeciderCache.Entry entry1 =
+        replayDeciderCache.getOrCreate(task1, () -> doNotCreateFakeDecider(task1));
+
+    assertTrue(replayDeciderCache.evictAnyNotInProcessing("run3"));
+    verify(decider2, times(1)).close();
+    assertFalse(replayDeciderCache.evictAnyNotInProcessing("run3"));
+    verify(decider1, never()).close();
+
+    replayDeciderCache.markProcessingDone(entry1);
+    assertTrue(replayDeciderCache.evictAnyNotInProcessing("run3"));
+    verify(decider1, times(1)).close();
+    assertEquals(0, replayDeciderCache.size());
+  }
+
+  @Test
+  public void addToCacheEvictsLeastRecentlyUsedEntryWhenFull() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(2, NoopScope.getInstance());
+    Decider decider1 = addMockDecider(replayDeciderCache, "run1");
+    Decider decider2 = addMockDecider(replayDeciderCache, "run2");
+    Decider decider3 = addMockDecider(replayDeciderCache, "run3");
+
+    assertEquals(2, replayDeciderCache.size());
+    verify(decider1, times(1)).close();
+    verify(decider2, never()).close();
+    verify(decider3, never()).close();
+  }
+
+  @Test
+  public void weightedEvictionPicksHeaviestLeastRecentlyUsedEntry() throws Exception {
+    DeciderCache replayDeciderCache =
+        new DeciderCache(10, NoopScope.getInstance(), DeciderCache.WORKFLOW_THREAD_COUNT_WEIGHER);
+    Decider decider1 = addMockDecider(replayDeciderCache, "run1");
+    Decider decider2 = addMockDecider(replayDeciderCache, "run2");
+    Decider decider3 = addMockDecider(replayDeciderCache, "run3");
+    when(decider1.getWorkflowThreadCount()).thenReturn(1);
+    when(decider2.getWorkflowThreadCount()).thenReturn(5);
+    when(decider3.getWorkflowThreadCount()).thenReturn(2);
+
+    assertTrue(replayDeciderCache.evictAnyNotInProcessing("run4"));
+
+    verify(decider2, times(1)).close();
+    verify(decider1, never()).close();
+    verify(decider3, never()).close();
+  }
+
+  @Test
+  public void byteBudgetEvictsLeastRecentlyUsedEntries() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, 1000, NoopScope.getInstance(), null);
+    Decider decider1 = addMockDecider(replayDeciderCache, "run1", 400);
+    Decider decider2 = addMockDecider(replayDeciderCache, "run2", 400);
+    assertEquals(800, replayDeciderCache.getEstimatedMemoryBytes());
+
+    Decider decider3 = addMockDecider(replayDeciderCache, "run3", 400);
+    assertEquals(2, replayDeciderCache.size());
+    assertEquals(800, replayDeciderCache.getEstimatedMemoryBytes());
+    verify(decider1, times(1)).close();
+
+    // The estimate is refreshed when processing is done, which evicts another entry.
+    PollForDecisionTaskResponse task2 = newStickyDecisionTask("run2");
+    DeciderCache.Entry entry2 =
+        replayDeciderCache.getOrCreate(task2, () -> doNotCreateFakeDecider(task2));
+    assertSame(decider2, entry2.getDecider());
+    when(decider2.getEstimatedMemoryBytes()).thenReturn(700L);
+    replayDeciderCache.markProcessingDone(entry2);
+
+    assertEquals(1, replayDeciderCache.size());
+    assertEquals(700, replayDeciderCache.getEstimatedMemoryBytes());
+    verify(decider3, times(1)).close();
+    verify(decider2, never()).close();
+
+    replayDeciderCache.invalidateAll();
+    assertEquals(0, replayDeciderCache.getEstimatedMemoryBytes());
+  }
+
+  @Test
+  public void addedEntryIsNotEvictedBeforeProcessingIsDone() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, NoopScope.getInstance());
+    PollForDecisionTaskResponse task1 = newStickyDecisionTask("run1");
+    Decider decider1 = mock(Decider.class);
+    DeciderCache.Entry entry1 = replayDeciderCache.getOrCreate(task1, () -> decider1);
+    replayDeciderCache.addToCache(entry1);
+
+    assertFalse(replayDeciderCache.evictAnyNotInProcessing("run2"));
+    verify(decider1, never()).close();
+
+    replayDeciderCache.markProcessingDone(entry1);
+    assertTrue(replayDeciderCache.evictAnyNotInProcessing("run2"));
+    verify(decider1, times(1)).close();
+  }
+
+  @Test
+  public void markProcessingDoneOfReplacedEntryKeepsNewEntryPinned() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, NoopScope.getInstance());
+    addMockDecider(replayDeciderCache, "run1");
+    PollForDecisionTaskResponse task1 = newStickyDecisionTask("run1");
+    DeciderCache.Entry entry1 =
+        replayDeciderCache.getOrCreate(task1, () -> doNotCreateFakeDecider(task1));
+
+    // A task of the same run replaces the entry while the first task is still processing.
+    Decider decider2 = addMockDecider(replayDeciderCache, "run1");
+    DeciderCache.Entry entry2 =
+        replayDeciderCache.getOrCreate(task1, () -> doNotCreateFakeDecider(task1));
+    assertSame(decider2, entry2.getDecider());
+
+    replayDeciderCache.markProcessingDone(entry1);
+    assertFalse(replayDeciderCache.evictAnyNotInProcessing("run2"));
+    verify(decider2, never()).close();
+
+    replayDeciderCache.markProcessingDone(entry2);
+    assertTrue(replayDeciderCache.evictAnyNotInProcessing("run2"));
+    verify(decider2, times(1)).close();
+  }
+
+  @Test
+  public void fullHistoryTaskDoesNotCloseDeciderUsedByConcurrentQuery() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, NoopScope.getInstance());
+    PollForDecisionTaskResponse decisionTask =
+        HistoryUtils.generateDecisionTaskWithInitialHistory();
+    Decider cachedDecider = mock(Decider.class);
+    replayDeciderCache.addToCache(decisionTask, cachedDecider);
+
+    // A cached query pins the entry without the run lock and runs until it is released.
+    CountDownLatch queryStarted = new CountDownLatch(1);
+    CountDownLatch finishQuery = new CountDownLatch(1);
+    CompletableFuture<Void> query =
+        CompletableFuture.runAsync(
+            () -> {
+              DeciderCache.Entry entry = replayDeciderCache.getIfCached(decisionTask);
+              assertSame(cachedDecider, entry.getDecider());
+              queryStarted.countDown();
+              try {
+                finishQuery.await();
+                verify(cachedDecider, never()).close();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              } finally {
+                replayDeciderCache.markProcessingDone(entry);
+              }
+            });
+    assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+
+    Decider newDecider = mock(Decider.class);
+    DeciderCache.Entry entry = replayDeciderCache.getOrCreate(decisionTask, () -> newDecider);
+    assertSame(newDecider, entry.getDecider());
+    replayDeciderCache.addToCache(entry);
+    replayDeciderCache.markProcessingDone(entry);
+    verify(cachedDecider, never()).close();
+
+    finishQuery.countDown();
+    query.get(5, TimeUnit.SECONDS);
+    verify(cachedDecider, times(1)).close();
+    verify(newDecider, never()).close();
+    assertEquals(1, replayDeciderCache.size());
+  }
+
+  @Test
+  public void newEntryThatIsNotAddedIsClosedWhenProcessingIsDone() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(10, NoopScope.getInstance());
+    PollForDecisionTaskResponse task1 = newStickyDecisionTask("run1");
+    Decider decider1 = mock(Decider.class);
+    DeciderCache.Entry entry1 = replayDeciderCache.getOrCreate(task1, () -> decider1);
+
+    replayDeciderCache.markProcessingDone(entry1);
+    verify(decider1, times(1)).close();
+    assertEquals(0, replayDeciderCache.size());
+  }
+
+  @Test
+  public void newEntryIsNotCachedWhenEveryOtherEntryIsInProcessing() throws Exception {
+    DeciderCache replayDeciderCache = new DeciderCache(1, NoopScope.getInstance());
+    Decider decider1 = addMockDecider(replayDeciderCache, "run1");
+    PollForDecisionTaskResponse task1 = newStickyDecisionTask("run1");
+    DeciderCache.Entry entry1 =
+        replayDeciderCache.getOrCreate(task1, () -> doNotCreateFakeDecider(task1));
+
+    PollForDecisionTaskResponse task2 = newStickyDecisionTask("run2");
+    Decider decider2 = mock(Decider.class);
+    DeciderCache.Entry entry2 = replayDeciderCache.getOrCreate(task2, () -> decider2);
+    replayDeciderCache.addToCache(entry2);
+
+    // The cache doesn't grow past its size, the refused decider is closed when its task is done.
+    assertEquals(1, replayDeciderCache.size());
+    verify(decider2, never()).close();
+    replayDeciderCache.markProcessingDone(entry2);
+    verify(decider2, times(1)).close();
+
+    replayDeciderCache.markProcessingDone(entry1);
+    verify(decider1, never()).close();
+    assertSame(
+        decider1,
+        replayDeciderCache.getOrCreate(task1, () -> doNotCreateFakeDecider(task1)).getDecider());
+  }
+
+  private Decider addMockDecider(DeciderCache cache, String runId, long estimatedBytes) {
+    Decider decider = mock(Decider.class);
+    when(decider.getEstimatedMemoryBytes()).thenReturn(estimatedBytes);
+    cache.addToCache(newStickyDecisionTask(runId), decider);
+    return decider;
+  }
+
+  private Decider addMockDecider(DeciderCache cache, String runId) {
+    Decider decider = mock(Decider.class);
+    cache.addToCache(newStickyDecisionTask(runId), decider);
+    return decider;
+  }
+
+  private PollForDecisionTaskResponse newStickyDecisionTask(String runId) {
+    return new PollForDecisionTaskResponse()
+        .setWorkflowExecution(new WorkflowExecution().setWorkflowId("wid").setRunId(runId));
+  }
+
   private void assertCacheIsEmpty(DeciderCache cache, String runId) throws Exception {
     Throwable ex = null;
     try {
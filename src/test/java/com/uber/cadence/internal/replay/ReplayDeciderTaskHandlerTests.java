@@ -20,19 +20,26 @@ package com.uber.cadence.internal.replay;
 import static com.uber.cadence.internal.common.InternalUtils.createStickyTaskList;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.uber.cadence.History;
 import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.QueryTaskCompletedType;
 import com.uber.cadence.StickyExecutionAttributes;
+import com.uber.cadence.WorkflowQuery;
 import com.uber.cadence.internal.metrics.NoopScope;
 import com.uber.cadence.internal.testservice.TestWorkflowService;
 import com.uber.cadence.internal.worker.DecisionTaskHandler;
 import com.uber.cadence.internal.worker.SingleWorkerOptions;
 import com.uber.cadence.testUtils.HistoryUtils;
 import java.time.Duration;
+import java.util.ArrayList;
 import org.junit.Test;
 
 public class ReplayDeciderTaskHandlerTests {
@@ -119,12 +126,99 @@ public class ReplayDeciderTaskHandlerTests {
     assertNotNull(result.getTaskFailed());
   }
 
+  @Test
+  public void ifConcurrentQueriesAreEnabledThenQueriesAreAnsweredFromCache() throws Throwable {
+    // Arrange
+    DeciderCache cache = new DeciderCache(10, NoopScope.getInstance());
+    ReplayWorkflow mockWorkflow = mock(ReplayWorkflow.class);
+    when(mockWorkflow.eventLoop()).thenReturn(true);
+    when(mockWorkflow.query(any())).thenReturn("result".getBytes());
+    DecisionTaskHandler taskHandler =
+        new ReplayDecisionTaskHandler(
+            "domain",
+            setUpMockWorkflowFactory(mockWorkflow),
+            cache,
+            SingleWorkerOptions.newBuilder().setEnableConcurrentQueries(true).build(),
+            "sticky",
+            Duration.ofSeconds(5),
+            new TestWorkflowService(),
+            null);
+    PollForDecisionTaskResponse decisionTask =
+        HistoryUtils.generateDecisionTaskWithInitialHistory();
+    taskHandler.handleDecisionTask(decisionTask);
+
+    // Act
+    DecisionTaskHandler.Result result = taskHandler.handleCachedQuery(newQueryTask(decisionTask));
+
+    // Assert
+    assertNotNull(result);
+    assertEquals(QueryTaskCompletedType.COMPLETED, result.getQueryCompleted().getCompletedType());
+    assertArrayEquals("result".getBytes(), result.getQueryCompleted().getQueryResult());
+    verify(mockWorkflow, times(1)).query(any());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void ifQueryCannotBeAnsweredFromCacheThenItIsNotHandled() throws Throwable {
+    // Arrange
+    DeciderCache cache = new DeciderCache(10, NoopScope.getInstance());
+    DecisionTaskHandler disabledHandler =
+        new ReplayDecisionTaskHandler(
+            "domain",
+            setUpMockWorkflowFactory(),
+            cache,
+            SingleWorkerOptions.newBuilder().build(),
+            "sticky",
+            Duration.ofSeconds(5),
+            new TestWorkflowService(),
+            null);
+    DecisionTaskHandler enabledHandler =
+        new ReplayDecisionTaskHandler(
+            "domain",
+            setUpMockWorkflowFactory(),
+            cache,
+            SingleWorkerOptions.newBuilder().setEnableConcurrentQueries(true).build(),
+            "sticky",
+            Duration.ofSeconds(5),
+            new TestWorkflowService(),
+            null);
+    PollForDecisionTaskResponse decisionTask =
+        HistoryUtils.generateDecisionTaskWithInitialHistory();
+    PollForDecisionTaskResponse notCachedQuery = newQueryTask(decisionTask);
+
+    // Act
+    DecisionTaskHandler.Result notCachedResult = enabledHandler.handleCachedQuery(notCachedQuery);
+    enabledHandler.handleDecisionTask(decisionTask);
+    PollForDecisionTaskResponse queryWithHistory =
+        newQueryTask(decisionTask).setHistory(decisionTask.getHistory());
+
+    // Assert
+    assertNull(notCachedResult);
+    assertNull(disabledHandler.handleCachedQuery(newQueryTask(decisionTask)));
+    assertNull(enabledHandler.handleCachedQuery(queryWithHistory));
+  }
+
+  private static PollForDecisionTaskResponse newQueryTask(
+      PollForDecisionTaskResponse decisionTask) {
+    return new PollForDecisionTaskResponse()
+        .setTaskToken("query".getBytes())
+        .setWorkflowExecution(decisionTask.getWorkflowExecution())
+        .setWorkflowType(decisionTask.getWorkflowType())
+        .setHistory(new History().setEvents(new ArrayList<>()))
+        .setQuery(new WorkflowQuery().setQueryType("status"));
+  }
+
   private ReplayWorkflowFactory setUpMockWorkflowFactory() throws Throwable {
     ReplayWorkflow mockWorkflow = mock(ReplayWorkflow.class);
+    when(mockWorkflow.eventLoop()).thenReturn(true);
+    return setUpMockWorkflowFactory(mockWorkflow);
+  }
+
+  private ReplayWorkflowFactory setUpMockWorkflowFactory(ReplayWorkflow mockWorkflow)
+      throws Throwable {
     ReplayWorkflowFactory mockFactory = mock(ReplayWorkflowFactory.class);
 
     when(mockFactory.getWorkflow(any())).thenReturn(mockWorkflow);
-    when(mockWorkflow.eventLoop()).thenReturn(true);
     return mockFactory;
   }
 }
@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import com.uber.cadence.*;
+import com.uber.cadence.activity.ActivityTask;
+import com.uber.cadence.client.ActivityCancelledException;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.JsonDataConverter;
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncActivityHeartbeaterTest {
+
+  private static final long INTERVAL_MILLIS = 8000;
+
+  private final DataConverter dataConverter = JsonDataConverter.getInstance();
+  private IWorkflowService service;
+  private ScheduledExecutorService executor;
+  private List<Runnable> scheduled;
+  private List<Long> delays;
+  private List<RecordActivityTaskHeartbeatRequest> requests;
+  private List<AsyncMethodCallback<RecordActivityTaskHeartbeatResponse>> callbacks;
+  private AsyncActivityHeartbeater heartbeater;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() throws CadenceError {
+    service = mock(IWorkflowService.class);
+    executor = mock(ScheduledExecutorService.class);
+    scheduled = new ArrayList<>();
+    delays = new ArrayList<>();
+    requests = new ArrayList<>();
+    callbacks = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              scheduled.add(invocation.getArgument(0));
+              delays.add(invocation.getArgument(1));
+              return null;
+            })
+        .when(executor)
+        .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    doAnswer(
+            invocation -> {
+              requests.add(invocation.getArgument(0));
+              callbacks.add(invocation.getArgument(1));
+              return null;
+            })
+        .when(service)
+        .RecordActivityTaskHeartbeat(
+            any(RecordActivityTaskHeartbeatRequest.class), any(AsyncMethodCallback.class));
+
+    ActivityTask task = mock(ActivityTask.class);
+    when(task.getTaskToken()).thenReturn("token".getBytes());
+    heartbeater =
+        new AsyncActivityHeartbeater(
+            service, task, dataConverter, executor, INTERVAL_MILLIS, NoopScope.getInstance());
+  }
+
+  @Test
+  public void testHeartbeatsAreCoalesced() {
+    heartbeater.heartbeat(1);
+    heartbeater.heartbeat(2);
+    assertEquals(1, scheduled.size());
+    assertEquals(0L, (long) delays.get(0));
+
+    runNext();
+    heartbeater.heartbeat(3);
+    heartbeater.heartbeat(4);
+    assertEquals(1, requests.size());
+    assertEquals(2, details(0));
+
+    callbacks.get(0).onComplete(new RecordActivityTaskHeartbeatResponse());
+    assertEquals(INTERVAL_MILLIS, (long) delays.get(1));
+    runNext();
+    assertEquals(2, requests.size());
+    assertEquals(4, details(1));
+
+    // Nothing is sent when no heartbeats were recorded during the interval.
+    callbacks.get(1).onComplete(new RecordActivityTaskHeartbeatResponse());
+    runNext();
+    assertEquals(2, requests.size());
+    assertEquals(3, scheduled.size());
+
+    heartbeater.heartbeat(5);
+    assertEquals(4, scheduled.size());
+    assertEquals(0L, (long) delays.get(3));
+    assertEquals(Optional.of(5), heartbeater.getLastDetails());
+  }
+
+  @Test
+  public void testCancellationIsReportedByNextHeartbeat() {
+    heartbeater.heartbeat("a");
+    runNext();
+    callbacks.get(0).onComplete(new RecordActivityTaskHeartbeatResponse().setCancelRequested(true));
+    try {
+      heartbeater.heartbeat("b");
+      fail("unreachable");
+    } catch (ActivityCancelledException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testFailedHeartbeatIsRetried() {
+    heartbeater.heartbeat(1);
+    runNext();
+    callbacks.get(0).onError(new ServiceBusyError("busy"));
+    assertEquals(1000L, (long) delays.get(1));
+
+    runNext();
+    assertEquals(2, requests.size());
+    assertEquals(1, details(1));
+  }
+
+  @Test
+  public void testRuntimeExceptionStartingCallIsRetried() throws CadenceError {
+    doThrow(new IllegalStateException("channel closed"))
+        .when(service)
+        .RecordActivityTaskHeartbeat(
+            any(RecordActivityTaskHeartbeatRequest.class), any(AsyncMethodCallback.class));
+    heartbeater.heartbeat(1);
+    runNext();
+    assertEquals(2, scheduled.size());
+    assertEquals(1000L, (long) delays.get(1));
+  }
+
+  @Test
+  public void testNoFlushesAreScheduledAfterStop() {
+    heartbeater.heartbeat(1);
+    runNext();
+    heartbeater.heartbeat(2);
+    heartbeater.stop();
+
+    callbacks.get(0).onComplete(new RecordActivityTaskHeartbeatResponse());
+    assertEquals(1, scheduled.size());
+    heartbeater.heartbeat(3);
+    assertEquals(1, scheduled.size());
+    assertEquals(1, requests.size());
+  }
+
+  private void runNext() {
+    scheduled.get(scheduled.size() - 1).run();
+  }
+
+  private int details(int index) {
+    return dataConverter.fromData(requests.get(index).getDetails(), Integer.class, Integer.class);
+  }
+}
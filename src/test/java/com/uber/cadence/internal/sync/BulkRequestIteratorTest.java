@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.client.BulkWorkflowRequest;
+import com.uber.cadence.client.BulkWorkflowResult;
+import com.uber.cadence.client.WorkflowStub;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class BulkRequestIteratorTest {
+
+  private final List<CompletableFuture<WorkflowExecution>> starts = new ArrayList<>();
+
+  @Test
+  public void testRequestsArePulledUpToLimit() {
+    AtomicInteger pulled = new AtomicInteger();
+    List<BulkWorkflowRequest> source = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      source.add(BulkWorkflowRequest.start(newStartStub(i), i));
+    }
+    BulkRequestIterator results =
+        new BulkRequestIterator(
+            source.stream().peek((r) -> pulled.incrementAndGet()).iterator(), 2);
+
+    assertTrue(results.hasNext());
+    assertEquals(2, pulled.get());
+    assertEquals(2, results.getInFlight());
+
+    // Results are returned in completion order.
+    starts.get(1).complete(execution("wf1"));
+    BulkWorkflowResult result = results.next();
+    assertTrue(result.isSuccessful());
+    assertEquals("wf1", result.getExecution().getWorkflowId());
+    assertSame(source.get(1), result.getRequest());
+
+    assertTrue(results.hasNext());
+    assertEquals(3, pulled.get());
+    starts.get(0).completeExceptionally(new IllegalStateException("boom"));
+    result = results.next();
+    assertFalse(result.isSuccessful());
+    assertNull(result.getExecution());
+    assertEquals("boom", result.getFailure().getMessage());
+
+    for (int i = 2; i < 5; i++) {
+      assertTrue(results.hasNext());
+      assertTrue(results.getInFlight() <= 2);
+      starts.get(i).complete(execution("wf" + i));
+      assertEquals("wf" + i, results.next().getExecution().getWorkflowId());
+    }
+    assertFalse(results.hasNext());
+    assertEquals(5, pulled.get());
+  }
+
+  @Test
+  public void testSignalAndSynchronousFailure() {
+    WorkflowStub signalStub = mock(WorkflowStub.class);
+    when(signalStub.signalAsync("signal1", "arg"))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    when(signalStub.getExecution()).thenReturn(execution("signalled"));
+    WorkflowStub failingStub = mock(WorkflowStub.class);
+    when(failingStub.startAsync("input")).thenThrow(new IllegalStateException("not started"));
+
+    List<BulkWorkflowRequest> source = new ArrayList<>();
+    source.add(BulkWorkflowRequest.signal(signalStub, "signal1", "arg"));
+    source.add(BulkWorkflowRequest.start(failingStub, "input"));
+    BulkRequestIterator results = new BulkRequestIterator(source.iterator(), 10);
+
+    List<BulkWorkflowResult> all = new ArrayList<>();
+    results.forEachRemaining(all::add);
+    assertEquals(2, all.size());
+    for (BulkWorkflowResult result : all) {
+      if (result.getRequest().getType() == BulkWorkflowRequest.Type.SIGNAL) {
+        assertTrue(result.isSuccessful());
+        assertEquals("signalled", result.getExecution().getWorkflowId());
+      } else {
+        assertEquals("not started", result.getFailure().getMessage());
+      }
+    }
+  }
+
+  private WorkflowStub newStartStub(int arg) {
+    WorkflowStub stub = mock(WorkflowStub.class);
+    CompletableFuture<WorkflowExecution> start = new CompletableFuture<>();
+    starts.add(start);
+    when(stub.startAsync(arg)).thenReturn(start);
+    when(stub.getWorkflowType()).thenReturn(Optional.of("testWorkflow"));
+    return stub;
+  }
+
+  private static WorkflowExecution execution(String workflowId) {
+    return new WorkflowExecution().setWorkflowId(workflowId).setRunId("run");
+  }
+}
@@ -612,6 +612,104 @@ public class DeterministicRunnerTest {
     assertTrue(d.isDone());
   }
 
+  @Test
+  public void testThreadsBlockedOnPromisesAreParked() throws Throwable {
+    List<CompletablePromise<String>> promises = new ArrayList<>();
+    DeterministicRunnerImpl d =
+        new DeterministicRunnerImpl(
+            () -> {
+              for (int i = 0; i < 3; i++) {
+                CompletablePromise<String> promise = Workflow.newPromise();
+                promises.add(promise);
+                int index = i;
+                Async.procedure(() -> trace.add("child" + index + " " + promise.get()));
+              }
+              WorkflowThread.await("reason1", () -> unblock1);
+              // Completion order doesn't matter, woken up threads run in their original order.
+              promises.get(2).complete("c");
+              promises.get(0).complete("a");
+              trace.add("root");
+              WorkflowThread.await("reason2", () -> unblock2);
+              promises.get(1).complete("b");
+            });
+    d.runUntilAllBlocked();
+    assertEquals(3, d.getParkedThreadCount());
+    d.runUntilAllBlocked();
+    assertEquals(3, d.getParkedThreadCount());
+    unblock1 = true;
+    d.runUntilAllBlocked();
+    assertEquals(1, d.getParkedThreadCount());
+    unblock2 = true;
+    d.runUntilAllBlocked();
+    assertEquals(0, d.getParkedThreadCount());
+    assertTrue(d.isDone());
+    trace.setExpected("root", "child0 a", "child2 c", "child1 b");
+  }
+
+  @Test
+  public void testThreadsBlockedOnQueueTakeAreParked() throws Throwable {
+    WorkflowQueueImpl<String> queue = new WorkflowQueueImpl<>(1);
+    DeterministicRunnerImpl d =
+        new DeterministicRunnerImpl(
+            () -> {
+              for (int i = 0; i < 2; i++) {
+                int index = i;
+                Async.procedure(
+                    () -> {
+                      try {
+                        trace.add("taker" + index + " " + queue.take());
+                      } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                      }
+                    });
+              }
+              WorkflowThread.await("reason1", () -> unblock1);
+              queue.offer("value1");
+              WorkflowThread.await("reason2", () -> unblock2);
+              queue.offer("value2");
+            });
+    d.runUntilAllBlocked();
+    assertEquals(2, d.getParkedThreadCount());
+    unblock1 = true;
+    d.runUntilAllBlocked();
+    // The second taker was woken up as well, but parked again as the queue was empty.
+    assertEquals(1, d.getParkedThreadCount());
+    unblock2 = true;
+    d.runUntilAllBlocked();
+    assertTrue(d.isDone());
+    trace.setExpected("taker0 value1", "taker1 value2");
+  }
+
+  @Test
+  public void testParkedThreadDoesNotReportDeadlineOfEarlierTimedWait() throws Throwable {
+    DeterministicRunnerImpl d =
+        new DeterministicRunnerImpl(
+            threadPool,
+            null,
+            () -> currentTime, // clock override
+            () -> {
+              CompletablePromise<String> promise = Workflow.newPromise();
+              Async.procedure(
+                  () -> {
+                    WorkflowThread.await(60000, "timed", () -> unblock1);
+                    trace.add("child " + promise.get());
+                  });
+              WorkflowThread.await("reason2", () -> unblock2);
+              promise.complete("done");
+            });
+    currentTime = 1000;
+    d.runUntilAllBlocked();
+    assertEquals(61000, d.getNextWakeUpTime());
+    unblock1 = true;
+    d.runUntilAllBlocked();
+    assertEquals(1, d.getParkedThreadCount());
+    assertEquals(0, d.getNextWakeUpTime());
+    unblock2 = true;
+    d.runUntilAllBlocked();
+    assertTrue(d.isDone());
+    trace.setExpected("child done");
+  }
+
   @Test
   public void testJoinTimeout() throws Throwable {
     DeterministicRunnerImpl d =
@@ -743,7 +841,6 @@ public class DeterministicRunnerTest {
     Decider decider = new DetermisiticRunnerContainerDecider(d);
     PollForDecisionTaskResponse response = HistoryUtils.generateDecisionTaskWithInitialHistory();
 
-    cache.getOrCreate(response, () -> decider);
     cache.addToCache(response, decider);
     d.runUntilAllBlocked();
     assertEquals(2, threadPool.getActiveCount());
@@ -810,7 +907,6 @@ public class DeterministicRunnerTest {
     Decider decider = new DetermisiticRunnerContainerDecider(d);
     PollForDecisionTaskResponse response = HistoryUtils.generateDecisionTaskWithInitialHistory();
 
-    cache.getOrCreate(response, () -> decider);
     cache.addToCache(response, decider);
     d.runUntilAllBlocked();
     assertEquals(2, threadPool.getActiveCount());
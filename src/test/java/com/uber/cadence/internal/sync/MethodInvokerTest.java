@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class MethodInvokerTest {
+
+  public interface TestInterface {
+    String concat(String a, int b, List<String> c);
+
+    void run();
+
+    long sum(long a, long b) throws IOException;
+  }
+
+  private final TestInterface target =
+      new TestInterface() {
+        @Override
+        public String concat(String a, int b, List<String> c) {
+          return a + b + c;
+        }
+
+        @Override
+        public void run() {}
+
+        @Override
+        public long sum(long a, long b) throws IOException {
+          if (a < 0) {
+            throw new IOException("negative");
+          }
+          return a + b;
+        }
+      };
+
+  @Test
+  public void testInvoke() throws Exception {
+    MethodInvoker concat =
+        MethodInvoker.of(
+            TestInterface.class.getMethod("concat", String.class, int.class, List.class));
+    assertEquals("a1[x]", concat.invoke(target, new Object[] {"a", 1, Arrays.asList("x")}));
+    assertFalse(concat.returnsVoid());
+    Type[] types = concat.getGenericParameterTypes();
+    assertEquals(3, types.length);
+    assertEquals("java.util.List<java.lang.String>", types[2].getTypeName());
+
+    MethodInvoker run = MethodInvoker.of(TestInterface.class.getMethod("run"));
+    assertNull(run.invoke(target, new Object[0]));
+    assertNull(run.invoke(target, null));
+    assertTrue(run.returnsVoid());
+
+    MethodInvoker sum =
+        MethodInvoker.of(TestInterface.class.getMethod("sum", long.class, long.class));
+    assertEquals(3L, sum.invoke(target, new Object[] {1L, 2L}));
+  }
+
+  @Test
+  public void testExceptionIsWrapped() throws Exception {
+    MethodInvoker sum =
+        MethodInvoker.of(TestInterface.class.getMethod("sum", long.class, long.class));
+    try {
+      sum.invoke(target, new Object[] {-1L, 2L});
+      fail("unreachable");
+    } catch (InvocationTargetException e) {
+      assertTrue(e.getTargetException() instanceof IOException);
+      assertEquals("negative", e.getTargetException().getMessage());
+    }
+  }
+
+  @Test
+  public void testWrongArgumentCount() throws Exception {
+    MethodInvoker sum =
+        MethodInvoker.of(TestInterface.class.getMethod("sum", long.class, long.class));
+    try {
+      sum.invoke(target, new Object[] {1L});
+      fail("unreachable");
+    } catch (Throwable e) {
+      assertTrue(e instanceof IllegalArgumentException);
+    }
+  }
+
+  @Test
+  public void testInaccessibleMethodFailsOnInvocation() throws Exception {
+    // Declared by a package private class of java.util, so neither a method handle nor
+    // Method.invoke can call it.
+    List<String> list = Collections.unmodifiableList(Arrays.asList("a"));
+    MethodInvoker size = MethodInvoker.of(list.getClass().getMethod("size"));
+    try {
+      size.invoke(list, new Object[0]);
+      fail("unreachable");
+    } catch (Throwable e) {
+      assertTrue(e instanceof IllegalAccessException);
+    }
+  }
+}
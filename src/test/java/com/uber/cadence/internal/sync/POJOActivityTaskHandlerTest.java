@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.sync;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.uber.cadence.ActivityType;
+import com.uber.cadence.PollForActivityTaskResponse;
+import com.uber.cadence.activity.ActivityMethod;
+import com.uber.cadence.converter.DataConverter;
+import com.uber.cadence.converter.JsonDataConverter;
+import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.internal.worker.ActivityTask;
+import com.uber.cadence.internal.worker.ActivityTaskHandler;
+import com.uber.m3.tally.Counter;
+import com.uber.m3.tally.Scope;
+import java.lang.reflect.Type;
+import org.junit.Before;
+import org.junit.Test;
+
+public class POJOActivityTaskHandlerTest {
+
+  public interface TestActivities {
+    @ActivityMethod(name = "result")
+    String result();
+
+    @ActivityMethod(name = "throwable")
+    void throwable() throws Throwable;
+  }
+
+  public static class TestActivitiesImpl implements TestActivities {
+    @Override
+    public String result() {
+      return "result";
+    }
+
+    @Override
+    public void throwable() throws Throwable {
+      throw new Throwable("raw");
+    }
+  }
+
+  /** Fails serialization of results with an Error, as a broken converter would. */
+  private static class FailingDataConverter implements DataConverter {
+    @Override
+    public byte[] toData(Object... value) {
+      throw new AssertionError("converter failure");
+    }
+
+    @Override
+    public <T> T fromData(byte[] content, Class<T> valueClass, Type valueType) {
+      return JsonDataConverter.getInstance().fromData(content, valueClass, valueType);
+    }
+
+    @Override
+    public Object[] fromDataArray(byte[] content, Type... valueType) {
+      return JsonDataConverter.getInstance().fromDataArray(content, valueType);
+    }
+  }
+
+  private Scope metricsScope;
+
+  @Before
+  public void setUp() {
+    metricsScope = mock(Scope.class);
+    when(metricsScope.counter(anyString())).thenReturn(mock(Counter.class));
+  }
+
+  @Test
+  public void testThrowableFromActivityIsReportedAsFailure() {
+    POJOActivityTaskHandler handler = newHandler(JsonDataConverter.getInstance());
+    ActivityTaskHandler.Result result = handler.handle(task("throwable"), metricsScope, true);
+
+    Throwable failure = result.getTaskFailedResult().getFailure();
+    assertEquals(RuntimeException.class, failure.getClass());
+    assertEquals("raw", failure.getCause().getMessage());
+    verify(metricsScope).counter(MetricsType.LOCAL_ACTIVITY_FAILED_COUNTER);
+  }
+
+  @Test
+  public void testErrorOfDataConverterIsNotReportedAsActivityError() {
+    POJOActivityTaskHandler handler = newHandler(new FailingDataConverter());
+    AssertionError e =
+        assertThrows(
+            AssertionError.class, () -> handler.handle(task("result"), metricsScope, true));
+    assertEquals("converter failure", e.getMessage());
+    verify(metricsScope, never()).counter(MetricsType.LOCAL_ACTIVITY_ERROR_COUNTER);
+  }
+
+  private static POJOActivityTaskHandler newHandler(DataConverter dataConverter) {
+    POJOActivityTaskHandler handler =
+        new POJOActivityTaskHandler(null, "domain", dataConverter, null);
+    handler.setLocalActivitiesImplementation(new Object[] {new TestActivitiesImpl()});
+    return handler;
+  }
+
+  private static ActivityTask task(String activityType) {
+    PollForActivityTaskResponse response =
+        new PollForActivityTaskResponse().setActivityType(new ActivityType().setName(activityType));
+    return new ActivityTask(response, () -> {});
+  }
+}
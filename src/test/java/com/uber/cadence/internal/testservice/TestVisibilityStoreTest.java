@@ -0,0 +1,261 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * <p>Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ * <p>http://aws.amazon.com/apache2.0
+ *
+ * <p>or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.uber.cadence.internal.testservice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.uber.cadence.BadRequestError;
+import com.uber.cadence.EventType;
+import com.uber.cadence.HistoryEvent;
+import com.uber.cadence.SearchAttributes;
+import com.uber.cadence.UpsertWorkflowSearchAttributesEventAttributes;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.WorkflowExecutionCloseStatus;
+import com.uber.cadence.WorkflowExecutionCompletedEventAttributes;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowExecutionStartedEventAttributes;
+import com.uber.cadence.WorkflowType;
+import com.uber.cadence.internal.testservice.TestWorkflowStore.WorkflowState;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestVisibilityStoreTest {
+
+  private static final String DOMAIN = "domain";
+
+  private TestVisibilityStore store;
+
+  @Before
+  public void setUp() {
+    store = new TestVisibilityStore();
+    // run-0 .. run-9 started at 0 .. 9, even ones are "even" workflows and completed.
+    for (int i = 0; i < 10; i++) {
+      ExecutionId executionId = executionId(i);
+      store.recordEvents(
+          executionId, Collections.singletonList(started(i, i % 2 == 0 ? "even" : "odd")), 1);
+      if (i % 2 == 0) {
+        store.recordEvents(executionId, Collections.singletonList(completed(100 + i)), 2);
+      }
+    }
+  }
+
+  @Test
+  public void testListByStateNewestFirst() throws BadRequestError {
+    List<WorkflowExecutionInfo> open =
+        list(new TestVisibilityStore.Filter().setState(WorkflowState.OPEN), 0);
+    assertEquals(runIds(9, 7, 5, 3, 1), runIds(open));
+    assertEquals(1, open.get(0).getHistoryLength());
+    assertNull(open.get(0).getCloseStatus());
+
+    List<WorkflowExecutionInfo> closed =
+        list(new TestVisibilityStore.Filter().setState(WorkflowState.CLOSED), 0);
+    assertEquals(runIds(8, 6, 4, 2, 0), runIds(closed));
+    assertEquals(WorkflowExecutionCloseStatus.COMPLETED, closed.get(0).getCloseStatus());
+    assertEquals(108, closed.get(0).getCloseTime());
+    assertEquals(2, closed.get(0).getHistoryLength());
+  }
+
+  @Test
+  public void testPagination() throws BadRequestError {
+    TestVisibilityStore.Filter filter = new TestVisibilityStore.Filter().setWorkflowType("odd");
+    List<String> result = new ArrayList<>();
+    byte[] token = null;
+    int pages = 0;
+    do {
+      TestVisibilityStore.Page page = store.list(DOMAIN, filter, 2, token);
+      result.addAll(runIds(page.getExecutions()));
+      token = page.getNextPageToken();
+      pages++;
+    } while (token != null);
+    assertEquals(runIds(9, 7, 5, 3, 1), result);
+    assertEquals(3, pages);
+  }
+
+  @Test
+  public void testStartTimeRange() throws BadRequestError {
+    TestVisibilityStore.Filter filter = new TestVisibilityStore.Filter().setStartTimeRange(3, 6);
+    assertEquals(runIds(6, 5, 4, 3), runIds(list(filter, 0)));
+    assertEquals(4, store.count(DOMAIN, filter));
+  }
+
+  @Test
+  public void testSearchAttributesAreReindexedOnUpsert() throws BadRequestError {
+    store.recordEvents(executionId(3), Collections.singletonList(upsert("Color", "red")), 2);
+    store.recordEvents(executionId(5), Collections.singletonList(upsert("Color", "red")), 2);
+    store.recordEvents(executionId(5), Collections.singletonList(upsert("Color", "blue")), 3);
+
+    TestVisibilityStore.Filter red =
+        new TestVisibilityStore.Filter().setSearchAttribute("Color", "red");
+    assertEquals(runIds(3), runIds(list(red, 0)));
+    assertEquals(1, store.count(DOMAIN, red));
+    TestVisibilityStore.Filter blue =
+        new TestVisibilityStore.Filter().setSearchAttribute("Color", "blue");
+    assertEquals(runIds(5), runIds(list(blue, 0)));
+  }
+
+  @Test
+  public void testCountQueries() throws BadRequestError {
+    assertEquals(10, store.count(DOMAIN, VisibilityQueryParser.parse("")));
+    assertEquals(5, store.count(DOMAIN, VisibilityQueryParser.parse("CloseTime = missing")));
+    assertEquals(
+        3,
+        store.count(
+            DOMAIN,
+            VisibilityQueryParser.parse(
+                "WorkflowType = 'even' AND CloseStatus = 'COMPLETED' AND StartTime >= 4")));
+    assertEquals(
+        2, store.count(DOMAIN, VisibilityQueryParser.parse("CloseStatus = 0 and CloseTime < 104")));
+    assertEquals(
+        1,
+        store.count(
+            DOMAIN, VisibilityQueryParser.parse("WorkflowID = \"workflow-7\" ORDER BY StartTime")));
+    assertEquals(0, store.count("otherDomain", VisibilityQueryParser.parse("")));
+  }
+
+  @Test
+  public void testUnsupportedQueries() {
+    assertThrows(
+        BadRequestError.class,
+        () -> VisibilityQueryParser.parse("WorkflowType = 'even' OR WorkflowType = 'odd'"));
+    assertThrows(BadRequestError.class, () -> VisibilityQueryParser.parse("WorkflowType > 'a'"));
+    assertThrows(BadRequestError.class, () -> VisibilityQueryParser.parse("StartTime > 'now'"));
+    assertThrows(
+        BadRequestError.class, () -> VisibilityQueryParser.parse("ORDER BY CloseTime DESC"));
+  }
+
+  @Test
+  public void testListWaitsForUpdatesStartedBeforeIt() throws Exception {
+    TestVisibilityStore.Filter closed =
+        new TestVisibilityStore.Filter().setState(WorkflowState.CLOSED).setWorkflowType("odd");
+    TestVisibilityStore.Update update = store.beginUpdate(executionId(9));
+    CompletableFuture<List<WorkflowExecutionInfo>> result =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return list(closed, 0);
+              } catch (BadRequestError e) {
+                throw new RuntimeException(e);
+              }
+            });
+    Thread.sleep(100);
+    assertFalse(result.isDone());
+    update.apply(Collections.singletonList(completed(109)), 2);
+    assertEquals(runIds(9), runIds(result.get(5, TimeUnit.SECONDS)));
+  }
+
+  @Test
+  public void testConcurrentUpdatesOfDifferentExecutions() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 10; i < 200; i++) {
+        ExecutionId executionId = executionId(i);
+        long time = i;
+        futures.add(
+            executor.submit(
+                () -> {
+                  store.recordEvents(
+                      executionId, Collections.singletonList(started(time, "concurrent")), 1);
+                  store.recordEvents(
+                      executionId, Collections.singletonList(completed(1000 + time)), 2);
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(5, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    TestVisibilityStore.Filter filter =
+        new TestVisibilityStore.Filter()
+            .setWorkflowType("concurrent")
+            .setCloseStatus(WorkflowExecutionCloseStatus.COMPLETED);
+    assertEquals(190, store.count(DOMAIN, filter));
+    assertEquals(
+        0,
+        store.count(
+            DOMAIN,
+            new TestVisibilityStore.Filter()
+                .setWorkflowType("concurrent")
+                .setState(WorkflowState.OPEN)));
+  }
+
+  private List<WorkflowExecutionInfo> list(TestVisibilityStore.Filter filter, int pageSize)
+      throws BadRequestError {
+    return store.list(DOMAIN, filter, pageSize, null).getExecutions();
+  }
+
+  private static ExecutionId executionId(int i) {
+    return new ExecutionId(
+        DOMAIN, new WorkflowExecution().setWorkflowId("workflow-" + i).setRunId("run-" + i));
+  }
+
+  private static HistoryEvent started(long time, String workflowType) {
+    return new HistoryEvent()
+        .setEventType(EventType.WorkflowExecutionStarted)
+        .setTimestamp(time)
+        .setWorkflowExecutionStartedEventAttributes(
+            new WorkflowExecutionStartedEventAttributes()
+                .setWorkflowType(new WorkflowType().setName(workflowType)));
+  }
+
+  private static HistoryEvent completed(long time) {
+    return new HistoryEvent()
+        .setEventType(EventType.WorkflowExecutionCompleted)
+        .setTimestamp(time)
+        .setWorkflowExecutionCompletedEventAttributes(
+            new WorkflowExecutionCompletedEventAttributes());
+  }
+
+  private static HistoryEvent upsert(String key, String value) {
+    SearchAttributes searchAttributes = new SearchAttributes();
+    searchAttributes
+        .getIndexedFields()
+        .put(key, ("\"" + value + "\"").getBytes(StandardCharsets.UTF_8));
+    return new HistoryEvent()
+        .setEventType(EventType.UpsertWorkflowSearchAttributes)
+        .setUpsertWorkflowSearchAttributesEventAttributes(
+            new UpsertWorkflowSearchAttributesEventAttributes()
+                .setSearchAttributes(searchAttributes));
+  }
+
+  private static List<String> runIds(int... ids) {
+    List<String> result = new ArrayList<>();
+    for (int id : ids) {
+      result.add("run-" + id);
+    }
+    return result;
+  }
+
+  private static List<String> runIds(List<WorkflowExecutionInfo> executions) {
+    List<String> result = new ArrayList<>();
+    for (WorkflowExecutionInfo execution : executions) {
+      result.add(execution.getExecution().getRunId());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * <p>Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ * <p>http://aws.amazon.com/apache2.0
+ *
+ * <p>or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.uber.cadence.internal.testservice;
+
+import static com.uber.cadence.internal.common.InternalUtils.createNormalTaskList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.uber.cadence.ListOpenWorkflowExecutionsRequest;
+import com.uber.cadence.StartWorkflowExecutionRequest;
+import com.uber.cadence.StartWorkflowExecutionResponse;
+import com.uber.cadence.WorkflowExecutionAlreadyStartedError;
+import com.uber.cadence.WorkflowExecutionFilter;
+import com.uber.cadence.WorkflowExecutionInfo;
+import com.uber.cadence.WorkflowType;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestWorkflowServiceShardingTest {
+
+  private static final String DOMAIN = "domain";
+
+  private final TestWorkflowService service = new TestWorkflowService(4);
+
+  @After
+  public void tearDown() {
+    service.close();
+  }
+
+  @Test
+  public void testExecutionsAreListedAcrossShards() throws Exception {
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < 20; i++) {
+      String workflowId = "workflow-" + i;
+      service.StartWorkflowExecution(newStartRequest(workflowId));
+      expected.add(workflowId);
+    }
+
+    Set<String> listed = new HashSet<>();
+    for (WorkflowExecutionInfo info :
+        service.ListOpenWorkflowExecutions(
+                new ListOpenWorkflowExecutionsRequest().setDomain(DOMAIN))
+            .getExecutions()) {
+      listed.add(info.getExecution().getWorkflowId());
+    }
+    assertEquals(expected, listed);
+  }
+
+  @Test
+  public void testWorkflowIdIsUniqueWithinItsShard() throws Exception {
+    StartWorkflowExecutionResponse response =
+        service.StartWorkflowExecution(newStartRequest("workflow"));
+    assertThrows(
+        WorkflowExecutionAlreadyStartedError.class,
+        () -> service.StartWorkflowExecution(newStartRequest("workflow")));
+
+    List<WorkflowExecutionInfo> executions =
+        service.ListOpenWorkflowExecutions(
+                new ListOpenWorkflowExecutionsRequest()
+                    .setDomain(DOMAIN)
+                    .setExecutionFilter(new WorkflowExecutionFilter().setWorkflowId("workflow")))
+            .getExecutions();
+    assertEquals(1, executions.size());
+    assertEquals(response.getRunId(), executions.get(0).getExecution().getRunId());
+  }
+
+  @Test
+  public void testInvalidShardCount() {
+    assertThrows(IllegalArgumentException.class, () -> new TestWorkflowService(0));
+  }
+
+  private static StartWorkflowExecutionRequest newStartRequest(String workflowId) {
+    return new StartWorkflowExecutionRequest()
+        .setDomain(DOMAIN)
+        .setWorkflowId(workflowId)
+        .setTaskList(createNormalTaskList("taskList"))
+        .setExecutionStartToCloseTimeoutSeconds(100)
+        .setTaskStartToCloseTimeoutSeconds(100)
+        .setWorkflowType(new WorkflowType().setName("workflowType"));
+  }
+}
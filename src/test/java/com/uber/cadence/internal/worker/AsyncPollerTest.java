@@ -0,0 +1,250 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * <p>Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ * <p>http://aws.amazon.com/apache2.0
+ *
+ * <p>or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.uber.cadence.internal.worker;
+
+import static org.junit.Assert.*;
+
+import com.uber.cadence.internal.metrics.NoopScope;
+import com.uber.cadence.worker.ExecutorWrapper;
+import io.grpc.Context;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncPollerTest {
+
+  private static final int POLL_COUNT = 3;
+
+  private FakePollTask pollTask;
+  private CollectingExecutor executor;
+  private AsyncPoller<String> poller;
+
+  @Before
+  public void setUp() {
+    pollTask = new FakePollTask();
+    executor = new CollectingExecutor();
+    PollerOptions options =
+        PollerOptions.newBuilder()
+            .setPollThreadCount(POLL_COUNT)
+            .setPollThreadNamePrefix("async-poller-test")
+            .setEnableAsyncPolling(true)
+            .build();
+    poller =
+        new AsyncPoller<>(
+            "test-identity",
+            pollTask,
+            executor,
+            options,
+            NoopScope.getInstance(),
+            ExecutorWrapper.newDefaultInstance());
+  }
+
+  @After
+  public void tearDown() {
+    if (poller.isStarted()) {
+      poller.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testOutstandingPollsAreLimitedAndTasksDispatched() throws Exception {
+    poller.start();
+    for (int i = 0; i < POLL_COUNT; i++) {
+      assertNotNull(pollTask.polls.poll(5, TimeUnit.SECONDS));
+    }
+    // All permits are taken, so no more polls are started until one completes.
+    Thread.sleep(300);
+    assertEquals(POLL_COUNT, pollTask.started.get());
+    assertEquals(POLL_COUNT, poller.getOutstandingPollCount());
+
+    pollTask.completeNext("task1");
+    pollTask.completeNext(null);
+    CompletableFuture<String> restarted = pollTask.polls.poll(5, TimeUnit.SECONDS);
+    assertNotNull(restarted);
+    pollTask.complete(restarted, "task2");
+
+    assertTrue(pollTask.polls.poll(5, TimeUnit.SECONDS) != null);
+    assertEquals("task1", executor.tasks.poll(5, TimeUnit.SECONDS));
+    assertEquals("task2", executor.tasks.poll(5, TimeUnit.SECONDS));
+    assertEquals(POLL_COUNT, pollTask.maxOutstanding.get());
+  }
+
+  @Test
+  public void testFailedPollIsRestarted() throws Exception {
+    poller.start();
+    CompletableFuture<String> poll = pollTask.polls.poll(5, TimeUnit.SECONDS);
+    assertNotNull(poll);
+    poll.completeExceptionally(new RuntimeException("simulated"));
+    for (int i = 0; i < POLL_COUNT; i++) {
+      assertNotNull(pollTask.polls.poll(5, TimeUnit.SECONDS));
+    }
+    assertTrue(executor.tasks.isEmpty());
+  }
+
+  @Test
+  public void testBlockedTaskExecutorHoldsPollPermit() throws Exception {
+    CountDownLatch unblock = new CountDownLatch(1);
+    executor.blockUntil = unblock;
+    poller.start();
+    for (int i = 0; i < POLL_COUNT; i++) {
+      assertNotNull(pollTask.polls.poll(5, TimeUnit.SECONDS));
+    }
+    // Completes on the test thread although the executor blocks.
+    pollTask.completeNext("task1");
+    assertEquals("task1", executor.tasks.poll(5, TimeUnit.SECONDS));
+    Thread.sleep(300);
+    assertEquals(POLL_COUNT, pollTask.started.get());
+
+    unblock.countDown();
+    assertNotNull(pollTask.polls.poll(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testShutdownCancelsPollContextAndDispatchesLateTask() throws Exception {
+    poller.start();
+    CompletableFuture<String> poll = pollTask.polls.poll(5, TimeUnit.SECONDS);
+    assertNotNull(poll);
+    Context pollContext = pollTask.contexts.poll(5, TimeUnit.SECONDS);
+    assertNotNull(pollContext);
+    assertFalse(pollContext.isCancelled());
+
+    Thread shutdown = new Thread(poller::shutdown);
+    shutdown.start();
+    while (!pollContext.isCancelled()) {
+      Thread.sleep(10);
+    }
+    // Task received by a poll before the server saw its cancellation.
+    pollTask.complete(poll, "late");
+    shutdown.join();
+
+    assertEquals("late", executor.tasks.poll(5, TimeUnit.SECONDS));
+    assertTrue(poller.isShutdown());
+  }
+
+  @Test
+  public void testSuspendAndShutdown() throws Exception {
+    poller.suspendPolling();
+    poller.start();
+    Thread.sleep(300);
+    assertEquals(0, pollTask.started.get());
+
+    poller.resumePolling();
+    CompletableFuture<String> poll = pollTask.polls.poll(5, TimeUnit.SECONDS);
+    assertNotNull(poll);
+    while (poller.getOutstandingPollCount() == 0) {
+      Thread.sleep(10);
+    }
+
+    poller.shutdownNow();
+    poller.awaitTermination(5, TimeUnit.SECONDS);
+    assertTrue(poll.isCancelled());
+    assertTrue(poller.isTerminated());
+    assertEquals(0, poller.getOutstandingPollCount());
+  }
+
+  private static final class FakePollTask implements Poller.AsyncPollTask<String> {
+
+    final BlockingQueue<CompletableFuture<String>> polls = new LinkedBlockingQueue<>();
+    final BlockingQueue<Context> contexts = new LinkedBlockingQueue<>();
+    final AtomicInteger started = new AtomicInteger();
+    final AtomicInteger outstanding = new AtomicInteger();
+    final AtomicInteger maxOutstanding = new AtomicInteger();
+    private final List<CompletableFuture<String>> pending =
+        Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public String poll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<String> pollAsync() {
+      started.incrementAndGet();
+      maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+      CompletableFuture<String> result = new CompletableFuture<>();
+      contexts.add(Context.current());
+      pending.add(result);
+      polls.add(result);
+      return result;
+    }
+
+    void completeNext(String task) {
+      complete(pending.remove(0), task);
+    }
+
+    // Decrements before completing, as completion already releases the poller permits.
+    void complete(CompletableFuture<String> poll, String task) {
+      pending.remove(poll);
+      outstanding.decrementAndGet();
+      poll.complete(task);
+    }
+  }
+
+  private static final class CollectingExecutor implements ShutdownableTaskExecutor<String> {
+
+    final BlockingQueue<String> tasks = new LinkedBlockingQueue<>();
+    volatile CountDownLatch blockUntil;
+    private volatile boolean shutdown;
+
+    @Override
+    public void process(String task) {
+      tasks.add(task);
+      if (blockUntil != null) {
+        try {
+          blockUntil.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    @Override
+    public boolean hasCapacity() {
+      return true;
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return shutdown;
+    }
+
+    @Override
+    public void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public void shutdownNow() {
+      shutdown = true;
+    }
+
+    @Override
+    public void awaitTermination(long timeout, TimeUnit unit) {}
+  }
+}
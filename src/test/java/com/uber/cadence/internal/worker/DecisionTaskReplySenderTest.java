@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import static org.junit.Assert.*;
+
+import com.uber.cadence.internal.metrics.NoopScope;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+public class DecisionTaskReplySenderTest {
+
+  private final List<String> sent = new ArrayList<>();
+
+  @Test
+  public void testRepliesOfRunAreSentInOrder() throws InterruptedException {
+    DecisionTaskReplySender sender = new DecisionTaskReplySender(10, NoopScope.getInstance());
+    CompletableFuture<Void> first = new CompletableFuture<>();
+    CompletableFuture<Void> second = new CompletableFuture<>();
+
+    CompletableFuture<Void> firstResult = submit(sender, "run1", reply("run1-a", first));
+    CompletableFuture<Void> secondResult = submit(sender, "run1", reply("run1-b", second));
+    submit(sender, "run2", reply("run2-a", CompletableFuture.completedFuture(null)));
+    assertEquals(2, sent.size());
+    assertEquals("run1-a", sent.get(0));
+    assertEquals("run2-a", sent.get(1));
+
+    first.completeExceptionally(new RuntimeException("failed"));
+    assertTrue(firstResult.isCompletedExceptionally());
+    // A failed reply doesn't block the following replies of the run.
+    assertEquals(3, sent.size());
+    assertEquals("run1-b", sent.get(2));
+    assertFalse(secondResult.isDone());
+    assertEquals(1, sender.getPendingRunCount());
+
+    second.complete(null);
+    assertTrue(secondResult.isDone());
+    assertEquals(0, sender.getPendingRunCount());
+  }
+
+  @Test
+  public void testAcquireWaitsWhenLimitIsReached() throws Exception {
+    DecisionTaskReplySender sender = new DecisionTaskReplySender(1, NoopScope.getInstance());
+    CompletableFuture<Void> first = new CompletableFuture<>();
+    submit(sender, "run1", reply("run1-a", first));
+
+    CompletableFuture<Void> acquired =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                sender.acquire();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    Thread.sleep(100);
+    assertFalse(acquired.isDone());
+
+    first.complete(null);
+    acquired.get(5, TimeUnit.SECONDS);
+    sender.release();
+    submit(sender, "run2", reply("run2-a", CompletableFuture.completedFuture(null)));
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void testShutdownRejectsNewRepliesAndAwaitsSubmitted() throws Exception {
+    DecisionTaskReplySender sender = new DecisionTaskReplySender(10, NoopScope.getInstance());
+    CompletableFuture<Void> first = new CompletableFuture<>();
+    submit(sender, "run1", reply("run1-a", first));
+    submit(sender, "run1", reply("run1-b", CompletableFuture.completedFuture(null)));
+
+    sender.shutdown();
+    assertThrows(
+        RejectedExecutionException.class,
+        () -> submit(sender, "run2", reply("run2-a", CompletableFuture.completedFuture(null))));
+    assertEquals(1, sender.getPendingRunCount());
+    assertFalse(sender.awaitTermination(100, TimeUnit.MILLISECONDS));
+
+    first.complete(null);
+    assertTrue(sender.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(0, sender.getPendingRunCount());
+    assertEquals(2, sent.size());
+  }
+
+  private static CompletableFuture<Void> submit(
+      DecisionTaskReplySender sender, String runId, Supplier<CompletableFuture<Void>> reply)
+      throws InterruptedException {
+    sender.acquire();
+    return sender.submit(runId, reply);
+  }
+
+  private Supplier<CompletableFuture<Void>> reply(String name, CompletableFuture<Void> result) {
+    return () -> {
+      synchronized (sent) {
+        sent.add(name);
+      }
+      return result;
+    };
+  }
+}
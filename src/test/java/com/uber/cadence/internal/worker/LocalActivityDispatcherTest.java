@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import com.uber.cadence.worker.ExecutorWrapper;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class LocalActivityDispatcherTest {
+
+  private LocalActivityDispatcher dispatcher;
+
+  @After
+  public void tearDown() {
+    if (dispatcher != null && dispatcher.isStarted()) {
+      dispatcher.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testApplyReportsFullQueue() {
+    dispatcher = newDispatcher(2, mockExecutor());
+
+    assertTrue(dispatcher.apply(newTask(), Duration.ZERO));
+    assertTrue(dispatcher.apply(newTask(), Duration.ZERO));
+    assertFalse(dispatcher.apply(newTask(), Duration.ofMillis(10)));
+    assertEquals(2, dispatcher.getPendingTaskCount());
+  }
+
+  @Test
+  public void testQueuedTasksAreDispatched() throws Exception {
+    int taskCount = 500;
+    CountDownLatch processed = new CountDownLatch(taskCount);
+    AtomicInteger processCount = new AtomicInteger();
+    @SuppressWarnings("unchecked")
+    ShutdownableTaskExecutor<LocalActivityWorker.Task> executor =
+        mock(ShutdownableTaskExecutor.class);
+    doAnswer(
+            invocation -> {
+              processCount.incrementAndGet();
+              processed.countDown();
+              return null;
+            })
+        .when(executor)
+        .process(any());
+
+    dispatcher = newDispatcher(taskCount, executor);
+    for (int i = 0; i < taskCount; i++) {
+      assertTrue(dispatcher.apply(newTask(), Duration.ZERO));
+    }
+    dispatcher.start();
+
+    assertTrue(processed.await(5, TimeUnit.SECONDS));
+    assertEquals(taskCount, processCount.get());
+    assertEquals(0, dispatcher.getPendingTaskCount());
+  }
+
+  @Test
+  public void testFailedDispatchDoesNotStopDispatching() throws Exception {
+    ShutdownableTaskExecutor<LocalActivityWorker.Task> executor = mockExecutor();
+    LocalActivityWorker.Task rejected = newTask();
+    doThrow(new RejectedExecutionException("simulated")).when(executor).process(same(rejected));
+    AtomicInteger failures = new AtomicInteger();
+    dispatcher =
+        newDispatcher(
+            10,
+            executor,
+            PollerOptions.newBuilder()
+                .setPollThreadNamePrefix("la-dispatcher-test")
+                .setUncaughtExceptionHandler((t, e) -> failures.incrementAndGet())
+                .build());
+    LocalActivityWorker.Task next = newTask();
+    assertTrue(dispatcher.apply(rejected, Duration.ZERO));
+    assertTrue(dispatcher.apply(next, Duration.ZERO));
+    dispatcher.start();
+
+    verify(executor, timeout(5000)).process(same(next));
+    assertEquals(1, failures.get());
+
+    LocalActivityWorker.Task later = newTask();
+    assertTrue(dispatcher.apply(later, Duration.ZERO));
+    verify(executor, timeout(5000)).process(same(later));
+  }
+
+  @Test
+  public void testSuspendedDispatcherKeepsTasksQueued() throws Exception {
+    ShutdownableTaskExecutor<LocalActivityWorker.Task> executor = mockExecutor();
+    dispatcher = newDispatcher(10, executor);
+    dispatcher.suspendPolling();
+    dispatcher.start();
+    assertTrue(dispatcher.apply(newTask(), Duration.ZERO));
+    Thread.sleep(100);
+    verify(executor, never()).process(any());
+
+    dispatcher.resumePolling();
+    verify(executor, timeout(5000)).process(any());
+  }
+
+  @Test
+  public void testShutdownRejectsNewTasks() {
+    ShutdownableTaskExecutor<LocalActivityWorker.Task> executor = mockExecutor();
+    dispatcher = newDispatcher(10, executor);
+    dispatcher.start();
+    dispatcher.shutdown();
+
+    assertFalse(dispatcher.apply(newTask(), Duration.ofMillis(10)));
+    verify(executor).shutdown();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ShutdownableTaskExecutor<LocalActivityWorker.Task> mockExecutor() {
+    return mock(ShutdownableTaskExecutor.class);
+  }
+
+  private static LocalActivityDispatcher newDispatcher(
+      int queueSize, ShutdownableTaskExecutor<LocalActivityWorker.Task> executor) {
+    return newDispatcher(
+        queueSize,
+        executor,
+        PollerOptions.newBuilder().setPollThreadNamePrefix("la-dispatcher-test").build());
+  }
+
+  private static LocalActivityDispatcher newDispatcher(
+      int queueSize,
+      ShutdownableTaskExecutor<LocalActivityWorker.Task> executor,
+      PollerOptions pollerOptions) {
+    return new LocalActivityDispatcher(
+        queueSize, 100, executor, pollerOptions, ExecutorWrapper.newDefaultInstance());
+  }
+
+  private static LocalActivityWorker.Task newTask() {
+    return new LocalActivityWorker.Task(null, e -> {}, 10, () -> 0, () -> 0);
+  }
+}
@@ -92,7 +92,7 @@ public class PollerAutoScalerOptionsTest {
   public void testHashCode() {
     PollerAutoScalerOptions options = PollerAutoScalerOptions.Builder.newBuilder().build();
 
-    assertEquals(1058729812, options.hashCode());
+    assertEquals(-1539112959, options.hashCode());
   }
 
   @Test
@@ -100,7 +100,7 @@ public class PollerAutoScalerOptionsTest {
     PollerAutoScalerOptions options = PollerAutoScalerOptions.Builder.newBuilder().build();
 
     assertEquals(
-        "PollerAutoScalerOptions{pollerScalingInterval=PT1M, minConcurrentPollers=1, targetPollerUtilisation=0.6}",
+        "PollerAutoScalerOptions{pollerScalingInterval=PT1M, minConcurrentPollers=1, targetPollerUtilisation=0.6, enableAdaptiveScaling=false}",
         options.toString());
   }
 }
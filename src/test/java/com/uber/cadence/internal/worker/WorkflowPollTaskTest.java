@@ -24,13 +24,16 @@ import com.uber.cadence.*;
 import com.uber.cadence.internal.metrics.MetricsEmit;
 import com.uber.cadence.internal.metrics.MetricsTag;
 import com.uber.cadence.internal.metrics.MetricsType;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
 import com.uber.cadence.serviceclient.IWorkflowService;
 import com.uber.m3.tally.Counter;
 import com.uber.m3.tally.Histogram;
 import com.uber.m3.tally.Scope;
 import com.uber.m3.tally.Stopwatch;
 import com.uber.m3.util.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -225,4 +228,74 @@ public class WorkflowPollTaskTest {
     assertNull(result);
     verify(noTaskCounter, times(1)).inc(1);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPollAsyncSuccess() throws Exception {
+    WorkflowType workflowType = new WorkflowType().setName("testWorkflowType");
+    PollForDecisionTaskResponse response =
+        new PollForDecisionTaskResponse()
+            .setTaskToken("testToken".getBytes())
+            .setWorkflowType(workflowType)
+            .setScheduledTimestamp(1000L)
+            .setStartedTimestamp(2000L);
+    Scope taggedScope = mock(Scope.class);
+    when(mockMetricScope.tagged(ImmutableMap.of(MetricsTag.WORKFLOW_TYPE, "testWorkflowType")))
+        .thenReturn(taggedScope);
+    when(taggedScope.counter(MetricsType.DECISION_POLL_SUCCEED_COUNTER))
+        .thenReturn(mock(Counter.class));
+    when(taggedScope.histogram(any(), any())).thenReturn(mock(Histogram.class));
+
+    AtomicReference<AsyncMethodCallback<PollForDecisionTaskResponse>> callback =
+        new AtomicReference<>();
+    doAnswer(
+            invocation -> {
+              callback.set(invocation.getArgument(1));
+              return null;
+            })
+        .when(mockService)
+        .PollForDecisionTask(any(PollForDecisionTaskRequest.class), any(AsyncMethodCallback.class));
+
+    int permits = semaphore.availablePermits();
+    CompletableFuture<DecisionTask> result = pollTask.pollAsync();
+    assertNotNull(result);
+    assertFalse(result.isDone());
+    assertEquals(permits - 1, semaphore.availablePermits());
+
+    callback.get().onComplete(response);
+    DecisionTask task = result.get();
+    assertArrayEquals("testToken".getBytes(), task.getResponse().getTaskToken());
+    assertEquals(permits - 1, semaphore.availablePermits());
+    task.getCompletionCallback().apply();
+    assertEquals(permits, semaphore.availablePermits());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testPollAsyncFailureReleasesPermit() throws Exception {
+    Counter failedCounter = mock(Counter.class);
+    when(mockMetricScope.counter(MetricsType.DECISION_POLL_FAILED_COUNTER))
+        .thenReturn(failedCounter);
+    doAnswer(
+            invocation -> {
+              AsyncMethodCallback<PollForDecisionTaskResponse> callback = invocation.getArgument(1);
+              callback.onError(new CadenceError());
+              return null;
+            })
+        .when(mockService)
+        .PollForDecisionTask(any(PollForDecisionTaskRequest.class), any(AsyncMethodCallback.class));
+
+    int permits = semaphore.availablePermits();
+    CompletableFuture<DecisionTask> result = pollTask.pollAsync();
+    assertTrue(result.isCompletedExceptionally());
+    assertEquals(permits, semaphore.availablePermits());
+    verify(failedCounter, times(1)).inc(1);
+  }
+
+  @Test
+  public void testPollAsyncWithoutPermits() {
+    semaphore.drainPermits();
+    assertNull(pollTask.pollAsync());
+    verifyNoInteractions(mockService);
+  }
 }
@@ -19,12 +19,16 @@ package com.uber.cadence.internal.worker;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -57,6 +61,41 @@ public class WorkflowRunLockManagerTest {
     assertArrayEquals(expectedTasks, finishedTasks.toArray(processedTasks));
   }
 
+  @Test
+  public void concurrentLockingOfSameAndDifferentRuns() throws InterruptedException {
+    int threads = 8;
+    int iterations = 2000;
+    String[] runIds = {"run1", "run2", "run3"};
+    AtomicInteger[] holders = new AtomicInteger[runIds.length];
+    for (int i = 0; i < runIds.length; i++) {
+      holders[i] = new AtomicInteger();
+    }
+    AtomicBoolean overlapped = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.execute(
+          () -> {
+            for (int i = 0; i < iterations; i++) {
+              int run = i % runIds.length;
+              runLockManager.getLockForLocking(runIds[run]).lock();
+              try {
+                if (holders[run].incrementAndGet() != 1) {
+                  overlapped.set(true);
+                }
+                holders[run].decrementAndGet();
+              } finally {
+                runLockManager.unlock(runIds[run]);
+              }
+            }
+          });
+    }
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+
+    assertFalse(overlapped.get());
+    assertEquals(0, runLockManager.totalLocks());
+  }
+
   private String processTask(String runId, int taskId) {
     Lock runLock = runLockManager.getLockForLocking(runId);
     runLock.lock();
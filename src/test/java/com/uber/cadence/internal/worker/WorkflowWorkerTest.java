@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.uber.cadence.PollForDecisionTaskResponse;
+import com.uber.cadence.RespondDecisionTaskCompletedRequest;
+import com.uber.cadence.RespondDecisionTaskCompletedResponse;
+import com.uber.cadence.WorkflowExecution;
+import com.uber.cadence.WorkflowType;
+import com.uber.cadence.serviceclient.AsyncMethodCallback;
+import com.uber.cadence.serviceclient.IWorkflowService;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkflowWorkerTest {
+
+  private final List<String> sent = new ArrayList<>();
+  private final List<AsyncMethodCallback<RespondDecisionTaskCompletedResponse>> callbacks =
+      new ArrayList<>();
+  private IWorkflowService service;
+
+  @Before
+  public void setUp() throws Exception {
+    service = mock(IWorkflowService.class);
+    doAnswer(
+            invocation -> {
+              RespondDecisionTaskCompletedRequest request = invocation.getArgument(0);
+              synchronized (sent) {
+                sent.add(new String(request.getTaskToken(), StandardCharsets.UTF_8));
+                callbacks.add(invocation.getArgument(1));
+              }
+              return null;
+            })
+        .when(service)
+        .RespondDecisionTaskCompleted(
+            any(RespondDecisionTaskCompletedRequest.class), any(AsyncMethodCallback.class));
+  }
+
+  @Test
+  public void testAsyncRepliesOfRunAreSentInOrder() throws Exception {
+    PollTaskExecutor.TaskHandler<DecisionTask> taskHandler = newTaskHandler(10, false);
+
+    taskHandler.handle(task("run1", "a"));
+    // The reply of the second task of the run waits for the first one to be acknowledged.
+    taskHandler.handle(task("run1", "b"));
+    taskHandler.handle(task("run2", "c"));
+    assertEquals(2, sent.size());
+    assertEquals("a", sent.get(0));
+    assertEquals("c", sent.get(1));
+
+    callbacks.get(0).onComplete(new RespondDecisionTaskCompletedResponse());
+    assertEquals(3, sent.size());
+    assertEquals("b", sent.get(2));
+  }
+
+  @Test
+  public void testReplyPermitIsReleasedWhenTaskFails() throws Exception {
+    PollTaskExecutor.TaskHandler<DecisionTask> taskHandler = newTaskHandler(1, true);
+    assertThrows(IllegalStateException.class, () -> taskHandler.handle(task("run1", "a")));
+
+    // Would block forever if the failed task kept the only permit.
+    CompletableFuture.runAsync(
+            () -> {
+              try {
+                taskHandler.handle(task("run2", "ok"));
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            })
+        .get(5, TimeUnit.SECONDS);
+    assertEquals(1, sent.size());
+  }
+
+  @Test
+  public void testWorkerIsTerminatedAfterShutdownOnceRepliesAreSent() throws Exception {
+    WorkflowWorker worker = newWorker(10, false);
+    worker.newTaskHandler().handle(task("run1", "a"));
+    worker.shutdown();
+    assertFalse(worker.isTerminated());
+
+    callbacks.get(0).onComplete(new RespondDecisionTaskCompletedResponse());
+    assertTrue(worker.isTerminated());
+  }
+
+  private PollTaskExecutor.TaskHandler<DecisionTask> newTaskHandler(
+      int maxOutstandingReplies, boolean failFirstTask) {
+    return newWorker(maxOutstandingReplies, failFirstTask).newTaskHandler();
+  }
+
+  private WorkflowWorker newWorker(int maxOutstandingReplies, boolean failFirstTask) {
+    SingleWorkerOptions options =
+        SingleWorkerOptions.newBuilder()
+            .setTaskExecutorThreadPoolSize(maxOutstandingReplies)
+            .setEnableAsyncDecisionTaskCompletion(true)
+            .build();
+    DecisionTaskHandler handler =
+        new DecisionTaskHandler() {
+          private boolean failed;
+
+          @Override
+          public Result handleDecisionTask(PollForDecisionTaskResponse decisionTask) {
+            if (failFirstTask && !failed) {
+              failed = true;
+              throw new IllegalStateException("simulated");
+            }
+            return new Result(new RespondDecisionTaskCompletedRequest(), null, null);
+          }
+
+          @Override
+          public boolean isAnyTypeSupported() {
+            return true;
+          }
+        };
+    return new WorkflowWorker(service, "domain", "taskList", options, handler, null, "sticky");
+  }
+
+  private static DecisionTask task(String runId, String taskToken) {
+    PollForDecisionTaskResponse response =
+        new PollForDecisionTaskResponse()
+            .setTaskToken(taskToken.getBytes(StandardCharsets.UTF_8))
+            .setWorkflowType(new WorkflowType().setName("workflowType"))
+            .setWorkflowExecution(
+                new WorkflowExecution().setWorkflowId("workflowId").setRunId(runId));
+    return new DecisionTask(response, () -> {});
+  }
+}
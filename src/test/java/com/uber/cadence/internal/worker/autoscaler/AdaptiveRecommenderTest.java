@@ -0,0 +1,106 @@
+/*
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.internal.worker.autoscaler;
+
+import static org.junit.Assert.*;
+
+import com.uber.m3.tally.NoopScope;
+import java.time.Duration;
+import org.junit.Test;
+
+public class AdaptiveRecommenderTest {
+
+  private static final Duration SLOW_POLL = Duration.ofSeconds(30);
+
+  @Test
+  public void scalesUpImmediatelyOnBacklog() {
+    AdaptiveRecommender recommender = newRecommender();
+    PollerUsage usage = new PollerUsage(0.6f, 0, 15, SLOW_POLL, 10);
+    assertEquals(25, recommender.recommend(10, usage));
+  }
+
+  @Test
+  public void scalesUpWhenPollsReturnFast() {
+    AdaptiveRecommender recommender = newRecommender();
+    PollerUsage usage = new PollerUsage(0.6f, 0, 0, Duration.ofMillis(10), 10);
+    assertEquals(20, recommender.recommend(10, usage));
+  }
+
+  @Test
+  public void doesNotScaleUpWhenExecutorIsSaturated() {
+    AdaptiveRecommender recommender = newRecommender();
+    PollerUsage usage = new PollerUsage(0.9f, 1, 50, Duration.ofMillis(10), 10);
+    assertEquals(10, recommender.recommend(10, usage));
+    assertEquals(8, recommender.recommend(10, usage));
+  }
+
+  @Test
+  public void scalesDownGraduallyAfterStabilization() {
+    AdaptiveRecommender recommender = newRecommender();
+    PollerUsage idle = new PollerUsage(0, 0, -1, SLOW_POLL, 10);
+    assertEquals(40, recommender.recommend(40, idle));
+    assertEquals(30, recommender.recommend(40, idle));
+    assertEquals(23, recommender.recommend(30, idle));
+  }
+
+  @Test
+  public void scaleUpResetsScaleDownStabilization() {
+    AdaptiveRecommender recommender = newRecommender();
+    PollerUsage idle = new PollerUsage(0, 0, -1, SLOW_POLL, 10);
+    PollerUsage busy = new PollerUsage(0.9f, 0, 0, SLOW_POLL, 10);
+    assertEquals(40, recommender.recommend(40, idle));
+    assertEquals(60, recommender.recommend(40, busy));
+    assertEquals(60, recommender.recommend(60, idle));
+  }
+
+  @Test
+  public void scalesUpToBacklogBetweenIntervals() {
+    AdaptiveRecommender recommender = newRecommender();
+    assertEquals(10, recommender.recommendOnBacklog(10, 5));
+    assertEquals(30, recommender.recommendOnBacklog(10, 30));
+    assertEquals(100, recommender.recommendOnBacklog(30, 500));
+  }
+
+  @Test
+  public void scaleUpOnBacklogResetsScaleDownStabilization() {
+    AdaptiveRecommender recommender = newRecommender();
+    PollerUsage idle = new PollerUsage(0, 0, -1, SLOW_POLL, 10);
+    assertEquals(40, recommender.recommend(40, idle));
+    assertEquals(50, recommender.recommendOnBacklog(40, 50));
+    assertEquals(50, recommender.recommend(50, idle));
+  }
+
+  @Test
+  public void keepsPollerCountWithoutCompletedPolls() {
+    AdaptiveRecommender recommender = newRecommender();
+    assertEquals(40, recommender.recommend(40, new PollerUsage(0)));
+    assertEquals(40, recommender.recommend(40, new PollerUsage(0)));
+  }
+
+  @Test
+  public void respectsBounds() {
+    AdaptiveRecommender recommender = newRecommender();
+    assertEquals(100, recommender.recommend(90, new PollerUsage(1, 0, 500, SLOW_POLL, 10)));
+    PollerUsage idle = new PollerUsage(0, 0, -1, SLOW_POLL, 10);
+    recommender.recommend(2, idle);
+    assertEquals(1, recommender.recommend(2, idle));
+    assertEquals(1, recommender.recommend(1, idle));
+  }
+
+  private static AdaptiveRecommender newRecommender() {
+    return new AdaptiveRecommender(0.6f, 100, 1, new NoopScope());
+  }
+}
@@ -18,6 +18,7 @@ package com.uber.cadence.internal.worker.autoscaler;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import com.uber.m3.tally.NoopScope;
 import java.lang.reflect.Field;
 import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
@@ -46,6 +47,34 @@ public class PollerAutoScalerTest {
     assertEquals(10, pollerAutoScaler.getSemaphoreSize());
   }
 
+  @Test
+  public void testAutoScalerScalesUpOnBacklogImmediately() {
+    PollerUsageEstimator pollerUsageEstimator = new PollerUsageEstimator();
+    Recommender recommender = new AdaptiveRecommender(0.5f, 100, 10, new NoopScope());
+    PollerAutoScaler pollerAutoScaler =
+        new PollerAutoScaler(Duration.ofSeconds(10), pollerUsageEstimator, recommender);
+
+    pollerUsageEstimator.increaseNoopTaskCount();
+    pollerAutoScaler.resizePollers();
+    pollerUsageEstimator.increaseNoopTaskCount();
+    pollerAutoScaler.resizePollers();
+    assertEquals(75, pollerAutoScaler.getSemaphoreSize());
+
+    pollerAutoScaler.recordBacklogCountHint(50);
+    assertEquals(75, pollerAutoScaler.getSemaphoreSize());
+
+    pollerAutoScaler.recordBacklogCountHint(90);
+    assertEquals(90, pollerAutoScaler.getSemaphoreSize());
+
+    pollerAutoScaler.recordExecutorCapacity(false);
+    pollerAutoScaler.recordBacklogCountHint(200);
+    assertEquals(90, pollerAutoScaler.getSemaphoreSize());
+
+    pollerAutoScaler.recordExecutorCapacity(true);
+    pollerAutoScaler.recordBacklogCountHint(200);
+    assertEquals(100, pollerAutoScaler.getSemaphoreSize());
+  }
+
   @Test
   public void testStart() throws Exception {
     // Get a partial mock of PollerAutoScaler
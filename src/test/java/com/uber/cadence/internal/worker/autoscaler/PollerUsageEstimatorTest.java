@@ -17,6 +17,7 @@ package com.uber.cadence.internal.worker.autoscaler;
 
 import static org.junit.Assert.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Test;
@@ -88,4 +89,29 @@ public class PollerUsageEstimatorTest {
     pollerUsageEstimator.increaseNoopTaskCount();
     assertEquals(10000f / 10001, pollerUsageEstimator.estimate().getPollerUtilizationRate(), 0);
   }
+
+  @Test
+  public void testBacklogSaturationAndLatency() {
+    PollerUsageEstimator pollerUsageEstimator = new PollerUsageEstimator();
+    pollerUsageEstimator.increaseActionableTaskCount();
+    pollerUsageEstimator.increaseActionableTaskCount();
+    pollerUsageEstimator.recordBacklogCountHint(5);
+    pollerUsageEstimator.recordBacklogCountHint(3);
+    pollerUsageEstimator.recordExecutorCapacity(true);
+    pollerUsageEstimator.recordExecutorCapacity(false);
+    pollerUsageEstimator.recordPollLatency(Duration.ofMillis(100).toNanos());
+    pollerUsageEstimator.recordPollLatency(Duration.ofMillis(300).toNanos());
+
+    PollerUsage pollerUsage = pollerUsageEstimator.estimate();
+    assertEquals(5, pollerUsage.getBacklogCountHint());
+    assertEquals(0.5f, pollerUsage.getExecutorSaturationRate(), 0);
+    assertEquals(Duration.ofMillis(200), pollerUsage.getAveragePollLatency());
+    assertEquals(2, pollerUsage.getPollCount());
+
+    pollerUsageEstimator.increaseNoopTaskCount();
+    pollerUsage = pollerUsageEstimator.estimate();
+    assertEquals(-1, pollerUsage.getBacklogCountHint());
+    assertEquals(0f, pollerUsage.getExecutorSaturationRate(), 0);
+    assertEquals(Duration.ZERO, pollerUsage.getAveragePollLatency());
+  }
 }
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ *  Modifications copyright (C) 2017 Uber Technologies, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ *  use this file except in compliance with the License. A copy of the License is
+ *  located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ *  or in the "license" file accompanying this file. This file is distributed on
+ *  an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ *  express or implied. See the License for the specific language governing
+ *  permissions and limitations under the License.
+ */
+
+package com.uber.cadence.serviceclient.auth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingAuthorizationProviderTest {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final List<Runnable> refreshes = new ArrayList<>();
+  private List<String> tokens;
+  private int calls;
+  private CachingAuthorizationProvider provider;
+
+  @Before
+  public void setUp() {
+    tokens = new ArrayList<>();
+    calls = 0;
+    provider =
+        new CachingAuthorizationProvider(
+            () -> {
+              String token = tokens.get(calls++);
+              if (token == null) {
+                throw new IllegalStateException("token service is down");
+              }
+              return token.getBytes(StandardCharsets.UTF_8);
+            },
+            Duration.ofSeconds(20),
+            0.5,
+            refreshes::add,
+            nanos::get);
+  }
+
+  @Test
+  public void testTokenIsReusedUntilRefresh() {
+    tokens.add("token1");
+    assertEquals("token1", provider.getAuthHeaderValue());
+    advanceSeconds(9);
+    assertEquals("token1", provider.getAuthHeaderValue());
+    assertArrayEquals("token1".getBytes(StandardCharsets.UTF_8), provider.getAuthToken());
+    assertEquals(1, calls);
+    assertEquals(0, refreshes.size());
+  }
+
+  @Test
+  public void testTokenIsRefreshedInBackgroundBeforeExpiration() {
+    tokens.add("token1");
+    tokens.add("token2");
+    provider.getAuthHeaderValue();
+    advanceSeconds(12);
+
+    assertEquals("token1", provider.getAuthHeaderValue());
+    assertEquals("token1", provider.getAuthHeaderValue());
+    assertEquals(1, refreshes.size());
+
+    refreshes.get(0).run();
+    assertEquals("token2", provider.getAuthHeaderValue());
+    assertEquals(2, calls);
+  }
+
+  @Test
+  public void testExpiredTokenIsRequestedSynchronously() {
+    tokens.add("token1");
+    tokens.add("token2");
+    provider.getAuthHeaderValue();
+    advanceSeconds(20);
+
+    assertEquals("token2", provider.getAuthHeaderValue());
+    assertEquals(0, refreshes.size());
+  }
+
+  @Test
+  public void testFailedRefreshKeepsTokenAndRetriesLater() {
+    tokens.add("token1");
+    tokens.add(null);
+    tokens.add("token2");
+    provider.getAuthHeaderValue();
+    advanceSeconds(12);
+    provider.getAuthHeaderValue();
+    refreshes.get(0).run();
+
+    // The next attempt is delayed by the retry interval.
+    advanceSeconds(3);
+    assertEquals("token1", provider.getAuthHeaderValue());
+    assertEquals(1, refreshes.size());
+
+    advanceSeconds(2);
+    assertEquals("token1", provider.getAuthHeaderValue());
+    assertEquals(2, refreshes.size());
+    refreshes.get(1).run();
+    assertEquals("token2", provider.getAuthHeaderValue());
+  }
+
+  @Test
+  public void testEmptyTokenIsNotCached() {
+    tokens.add("");
+    tokens.add("token1");
+    assertEquals("", provider.getAuthHeaderValue());
+    assertEquals("token1", provider.getAuthHeaderValue());
+    assertEquals(2, calls);
+  }
+
+  private void advanceSeconds(long seconds) {
+    nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+  }
+}
@@ -52,18 +52,9 @@ public class TestWorkflowEnvironmentTest extends TestCase {
     assertThrows(
         UnsupportedOperationException.class,
         () -> service.TerminateWorkflowExecution(new TerminateWorkflowExecutionRequest()));
-    assertThrows(
-        UnsupportedOperationException.class,
-        () -> service.ListWorkflowExecutions(new ListWorkflowExecutionsRequest()));
     assertThrows(
         UnsupportedOperationException.class,
         () -> service.ListArchivedWorkflowExecutions(new ListArchivedWorkflowExecutionsRequest()));
-    assertThrows(
-        UnsupportedOperationException.class,
-        () -> service.ScanWorkflowExecutions(new ListWorkflowExecutionsRequest()));
-    assertThrows(
-        UnsupportedOperationException.class,
-        () -> service.CountWorkflowExecutions(new CountWorkflowExecutionsRequest()));
     assertThrows(UnsupportedOperationException.class, () -> service.GetSearchAttributes());
     assertThrows(
         UnsupportedOperationException.class,
@@ -14,12 +14,25 @@
  */
 package com.uber.cadence.workflow;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.cadence.testing.WorkflowReplayReport;
 import com.uber.cadence.testing.WorkflowReplayer;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class WorkflowReplayTest {
 
+  @Rule public TemporaryFolder historyDirectory = new TemporaryFolder();
+
   // Server doesn't guarantee that the timer fire timestamp is larger or equal of the
   // expected fire time. This test ensures that client still fires timer in this case.
   @Test
@@ -113,4 +126,33 @@ public class WorkflowReplayTest {
     WorkflowReplayer.replayWorkflowExecutionFromResource(
         "testChildWorkflowRetryHistory.json", WorkflowTest.TestChildWorkflowRetryWorkflow.class);
   }
+
+  @Test
+  public void testBulkReplayReportsFailuresPerHistory() throws Exception {
+    ClassLoader classLoader = WorkflowReplayTest.class.getClassLoader();
+    File history = new File(classLoader.getResource("timerfiring.json").getFile());
+    Path root = historyDirectory.getRoot().toPath();
+    for (int i = 0; i < 3; i++) {
+      Files.copy(history.toPath(), root.resolve("history" + i + ".json"));
+    }
+    Files.write(root.resolve("broken.json"), "[".getBytes(UTF_8));
+    // Not a history, skipped.
+    historyDirectory.newFile("README.txt");
+
+    WorkflowReplayReport report =
+        WorkflowReplayer.replayWorkflowExecutions(
+            historyDirectory.getRoot(), 2, WorkflowTest.TimerFiringWorkflowImpl.class);
+
+    assertEquals(4, report.getReplayed());
+    assertEquals(3, report.getSucceeded());
+    assertEquals(1, report.getFailed());
+    assertEquals(0, report.getNonDeterministic());
+    WorkflowReplayReport.Failure failure = report.getFailures().get(0);
+    assertTrue(failure.getHistoryName().endsWith("broken.json"));
+    assertNull(failure.getWorkflowType());
+    WorkflowReplayReport.WorkflowTypeStats stats =
+        report.getWorkflowTypeStats().get("GreetingWorkflow::createGreeting");
+    assertEquals(3, stats.getReplayed());
+    assertEquals(0, stats.getFailed());
+  }
 }